@@ -0,0 +1,321 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The parameter object of a mapper method with several (or {@code @Param} annotated) arguments,
+ * and of a collection or array passed to a statement.
+ * <p>
+ * Behaves like {@link MapperMethod.ParamMap}: reading a missing key throws a
+ * {@link BindingException}. The keys are not hashed into a new table on each call though: the
+ * values are kept in an array, at the slots given by a {@link Names} table computed once per
+ * method. Keys put by plugins or key generators that are not in the table are kept in a map
+ * created on first use.
+ * <p>
+ * Only used when the <code>useFixedParamMap</code> setting is enabled, as it is neither a
+ * {@link MapperMethod.ParamMap} nor a {@link org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap}.
+ */
+public class FixedParamMap extends AbstractMap<String, Object> implements Serializable {
+
+  private static final long serialVersionUID = 3870265375914563318L;
+
+  /**
+   * Marks a slot whose key was removed.
+   */
+  private enum Absent {
+    VALUE
+  }
+
+  private final Names names;
+
+  private final Object[] values;
+
+  private Map<String, Object> extraValues;
+
+  /**
+   * @param names the slot table
+   * @param args the arguments, read at the argument index of each slot
+   */
+  public FixedParamMap(Names names, Object[] args) {
+    this.names = names;
+    this.values = new Object[names.keys.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = args[names.argIndexes[i]];
+    }
+  }
+
+  /**
+   * Copies the slots and the extra values of another map.
+   */
+  public FixedParamMap(FixedParamMap source) {
+    this.names = source.names;
+    this.values = source.values.clone();
+    if (source.extraValues != null) {
+      this.extraValues = new LinkedHashMap<String, Object>(source.extraValues);
+    }
+  }
+
+  public Names getNames() {
+    return names;
+  }
+
+  /**
+   * Returns the value of a slot.
+   *
+   * @param slot the index of <code>key</code> in {@link #getNames()}
+   * @param key the key of the slot, used to report a removed value
+   */
+  public Object get(int slot, String key) {
+    Object value = values[slot];
+    if (value == Absent.VALUE) {
+      throw notFound(key);
+    }
+    return value;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int slot = names.indexOf(key);
+    if (slot >= 0) {
+      return get(slot, (String) key);
+    }
+    if (extraValues == null || !extraValues.containsKey(key)) {
+      throw notFound(key);
+    }
+    return extraValues.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    int slot = names.indexOf(key);
+    if (slot >= 0) {
+      return values[slot] != Absent.VALUE;
+    }
+    return extraValues != null && extraValues.containsKey(key);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int slot = names.indexOf(key);
+    if (slot >= 0) {
+      Object previous = values[slot];
+      values[slot] = value;
+      return previous == Absent.VALUE ? null : previous;
+    }
+    if (extraValues == null) {
+      extraValues = new LinkedHashMap<String, Object>();
+    }
+    return extraValues.put(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    int slot = names.indexOf(key);
+    if (slot >= 0) {
+      Object previous = values[slot];
+      values[slot] = Absent.VALUE;
+      return previous == Absent.VALUE ? null : previous;
+    }
+    return extraValues == null ? null : extraValues.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(values, Absent.VALUE);
+    extraValues = null;
+  }
+
+  @Override
+  public int size() {
+    int size = extraValues == null ? 0 : extraValues.size();
+    for (Object value : values) {
+      if (value != Absent.VALUE) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return FixedParamMap.this.size();
+      }
+    };
+  }
+
+  private BindingException notFound(Object key) {
+    return new BindingException("Parameter '" + key + "' not found. Available parameters are " + keySet());
+  }
+
+  private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+    private int slot = -1;
+
+    private Iterator<Entry<String, Object>> extraIterator;
+
+    /**
+     * Slot returned by the last {@link #next()} call, <code>-1</code> if none or if it came from the extra values
+     */
+    private int lastSlot = -1;
+
+    private boolean inExtraValues;
+
+    EntryIterator() {
+      advance();
+    }
+
+    private void advance() {
+      do {
+        slot++;
+      }
+      while (slot < values.length && values[slot] == Absent.VALUE);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (slot < values.length) {
+        return true;
+      }
+      if (extraIterator == null) {
+        extraIterator = extraValues == null
+            ? Collections.<Entry<String, Object>>emptySet().iterator()
+            : extraValues.entrySet().iterator();
+      }
+      return extraIterator.hasNext();
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (slot < values.length) {
+        final int current = slot;
+        advance();
+        lastSlot = current;
+        inExtraValues = false;
+        return new SimpleEntry<String, Object>(names.keys[current], values[current]) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          public Object setValue(Object value) {
+            values[current] = value;
+            return super.setValue(value);
+          }
+        };
+      }
+      lastSlot = -1;
+      inExtraValues = true;
+      return extraIterator.next();
+    }
+
+    @Override
+    public void remove() {
+      if (inExtraValues) {
+        extraIterator.remove();
+        return;
+      }
+      if (lastSlot < 0) {
+        throw new IllegalStateException();
+      }
+      values[lastSlot] = Absent.VALUE;
+      lastSlot = -1;
+    }
+  }
+
+  /**
+   * The keys of a {@link FixedParamMap} and the index of the argument each one is read from,
+   * shared by all the calls of a mapper method.
+   */
+  public static final class Names implements Serializable {
+
+    private static final long serialVersionUID = -1748296430386539011L;
+
+    private final String[] keys;
+
+    private final int[] argIndexes;
+
+    private final Map<String, Integer> slots;
+
+    /**
+     * @param argIndexes the argument index of each key, in slot order
+     */
+    public Names(Map<String, Integer> argIndexes) {
+      this.keys = new String[argIndexes.size()];
+      this.argIndexes = new int[argIndexes.size()];
+      this.slots = new HashMap<String, Integer>();
+      int slot = 0;
+      for (Map.Entry<String, Integer> entry : argIndexes.entrySet()) {
+        keys[slot] = entry.getKey();
+        this.argIndexes[slot] = entry.getValue();
+        slots.put(entry.getKey(), slot);
+        slot++;
+      }
+    }
+
+    /**
+     * Returns a table where every key reads the first argument.
+     */
+    public static Names of(String... keys) {
+      Map<String, Integer> argIndexes = new LinkedHashMap<String, Integer>();
+      for (String key : keys) {
+        argIndexes.put(key, 0);
+      }
+      return new Names(argIndexes);
+    }
+
+    /**
+     * @return the slot of the key, <code>-1</code> if it has none
+     */
+    public int indexOf(Object key) {
+      Integer slot = slots.get(key);
+      return slot == null ? -1 : slot;
+    }
+
+    public int size() {
+      return keys.length;
+    }
+
+    /**
+     * Puts the value of each key in another map.
+     *
+     * @param args the arguments, read at the argument index of each key
+     */
+    public void putAll(Map<String, Object> map, Object[] args) {
+      for (int slot = 0; slot < keys.length; slot++) {
+        map.put(keys[slot], args[argIndexes[slot]]);
+      }
+    }
+  }
+
+}
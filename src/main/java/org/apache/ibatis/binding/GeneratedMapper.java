@@ -0,0 +1,38 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * The superclass of the mapper implementations generated by {@link MapperClassGenerator}.
+ * <p>
+ * Each generated method calls the {@link MapperMethod} at its index directly, without the
+ * reflective dispatch and the method cache lookup of a {@link MapperProxy}.
+ */
+public abstract class GeneratedMapper {
+
+  protected final SqlSession sqlSession;
+
+  private final MapperProxyFactory<?> mapperProxyFactory;
+
+  protected GeneratedMapper(SqlSession sqlSession, MapperProxyFactory<?> mapperProxyFactory) {
+    this.sqlSession = sqlSession;
+    this.mapperProxyFactory = mapperProxyFactory;
+  }
+
+  protected final MapperMethod mapperMethod(int index) {
+    return mapperProxyFactory.getMapperMethod(index, sqlSession);
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.LoaderClassPath;
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * Generates a class implementing a mapper interface, used instead of a {@link MapperProxy} when
+ * <code>useGeneratedMappers</code> is enabled.
+ * <p>
+ * The class only depends on the interface: the statement bound to each method and the conversion
+ * of its result are decided by the {@link MapperMethod}s of each configuration. It is therefore
+ * generated once per interface and class loader, named after the interface with the
+ * {@link #CLASS_NAME_SUFFIX} suffix. Default methods are not implemented, so they are invoked
+ * directly.
+ */
+public final class MapperClassGenerator {
+
+  public static final String CLASS_NAME_SUFFIX = "$$GeneratedMapper";
+
+  private MapperClassGenerator() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Returns the methods a generated class implements, in the order of their indexes.
+   */
+  public static Method[] getMapperMethods(Class<?> mapperInterface) {
+    Map<String, Method> methods = new LinkedHashMap<String, Method>();
+    for (Method method : mapperInterface.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers()) || !Modifier.isAbstract(method.getModifiers()) || isObjectMethod(method)) {
+        continue;
+      }
+      // a covariant redeclaration has its own descriptor, implemented by its own method
+      String key = method.getName() + Arrays.toString(method.getParameterTypes()) + method.getReturnType().getName();
+      if (!methods.containsKey(key)) {
+        methods.put(key, method);
+      }
+    }
+    List<Map.Entry<String, Method>> entries = new ArrayList<Map.Entry<String, Method>>(methods.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<String, Method>>() {
+      @Override
+      public int compare(Map.Entry<String, Method> o1, Map.Entry<String, Method> o2) {
+        return o1.getKey().compareTo(o2.getKey());
+      }
+    });
+    Method[] result = new Method[entries.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = entries.get(i).getValue();
+    }
+    return result;
+  }
+
+  private static boolean isObjectMethod(Method method) {
+    try {
+      Object.class.getMethod(method.getName(), method.getParameterTypes());
+      return true;
+    }
+    catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  private static String typeName(Class<?> type) {
+    return type.isArray() ? typeName(type.getComponentType()) + "[]" : type.getName();
+  }
+
+  /**
+   * Returns the generated class of an interface, generating it if its class loader does not have it yet.
+   */
+  public static synchronized Class<?> getMapperClass(Class<?> mapperInterface) throws Exception {
+    String className = mapperInterface.getName() + CLASS_NAME_SUFFIX;
+    ClassLoader classLoader = mapperInterface.getClassLoader();
+    try {
+      Class<?> generated = Class.forName(className, false, classLoader);
+      if (mapperInterface.isAssignableFrom(generated)) {
+        return generated;
+      }
+    }
+    catch (ClassNotFoundException e) {
+      // not generated yet
+    }
+    return generate(mapperInterface, className, classLoader);
+  }
+
+  private static Class<?> generate(Class<?> mapperInterface, String className, ClassLoader classLoader) throws Exception {
+    ClassPool pool = new ClassPool(true);
+    pool.insertClassPath(new LoaderClassPath(classLoader));
+    pool.insertClassPath(new LoaderClassPath(MapperClassGenerator.class.getClassLoader()));
+    CtClass ctClass = pool.makeClass(className, pool.get(GeneratedMapper.class.getName()));
+    ctClass.addInterface(pool.get(mapperInterface.getName()));
+
+    CtConstructor constructor = CtNewConstructor.make(
+        new CtClass[] { pool.get(SqlSession.class.getName()), pool.get(MapperProxyFactory.class.getName()) },
+        new CtClass[0], ctClass);
+    ctClass.addConstructor(constructor);
+
+    Method[] methods = getMapperMethods(mapperInterface);
+    for (int i = 0; i < methods.length; i++) {
+      Method method = methods[i];
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      CtClass[] ctParameterTypes = new CtClass[parameterTypes.length];
+      for (int j = 0; j < parameterTypes.length; j++) {
+        ctParameterTypes[j] = pool.get(typeName(parameterTypes[j]));
+      }
+      CtMethod ctMethod = new CtMethod(pool.get(typeName(method.getReturnType())), method.getName(), ctParameterTypes, ctClass);
+      // ($r) unboxes primitive results and is ignored for void methods
+      ctMethod.setBody("{ return ($r) mapperMethod(" + i + ").execute(sqlSession, $args); }");
+      ctClass.addMethod(ctMethod);
+    }
+    try {
+      return ctClass.toClass(classLoader, mapperInterface.getProtectionDomain());
+    }
+    finally {
+      ctClass.detach();
+    }
+  }
+
+}
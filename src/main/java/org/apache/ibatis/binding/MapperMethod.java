@@ -45,9 +45,21 @@ public class MapperMethod {
 
   private final MethodSignature method;
 
+  /**
+   * How the statement is executed and its result converted, decided once from the command type and the method signature
+   */
+  private final Execution execution;
+
+  /**
+   * true if a null result cannot be returned (primitive return type)
+   */
+  private final boolean nullResultForbidden;
+
   public MapperMethod(Class<?> mapperInterface, Method method, Configuration config) {
     this.command = new SqlCommand(config, mapperInterface, method);
     this.method = new MethodSignature(config, mapperInterface, method);
+    this.execution = Execution.of(command, this.method);
+    this.nullResultForbidden = this.method.getReturnType().isPrimitive() && !this.method.returnsVoid();
   }
 
   /**
@@ -59,40 +71,31 @@ public class MapperMethod {
    */
   public Object execute(SqlSession sqlSession, Object[] args) {
     Object result;
-    switch (command.getType()) {
-      case INSERT: {
-        Object param = method.convertArgsToSqlCommandParam(args);
-        result = rowCountResult(sqlSession.insert(command.getName(), param));
+    switch (execution) {
+      case INSERT:
+        result = rowCountResult(sqlSession.insert(command.getName(), method.convertArgsToSqlCommandParam(args)));
         break;
-      }
-      case UPDATE: {
-        Object param = method.convertArgsToSqlCommandParam(args);
-        result = rowCountResult(sqlSession.update(command.getName(), param));
+      case UPDATE:
+        result = rowCountResult(sqlSession.update(command.getName(), method.convertArgsToSqlCommandParam(args)));
         break;
-      }
-      case DELETE: {
-        Object param = method.convertArgsToSqlCommandParam(args);
-        result = rowCountResult(sqlSession.delete(command.getName(), param));
+      case DELETE:
+        result = rowCountResult(sqlSession.delete(command.getName(), method.convertArgsToSqlCommandParam(args)));
         break;
-      }
-      case SELECT:
-        if (method.returnsVoid() && method.hasResultHandler()) {
-          executeWithResultHandler(sqlSession, args);
-          result = null;
-        }
-        else if (method.returnsMany()) {
-          result = executeForMany(sqlSession, args);
-        }
-        else if (method.returnsMap()) {
-          result = executeForMap(sqlSession, args);
-        }
-        else if (method.returnsCursor()) {
-          result = executeForCursor(sqlSession, args);
-        }
-        else {
-          Object param = method.convertArgsToSqlCommandParam(args);
-          result = sqlSession.selectOne(command.getName(), param);
-        }
+      case SELECT_WITH_RESULT_HANDLER:
+        executeWithResultHandler(sqlSession, args);
+        result = null;
+        break;
+      case SELECT_MANY:
+        result = executeForMany(sqlSession, args);
+        break;
+      case SELECT_MAP:
+        result = executeForMap(sqlSession, args);
+        break;
+      case SELECT_CURSOR:
+        result = executeForCursor(sqlSession, args);
+        break;
+      case SELECT_ONE:
+        result = sqlSession.selectOne(command.getName(), method.convertArgsToSqlCommandParam(args));
         break;
       case FLUSH:
         result = sqlSession.flushStatements();
@@ -100,7 +103,7 @@ public class MapperMethod {
       default:
         throw new BindingException("Unknown execution method for: " + command.getName());
     }
-    if (result == null && method.getReturnType().isPrimitive() && !method.returnsVoid()) {
+    if (result == null && nullResultForbidden) {
       throw new BindingException("Mapper method '" + command.getName()
           + " attempted to return null from a method with a primitive return type (" + method.getReturnType() + ").");
     }
@@ -114,23 +117,54 @@ public class MapperMethod {
    * @return
    */
   private Object rowCountResult(int rowCount) {
-    final Object result;
-    if (method.returnsVoid()) {
-      result = null;
-    }
-    else if (Integer.class.equals(method.getReturnType()) || Integer.TYPE.equals(method.getReturnType())) {
-      result = rowCount;
-    }
-    else if (Long.class.equals(method.getReturnType()) || Long.TYPE.equals(method.getReturnType())) {
-      result = (long) rowCount;
-    }
-    else if (Boolean.class.equals(method.getReturnType()) || Boolean.TYPE.equals(method.getReturnType())) {
-      result = rowCount > 0;
+    switch (method.getRowCountType()) {
+      case VOID:
+        return null;
+      case INTEGER:
+        return rowCount;
+      case LONG:
+        return (long) rowCount;
+      case BOOLEAN:
+        return rowCount > 0;
+      default:
+        throw new BindingException("Mapper method '" + command.getName() + "' has an unsupported return type: " + method.getReturnType());
     }
-    else {
-      throw new BindingException("Mapper method '" + command.getName() + "' has an unsupported return type: " + method.getReturnType());
+  }
+
+  /**
+   * The branches of {@link #execute(SqlSession, Object[])}.
+   */
+  private enum Execution {
+    INSERT, UPDATE, DELETE, SELECT_WITH_RESULT_HANDLER, SELECT_MANY, SELECT_MAP, SELECT_CURSOR, SELECT_ONE, FLUSH, UNKNOWN;
+
+    static Execution of(SqlCommand command, MethodSignature method) {
+      switch (command.getType()) {
+        case INSERT:
+          return INSERT;
+        case UPDATE:
+          return UPDATE;
+        case DELETE:
+          return DELETE;
+        case SELECT:
+          if (method.returnsVoid() && method.hasResultHandler()) {
+            return SELECT_WITH_RESULT_HANDLER;
+          }
+          else if (method.returnsMany()) {
+            return SELECT_MANY;
+          }
+          else if (method.returnsMap()) {
+            return SELECT_MAP;
+          }
+          else if (method.returnsCursor()) {
+            return SELECT_CURSOR;
+          }
+          return SELECT_ONE;
+        case FLUSH:
+          return FLUSH;
+        default:
+          return UNKNOWN;
+      }
     }
-    return result;
   }
 
   /**
@@ -402,6 +436,11 @@ public class MapperMethod {
 
     private final String mapKey;
 
+    /**
+     * How an update count is returned
+     */
+    private final RowCountType rowCountType;
+
     private final Integer resultHandlerIndex;
 
     private final Integer rowBoundsIndex;
@@ -427,6 +466,7 @@ public class MapperMethod {
       this.returnsCursor = Cursor.class.equals(this.returnType);
       this.mapKey = getMapKey(method);
       this.returnsMap = this.mapKey != null;
+      this.rowCountType = RowCountType.of(this.returnType);
       this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
       this.resultHandlerIndex = getUniqueParamIndex(method, ResultHandler.class);
       this.paramNameResolver = new ParamNameResolver(configuration, method);
@@ -480,6 +520,10 @@ public class MapperMethod {
       return returnsMany;
     }
 
+    public RowCountType getRowCountType() {
+      return rowCountType;
+    }
+
     public boolean returnsMap() {
       return returnsMap;
     }
@@ -535,4 +579,27 @@ public class MapperMethod {
     }
   }
 
+
+  /**
+   * The return types an insert, update or delete method can declare.
+   */
+  public enum RowCountType {
+    VOID, INTEGER, LONG, BOOLEAN, UNSUPPORTED;
+
+    static RowCountType of(Class<?> returnType) {
+      if (void.class.equals(returnType)) {
+        return VOID;
+      }
+      else if (Integer.class.equals(returnType) || Integer.TYPE.equals(returnType)) {
+        return INTEGER;
+      }
+      else if (Long.class.equals(returnType) || Long.TYPE.equals(returnType)) {
+        return LONG;
+      }
+      else if (Boolean.class.equals(returnType) || Boolean.TYPE.equals(returnType)) {
+        return BOOLEAN;
+      }
+      return UNSUPPORTED;
+    }
+  }
 }
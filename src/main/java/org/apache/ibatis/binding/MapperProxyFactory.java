@@ -12,11 +12,15 @@
  */
 package org.apache.ibatis.binding;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.session.SqlSession;
 
 /**
@@ -25,10 +29,26 @@ import org.apache.ibatis.session.SqlSession;
  */
 public class MapperProxyFactory<T> {
 
+  private static final Log log = LogFactory.getLog(MapperProxyFactory.class);
+
   private final Class<T> mapperInterface;
 
   private final Map<Method, MapperMethod> methodCache = new ConcurrentHashMap<Method, MapperMethod>();
 
+  /**
+   * The constructor of the generated implementation, <code>null</code> until it is first needed
+   */
+  private volatile Constructor<?> generatedConstructor;
+
+  private volatile boolean generationFailed;
+
+  /**
+   * The methods implemented by the generated class and their {@link MapperMethod}s, by index
+   */
+  private Method[] generatedMethods;
+
+  private AtomicReferenceArray<MapperMethod> generatedMapperMethods;
+
   public MapperProxyFactory(Class<T> mapperInterface) {
     this.mapperInterface = mapperInterface;
   }
@@ -52,8 +72,63 @@ public class MapperProxyFactory<T> {
   }
 
   public T newInstance(SqlSession sqlSession) {
+    if (sqlSession.getConfiguration().isUseGeneratedMappers()) {
+      Constructor<?> constructor = getGeneratedConstructor();
+      if (constructor != null) {
+        try {
+          return mapperInterface.cast(constructor.newInstance(sqlSession, this));
+        }
+        catch (Exception e) {
+          throw new BindingException("Error creating the generated mapper " + constructor.getName() + ". Cause: " + e, e);
+        }
+      }
+    }
     final MapperProxy<T> mapperProxy = new MapperProxy<T>(sqlSession, mapperInterface, methodCache);
     return newInstance(mapperProxy);
   }
 
+  /**
+   * Returns the {@link MapperMethod} of the generated method at the given index.
+   */
+  MapperMethod getMapperMethod(int index, SqlSession sqlSession) {
+    MapperMethod mapperMethod = generatedMapperMethods.get(index);
+    if (mapperMethod == null) {
+      // shared with the proxies
+      Method method = generatedMethods[index];
+      mapperMethod = methodCache.get(method);
+      if (mapperMethod == null) {
+        mapperMethod = new MapperMethod(mapperInterface, method, sqlSession.getConfiguration());
+        methodCache.put(method, mapperMethod);
+      }
+      generatedMapperMethods.set(index, mapperMethod);
+    }
+    return mapperMethod;
+  }
+
+  /**
+   * @return <code>null</code> if the implementation could not be generated, in which case proxies are used
+   */
+  private Constructor<?> getGeneratedConstructor() {
+    Constructor<?> constructor = generatedConstructor;
+    if (constructor != null || generationFailed) {
+      return constructor;
+    }
+    synchronized (this) {
+      if (generatedConstructor == null && !generationFailed) {
+        try {
+          Class<?> generatedClass = MapperClassGenerator.getMapperClass(mapperInterface);
+          generatedMethods = MapperClassGenerator.getMapperMethods(mapperInterface);
+          generatedMapperMethods = new AtomicReferenceArray<MapperMethod>(generatedMethods.length);
+          generatedConstructor = generatedClass.getConstructor(SqlSession.class, MapperProxyFactory.class);
+        }
+        catch (Throwable t) {
+          // javassist is optional, and some interfaces cannot be implemented from their class loader
+          log.warn("Could not generate an implementation of " + mapperInterface.getName() + ", using a proxy instead. Cause: " + t);
+          generationFailed = true;
+        }
+      }
+      return generatedConstructor;
+    }
+  }
+
 }
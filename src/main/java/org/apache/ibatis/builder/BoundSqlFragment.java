@@ -0,0 +1,46 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.List;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+
+/**
+ * A piece of sql whose parameters were already replaced by <code>?</code> and mapped, for instance
+ * the iterations of a <code>foreach</code>.
+ * <p>
+ * Bound as an additional parameter and referenced by its name as <code>#{name}</code> in the sql
+ * given to {@link SqlSourceBuilder}, which inserts the text as is and its mappings at that position
+ * instead of parsing them.
+ */
+public final class BoundSqlFragment {
+
+  private final String sql;
+
+  private final List<ParameterMapping> parameterMappings;
+
+  public BoundSqlFragment(String sql, List<ParameterMapping> parameterMappings) {
+    this.sql = sql;
+    this.parameterMappings = parameterMappings;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public List<ParameterMapping> getParameterMappings() {
+    return parameterMappings;
+  }
+
+}
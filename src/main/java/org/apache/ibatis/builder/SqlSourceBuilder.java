@@ -67,17 +67,30 @@ public class SqlSourceBuilder extends BaseBuilder {
     return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
   }
 
+  /**
+   * Builds the mapping of a single <code>#{...}</code> parameter, as {@link #parse} does for each of them.
+   *
+   * @param content the content of the parameter, without <code>#{</code> and <code>}</code>
+   * @since 3.4.7
+   */
+  public ParameterMapping buildParameterMapping(String content, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    return new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters).buildParameterMapping(content);
+  }
+
   private static class ParameterMappingTokenHandler extends BaseBuilder implements TokenHandler {
 
     private List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
 
     private Class<?> parameterType;
 
+    private Map<String, Object> additionalParameters;
+
     private MetaObject metaParameters;
 
     public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
       super(configuration);
       this.parameterType = parameterType;
+      this.additionalParameters = additionalParameters;
       this.metaParameters = configuration.newMetaObject(additionalParameters);
     }
 
@@ -93,6 +106,14 @@ public class SqlSourceBuilder extends BaseBuilder {
      */
     @Override
     public String handleToken(String content) {
+      if (additionalParameters != null && additionalParameters.containsKey(content)) {
+        Object value = additionalParameters.get(content);
+        if (value instanceof BoundSqlFragment) {
+          BoundSqlFragment fragment = (BoundSqlFragment) value;
+          parameterMappings.addAll(fragment.getParameterMappings());
+          return fragment.getSql();
+        }
+      }
       parameterMappings.add(buildParameterMapping(content));
       return "?";
     }
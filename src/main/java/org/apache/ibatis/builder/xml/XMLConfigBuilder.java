@@ -20,6 +20,8 @@ import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.CacheMemoryMonitor;
+import org.apache.ibatis.cache.invalidation.InvalidationTransport;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
@@ -28,6 +30,7 @@ import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.DatabaseIdProvider;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.metrics.MetricsExporter;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.parsing.XPathParser;
 import org.apache.ibatis.plugin.Interceptor;
@@ -42,6 +45,7 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.type.ByteBufferTypeHandler;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
@@ -376,11 +380,33 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    configuration.setUseGeneratedMappers(booleanValueOf(props.getProperty("useGeneratedMappers"), false));
+    configuration.setUseFixedParamMap(booleanValueOf(props.getProperty("useFixedParamMap"), false));
+    configuration.setLobSpillThreshold(integerValueOf(props.getProperty("lobSpillThreshold"), ByteBufferTypeHandler.DEFAULT_SPILL_THRESHOLD));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     @SuppressWarnings("unchecked")
     Class<? extends Log> logImpl = (Class<? extends Log>) resolveClass(props.getProperty("logImpl"));
     configuration.setLogImpl(logImpl);
     configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
+    configuration.setStatementMetricsEnabled(booleanValueOf(props.getProperty("statementMetricsEnabled"), false));
+    configuration.setSlowQueryThreshold(longValueOf(props.getProperty("slowQueryThreshold"), 0L));
+    configuration.setMetricsExporter((MetricsExporter) createInstance(props.getProperty("metricsExporter")));
+    configuration.setJdbcEventLogInterval(longValueOf(props.getProperty("jdbcEventLogInterval"), 0L));
+    configuration.setJdbcEventBufferSize(integerValueOf(props.getProperty("jdbcEventBufferSize"), 0));
+    configuration.setTableLevelCacheInvalidation(booleanValueOf(props.getProperty("tableLevelCacheInvalidation"), false));
+    configuration.setCacheInvalidationBatchDelay(longValueOf(props.getProperty("cacheInvalidationBatchDelay"), 0L));
+    configuration.setCacheMemoryShrinkRatio(doubleValueOf(props.getProperty("cacheMemoryShrinkRatio"), 0.25));
+    configuration.setCacheStatisticsEnabled(booleanValueOf(props.getProperty("cacheStatisticsEnabled"), false));
+    configuration.setCacheSnapshotMaxAge(longValueOf(props.getProperty("cacheSnapshotMaxAge"), 86400000L));
+    configuration.setCacheSnapshotDirectory(props.getProperty("cacheSnapshotDirectory"));
+    String cacheMemoryThresholds = props.getProperty("cacheMemoryThresholds");
+    if (cacheMemoryThresholds != null) {
+      configuration.setCacheMemoryThresholds(CacheMemoryMonitor.parseThresholds(cacheMemoryThresholds));
+    }
+    String cacheInvalidationTransport = props.getProperty("cacheInvalidationTransport");
+    if (cacheInvalidationTransport != null) {
+      configuration.setCacheInvalidationTransport((InvalidationTransport) resolveClass(cacheInvalidationTransport).newInstance());
+    }
   }
 
 
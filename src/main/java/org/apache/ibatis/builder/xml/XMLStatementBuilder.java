@@ -16,6 +16,7 @@ import java.util.List;
 import java.util.Locale;
 
 import org.apache.ibatis.builder.BaseBuilder;
+import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -121,6 +122,19 @@ public class XMLStatementBuilder extends BaseBuilder {
     SqlSource sqlSource = langDriver.createSqlSource(configuration, context, parameterTypeClass);
     // 标签获取
     String resultSets = context.getStringAttribute("resultSets");
+    String tables = context.getStringAttribute("tables");
+    Long negativeCacheTtl = context.getLongAttribute("negativeCacheTtl");
+    Integer negativeCacheSize = context.getIntAttribute("negativeCacheSize");
+    String chunkParameter = context.getStringAttribute("chunkParameter");
+    Integer chunkSize = context.getIntAttribute("chunkSize");
+    if ((chunkParameter == null) != (chunkSize == null) || (chunkSize != null && chunkSize <= 0)) {
+      throw new BuilderException("Statement '" + id + "' requires both chunkParameter and a positive chunkSize to be chunked.");
+    }
+    // 每个分块只复制参数对象本身, 嵌套属性的集合会写回调用方共享的对象
+    if (chunkParameter != null && (chunkParameter.indexOf('.') >= 0 || chunkParameter.indexOf('[') >= 0)) {
+      throw new BuilderException("Statement '" + id + "' cannot be chunked on '" + chunkParameter
+          + "': chunkParameter must name a parameter or a property of the parameter object, not a nested property.");
+    }
     String keyProperty = context.getStringAttribute("keyProperty");
     String keyColumn = context.getStringAttribute("keyColumn");
     KeyGenerator keyGenerator;
@@ -139,7 +153,8 @@ public class XMLStatementBuilder extends BaseBuilder {
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
         fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
         resultSetTypeEnum, flushCache, useCache, resultOrdered,
-        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, tables,
+        negativeCacheTtl, negativeCacheSize, chunkParameter, chunkSize);
   }
 
   /**
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Optional extension of {@link Cache} handling several entries in one call.
+ * <p>
+ * A decorator implementing it passes the whole batch to its delegate, so that, for instance,
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache} takes its monitor once per batch
+ * instead of once per entry. Callers should go through {@link BulkCacheUtil}, which falls back to
+ * one call per entry for the caches not implementing it.
+ */
+public interface BulkCache extends Cache {
+
+  /**
+   * Puts every entry of the map, in iteration order.
+   */
+  void putAll(Map<?, ?> entries);
+
+  /**
+   * @return the values found, by key: missing keys are not in the map
+   */
+  Map<Object, Object> getAll(Collection<?> keys);
+
+  void removeAll(Collection<?> keys);
+
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Loads again the value of a cache entry, used to refresh entries before they expire.
+ */
+public interface CacheEntryLoader {
+
+  /**
+   * Loads the value of the entry from the database and puts it in its cache.
+   *
+   * @param key the key of the entry
+   */
+  void reload(Object key) throws Exception;
+
+}
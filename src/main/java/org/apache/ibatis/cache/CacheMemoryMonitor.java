@@ -0,0 +1,240 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import org.apache.ibatis.cache.decorators.MemoryPressureCache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Shrinks the second level caches when the old generation fills up.
+ * <p>
+ * The monitor sets the usage and collection usage thresholds of the tenured heap pool at its
+ * lowest configured threshold, and listens to the notifications of the memory MXBean. When a
+ * notification reports a usage past the <code>n</code>-th threshold, every registered
+ * {@link MemoryPressureCache} drops <code>n * shrinkRatio</code> of its entries, least recently
+ * used first, so that bigger caches give back more entries. The caches accessed least recently
+ * are shrunk first.
+ * <p>
+ * The thresholds of a memory pool are shared by the whole JVM: a lower threshold already set by
+ * another component is kept, and notifications below the lowest threshold of this monitor are ignored.
+ * The thresholds and the shrink ratio can be changed while the monitor is in use.
+ */
+public class CacheMemoryMonitor implements NotificationListener {
+
+  private static final Log log = LogFactory.getLog(CacheMemoryMonitor.class);
+
+  private final List<MemoryPressureCache> caches = new CopyOnWriteArrayList<MemoryPressureCache>();
+
+  private volatile double[] thresholds;
+
+  private volatile double shrinkRatio;
+
+  private final MemoryPoolMXBean pool;
+
+  private final AtomicLong shrinkCount = new AtomicLong();
+
+  private final AtomicLong evictedCount = new AtomicLong();
+
+  private boolean listening;
+
+  /**
+   * @param thresholds fractions of the maximum size of the tenured pool
+   * @param shrinkRatio fraction of the entries removed per crossed threshold
+   */
+  public CacheMemoryMonitor(double[] thresholds, double shrinkRatio) {
+    this.shrinkRatio = shrinkRatio;
+    this.pool = findTenuredPool();
+    if (pool == null) {
+      log.warn("No heap memory pool supports usage thresholds: the caches will not be shrunk on memory pressure.");
+    }
+    setThresholds(thresholds);
+  }
+
+  /**
+   * Parses a comma separated list of thresholds, like <code>0.75,0.9</code>.
+   */
+  public static double[] parseThresholds(String value) {
+    String[] parts = value.split(",");
+    double[] thresholds = new double[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      thresholds[i] = Double.parseDouble(parts[i].trim());
+    }
+    return thresholds;
+  }
+
+  private static MemoryPoolMXBean findTenuredPool() {
+    MemoryPoolMXBean tenured = null;
+    for (MemoryPoolMXBean candidate : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (candidate.getType() == MemoryType.HEAP && candidate.isUsageThresholdSupported()
+          && candidate.getUsage().getMax() > 0
+          && (tenured == null || candidate.getUsage().getMax() > tenured.getUsage().getMax())) {
+        tenured = candidate;
+      }
+    }
+    return tenured;
+  }
+
+  public double[] getThresholds() {
+    return thresholds.clone();
+  }
+
+  /**
+   * Replaces the thresholds. The caches already registered are shrunk according to the new ones.
+   *
+   * @param thresholds fractions of the maximum size of the tenured pool, empty to stop shrinking
+   */
+  public synchronized void setThresholds(double[] thresholds) {
+    double[] sorted = thresholds.clone();
+    Arrays.sort(sorted);
+    this.thresholds = sorted;
+    if (pool == null) {
+      return;
+    }
+    if (sorted.length == 0) {
+      close();
+      return;
+    }
+    long threshold = (long) (pool.getUsage().getMax() * sorted[0]);
+    if (pool.getUsageThreshold() == 0 || pool.getUsageThreshold() > threshold) {
+      pool.setUsageThreshold(threshold);
+    }
+    if (pool.isCollectionUsageThresholdSupported()
+        && (pool.getCollectionUsageThreshold() == 0 || pool.getCollectionUsageThreshold() > threshold)) {
+      pool.setCollectionUsageThreshold(threshold);
+    }
+    if (!listening) {
+      ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(this, null, null);
+      listening = true;
+    }
+  }
+
+  public double getShrinkRatio() {
+    return shrinkRatio;
+  }
+
+  /**
+   * @param shrinkRatio fraction of the entries removed per crossed threshold
+   */
+  public void setShrinkRatio(double shrinkRatio) {
+    this.shrinkRatio = shrinkRatio;
+  }
+
+  /**
+   * @return the name of the monitored memory pool, <code>null</code> if none supports thresholds
+   */
+  public String getPoolName() {
+    return pool == null ? null : pool.getName();
+  }
+
+  public long getShrinkCount() {
+    return shrinkCount.get();
+  }
+
+  public long getEvictedCount() {
+    return evictedCount.get();
+  }
+
+  public void register(MemoryPressureCache cache) {
+    caches.add(cache);
+  }
+
+  @Override
+  public void handleNotification(Notification notification, Object handback) {
+    String type = notification.getType();
+    if (!MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)
+        && !MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)) {
+      return;
+    }
+    MemoryUsage usage = pool.getUsage();
+    if (usage.getMax() > 0) {
+      memoryUsed((double) usage.getUsed() / usage.getMax());
+    }
+  }
+
+  /**
+   * Shrinks the caches according to the thresholds crossed by the given usage.
+   *
+   * @param usage the used fraction of the tenured pool
+   * @return the number of removed entries
+   */
+  public int memoryUsed(double usage) {
+    double[] thresholds = this.thresholds;
+    int crossed = 0;
+    while (crossed < thresholds.length && usage >= thresholds[crossed]) {
+      crossed++;
+    }
+    return crossed == 0 ? 0 : shrink(Math.min(1d, crossed * shrinkRatio));
+  }
+
+  /**
+   * Removes a fraction of the entries of every registered cache, starting with the caches accessed least recently.
+   *
+   * @return the number of removed entries
+   */
+  public int shrink(double fraction) {
+    List<MemoryPressureCache> ordered = new ArrayList<MemoryPressureCache>(caches);
+    Collections.sort(ordered, new Comparator<MemoryPressureCache>() {
+      @Override
+      public int compare(MemoryPressureCache o1, MemoryPressureCache o2) {
+        long a = o1.getLastAccess();
+        long b = o2.getLastAccess();
+        return a < b ? -1 : a == b ? 0 : 1;
+      }
+    });
+    int evicted = 0;
+    for (MemoryPressureCache cache : ordered) {
+      evicted += cache.shrink(fraction);
+    }
+    shrinkCount.incrementAndGet();
+    evictedCount.addAndGet(evicted);
+    if (log.isDebugEnabled()) {
+      log.debug("Memory pressure: removed " + evicted + " entries (" + fraction + ") from " + ordered.size() + " caches");
+    }
+    return evicted;
+  }
+
+  /**
+   * Stops listening to the memory notifications. The pool thresholds are left as they are.
+   */
+  public synchronized void close() {
+    if (!listening) {
+      return;
+    }
+    listening = false;
+    try {
+      ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(this);
+    }
+    catch (Exception e) {
+      // not registered
+    }
+  }
+
+}
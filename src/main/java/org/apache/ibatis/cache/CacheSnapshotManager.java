@@ -0,0 +1,526 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SnapshotCache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Writes the second level caches to local disk on shutdown and restores them lazily on the next start.
+ * <p>
+ * Each registered {@link SnapshotCache} is written to <code>&lt;directory&gt;/&lt;cache id&gt;.cache</code>:
+ * a header holding a fingerprint of the statements and result maps using the cache, followed by
+ * the serialized key and value of every entry. On startup the file is memory-mapped the first
+ * time the cache is read and deleted, only the keys are deserialized, and each value is
+ * deserialized when its key is first requested. The snapshot of a cache cleared before it was
+ * read is deleted unread.
+ * <p>
+ * A snapshot is discarded when its fingerprint no longer matches the configuration, when it is
+ * older than the maximum age, or when it cannot be read. Entries whose key or value is not
+ * serializable are not written. Snapshots are written by a JVM shutdown hook, or explicitly with
+ * {@link #saveAll()}.
+ */
+public class CacheSnapshotManager {
+
+  private static final Log log = LogFactory.getLog(CacheSnapshotManager.class);
+
+  private static final int MAGIC = 0x4D424353; // MBCS
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final Configuration configuration;
+
+  private final File directory;
+
+  private final List<SnapshotCache> caches = new CopyOnWriteArrayList<SnapshotCache>();
+
+  private final AtomicLong restoredCount = new AtomicLong();
+
+  private final AtomicLong savedCount = new AtomicLong();
+
+  private final AtomicLong discardedCount = new AtomicLong();
+
+  private volatile long maxAge;
+
+  private Thread shutdownHook;
+
+  public CacheSnapshotManager(Configuration configuration, File directory) {
+    this.configuration = configuration;
+    this.directory = directory;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  public long getMaxAge() {
+    return maxAge;
+  }
+
+  /**
+   * @param maxAge snapshots written more than this many milliseconds ago are discarded, <code>0</code> for no limit
+   */
+  public void setMaxAge(long maxAge) {
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * Number of entries restored from a snapshot.
+   */
+  public long getRestoredCount() {
+    return restoredCount.get();
+  }
+
+  /**
+   * Number of entries written to a snapshot.
+   */
+  public long getSavedCount() {
+    return savedCount.get();
+  }
+
+  /**
+   * Number of snapshots discarded because they were stale, too old or unreadable.
+   */
+  public long getDiscardedCount() {
+    return discardedCount.get();
+  }
+
+  public void register(SnapshotCache cache) {
+    caches.add(cache);
+  }
+
+  public List<SnapshotCache> getCaches() {
+    return Collections.unmodifiableList(caches);
+  }
+
+  public File getSnapshotFile(String cacheId) {
+    StringBuilder name = new StringBuilder(cacheId.length() + 6);
+    for (int i = 0; i < cacheId.length(); i++) {
+      char c = cacheId.charAt(i);
+      name.append(Character.isLetterOrDigit(c) || c == '.' || c == '-' ? c : '_');
+    }
+    return new File(directory, name.append(".cache").toString());
+  }
+
+  /**
+   * Writes every registered cache when the JVM shuts down.
+   */
+  public synchronized void installShutdownHook() {
+    if (shutdownHook != null) {
+      return;
+    }
+    shutdownHook = new Thread("mybatis-cache-snapshot") {
+      @Override
+      public void run() {
+        saveAll();
+      }
+    };
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * Removes the shutdown hook. The snapshots are not written.
+   */
+  public synchronized void close() {
+    if (shutdownHook == null) {
+      return;
+    }
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    }
+    catch (IllegalStateException e) {
+      // already shutting down
+    }
+    shutdownHook = null;
+  }
+
+  /**
+   * Writes the snapshot of every registered cache. Failures are logged and do not stop the other caches.
+   *
+   * @return the number of written entries
+   */
+  public int saveAll() {
+    int count = 0;
+    for (SnapshotCache cache : caches) {
+      try {
+        count += save(cache);
+      }
+      catch (Exception e) {
+        log.warn("Could not write the snapshot of cache " + cache.getId() + ". Cause: " + e);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Writes the snapshot of a cache, replacing the previous one.
+   *
+   * @return the number of written entries
+   */
+  public int save(SnapshotCache cache) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Could not create the cache snapshot directory " + directory);
+    }
+    File file = getSnapshotFile(cache.getId());
+    File temp = new File(directory, file.getName() + ".tmp");
+    int count;
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(fingerprint(cache.getId()));
+      out.writeLong(System.currentTimeMillis());
+      count = cache.writeEntries(new Writer(out));
+    }
+    finally {
+      out.close();
+    }
+    if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+      temp.delete();
+      throw new IOException("Could not replace the cache snapshot " + file);
+    }
+    savedCount.addAndGet(count);
+    if (log.isDebugEnabled()) {
+      log.debug("Wrote " + count + " entries of cache " + cache.getId() + " to " + file);
+    }
+    return count;
+  }
+
+  /**
+   * Deletes the snapshot of a cache.
+   */
+  public void delete(String cacheId) {
+    File file = getSnapshotFile(cacheId);
+    if (file.exists() && !file.delete()) {
+      log.warn("Could not delete the cache snapshot " + file);
+    }
+  }
+
+  /**
+   * Maps the snapshot of a cache and reads its keys. The file is deleted: the entries are written
+   * again by the next {@link #save(SnapshotCache)}.
+   *
+   * @return <code>null</code> if there is no usable snapshot
+   */
+  public Snapshot open(String cacheId) {
+    File file = getSnapshotFile(cacheId);
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      RandomAccessFile raf = new RandomAccessFile(file, "r");
+      ByteBuffer buffer;
+      try {
+        if (raf.length() > Integer.MAX_VALUE) {
+          throw new IOException("snapshot too large");
+        }
+        // the mapping stays valid once the channel is closed
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+      }
+      finally {
+        raf.close();
+      }
+      // a crash before the next save must not restore entries changed in the meantime
+      delete(cacheId);
+      if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        return discard(file, "unknown format");
+      }
+      if (!fingerprint(cacheId).equals(readUTF(buffer))) {
+        return discard(file, "the mapping changed");
+      }
+      long age = System.currentTimeMillis() - buffer.getLong();
+      if (maxAge > 0 && age > maxAge) {
+        return discard(file, "written " + age + " ms ago");
+      }
+      Snapshot snapshot = new Snapshot(buffer);
+      if (log.isDebugEnabled()) {
+        log.debug("Mapped " + snapshot.size() + " entries of cache " + cacheId + " from " + file);
+      }
+      return snapshot;
+    }
+    catch (Exception e) {
+      return discard(file, e.toString());
+    }
+  }
+
+  private Snapshot discard(File file, String reason) {
+    discardedCount.incrementAndGet();
+    log.warn("Discarding the cache snapshot " + file + ": " + reason);
+    return null;
+  }
+
+  private static String readUTF(ByteBuffer buffer) {
+    int length = buffer.getShort() & 0xFFFF;
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    try {
+      return new String(bytes, "UTF-8");
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Computes a digest of what shapes the cached results: the statements using the cache, their
+   * result maps, the serial version of the result types, the environment and the database id.
+   */
+  public String fingerprint(String cacheId) {
+    Map<String, MappedStatement> statements = new TreeMap<String, MappedStatement>();
+    // the statement map also holds ambiguous short names
+    for (Object value : new ArrayList<Object>(configuration.getMappedStatements())) {
+      if (value instanceof MappedStatement) {
+        MappedStatement ms = (MappedStatement) value;
+        if (ms.getCache() != null && cacheId.equals(ms.getCache().getId())) {
+          statements.put(ms.getId(), ms);
+        }
+      }
+    }
+    StringBuilder text = new StringBuilder();
+    text.append(cacheId).append('|').append(configuration.getDatabaseId());
+    if (configuration.getEnvironment() != null) {
+      text.append('|').append(configuration.getEnvironment().getId());
+    }
+    for (MappedStatement ms : statements.values()) {
+      text.append('\n').append(ms.getId()).append(' ').append(ms.getSqlCommandType());
+      SqlSource sqlSource = ms.getSqlSource();
+      text.append(' ').append(sqlSource.getClass().getName());
+      if (sqlSource instanceof RawSqlSource) {
+        text.append(' ').append(sqlSource.getBoundSql(null).getSql());
+      }
+      for (ResultMap resultMap : ms.getResultMaps()) {
+        appendResultMap(text, resultMap);
+      }
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.toString().getBytes("UTF-8"));
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new CacheException("Error computing the snapshot fingerprint. Cause: " + e, e);
+    }
+    catch (IOException e) {
+      throw new CacheException("Error computing the snapshot fingerprint. Cause: " + e, e);
+    }
+  }
+
+  private void appendResultMap(StringBuilder text, ResultMap resultMap) {
+    text.append("\n  ").append(resultMap.getId()).append(' ');
+    appendType(text, resultMap.getType());
+    for (ResultMapping mapping : resultMap.getResultMappings()) {
+      text.append("\n    ").append(mapping.getProperty()).append('=').append(mapping.getColumn());
+      if (mapping.getJavaType() != null) {
+        text.append(' ');
+        appendType(text, mapping.getJavaType());
+      }
+      if (mapping.getNestedResultMapId() != null) {
+        text.append(" map:").append(mapping.getNestedResultMapId());
+      }
+      if (mapping.getNestedQueryId() != null) {
+        text.append(" select:").append(mapping.getNestedQueryId());
+      }
+    }
+  }
+
+  private static void appendType(StringBuilder text, Class<?> type) {
+    text.append(type.getName());
+    // changes with the fields of classes without an explicit serialVersionUID
+    ObjectStreamClass streamClass = ObjectStreamClass.lookup(type);
+    if (streamClass != null) {
+      text.append('#').append(streamClass.getSerialVersionUID());
+    }
+  }
+
+  /**
+   * Serializes the entries of a cache into a snapshot file.
+   */
+  public class Writer {
+
+    private final DataOutputStream out;
+
+    private int count;
+
+    Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    /**
+     * Writes an entry, unless its key or value is <code>null</code> or not serializable.
+     *
+     * @return true if the entry was written
+     */
+    public boolean write(Object key, Object value) throws IOException {
+      if (!(key instanceof Serializable) || !(value instanceof Serializable)) {
+        return false;
+      }
+      byte[] keyBytes;
+      byte[] valueBytes;
+      try {
+        keyBytes = serialize(key);
+        valueBytes = serialize(value);
+      }
+      catch (IOException e) {
+        // a nested object is not serializable
+        return false;
+      }
+      out.writeInt(keyBytes.length);
+      out.write(keyBytes);
+      out.writeInt(valueBytes.length);
+      out.write(valueBytes);
+      count++;
+      return true;
+    }
+
+    /**
+     * Copies the entries of a snapshot that were never read.
+     */
+    public void write(Snapshot snapshot) throws IOException {
+      count += snapshot.copyTo(out);
+    }
+
+    public int getCount() {
+      return count;
+    }
+  }
+
+  private static byte[] serialize(Object object) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(object);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * A mapped snapshot file: the keys are deserialized upfront, the values when they are taken.
+   * Not thread safe.
+   */
+  public class Snapshot {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * key -> offsets of the entry, of its value and of its end
+     */
+    private final Map<Object, int[]> entries = new HashMap<Object, int[]>();
+
+    Snapshot(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+      this.buffer = buffer;
+      while (buffer.hasRemaining()) {
+        int start = buffer.position();
+        Object key = deserialize(buffer.getInt());
+        int valueStart = buffer.position();
+        buffer.position(valueStart + 4 + buffer.getInt(valueStart));
+        entries.put(key, new int[] {start, valueStart, buffer.position()});
+      }
+    }
+
+    public int size() {
+      return entries.size();
+    }
+
+    public boolean contains(Object key) {
+      return entries.containsKey(key);
+    }
+
+    public void remove(Object key) {
+      entries.remove(key);
+    }
+
+    /**
+     * Removes an entry from the snapshot and deserializes its value.
+     *
+     * @return <code>null</code> if the snapshot has no such entry or its value cannot be read
+     */
+    public Object take(Object key) {
+      int[] offsets = entries.remove(key);
+      if (offsets == null) {
+        return null;
+      }
+      try {
+        buffer.position(offsets[1]);
+        Object value = deserialize(buffer.getInt());
+        restoredCount.incrementAndGet();
+        return value;
+      }
+      catch (Exception e) {
+        log.warn("Could not read a snapshot entry of " + key + ". Cause: " + e);
+        return null;
+      }
+    }
+
+    int copyTo(DataOutputStream out) throws IOException {
+      byte[] bytes = new byte[4096];
+      for (int[] offsets : entries.values()) {
+        buffer.position(offsets[0]);
+        int remaining = offsets[2] - offsets[0];
+        while (remaining > 0) {
+          int length = Math.min(remaining, bytes.length);
+          buffer.get(bytes, 0, length);
+          out.write(bytes, 0, length);
+          remaining -= length;
+        }
+      }
+      return entries.size();
+    }
+
+    private Object deserialize(int length) throws IOException, ClassNotFoundException {
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      SerializedCache.CustomObjectInputStream in = new SerializedCache.CustomObjectInputStream(new ByteArrayInputStream(bytes));
+      try {
+        return in.readObject();
+      }
+      finally {
+        in.close();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import org.apache.ibatis.cache.statistics.EvictionCause;
+
+/**
+ * Notified by the cache decorators that remove entries on their own: eviction policy, expiry,
+ * memory pressure, garbage collection. Removals asked by the caller are not reported.
+ * <p>
+ * Called with the cache locked, so implementations must never call back into the cache.
+ */
+public interface EvictionListener {
+
+  /**
+   * An entry left the cache.
+   */
+  void evicted(Object key, EvictionCause cause);
+
+  /**
+   * Every entry left the cache at once.
+   *
+   * @param count the number of entries removed
+   */
+  void cleared(EvictionCause cause, int count);
+
+}
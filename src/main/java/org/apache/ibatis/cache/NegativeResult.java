@@ -0,0 +1,63 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+
+/**
+ * Stored in the second level cache in place of the empty result of a statement with negative
+ * caching enabled. Such entries are kept by the {@link org.apache.ibatis.cache.decorators.NegativeResultCache}
+ * for their own time to live, and within their own per-statement budget instead of the eviction
+ * policy of the namespace.
+ */
+public final class NegativeResult implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+  private final String statementId;
+
+  private final long timeToLive;
+
+  private final int maxEntries;
+
+  /**
+   * @param statementId the statement returning no rows
+   * @param timeToLive milliseconds during which the empty result is returned from the cache
+   * @param maxEntries maximum number of empty results cached for the statement
+   */
+  public NegativeResult(String statementId, long timeToLive, int maxEntries) {
+    this.statementId = statementId;
+    this.timeToLive = timeToLive;
+    this.maxEntries = maxEntries;
+  }
+
+  public String getStatementId() {
+    return statementId;
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  @Override
+  public String toString() {
+    return "NegativeResult[" + statementId + "]";
+  }
+
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Extracts the names of the tables referenced by a SQL statement.
+ * <p>
+ * This is a lexical scan, not a parser: every identifier following <code>FROM</code>, <code>JOIN</code>,
+ * <code>UPDATE</code>, <code>INTO</code>, <code>TABLE</code> or <code>USING</code>, and every element of a
+ * comma separated <code>FROM</code> list, is taken as a table. Sub queries are scanned as well. Extra names
+ * (for instance the column of <code>EXTRACT(YEAR FROM column)</code>) only cause extra invalidations.
+ * Table names are lower cased and stripped of their quotes and schema.
+ */
+public class SqlTableExtractor {
+
+  private static final int MAX_CACHED_STATEMENTS = 1024;
+
+  private static final Set<String> TABLE_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "FROM", "JOIN", "UPDATE", "INTO", "TABLE", "USING"));
+
+  private static final Set<String> LIST_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "FROM", "UPDATE"));
+
+  // end a FROM list
+  private static final Set<String> CLAUSE_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "SELECT", "WHERE", "SET", "VALUES", "VALUE", "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET",
+      "UNION", "INTERSECT", "EXCEPT", "MINUS", "WINDOW", "FOR", "RETURNING", "FETCH", "CONNECT", "START", "WITH"));
+
+  // never table names, but may precede one
+  private static final Set<String> MODIFIER_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "ONLY", "IGNORE", "LOW_PRIORITY", "DELAYED", "HIGH_PRIORITY", "QUICK", "LATERAL"));
+
+  // never table names
+  private static final Set<String> RESERVED_WORDS = new HashSet<String>(Arrays.asList(
+      "BY", "ON", "INNER", "LEFT", "RIGHT", "FULL", "CROSS", "NATURAL", "OUTER", "STRAIGHT_JOIN",
+      "DISTINCT", "ALL", "AND", "OR", "NOT", "EXISTS", "IN", "AS", "CASE", "WHEN", "THEN", "ELSE", "END",
+      "NULL", "DEFAULT", "DUAL"));
+
+  private final ConcurrentMap<String, Set<String>> cache = new ConcurrentHashMap<String, Set<String>>();
+
+  /**
+   * Same as {@link #extractTables(String)}, remembering the result of the last executed statements.
+   */
+  public Set<String> getTables(String sql) {
+    Set<String> tables = cache.get(sql);
+    if (tables == null) {
+      tables = extractTables(sql);
+      if (cache.size() >= MAX_CACHED_STATEMENTS) {
+        cache.clear();
+      }
+      cache.put(sql, tables);
+    }
+    return tables;
+  }
+
+  /**
+   * @return the normalized names of the referenced tables, an empty set if none was found
+   */
+  public static Set<String> extractTables(String sql) {
+    Set<String> tables = new LinkedHashSet<String>();
+    // expectTable/inList per parenthesis depth
+    boolean[] expectTable = new boolean[8];
+    boolean[] inList = new boolean[8];
+    int depth = 0;
+    int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      }
+      else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        i = skipTo(sql, i + 2, "\n");
+      }
+      else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        i = skipTo(sql, i + 2, "*/");
+      }
+      else if (c == '\'') {
+        i = skipQuoted(sql, i, '\'');
+      }
+      else if (c == '(') {
+        expectTable[depth] = false;
+        depth++;
+        if (depth == expectTable.length) {
+          expectTable = Arrays.copyOf(expectTable, depth * 2);
+          inList = Arrays.copyOf(inList, depth * 2);
+        }
+        expectTable[depth] = false;
+        inList[depth] = false;
+        i++;
+      }
+      else if (c == ')') {
+        depth = Math.max(0, depth - 1);
+        i++;
+      }
+      else if (c == ',') {
+        expectTable[depth] = inList[depth];
+        i++;
+      }
+      else if (isIdentifierStart(c)) {
+        int end = identifierEnd(sql, i);
+        String word = sql.substring(i, end);
+        String upperWord = word.toUpperCase(Locale.ENGLISH);
+        if (TABLE_KEYWORDS.contains(upperWord)) {
+          expectTable[depth] = true;
+          inList[depth] = inList[depth] || LIST_KEYWORDS.contains(upperWord);
+        }
+        else if (CLAUSE_KEYWORDS.contains(upperWord)) {
+          expectTable[depth] = false;
+          inList[depth] = false;
+        }
+        else if (RESERVED_WORDS.contains(upperWord)) {
+          expectTable[depth] = false;
+        }
+        else if (MODIFIER_KEYWORDS.contains(upperWord)) {
+          // keep expecting the table
+        }
+        else if (expectTable[depth]) {
+          String table = normalize(word);
+          if (table.length() > 0) {
+            tables.add(table);
+          }
+          expectTable[depth] = false;
+        }
+        i = end;
+      }
+      else {
+        i++;
+      }
+    }
+    return tables;
+  }
+
+  /**
+   * Normalizes a comma separated list of table names.
+   *
+   * @return an unmodifiable set, <code>null</code> if the list is empty
+   */
+  public static Set<String> normalizeAll(String tables) {
+    if (tables == null || tables.trim().length() == 0) {
+      return null;
+    }
+    Set<String> normalized = new LinkedHashSet<String>();
+    for (String table : tables.split(",")) {
+      String name = normalize(table.trim());
+      if (name.length() > 0) {
+        normalized.add(name);
+      }
+    }
+    return normalized.isEmpty() ? null : Collections.unmodifiableSet(normalized);
+  }
+
+  /**
+   * Removes the quotes and the schema of a table name and lower cases it.
+   */
+  public static String normalize(String name) {
+    String table = name;
+    int dot = lastDotOutsideQuotes(table);
+    if (dot >= 0) {
+      table = table.substring(dot + 1);
+    }
+    StringBuilder builder = new StringBuilder(table.length());
+    for (int i = 0; i < table.length(); i++) {
+      char c = table.charAt(i);
+      if (c != '"' && c != '`' && c != '[' && c != ']') {
+        builder.append(c);
+      }
+    }
+    return builder.toString().toLowerCase(Locale.ENGLISH);
+  }
+
+  private static int lastDotOutsideQuotes(String name) {
+    char quote = 0;
+    int dot = -1;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      }
+      else if (c == '"' || c == '`') {
+        quote = c;
+      }
+      else if (c == '[') {
+        quote = ']';
+      }
+      else if (c == '.') {
+        dot = i;
+      }
+    }
+    return dot;
+  }
+
+  private static boolean isIdentifierStart(char c) {
+    return Character.isLetter(c) || c == '_' || c == '"' || c == '`' || c == '[' || c == '$' || c == '#' || c == '@';
+  }
+
+  private static int identifierEnd(String sql, int start) {
+    int i = start;
+    while (i < sql.length()) {
+      char c = sql.charAt(i);
+      if (c == '"' || c == '`') {
+        i = skipQuoted(sql, i, c);
+      }
+      else if (c == '[') {
+        i = skipQuoted(sql, i, ']');
+      }
+      else if (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '@' || c == '.') {
+        i++;
+      }
+      else {
+        break;
+      }
+    }
+    return i;
+  }
+
+  private static int skipQuoted(String sql, int start, char closingQuote) {
+    int i = start + 1;
+    while (i < sql.length()) {
+      if (sql.charAt(i) == closingQuote) {
+        // doubled quote is an escaped quote
+        if (i + 1 < sql.length() && sql.charAt(i + 1) == closingQuote && closingQuote != ']') {
+          i += 2;
+          continue;
+        }
+        return i + 1;
+      }
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipTo(String sql, int start, String end) {
+    int index = sql.indexOf(end, start);
+    return index < 0 ? sql.length() : index + end.length();
+  }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Remembers which second level cache entries were read from which tables, so that a write only
+ * invalidates the entries depending on the tables it touches, whatever their namespace.
+ * <p>
+ * The tables of a statement are its <code>tables</code> attribute if any, else they are extracted from
+ * the executed SQL by a {@link SqlTableExtractor}. Entries whose tables are unknown depend on
+ * {@link #ANY_TABLE} and are invalidated by every write.
+ * <p>
+ * Entries evicted by the decorators of a cache built by the {@link org.apache.ibatis.mapping.CacheBuilder}
+ * are reported through {@link #evicted(Cache, Object)}. Custom caches do not report them, so the
+ * index holds at most <code>maxEntriesPerCache</code> keys per cache: past that the cache is
+ * cleared and its keys forgotten.
+ * <p>
+ * The index is never locked while calling a cache, since the caches call it back with their own
+ * lock held.
+ */
+public class TableDependencyIndex {
+
+  /**
+   * Table of the entries read by a statement whose tables are unknown.
+   */
+  public static final String ANY_TABLE = "*";
+
+  private static final Set<String> ANY_TABLE_SET = Collections.singleton(ANY_TABLE);
+
+  private final SqlTableExtractor extractor = new SqlTableExtractor();
+
+  private final Map<String, Map<Cache, Set<Object>>> entriesByTable = new HashMap<String, Map<Cache, Set<Object>>>();
+
+  private final Map<Cache, Map<Object, Set<String>>> tablesByEntry = new HashMap<Cache, Map<Object, Set<String>>>();
+
+  private int maxEntriesPerCache = 10000;
+
+  public int getMaxEntriesPerCache() {
+    return maxEntriesPerCache;
+  }
+
+  public void setMaxEntriesPerCache(int maxEntriesPerCache) {
+    this.maxEntriesPerCache = maxEntriesPerCache;
+  }
+
+  /**
+   * Returns the tables read or written by a statement.
+   *
+   * @param boundSql the executed sql, computed from <code>parameter</code> if <code>null</code> and needed
+   * @return the normalized table names, an empty set if they are unknown
+   */
+  public Set<String> getTables(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    Set<String> tables = ms.getTables();
+    if (tables != null) {
+      return tables;
+    }
+    if (boundSql == null) {
+      boundSql = ms.getBoundSql(parameter);
+    }
+    return extractor.getTables(boundSql.getSql());
+  }
+
+  /**
+   * Records that a cache entry was read from the given tables.
+   */
+  public void register(Cache cache, Object key, Set<String> tables) {
+    if (tables.isEmpty()) {
+      tables = ANY_TABLE_SET;
+    }
+    synchronized (this) {
+      Map<Object, Set<String>> entries = tablesByEntry.get(cache);
+      if (entries == null) {
+        entries = new HashMap<Object, Set<String>>();
+        tablesByEntry.put(cache, entries);
+      }
+      Set<String> entryTables = entries.get(key);
+      if (entryTables == null && entries.size() < maxEntriesPerCache) {
+        entryTables = new HashSet<String>();
+        entries.put(key, entryTables);
+      }
+      if (entryTables != null) {
+        for (String table : tables) {
+          if (entryTables.add(table)) {
+            keysOf(table, cache).add(key);
+          }
+        }
+        return;
+      }
+      forget(cache);
+    }
+    // too many keys to track: clear the cache, outside of the index lock
+    cache.clear();
+  }
+
+  /**
+   * Removes from their caches the entries read from any of the given tables.
+   */
+  public void invalidate(Collection<String> tables) {
+    Map<Cache, Set<Object>> invalidated = new HashMap<Cache, Set<Object>>();
+    synchronized (this) {
+      for (String table : tables) {
+        collect(table, invalidated);
+      }
+      collect(ANY_TABLE, invalidated);
+    }
+    for (Map.Entry<Cache, Set<Object>> entry : invalidated.entrySet()) {
+      Cache cache = entry.getKey();
+      for (Object key : entry.getValue()) {
+        cache.removeObject(key);
+      }
+    }
+  }
+
+  /**
+   * Unregisters the entries read from a table, adding them to <code>invalidated</code>.
+   */
+  private void collect(String table, Map<Cache, Set<Object>> invalidated) {
+    Map<Cache, Set<Object>> entries = entriesByTable.get(table);
+    if (entries == null) {
+      return;
+    }
+    for (Map.Entry<Cache, Set<Object>> entry : new HashMap<Cache, Set<Object>>(entries).entrySet()) {
+      Cache cache = entry.getKey();
+      Set<Object> keys = invalidated.get(cache);
+      if (keys == null) {
+        keys = new HashSet<Object>();
+        invalidated.put(cache, keys);
+      }
+      for (Object key : new ArrayList<Object>(entry.getValue())) {
+        remove(cache, key);
+        keys.add(key);
+      }
+    }
+  }
+
+  /**
+   * Forgets an entry that the cache removed on its own: eviction policy, expiry, memory pressure.
+   */
+  public synchronized void evicted(Cache cache, Object key) {
+    remove(cache, key);
+  }
+
+  /**
+   * Forgets the entries of a cache that has been cleared.
+   */
+  public synchronized void cacheCleared(Cache cache) {
+    forget(cache);
+  }
+
+  private Set<Object> keysOf(String table, Cache cache) {
+    Map<Cache, Set<Object>> entries = entriesByTable.get(table);
+    if (entries == null) {
+      entries = new HashMap<Cache, Set<Object>>();
+      entriesByTable.put(table, entries);
+    }
+    Set<Object> keys = entries.get(cache);
+    if (keys == null) {
+      keys = new HashSet<Object>();
+      entries.put(cache, keys);
+    }
+    return keys;
+  }
+
+  private void remove(Cache cache, Object key) {
+    Map<Object, Set<String>> entries = tablesByEntry.get(cache);
+    Set<String> tables = entries == null ? null : entries.remove(key);
+    if (tables == null) {
+      return;
+    }
+    if (entries.isEmpty()) {
+      tablesByEntry.remove(cache);
+    }
+    for (String table : tables) {
+      Map<Cache, Set<Object>> tableEntries = entriesByTable.get(table);
+      Set<Object> keys = tableEntries.get(cache);
+      keys.remove(key);
+      if (keys.isEmpty()) {
+        tableEntries.remove(cache);
+        if (tableEntries.isEmpty()) {
+          entriesByTable.remove(table);
+        }
+      }
+    }
+  }
+
+  private void forget(Cache cache) {
+    Iterator<Map<Cache, Set<Object>>> iterator = entriesByTable.values().iterator();
+    while (iterator.hasNext()) {
+      Map<Cache, Set<Object>> entries = iterator.next();
+      entries.remove(cache);
+      if (entries.isEmpty()) {
+        iterator.remove();
+      }
+    }
+    tablesByEntry.remove(cache);
+  }
+
+  /**
+   * @return the number of keys currently tracked for a cache
+   */
+  public synchronized int getEntryCount(Cache cache) {
+    Map<Object, Set<String>> entries = tablesByEntry.get(cache);
+    return entries == null ? 0 : entries.size();
+  }
+
+  /**
+   * @return true if both sets share a table, or if one of them depends on {@link #ANY_TABLE}
+   */
+  public static boolean intersects(Set<String> tables, Set<String> otherTables) {
+    if (tables.isEmpty() || otherTables.isEmpty() || tables.contains(ANY_TABLE) || otherTables.contains(ANY_TABLE)) {
+      return true;
+    }
+    for (String table : tables) {
+      if (otherTables.contains(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
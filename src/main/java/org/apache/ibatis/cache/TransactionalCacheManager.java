@@ -13,9 +13,12 @@
 package org.apache.ibatis.cache;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 
 /**
  * 缓存和事物管理器
@@ -25,6 +28,34 @@ public class TransactionalCacheManager {
 
   private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<Cache, TransactionalCache>();
 
+  /**
+   * <code>null</code> unless table level invalidation is enabled
+   */
+  private final TableDependencyIndex tableDependencyIndex;
+
+  /**
+   * <code>null</code> unless the invalidations are broadcast to other nodes
+   */
+  private final CacheInvalidationBus invalidationBus;
+
+  /**
+   * Tables written by the current transaction
+   */
+  private final Set<String> invalidatedTables = new HashSet<String>();
+
+  public TransactionalCacheManager() {
+    this(null);
+  }
+
+  public TransactionalCacheManager(TableDependencyIndex tableDependencyIndex) {
+    this(tableDependencyIndex, null);
+  }
+
+  public TransactionalCacheManager(TableDependencyIndex tableDependencyIndex, CacheInvalidationBus invalidationBus) {
+    this.tableDependencyIndex = tableDependencyIndex;
+    this.invalidationBus = invalidationBus;
+  }
+
   public void clear(Cache cache) {
     getTransactionalCache(cache).clear();
   }
@@ -33,17 +64,65 @@ public class TransactionalCacheManager {
     return getTransactionalCache(cache).getObject(key);
   }
 
+  /**
+   * Same as {@link #getObject(Cache, CacheKey)}, but an entry read from a table written by
+   * the current transaction is reported as missing, like the entries of a cleared cache.
+   */
+  public Object getObject(Cache cache, CacheKey key, Set<String> tables) {
+    Object value = getTransactionalCache(cache).getObject(key);
+    if (value != null && !invalidatedTables.isEmpty() && TableDependencyIndex.intersects(invalidatedTables, tables)) {
+      return null;
+    }
+    return value;
+  }
+
   public void putObject(Cache cache, CacheKey key, Object value) {
     getTransactionalCache(cache).putObject(key, value);
   }
 
+  public void putObject(Cache cache, CacheKey key, Object value, Set<String> tables) {
+    getTransactionalCache(cache).putObject(key, value, tables);
+  }
+
+  /**
+   * Releases a key missed by a query that failed.
+   */
+  public void abortLoad(Cache cache, CacheKey key) {
+    getTransactionalCache(cache).abortLoad(key);
+  }
+
+  /**
+   * Invalidates, on commit, the entries of every cache read from one of the given tables.
+   */
+  public void invalidateTables(Set<String> tables) {
+    invalidatedTables.addAll(tables);
+    for (TransactionalCache txCache : transactionalCaches.values()) {
+      txCache.invalidateTables(tables);
+    }
+  }
+
   public void commit() {
+    try {
+      if (tableDependencyIndex != null && !invalidatedTables.isEmpty()) {
+        tableDependencyIndex.invalidate(invalidatedTables);
+        if (invalidationBus != null) {
+          invalidationBus.tablesInvalidated(invalidatedTables);
+        }
+      }
+    }
+    finally {
+      invalidatedTables.clear();
+    }
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.commit();
     }
+    if (invalidationBus != null) {
+      invalidationBus.commitCompleted();
+    }
   }
 
   public void rollback() {
+    invalidatedTables.clear();
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.rollback();
     }
@@ -52,7 +131,7 @@ public class TransactionalCacheManager {
   private TransactionalCache getTransactionalCache(Cache cache) {
     TransactionalCache txCache = transactionalCaches.get(cache);
     if (txCache == null) {
-      txCache = new TransactionalCache(cache);
+      txCache = new TransactionalCache(cache, tableDependencyIndex);
       transactionalCaches.put(cache, txCache);
     }
     return txCache;
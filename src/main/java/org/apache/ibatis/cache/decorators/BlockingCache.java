@@ -12,12 +12,17 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
 
@@ -26,10 +31,11 @@ import org.apache.ibatis.cache.CacheException;
  * Simple and inefficient version of EhCache's BlockingCache decorator.
  * It sets a lock over a cache key when the element is not found in cache.
  * This way, other threads will wait until this element is filled instead of hitting the database.
+ * The <code>blocking</code> caches are now built with {@link SingleFlightCache}.
  *
  * @author Eduardo Macarron
  */
-public class BlockingCache implements Cache {
+public class BlockingCache implements BulkCache {
 
   private final Cache delegate;
 
@@ -88,6 +94,37 @@ public class BlockingCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    try {
+      BulkCacheUtil.putAll(delegate, entries);
+    }
+    finally {
+      for (Object key : entries.keySet()) {
+        releaseLock(key);
+      }
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = new HashMap<Object, Object>();
+    for (Object key : keys) {
+      Object value = getObject(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      releaseLock(key);
+    }
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
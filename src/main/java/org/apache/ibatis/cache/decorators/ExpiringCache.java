@@ -0,0 +1,275 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheEntryLoader;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.statistics.EvictionCause;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Expires each entry <code>timeToLive</code> milliseconds after it was written, instead of
+ * clearing the whole cache at once like {@link ScheduledCache}.
+ * <p>
+ * When <code>refreshAhead</code> is set, an entry read at least <code>refreshHits</code> times
+ * and older than <code>refreshAhead * timeToLive</code> is reloaded in the background by its
+ * {@link CacheEntryLoader}, so that hot entries are replaced before they expire. Only the
+ * entries whose loader was registered with {@link #setLoader(Object, CacheEntryLoader)} before
+ * being put can be refreshed. The refreshes of every cache share a single daemon thread; when it
+ * falls behind they are skipped and the entries simply expire.
+ * <p>
+ * This decorator must be wrapped by a {@link SynchronizedCache}.
+ */
+public class ExpiringCache implements BulkCache {
+
+  private static final Log log = LogFactory.getLog(ExpiringCache.class);
+
+  private static final int MAX_PENDING_LOADERS = 10000;
+
+  private static final int MAX_QUEUED_REFRESHES = 100;
+
+  private static ThreadPoolExecutor refresher;
+
+  private final Cache delegate;
+
+  /**
+   * Loaders of the entries loaded by uncommitted sessions, attached to the entries when they are put
+   */
+  private final ConcurrentMap<Object, CacheEntryLoader> pendingLoaders = new ConcurrentHashMap<Object, CacheEntryLoader>();
+
+  private long timeToLive = 60 * 60 * 1000; // 1 hour
+
+  private double refreshAhead;
+
+  private int refreshHits = 1;
+
+  private EvictionListener evictionListener;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * @param evictionListener the listener receiving the evictions of this decorator, <code>null</code> to not report them
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  public double getRefreshAhead() {
+    return refreshAhead;
+  }
+
+  /**
+   * @param refreshAhead fraction of the time to live after which a read refreshes the entry, between 0 and 1, <code>0</code> never refreshes
+   */
+  public void setRefreshAhead(double refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  public int getRefreshHits() {
+    return refreshHits;
+  }
+
+  /**
+   * @param refreshHits number of reads after which an entry is hot enough to be refreshed
+   */
+  public void setRefreshHits(int refreshHits) {
+    this.refreshHits = refreshHits;
+  }
+
+  public boolean isRefreshAheadEnabled() {
+    return refreshAhead > 0;
+  }
+
+  /**
+   * Registers the loader of an entry about to be put.
+   */
+  public void setLoader(Object key, CacheEntryLoader loader) {
+    if (isRefreshAheadEnabled() && pendingLoaders.size() < MAX_PENDING_LOADERS) {
+      pendingLoaders.put(key, loader);
+    }
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    CacheEntryLoader loader = pendingLoaders.remove(key);
+    delegate.putObject(key, value == null ? null : new Entry(value, System.currentTimeMillis(), loader));
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (!(value instanceof Entry)) {
+      return value;
+    }
+    Entry entry = (Entry) value;
+    long age = System.currentTimeMillis() - entry.writeTime;
+    if (age >= timeToLive) {
+      delegate.removeObject(key);
+      if (evictionListener != null) {
+        evictionListener.evicted(key, EvictionCause.EXPIRED);
+      }
+      return null;
+    }
+    entry.hits++;
+    if (entry.loader != null && !entry.refreshing && entry.hits >= refreshHits
+        && refreshAhead > 0 && age >= timeToLive * refreshAhead) {
+      refresh(key, entry);
+    }
+    return entry.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    // 回滚时未提交会话的loader也一起丢弃
+    pendingLoaders.remove(key);
+    Object value = delegate.removeObject(key);
+    return value instanceof Entry ? ((Entry) value).value : value;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    long now = System.currentTimeMillis();
+    Map<Object, Object> wrapped = new LinkedHashMap<Object, Object>();
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      CacheEntryLoader loader = pendingLoaders.remove(entry.getKey());
+      wrapped.put(entry.getKey(), entry.getValue() == null ? null : new Entry(entry.getValue(), now, loader));
+    }
+    BulkCacheUtil.putAll(delegate, wrapped);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = new HashMap<Object, Object>();
+    for (Object key : keys) {
+      Object value = getObject(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      pendingLoaders.remove(key);
+    }
+    BulkCacheUtil.removeAll(delegate, keys);
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void refresh(final Object key, final Entry entry) {
+    entry.refreshing = true;
+    try {
+      getRefresher().execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            entry.loader.reload(key);
+          }
+          catch (Exception e) {
+            log.warn("Error refreshing an entry of cache " + getId() + ". Cause: " + e);
+          }
+          finally {
+            entry.refreshing = false;
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      entry.refreshing = false;
+    }
+  }
+
+  private static synchronized ThreadPoolExecutor getRefresher() {
+    if (refresher == null) {
+      refresher = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED_REFRESHES),
+          new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "mybatis-cache-refresh");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      refresher.allowCoreThreadTimeOut(true);
+    }
+    return refresher;
+  }
+
+  private static final class Entry {
+
+    private final Object value;
+
+    private final long writeTime;
+
+    private final CacheEntryLoader loader;
+
+    private int hits;
+
+    private volatile boolean refreshing;
+
+    Entry(Object value, long writeTime, CacheEntryLoader loader) {
+      this.value = value;
+      this.writeTime = writeTime;
+      this.loader = loader;
+    }
+  }
+
+}
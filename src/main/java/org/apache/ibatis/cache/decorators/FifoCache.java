@@ -12,11 +12,19 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.statistics.EvictionCause;
 
 /**
  * FIFO (first in, first out) cache decorator
@@ -25,7 +33,7 @@ import org.apache.ibatis.cache.Cache;
  *
  * @author Clinton Begin
  */
-public class FifoCache implements Cache {
+public class FifoCache implements BulkCache {
 
   private final Cache delegate;
 
@@ -36,6 +44,8 @@ public class FifoCache implements Cache {
 
   private int size;
 
+  private EvictionListener evictionListener;
+
   public FifoCache(Cache delegate) {
     this.delegate = delegate;
     this.keyList = new LinkedList<Object>();
@@ -56,6 +66,13 @@ public class FifoCache implements Cache {
     this.size = size;
   }
 
+  /**
+   * @param evictionListener the listener receiving the evictions of this decorator, <code>null</code> to not report them
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     cycleKeyList(key);
@@ -69,6 +86,7 @@ public class FifoCache implements Cache {
 
   @Override
   public Object removeObject(Object key) {
+    keyList.remove(key);
     return delegate.removeObject(key);
   }
 
@@ -78,6 +96,35 @@ public class FifoCache implements Cache {
     keyList.clear();
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    List<Object> evicted = new ArrayList<Object>();
+    for (Object key : entries.keySet()) {
+      keyList.addLast(key);
+      if (keyList.size() > size) {
+        evicted.add(keyList.removeFirst());
+      }
+    }
+    BulkCacheUtil.putAll(delegate, entries);
+    BulkCacheUtil.removeAll(delegate, evicted);
+    if (evictionListener != null) {
+      for (Object key : evicted) {
+        evictionListener.evicted(key, EvictionCause.SIZE);
+      }
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return BulkCacheUtil.getAll(delegate, keys);
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    keyList.removeAll(keys);
+    BulkCacheUtil.removeAll(delegate, keys);
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
@@ -94,6 +141,9 @@ public class FifoCache implements Cache {
       // 数量超过 删除第一个数据
       Object oldestKey = keyList.removeFirst();
       delegate.removeObject(oldestKey);
+      if (evictionListener != null) {
+        evictionListener.evicted(oldestKey, EvictionCause.SIZE);
+      }
     }
   }
 
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+
+/**
+ * Reports every clear of the cache to a {@link CacheInvalidationBus}, so that the other nodes
+ * clear their copy of the namespace too.
+ * <p>
+ * {@link #removeObject(Object)} stays local: it is also used to release the entries missed by a
+ * rolled back session.
+ */
+public class InvalidationBroadcastCache implements BulkCache {
+
+  private final Cache delegate;
+
+  private final CacheInvalidationBus bus;
+
+  public InvalidationBroadcastCache(Cache delegate, CacheInvalidationBus bus) {
+    this.delegate = delegate;
+    this.bus = bus;
+    bus.register(this);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    delegate.putObject(key, object);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    bus.namespaceCleared(getId());
+  }
+
+  /**
+   * Clears this node only, used to apply the invalidations received from the other nodes.
+   */
+  public void clearLocally() {
+    delegate.clear();
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    BulkCacheUtil.putAll(delegate, entries);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return BulkCacheUtil.getAll(delegate, keys);
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    BulkCacheUtil.removeAll(delegate, keys);
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+}
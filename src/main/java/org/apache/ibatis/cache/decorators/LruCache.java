@@ -12,11 +12,18 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.statistics.EvictionCause;
 
 /**
  * Lru (least recently used) cache decorator
@@ -24,7 +31,7 @@ import org.apache.ibatis.cache.Cache;
  *
  * @author Clinton Begin
  */
-public class LruCache implements Cache {
+public class LruCache implements BulkCache {
 
   private final Cache delegate;
 
@@ -32,6 +39,8 @@ public class LruCache implements Cache {
 
   private Object eldestKey;
 
+  private EvictionListener evictionListener;
+
   public LruCache(Cache delegate) {
     this.delegate = delegate;
     setSize(1024);
@@ -69,6 +78,13 @@ public class LruCache implements Cache {
     };
   }
 
+  /**
+   * @param evictionListener the listener receiving the evictions of this decorator, <code>null</code> to not report them
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     delegate.putObject(key, value);
@@ -83,6 +99,7 @@ public class LruCache implements Cache {
 
   @Override
   public Object removeObject(Object key) {
+    keyMap.remove(key);
     return delegate.removeObject(key);
   }
 
@@ -92,6 +109,39 @@ public class LruCache implements Cache {
     keyMap.clear();
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    BulkCacheUtil.putAll(delegate, entries);
+    List<Object> evicted = new ArrayList<Object>();
+    for (Object key : entries.keySet()) {
+      keyMap.put(key, key);
+      if (eldestKey != null) {
+        evicted.add(eldestKey);
+        eldestKey = null;
+      }
+    }
+    BulkCacheUtil.removeAll(delegate, evicted);
+    if (evictionListener != null) {
+      for (Object key : evicted) {
+        evictionListener.evicted(key, EvictionCause.SIZE);
+      }
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    for (Object key : keys) {
+      keyMap.get(key); //touch
+    }
+    return BulkCacheUtil.getAll(delegate, keys);
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    keyMap.keySet().removeAll(keys);
+    BulkCacheUtil.removeAll(delegate, keys);
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
@@ -103,8 +153,12 @@ public class LruCache implements Cache {
   private void cycleKeyList(Object key) {
     keyMap.put(key, key);
     if (eldestKey != null) {
-      delegate.removeObject(eldestKey);
+      Object evicted = eldestKey;
+      delegate.removeObject(evicted);
       eldestKey = null;
+      if (evictionListener != null) {
+        evictionListener.evicted(evicted, EvictionCause.SIZE);
+      }
     }
   }
 
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMemoryMonitor;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.statistics.EvictionCause;
+
+/**
+ * Gives memory back when the heap fills up: the {@link CacheMemoryMonitor} it is registered
+ * with asks it to drop its least recently used entries when the old generation crosses one of
+ * its thresholds, before the JVM has to run a full collection.
+ * <p>
+ * It sits above the eviction policy, so the entries it drops are removed from the bookkeeping of
+ * the policy too; the entries evicted by the policy are reported back through {@link #evicted(Object)}.
+ * <p>
+ * Shrinking may happen on the JMX notification thread, so every method of this decorator is
+ * synchronized.
+ */
+public class MemoryPressureCache implements BulkCache {
+
+  private final Cache delegate;
+
+  private final Map<Object, Object> keys = new LinkedHashMap<Object, Object>(16, .75F, true);
+
+  private volatile long lastAccess = System.currentTimeMillis();
+
+  private EvictionListener evictionListener;
+
+  public MemoryPressureCache(Cache delegate, CacheMemoryMonitor monitor) {
+    this.delegate = delegate;
+    monitor.register(this);
+  }
+
+  /**
+   * @param evictionListener the listener receiving the evictions of this decorator, <code>null</code> to not report them
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * @return the time of the last read or write, in milliseconds
+   */
+  public long getLastAccess() {
+    return lastAccess;
+  }
+
+  /**
+   * @return the number of entries known to this decorator
+   */
+  public synchronized int getEntryCount() {
+    return keys.size();
+  }
+
+  @Override
+  public synchronized void putObject(Object key, Object value) {
+    lastAccess = System.currentTimeMillis();
+    delegate.putObject(key, value);
+    keys.put(key, key);
+  }
+
+  @Override
+  public synchronized Object getObject(Object key) {
+    lastAccess = System.currentTimeMillis();
+    keys.get(key); // touch
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public synchronized Object removeObject(Object key) {
+    keys.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public synchronized void clear() {
+    keys.clear();
+    delegate.clear();
+  }
+
+  /**
+   * Forgets an entry evicted by a decorator below this one.
+   */
+  public synchronized void evicted(Object key) {
+    keys.remove(key);
+  }
+
+  /**
+   * Removes the least recently used entries.
+   *
+   * @param fraction the fraction of the entries to remove, between 0 and 1
+   * @return the number of removed entries
+   */
+  public synchronized int shrink(double fraction) {
+    int count = (int) Math.ceil(keys.size() * Math.min(Math.max(fraction, 0d), 1d));
+    Iterator<Object> iterator = keys.keySet().iterator();
+    for (int i = 0; i < count; i++) {
+      Object key = iterator.next();
+      delegate.removeObject(key);
+      iterator.remove();
+      if (evictionListener != null) {
+        evictionListener.evicted(key, EvictionCause.MEMORY_PRESSURE);
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public synchronized void putAll(Map<?, ?> entries) {
+    lastAccess = System.currentTimeMillis();
+    BulkCacheUtil.putAll(delegate, entries);
+    for (Object key : entries.keySet()) {
+      keys.put(key, key);
+    }
+  }
+
+  @Override
+  public synchronized Map<Object, Object> getAll(Collection<?> keys) {
+    lastAccess = System.currentTimeMillis();
+    for (Object key : keys) {
+      this.keys.get(key); // touch
+    }
+    return BulkCacheUtil.getAll(delegate, keys);
+  }
+
+  @Override
+  public synchronized void removeAll(Collection<?> keys) {
+    this.keys.keySet().removeAll(keys);
+    BulkCacheUtil.removeAll(delegate, keys);
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.NegativeResult;
+
+/**
+ * Keeps the {@link NegativeResult}s apart from the other entries: each statement has its own
+ * budget of empty results, oldest first out, and each empty result expires after the time to
+ * live of its statement. The empty results therefore neither take room in the eviction policy
+ * of the delegate nor go through its serialization.
+ * <p>
+ * Expired entries are removed when they are read. This decorator is not thread safe.
+ */
+public class NegativeResultCache implements BulkCache {
+
+  private final Cache delegate;
+
+  /**
+   * key -> budget of the statement holding it
+   */
+  private final Map<Object, Budget> index = new HashMap<Object, Budget>();
+
+  private final Map<String, Budget> budgets = new HashMap<String, Budget>();
+
+  public NegativeResultCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize() + index.size();
+  }
+
+  /**
+   * @return the number of empty results currently held, expired or not
+   */
+  public int getNegativeSize() {
+    return index.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value instanceof NegativeResult) {
+      delegate.removeObject(key);
+      putNegative(key, (NegativeResult) value);
+    }
+    else {
+      // null 只是事务缓存释放未命中的key,保留已有的空结果
+      if (value != null) {
+        removeNegative(key);
+      }
+      delegate.putObject(key, value);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = getNegative(key);
+    return value != null ? value : delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object negative = removeNegative(key);
+    Object value = delegate.removeObject(key);
+    return value != null ? value : negative;
+  }
+
+  @Override
+  public void clear() {
+    index.clear();
+    budgets.clear();
+    delegate.clear();
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    Map<Object, Object> others = new LinkedHashMap<Object, Object>();
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      if (entry.getValue() instanceof NegativeResult) {
+        delegate.removeObject(entry.getKey());
+        putNegative(entry.getKey(), (NegativeResult) entry.getValue());
+      }
+      else {
+        if (entry.getValue() != null) {
+          removeNegative(entry.getKey());
+        }
+        others.put(entry.getKey(), entry.getValue());
+      }
+    }
+    BulkCacheUtil.putAll(delegate, others);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = BulkCacheUtil.getAll(delegate, keys);
+    for (Object key : keys) {
+      Object negative = getNegative(key);
+      if (negative != null) {
+        values.put(key, negative);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      removeNegative(key);
+    }
+    BulkCacheUtil.removeAll(delegate, keys);
+  }
+
+  private void putNegative(Object key, NegativeResult value) {
+    Budget budget = budgets.get(value.getStatementId());
+    if (budget == null) {
+      budget = new Budget(value);
+      budgets.put(value.getStatementId(), budget);
+    }
+    removeNegative(key);
+    index.put(key, budget);
+    budget.expiries.put(key, System.currentTimeMillis() + value.getTimeToLive());
+  }
+
+  private Object getNegative(Object key) {
+    Budget budget = index.get(key);
+    if (budget == null) {
+      return null;
+    }
+    Long expiry = budget.expiries.get(key);
+    if (expiry == null || expiry < System.currentTimeMillis()) {
+      removeNegative(key);
+      return null;
+    }
+    return budget.sentinel;
+  }
+
+  private Object removeNegative(Object key) {
+    Budget budget = index.remove(key);
+    if (budget == null) {
+      return null;
+    }
+    budget.expiries.remove(key);
+    return budget.sentinel;
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * The empty results of a statement, by insertion order.
+   */
+  private class Budget {
+
+    private final NegativeResult sentinel;
+
+    private final LinkedHashMap<Object, Long> expiries = new LinkedHashMap<Object, Long>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+        if (size() > sentinel.getMaxEntries()) {
+          index.remove(eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+
+    Budget(NegativeResult sentinel) {
+      this.sentinel = sentinel;
+    }
+  }
+
+}
@@ -12,14 +12,21 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.statistics.EvictionCause;
 
 /**
  * @author Clinton Begin
  */
-public class ScheduledCache implements Cache {
+public class ScheduledCache implements BulkCache {
 
   private final Cache delegate;
 
@@ -27,6 +34,8 @@ public class ScheduledCache implements Cache {
 
   protected long lastClear;
 
+  private EvictionListener evictionListener;
+
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
     this.clearInterval = 60 * 60 * 1000; // 1 hour
@@ -37,6 +46,13 @@ public class ScheduledCache implements Cache {
     this.clearInterval = clearInterval;
   }
 
+  /**
+   * @param evictionListener the listener receiving the evictions of this decorator, <code>null</code> to not report them
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -71,6 +87,23 @@ public class ScheduledCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    clearWhenStale();
+    BulkCacheUtil.putAll(delegate, entries);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return clearWhenStale() ? new HashMap<Object, Object>() : BulkCacheUtil.getAll(delegate, keys);
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    clearWhenStale();
+    BulkCacheUtil.removeAll(delegate, keys);
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
@@ -88,6 +121,9 @@ public class ScheduledCache implements Cache {
 
   private boolean clearWhenStale() {
     if (System.currentTimeMillis() - lastClear > clearInterval) {
+      if (evictionListener != null) {
+        evictionListener.cleared(EvictionCause.EXPIRED, delegate.getSize());
+      }
       clear();
       return true;
     }
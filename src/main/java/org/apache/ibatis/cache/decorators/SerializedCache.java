@@ -20,19 +20,69 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
 import org.apache.ibatis.io.Resources;
 
 /**
+ * Stores a serialized copy of each value, so every reader gets its own instance.
+ * <p>
+ * When the <code>compressionThreshold</code> property is set, serialized values of at least that
+ * many bytes are deflated at the fastest level, and kept compressed only if that makes them
+ * smaller. The compression ratio and the time spent compressing and decompressing are counted.
+ * The native compressor and decompressor are only created once needed, and ended when the cache
+ * is cleared or the compression disabled.
+ *
  * @author Clinton Begin
  */
-public class SerializedCache implements Cache {
+public class SerializedCache implements BulkCache {
+
+  /**
+   * First byte of a compressed value; a serialized value starts with the stream magic number <code>0xACED</code>.
+   */
+  private static final byte COMPRESSED = 0;
 
   private final Cache delegate;
 
+  private int compressionThreshold;
+
+  private final Object deflaterLock = new Object();
+
+  private final Object inflaterLock = new Object();
+
+  /**
+   * 首次压缩时创建, guarded by deflaterLock
+   */
+  private Deflater deflater;
+
+  /**
+   * 首次解压时创建, guarded by inflaterLock
+   */
+  private Inflater inflater;
+
+  private final AtomicLong compressedCount = new AtomicLong();
+
+  private final AtomicLong uncompressedCount = new AtomicLong();
+
+  private final AtomicLong originalBytes = new AtomicLong();
+
+  private final AtomicLong compressedBytes = new AtomicLong();
+
+  private final AtomicLong compressionNanos = new AtomicLong();
+
+  private final AtomicLong decompressionNanos = new AtomicLong();
+
   public SerializedCache(Cache delegate) {
     this.delegate = delegate;
   }
@@ -47,6 +97,67 @@ public class SerializedCache implements Cache {
     return delegate.getSize();
   }
 
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+
+  /**
+   * @param compressionThreshold size in bytes from which the serialized values are compressed, <code>0</code> to disable the compression
+   */
+  public void setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+    if (compressionThreshold <= 0) {
+      endDeflater();
+    }
+  }
+
+  /**
+   * Number of values stored compressed.
+   */
+  public long getCompressedCount() {
+    return compressedCount.get();
+  }
+
+  /**
+   * Number of values stored uncompressed, because they were below the threshold or did not shrink.
+   */
+  public long getUncompressedCount() {
+    return uncompressedCount.get();
+  }
+
+  /**
+   * Serialized size of the values stored compressed.
+   */
+  public long getOriginalBytes() {
+    return originalBytes.get();
+  }
+
+  /**
+   * Compressed size of the values stored compressed.
+   */
+  public long getCompressedBytes() {
+    return compressedBytes.get();
+  }
+
+  /**
+   * @return the compressed size divided by the serialized size of the compressed values, <code>1</code> if none was compressed
+   */
+  public double getCompressionRatio() {
+    long original = originalBytes.get();
+    return original == 0 ? 1d : (double) compressedBytes.get() / original;
+  }
+
+  /**
+   * Time spent compressing, including the attempts that did not shrink the value.
+   */
+  public long getCompressionNanos() {
+    return compressionNanos.get();
+  }
+
+  public long getDecompressionNanos() {
+    return decompressionNanos.get();
+  }
+
   @Override
   public void putObject(Object key, Object object) {
     if (object == null || object instanceof Serializable) {
@@ -71,6 +182,37 @@ public class SerializedCache implements Cache {
   @Override
   public void clear() {
     delegate.clear();
+    endDeflater();
+    endInflater();
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    Map<Object, Object> serialized = new LinkedHashMap<Object, Object>();
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      Object object = entry.getValue();
+      if (object == null || object instanceof Serializable) {
+        serialized.put(entry.getKey(), serialize((Serializable) object));
+      }
+      else {
+        throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
+      }
+    }
+    BulkCacheUtil.putAll(delegate, serialized);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = BulkCacheUtil.getAll(delegate, keys);
+    for (Map.Entry<Object, Object> entry : values.entrySet()) {
+      entry.setValue(deserialize((byte[]) entry.getValue()));
+    }
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    BulkCacheUtil.removeAll(delegate, keys);
   }
 
   @Override
@@ -95,7 +237,8 @@ public class SerializedCache implements Cache {
       oos.writeObject(value);
       oos.flush();
       oos.close();
-      return bos.toByteArray();
+      byte[] bytes = bos.toByteArray();
+      return compressionThreshold > 0 ? compress(bytes) : bytes;
     }
     catch (Exception e) {
       throw new CacheException("Error serializing object.  Cause: " + e, e);
@@ -105,6 +248,9 @@ public class SerializedCache implements Cache {
   private Serializable deserialize(byte[] value) {
     Serializable result;
     try {
+      if (value.length > 0 && value[0] == COMPRESSED) {
+        value = decompress(value);
+      }
       ByteArrayInputStream bis = new ByteArrayInputStream(value);
       ObjectInputStream ois = new CustomObjectInputStream(bis);
       result = (Serializable) ois.readObject();
@@ -116,6 +262,93 @@ public class SerializedCache implements Cache {
     return result;
   }
 
+  private byte[] compress(byte[] bytes) {
+    if (bytes.length < compressionThreshold) {
+      uncompressedCount.incrementAndGet();
+      return bytes;
+    }
+    long start = System.nanoTime();
+    // 压缩后不小于原始大小时保留原始数据
+    byte[] buffer = new byte[bytes.length];
+    int length;
+    synchronized (deflaterLock) {
+      if (deflater == null) {
+        deflater = new Deflater(Deflater.BEST_SPEED, true);
+      }
+      else {
+        deflater.reset();
+      }
+      deflater.setInput(bytes);
+      deflater.finish();
+      length = deflater.deflate(buffer, 5, buffer.length - 5);
+      if (!deflater.finished()) {
+        length = -1;
+      }
+    }
+    compressionNanos.addAndGet(System.nanoTime() - start);
+    if (length < 0) {
+      uncompressedCount.incrementAndGet();
+      return bytes;
+    }
+    buffer[0] = COMPRESSED;
+    buffer[1] = (byte) (bytes.length >>> 24);
+    buffer[2] = (byte) (bytes.length >>> 16);
+    buffer[3] = (byte) (bytes.length >>> 8);
+    buffer[4] = (byte) bytes.length;
+    byte[] compressed = new byte[length + 5];
+    System.arraycopy(buffer, 0, compressed, 0, compressed.length);
+    compressedCount.incrementAndGet();
+    originalBytes.addAndGet(bytes.length);
+    compressedBytes.addAndGet(compressed.length);
+    return compressed;
+  }
+
+  private byte[] decompress(byte[] value) throws DataFormatException {
+    long start = System.nanoTime();
+    int length = (value[1] & 0xFF) << 24 | (value[2] & 0xFF) << 16 | (value[3] & 0xFF) << 8 | value[4] & 0xFF;
+    byte[] bytes = new byte[length];
+    synchronized (inflaterLock) {
+      if (inflater == null) {
+        inflater = new Inflater(true);
+      }
+      else {
+        inflater.reset();
+      }
+      inflater.setInput(value, 5, value.length - 5);
+      int read = 0;
+      while (read < length && !inflater.finished()) {
+        int count = inflater.inflate(bytes, read, length - read);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        read += count;
+      }
+      if (read != length) {
+        throw new DataFormatException("truncated compressed value");
+      }
+    }
+    decompressionNanos.addAndGet(System.nanoTime() - start);
+    return bytes;
+  }
+
+  private void endDeflater() {
+    synchronized (deflaterLock) {
+      if (deflater != null) {
+        deflater.end();
+        deflater = null;
+      }
+    }
+  }
+
+  private void endInflater() {
+    synchronized (inflaterLock) {
+      if (inflater != null) {
+        inflater.end();
+        inflater = null;
+      }
+    }
+  }
+
   public static class CustomObjectInputStream extends ObjectInputStream {
 
     public CustomObjectInputStream(InputStream in) throws IOException {
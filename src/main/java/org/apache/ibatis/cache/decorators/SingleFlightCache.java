@@ -0,0 +1,295 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Cache stampede protection: the first thread missing a key loads it, the other threads missing
+ * the same key wait for its result instead of hitting the database.
+ * <p>
+ * Each in-flight load is a future owned by the {@link TransactionalCache} of the session that
+ * missed the key, or by the calling thread outside of a session. It completes when the loader puts
+ * the value (at commit), or when its owner releases the key without a value: rollback, failed
+ * query, or entry missed but not loaded. The owner may release it from another thread than the
+ * one that missed. Waiters then get the value, or compete again to load it. A waiter never waits
+ * longer than <code>timeout</code> milliseconds from its own call: past that deadline it stops
+ * waiting and loads the value itself instead of failing. Loads owned by a thread that died are
+ * abandoned.
+ * <p>
+ * Unlike {@link BlockingCache}, {@link #removeObject(Object)} really removes the entry, besides
+ * releasing the load of the calling thread.
+ */
+public class SingleFlightCache implements BulkCache {
+
+  /**
+   * Longest uninterrupted wait before checking that the loading thread is still alive.
+   */
+  private static final long OWNER_CHECK_INTERVAL = 1000L;
+
+  private static final ThreadLocal<Object> loadOwner = new ThreadLocal<Object>();
+
+  private final Cache delegate;
+
+  private final ConcurrentMap<Object, Flight> flights = new ConcurrentHashMap<Object, Flight>();
+
+  private long timeout;
+
+  public SingleFlightCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * @param timeout milliseconds a thread waits for the load of another thread, <code>0</code> waits as long as the loader lives
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Makes the calls of the current thread act for <code>owner</code>: the keys they miss are
+   * claimed by it, and released by any later call made for the same owner, on any thread.
+   *
+   * @param owner the owner, <code>null</code> for the calling thread
+   * @return the previous owner, to restore when done
+   */
+  public static Object setLoadOwner(Object owner) {
+    Object previous = loadOwner.get();
+    if (owner == null) {
+      loadOwner.remove();
+    }
+    else {
+      loadOwner.set(owner);
+    }
+    return previous;
+  }
+
+  private static Object currentOwner() {
+    Object owner = loadOwner.get();
+    return owner != null ? owner : Thread.currentThread();
+  }
+
+  /**
+   * @return the number of keys being loaded
+   */
+  public int getInFlightCount() {
+    return flights.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    try {
+      delegate.putObject(key, value);
+    }
+    finally {
+      if (value != null) {
+        // whoever loaded it, the value is good for every waiter
+        Flight flight = flights.remove(key);
+        if (flight != null) {
+          flight.complete(value);
+        }
+      }
+      else {
+        release(key);
+      }
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value != null) {
+      return value;
+    }
+    long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0L;
+    while (true) {
+      Flight flight = new Flight(key);
+      Flight current = flights.putIfAbsent(key, flight);
+      if (current == null) {
+        // the previous loader may have completed between the first read and now
+        value = delegate.getObject(key);
+        if (value != null) {
+          flights.remove(key, flight);
+          flight.complete(value);
+        }
+        return value;
+      }
+      if (current.owner == currentOwner()) {
+        return null;
+      }
+      if (!current.await(deadline)) {
+        // deadline passed: load without owning the key
+        return null;
+      }
+      if (current.value != null) {
+        return current.value;
+      }
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    try {
+      return delegate.removeObject(key);
+    }
+    finally {
+      release(key);
+    }
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    try {
+      BulkCacheUtil.putAll(delegate, entries);
+    }
+    finally {
+      for (Map.Entry<?, ?> entry : entries.entrySet()) {
+        if (entry.getValue() != null) {
+          Flight flight = flights.remove(entry.getKey());
+          if (flight != null) {
+            flight.complete(entry.getValue());
+          }
+        }
+        else {
+          release(entry.getKey());
+        }
+      }
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = new HashMap<Object, Object>();
+    for (Object key : keys) {
+      Object value = getObject(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    try {
+      BulkCacheUtil.removeAll(delegate, keys);
+    }
+    finally {
+      for (Object key : keys) {
+        release(key);
+      }
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * Completes without a value the load of the key claimed by the current owner, if any.
+   */
+  private void release(Object key) {
+    Flight flight = flights.get(key);
+    if (flight != null && flight.owner == currentOwner() && flights.remove(key, flight)) {
+      flight.complete(null);
+    }
+  }
+
+  private void abandon(Object key, Flight flight) {
+    if (flights.remove(key, flight)) {
+      flight.complete(null);
+    }
+  }
+
+  private final class Flight {
+
+    private final Object key;
+
+    private final Object owner = currentOwner();
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile Object value;
+
+    Flight(Object key) {
+      this.key = key;
+    }
+
+    void complete(Object value) {
+      this.value = value;
+      done.countDown();
+    }
+
+    /**
+     * @return false if the deadline passed before the load completed
+     */
+    boolean await(long deadline) {
+      try {
+        while (true) {
+          long wait = TimeUnit.MILLISECONDS.toNanos(OWNER_CHECK_INTERVAL);
+          if (deadline != 0L) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+              return false;
+            }
+            wait = Math.min(wait, remaining);
+          }
+          if (done.await(wait, TimeUnit.NANOSECONDS)) {
+            return true;
+          }
+          if (owner instanceof Thread && !((Thread) owner).isAlive()) {
+            abandon(key, this);
+            return true;
+          }
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CacheException("Got interrupted while waiting for another thread to load a cache entry of " + getId(), e);
+      }
+    }
+  }
+
+}
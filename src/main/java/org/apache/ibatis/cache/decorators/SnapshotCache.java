@@ -0,0 +1,198 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSnapshotManager;
+
+/**
+ * Restores the entries written by the previous run from the snapshot of the {@link CacheSnapshotManager}
+ * it is registered with, and keeps track of the current entries so they can be written on shutdown.
+ * <p>
+ * The snapshot is mapped on the first read, and its file is deleted. A miss of the delegate then
+ * looks the key up in the snapshot and moves the entry into the delegate. Removed keys are dropped
+ * from the snapshot, and a clear discards it along with its file. Entries that were never read are
+ * carried over to the next snapshot.
+ * <p>
+ * It sits above the eviction policy so that restored entries count against its size; the entries
+ * evicted below are reported through {@link #evicted(Object)}.
+ * <p>
+ * Snapshots may be written from a shutdown hook, so every method of this decorator is synchronized.
+ */
+public class SnapshotCache implements BulkCache {
+
+  private final Cache delegate;
+
+  private final CacheSnapshotManager manager;
+
+  // 淘汰通知可能来自持有下层锁的线程,不能等待本对象的锁
+  private final Set<Object> keys = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+  private CacheSnapshotManager.Snapshot snapshot;
+
+  private boolean opened;
+
+  public SnapshotCache(Cache delegate, CacheSnapshotManager manager) {
+    this.delegate = delegate;
+    this.manager = manager;
+    manager.register(this);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * @return the number of snapshot entries not restored yet
+   */
+  public synchronized int getSnapshotSize() {
+    return snapshot == null ? 0 : snapshot.size();
+  }
+
+  @Override
+  public synchronized void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    keys.add(key);
+    if (snapshot != null) {
+      snapshot.remove(key);
+    }
+  }
+
+  @Override
+  public synchronized Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      value = restore(key);
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized Object removeObject(Object key) {
+    keys.remove(key);
+    if (snapshot != null) {
+      snapshot.remove(key);
+    }
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public synchronized void clear() {
+    keys.clear();
+    if (!opened) {
+      opened = true;
+      manager.delete(getId());
+    }
+    snapshot = null;
+    delegate.clear();
+  }
+
+  /**
+   * Forgets an entry evicted by a decorator below this one.
+   */
+  public void evicted(Object key) {
+    keys.remove(key);
+  }
+
+  @Override
+  public synchronized void putAll(Map<?, ?> entries) {
+    BulkCacheUtil.putAll(delegate, entries);
+    keys.addAll(entries.keySet());
+    if (snapshot != null) {
+      for (Object key : entries.keySet()) {
+        snapshot.remove(key);
+      }
+    }
+  }
+
+  @Override
+  public synchronized Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = BulkCacheUtil.getAll(delegate, keys);
+    for (Object key : keys) {
+      if (values.get(key) == null) {
+        Object value = restore(key);
+        if (value != null) {
+          values.put(key, value);
+        }
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public synchronized void removeAll(Collection<?> keys) {
+    this.keys.removeAll(keys);
+    if (snapshot != null) {
+      for (Object key : keys) {
+        snapshot.remove(key);
+      }
+    }
+    BulkCacheUtil.removeAll(delegate, keys);
+  }
+
+  /**
+   * Writes the current entries, then the snapshot entries that were never read.
+   *
+   * @return the number of written entries
+   */
+  public synchronized int writeEntries(CacheSnapshotManager.Writer writer) throws IOException {
+    for (Object key : keys) {
+      writer.write(key, delegate.getObject(key));
+    }
+    if (snapshot != null) {
+      writer.write(snapshot);
+    }
+    return writer.getCount();
+  }
+
+  private Object restore(Object key) {
+    if (!opened) {
+      opened = true;
+      snapshot = manager.open(getId());
+    }
+    if (snapshot == null) {
+      return null;
+    }
+    Object value = snapshot.take(key);
+    if (value != null) {
+      delegate.putObject(key, value);
+      keys.add(key);
+    }
+    if (snapshot.size() == 0) {
+      snapshot = null;
+    }
+    return value;
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+}
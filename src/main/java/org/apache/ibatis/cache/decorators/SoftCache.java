@@ -19,6 +19,8 @@ import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.statistics.EvictionCause;
 
 /**
  * Soft Reference cache decorator
@@ -35,6 +37,8 @@ public class SoftCache implements Cache {
 
   private int numberOfHardLinks;
 
+  private EvictionListener evictionListener;
+
   public SoftCache(Cache delegate) {
     this.delegate = delegate;
     this.numberOfHardLinks = 256;
@@ -58,6 +62,13 @@ public class SoftCache implements Cache {
     this.numberOfHardLinks = size;
   }
 
+  /**
+   * @param evictionListener the listener receiving the evictions of this decorator, <code>null</code> to not report them
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     removeGarbageCollectedItems();
@@ -72,7 +83,7 @@ public class SoftCache implements Cache {
     if (softReference != null) {
       result = softReference.get();
       if (result == null) {
-        delegate.removeObject(key);
+        removeCollected(key);
       }
       else {
         // See #586 (and #335) modifications need more than a read lock 
@@ -110,7 +121,13 @@ public class SoftCache implements Cache {
   private void removeGarbageCollectedItems() {
     SoftEntry sv;
     while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
-      delegate.removeObject(sv.key);
+      removeCollected(sv.key);
+    }
+  }
+
+  private void removeCollected(Object key) {
+    if (delegate.removeObject(key) != null && evictionListener != null) {
+      evictionListener.evicted(key, EvictionCause.COLLECTED);
     }
   }
 
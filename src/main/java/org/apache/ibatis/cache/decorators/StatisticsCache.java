@@ -0,0 +1,181 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.NegativeResult;
+import org.apache.ibatis.cache.statistics.CacheStatistics;
+import org.apache.ibatis.cache.statistics.EvictionCause;
+
+/**
+ * Records the hits, misses, puts, clears and invalidations of a cache in its {@link CacheStatistics}.
+ * <p>
+ * One put out of {@value #SAMPLE_INTERVAL} is serialized, without keeping the bytes, to estimate
+ * the memory held by the entries.
+ */
+public class StatisticsCache implements BulkCache {
+
+  static final int SAMPLE_INTERVAL = 64;
+
+  private final Cache delegate;
+
+  private final CacheStatistics statistics;
+
+  private int unsampledPuts;
+
+  public StatisticsCache(Cache delegate, CacheStatistics statistics) {
+    this.delegate = delegate;
+    this.statistics = statistics;
+    statistics.setCache(delegate);
+  }
+
+  public CacheStatistics getStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    recordPut(value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    recordGet(value);
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object value = delegate.removeObject(key);
+    if (value != null) {
+      statistics.recordEviction(EvictionCause.INVALIDATED, 1);
+    }
+    return value;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    statistics.recordClear();
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    BulkCacheUtil.putAll(delegate, entries);
+    for (Object value : entries.values()) {
+      recordPut(value);
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = BulkCacheUtil.getAll(delegate, keys);
+    for (Object key : keys) {
+      recordGet(values.get(key));
+    }
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    // 逐个删除才能知道哪些key确实存在
+    int removed = 0;
+    for (Object key : keys) {
+      if (delegate.removeObject(key) != null) {
+        removed++;
+      }
+    }
+    statistics.recordEviction(EvictionCause.INVALIDATED, removed);
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void recordGet(Object value) {
+    if (value == null) {
+      statistics.recordMiss();
+    }
+    else {
+      statistics.recordHit();
+    }
+  }
+
+  private void recordPut(Object value) {
+    // null 只是事务缓存释放未命中的key
+    if (value == null) {
+      return;
+    }
+    statistics.recordPut();
+    if (unsampledPuts-- <= 0 && value instanceof Serializable && !(value instanceof NegativeResult)) {
+      unsampledPuts = SAMPLE_INTERVAL - 1;
+      long size = serializedSize(value);
+      if (size >= 0) {
+        statistics.recordEntrySize(size);
+      }
+    }
+  }
+
+  private static long serializedSize(Object value) {
+    CountingOutputStream counter = new CountingOutputStream();
+    try {
+      ObjectOutputStream out = new ObjectOutputStream(counter);
+      out.writeObject(value);
+      out.close();
+      return counter.count;
+    }
+    catch (IOException e) {
+      // a nested object is not serializable
+      return -1;
+    }
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+
+}
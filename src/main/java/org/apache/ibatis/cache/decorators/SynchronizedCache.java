@@ -12,14 +12,18 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
+import org.apache.ibatis.cache.BulkCache;
+import org.apache.ibatis.cache.BulkCacheUtil;
 import org.apache.ibatis.cache.Cache;
 
 /**
  * @author Clinton Begin
  */
-public class SynchronizedCache implements Cache {
+public class SynchronizedCache implements BulkCache {
 
   private final Cache delegate;
 
@@ -67,6 +71,21 @@ public class SynchronizedCache implements Cache {
     return delegate.equals(obj);
   }
 
+  @Override
+  public synchronized void putAll(Map<?, ?> entries) {
+    BulkCacheUtil.putAll(delegate, entries);
+  }
+
+  @Override
+  public synchronized Map<Object, Object> getAll(Collection<?> keys) {
+    return BulkCacheUtil.getAll(delegate, keys);
+  }
+
+  @Override
+  public synchronized void removeAll(Collection<?> keys) {
+    BulkCacheUtil.removeAll(delegate, keys);
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
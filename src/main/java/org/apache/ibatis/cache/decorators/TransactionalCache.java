@@ -12,13 +12,18 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
+import org.apache.ibatis.cache.BulkCacheUtil;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.TableDependencyIndex;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -43,13 +48,29 @@ public class TransactionalCache implements Cache {
 
   private final Set<Object> entriesMissedInCache;
 
+  /**
+   * <code>null</code> unless table level invalidation is enabled
+   */
+  private final TableDependencyIndex tableDependencyIndex;
+
+  /**
+   * Tables read by the entries to add on commit, only when table level invalidation is enabled
+   */
+  private final Map<Object, Set<String>> tablesOfEntriesToAdd;
+
   private boolean clearOnCommit;
 
   public TransactionalCache(Cache delegate) {
+    this(delegate, null);
+  }
+
+  public TransactionalCache(Cache delegate, TableDependencyIndex tableDependencyIndex) {
     this.delegate = delegate;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<Object, Object>();
     this.entriesMissedInCache = new HashSet<Object>();
+    this.tableDependencyIndex = tableDependencyIndex;
+    this.tablesOfEntriesToAdd = tableDependencyIndex == null ? null : new HashMap<Object, Set<String>>();
   }
 
   @Override
@@ -65,7 +86,14 @@ public class TransactionalCache implements Cache {
   @Override
   public Object getObject(Object key) {
     // issue #116
-    Object object = delegate.getObject(key);
+    Object object;
+    Object previousOwner = SingleFlightCache.setLoadOwner(this);
+    try {
+      object = delegate.getObject(key);
+    }
+    finally {
+      SingleFlightCache.setLoadOwner(previousOwner);
+    }
     if (object == null) {
       entriesMissedInCache.add(key);
     }
@@ -88,6 +116,35 @@ public class TransactionalCache implements Cache {
     entriesToAddOnCommit.put(key, object);
   }
 
+  /**
+   * Same as {@link #putObject(Object, Object)}, recording the tables the entry was read from.
+   */
+  public void putObject(Object key, Object object, Set<String> tables) {
+    entriesToAddOnCommit.put(key, object);
+    if (tablesOfEntriesToAdd != null) {
+      tablesOfEntriesToAdd.put(key, tables);
+    }
+  }
+
+  /**
+   * Discards the entries to add on commit that were read from one of the given tables.
+   */
+  public void invalidateTables(Set<String> tables) {
+    if (tablesOfEntriesToAdd == null) {
+      clear();
+      return;
+    }
+    Iterator<Map.Entry<Object, Object>> iterator = entriesToAddOnCommit.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Object key = iterator.next().getKey();
+      Set<String> entryTables = tablesOfEntriesToAdd.get(key);
+      if (entryTables == null || TableDependencyIndex.intersects(tables, entryTables)) {
+        iterator.remove();
+        tablesOfEntriesToAdd.remove(key);
+      }
+    }
+  }
+
   @Override
   public Object removeObject(Object key) {
     return null;
@@ -97,18 +154,53 @@ public class TransactionalCache implements Cache {
   public void clear() {
     clearOnCommit = true;
     entriesToAddOnCommit.clear();
+    if (tablesOfEntriesToAdd != null) {
+      tablesOfEntriesToAdd.clear();
+    }
+  }
+
+  /**
+   * Releases a key missed by a query that failed, so that a blocking cache lets the other
+   * sessions load it without waiting for the end of this transaction.
+   */
+  public void abortLoad(Object key) {
+    if (entriesMissedInCache.remove(key) && !entriesToAddOnCommit.containsKey(key)) {
+      Object previousOwner = SingleFlightCache.setLoadOwner(this);
+      try {
+        releaseMissedEntry(key);
+      }
+      finally {
+        SingleFlightCache.setLoadOwner(previousOwner);
+      }
+    }
   }
 
   public void commit() {
-    if (clearOnCommit) {
-      delegate.clear();
+    // the keys were claimed by this cache, maybe on another thread
+    Object previousOwner = SingleFlightCache.setLoadOwner(this);
+    try {
+      if (clearOnCommit) {
+        delegate.clear();
+        if (tableDependencyIndex != null) {
+          tableDependencyIndex.cacheCleared(delegate);
+        }
+      }
+      flushPendingEntries();
+    }
+    finally {
+      SingleFlightCache.setLoadOwner(previousOwner);
     }
-    flushPendingEntries();
     reset();
   }
 
   public void rollback() {
-    unlockMissedEntries();
+    Object previousOwner = SingleFlightCache.setLoadOwner(this);
+    try {
+      unlockMissedEntries();
+    }
+    finally {
+      SingleFlightCache.setLoadOwner(previousOwner);
+    }
     reset();
   }
 
@@ -116,29 +208,48 @@ public class TransactionalCache implements Cache {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
     entriesMissedInCache.clear();
+    if (tablesOfEntriesToAdd != null) {
+      tablesOfEntriesToAdd.clear();
+    }
   }
 
   private void flushPendingEntries() {
-    for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-      delegate.putObject(entry.getKey(), entry.getValue());
-    }
+    // 一次批量写入,SynchronizedCache只加一次锁
+    Map<Object, Object> entries = new LinkedHashMap<Object, Object>(entriesToAddOnCommit);
     for (Object entry : entriesMissedInCache) {
       if (!entriesToAddOnCommit.containsKey(entry)) {
-        delegate.putObject(entry, null);
+        entries.put(entry, null);
+      }
+    }
+    BulkCacheUtil.putAll(delegate, entries);
+    if (tableDependencyIndex != null) {
+      for (Object key : entriesToAddOnCommit.keySet()) {
+        Set<String> tables = tablesOfEntriesToAdd.get(key);
+        tableDependencyIndex.register(delegate, key, tables == null ? Collections.<String>emptySet() : tables);
       }
     }
   }
 
   private void unlockMissedEntries() {
-    for (Object entry : entriesMissedInCache) {
-      try {
-        delegate.removeObject(entry);
-      }
-      catch (Exception e) {
-        log.warn("Unexpected exception while notifiying a rollback to the cache adapter."
-            + "Consider upgrading your cache adapter to the latest version.  Cause: " + e);
+    try {
+      BulkCacheUtil.removeAll(delegate, entriesMissedInCache);
+    }
+    catch (Exception e) {
+      // 逐个重试,一个失败的条目不能让其余的锁无法释放
+      for (Object entry : entriesMissedInCache) {
+        releaseMissedEntry(entry);
       }
     }
   }
 
+  private void releaseMissedEntry(Object entry) {
+    try {
+      delegate.removeObject(entry);
+    }
+    catch (Exception e) {
+      log.warn("Unexpected exception while notifiying a rollback to the cache adapter."
+          + "Consider upgrading your cache adapter to the latest version.  Cause: " + e);
+    }
+  }
+
 }
@@ -19,6 +19,8 @@ import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.statistics.EvictionCause;
 
 /**
  * Weak Reference cache decorator.
@@ -35,6 +37,8 @@ public class WeakCache implements Cache {
 
   private int numberOfHardLinks;
 
+  private EvictionListener evictionListener;
+
   public WeakCache(Cache delegate) {
     this.delegate = delegate;
     this.numberOfHardLinks = 256;
@@ -57,6 +61,13 @@ public class WeakCache implements Cache {
     this.numberOfHardLinks = size;
   }
 
+  /**
+   * @param evictionListener the listener receiving the evictions of this decorator, <code>null</code> to not report them
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public void putObject(Object key, Object value) {
     removeGarbageCollectedItems();
@@ -71,7 +82,7 @@ public class WeakCache implements Cache {
     if (weakReference != null) {
       result = weakReference.get();
       if (result == null) {
-        delegate.removeObject(key);
+        removeCollected(key);
       }
       else {
         hardLinksToAvoidGarbageCollection.addFirst(result);
@@ -104,7 +115,13 @@ public class WeakCache implements Cache {
   private void removeGarbageCollectedItems() {
     WeakEntry sv;
     while ((sv = (WeakEntry) queueOfGarbageCollectedEntries.poll()) != null) {
-      delegate.removeObject(sv.key);
+      removeCollected(sv.key);
+    }
+  }
+
+  private void removeCollected(Object key) {
+    if (delegate.removeObject(key) != null && evictionListener != null) {
+      evictionListener.evicted(key, EvictionCause.COLLECTED);
     }
   }
 
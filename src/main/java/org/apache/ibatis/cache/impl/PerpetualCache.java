@@ -12,10 +12,12 @@
  */
 package org.apache.ibatis.cache.impl;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
+import org.apache.ibatis.cache.BulkCache;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
 
@@ -24,7 +26,7 @@ import org.apache.ibatis.cache.CacheException;
  *
  * @author Clinton Begin
  */
-public class PerpetualCache implements Cache {
+public class PerpetualCache implements BulkCache {
 
   private final String id;
 
@@ -66,6 +68,30 @@ public class PerpetualCache implements Cache {
     cache.clear();
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    cache.putAll(entries);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = new HashMap<Object, Object>();
+    for (Object key : keys) {
+      Object value = cache.get(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      cache.remove(key);
+    }
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
@@ -0,0 +1,247 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.cache.decorators.InvalidationBroadcastCache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Publishes the second level cache invalidations committed on this node through an
+ * {@link InvalidationTransport}, and applies the ones received from the other nodes.
+ * <p>
+ * Invalidations are coalesced until they are published: a namespace cleared by ten commits is
+ * sent once. They are published at the end of each commit, or, when a batch delay is set, by a
+ * background thread every <code>batchDelay</code> milliseconds, trading a longer staleness window
+ * on the other nodes for fewer messages.
+ * <p>
+ * Received namespaces are cleared without being published again. Received tables are
+ * invalidated through the {@link org.apache.ibatis.cache.TableDependencyIndex} when table level
+ * invalidation is enabled on this node, otherwise they clear every broadcasting cache.
+ */
+public class CacheInvalidationBus implements InvalidationListener {
+
+  private static final Log log = LogFactory.getLog(CacheInvalidationBus.class);
+
+  private final Configuration configuration;
+
+  private final InvalidationTransport transport;
+
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final ConcurrentMap<String, InvalidationBroadcastCache> caches = new ConcurrentHashMap<String, InvalidationBroadcastCache>();
+
+  private final Set<String> pendingNamespaces = new LinkedHashSet<String>();
+
+  private final Set<String> pendingTables = new LinkedHashSet<String>();
+
+  private final AtomicLong publishedCount = new AtomicLong();
+
+  private final AtomicLong receivedCount = new AtomicLong();
+
+  private long batchDelay;
+
+  private FlushThread flushThread;
+
+  public CacheInvalidationBus(Configuration configuration, InvalidationTransport transport) {
+    this.configuration = configuration;
+    this.transport = transport;
+    transport.start(this);
+  }
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  public InvalidationTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * @return the number of non empty batches published
+   */
+  public long getPublishedCount() {
+    return publishedCount.get();
+  }
+
+  /**
+   * @return the number of batches received from the other nodes
+   */
+  public long getReceivedCount() {
+    return receivedCount.get();
+  }
+
+  public synchronized long getBatchDelay() {
+    return batchDelay;
+  }
+
+  /**
+   * @param batchDelay milliseconds between two publications, <code>0</code> publishes at the end of each commit
+   */
+  public synchronized void setBatchDelay(long batchDelay) {
+    this.batchDelay = batchDelay;
+    stopFlushThread();
+    if (batchDelay > 0) {
+      startFlushThread(batchDelay);
+    }
+  }
+
+  /**
+   * Registers a cache so that the invalidations of its namespace received from the other nodes are applied to it.
+   */
+  public void register(InvalidationBroadcastCache cache) {
+    caches.put(cache.getId(), cache);
+  }
+
+  public synchronized void namespaceCleared(String namespace) {
+    pendingNamespaces.add(namespace);
+  }
+
+  public synchronized void tablesInvalidated(Collection<String> tables) {
+    pendingTables.addAll(tables);
+  }
+
+  /**
+   * Called at the end of each commit: publishes the pending invalidations, unless they are batched by a delay.
+   */
+  public void commitCompleted() {
+    if (getBatchDelay() <= 0) {
+      flush();
+    }
+  }
+
+  /**
+   * Publishes the pending invalidations now.
+   */
+  public void flush() {
+    InvalidationBatch batch;
+    synchronized (this) {
+      if (pendingNamespaces.isEmpty() && pendingTables.isEmpty()) {
+        return;
+      }
+      batch = new InvalidationBatch(nodeId, pendingNamespaces, pendingTables);
+      pendingNamespaces.clear();
+      pendingTables.clear();
+    }
+    try {
+      transport.publish(batch);
+      publishedCount.incrementAndGet();
+    }
+    catch (RuntimeException e) {
+      // the local commit already happened: the other nodes stay stale until their caches expire
+      log.warn("Error publishing " + batch + ". Cause: " + e);
+    }
+  }
+
+  @Override
+  public void onInvalidation(InvalidationBatch batch) {
+    if (nodeId.equals(batch.getOrigin())) {
+      return;
+    }
+    receivedCount.incrementAndGet();
+    if (log.isDebugEnabled()) {
+      log.debug("Received " + batch);
+    }
+    for (String namespace : batch.getNamespaces()) {
+      InvalidationBroadcastCache cache = caches.get(namespace);
+      if (cache != null) {
+        clearLocally(cache);
+      }
+    }
+    if (!batch.getTables().isEmpty()) {
+      if (configuration.isTableLevelCacheInvalidation()) {
+        configuration.getTableDependencyIndex().invalidate(batch.getTables());
+      }
+      else {
+        for (InvalidationBroadcastCache cache : caches.values()) {
+          clearLocally(cache);
+        }
+      }
+    }
+  }
+
+  private void clearLocally(InvalidationBroadcastCache cache) {
+    cache.clearLocally();
+    configuration.getTableDependencyIndex().cacheCleared(cache);
+  }
+
+  /**
+   * Publishes the pending invalidations and closes the transport. Called by
+   * {@link Configuration#close()}.
+   */
+  public void close() {
+    synchronized (this) {
+      stopFlushThread();
+    }
+    flush();
+    transport.close();
+  }
+
+  private void startFlushThread(long delay) {
+    flushThread = new FlushThread(this, delay);
+    flushThread.start();
+  }
+
+  private void stopFlushThread() {
+    if (flushThread != null) {
+      flushThread.interrupt();
+      flushThread = null;
+    }
+  }
+
+  /**
+   * Publishes the pending invalidations periodically, holding the bus weakly so that a discarded
+   * configuration is not kept alive.
+   */
+  private static final class FlushThread extends Thread {
+
+    private final WeakReference<CacheInvalidationBus> bus;
+
+    private final long delay;
+
+    FlushThread(CacheInvalidationBus bus, long delay) {
+      super("mybatis-cache-invalidation");
+      this.bus = new WeakReference<CacheInvalidationBus>(bus);
+      this.delay = delay;
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        try {
+          Thread.sleep(delay);
+        }
+        catch (InterruptedException e) {
+          break;
+        }
+        CacheInvalidationBus target = bus.get();
+        if (target == null) {
+          break;
+        }
+        target.flush();
+      }
+    }
+  }
+
+}
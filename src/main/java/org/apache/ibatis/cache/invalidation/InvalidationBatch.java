@@ -0,0 +1,64 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The invalidations committed by a node since its previous batch: the namespaces (cache ids) to
+ * clear, and, with table level invalidation, the tables whose dependent entries must be removed.
+ */
+public class InvalidationBatch implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String origin;
+
+  private final Set<String> namespaces;
+
+  private final Set<String> tables;
+
+  public InvalidationBatch(String origin, Set<String> namespaces, Set<String> tables) {
+    this.origin = origin;
+    this.namespaces = Collections.unmodifiableSet(new LinkedHashSet<String>(namespaces));
+    this.tables = Collections.unmodifiableSet(new LinkedHashSet<String>(tables));
+  }
+
+  /**
+   * @return the id of the publishing node
+   */
+  public String getOrigin() {
+    return origin;
+  }
+
+  public Set<String> getNamespaces() {
+    return namespaces;
+  }
+
+  public Set<String> getTables() {
+    return tables;
+  }
+
+  public boolean isEmpty() {
+    return namespaces.isEmpty() && tables.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "InvalidationBatch[origin=" + origin + ", namespaces=" + namespaces + ", tables=" + tables + "]";
+  }
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+/**
+ * Carries the second level cache invalidations of a node to the other nodes sharing the same database.
+ * <p>
+ * Implementations must deliver the published batches to the listener of every other node, and
+ * may deliver them back to the publishing node: batches carrying the local node id are ignored.
+ * Delivery may happen on any thread.
+ */
+public interface InvalidationTransport {
+
+  /**
+   * Starts receiving the batches published by the other nodes.
+   */
+  void start(InvalidationListener listener);
+
+  /**
+   * Sends a batch to the other nodes.
+   */
+  void publish(InvalidationBatch batch);
+
+  /**
+   * Stops receiving batches and releases the resources of the transport.
+   */
+  void close();
+
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Transport delivering the batches to the other transports of the same channel in this JVM.
+ * <p>
+ * Meant for tests and for several configurations (one per simulated node) loaded in a single JVM.
+ * The batches are delivered synchronously, on the publishing thread. Listeners are held weakly and
+ * a channel is dropped when its last transport is closed, so the channels never keep a discarded
+ * configuration alive.
+ */
+public class LocalInvalidationTransport implements InvalidationTransport {
+
+  public static final String DEFAULT_CHANNEL = "default";
+
+  private static final ConcurrentMap<String, List<LocalInvalidationTransport>> channels = new ConcurrentHashMap<String, List<LocalInvalidationTransport>>();
+
+  private final String channel;
+
+  private volatile WeakReference<InvalidationListener> listener;
+
+  public LocalInvalidationTransport() {
+    this(DEFAULT_CHANNEL);
+  }
+
+  public LocalInvalidationTransport(String channel) {
+    this.channel = channel;
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  @Override
+  public void start(InvalidationListener listener) {
+    this.listener = new WeakReference<InvalidationListener>(listener);
+    synchronized (channels) {
+      List<LocalInvalidationTransport> members = channels.get(channel);
+      if (members == null) {
+        members = new CopyOnWriteArrayList<LocalInvalidationTransport>();
+        channels.put(channel, members);
+      }
+      members.add(this);
+    }
+  }
+
+  @Override
+  public void publish(InvalidationBatch batch) {
+    List<LocalInvalidationTransport> members = channels.get(channel);
+    if (members == null) {
+      return;
+    }
+    for (LocalInvalidationTransport member : members) {
+      if (member == this) {
+        continue;
+      }
+      WeakReference<InvalidationListener> reference = member.listener;
+      InvalidationListener memberListener = reference == null ? null : reference.get();
+      if (memberListener != null) {
+        memberListener.onInvalidation(batch);
+      }
+      else if (reference != null) {
+        // its configuration was discarded without being closed
+        member.close();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    listener = null;
+    synchronized (channels) {
+      List<LocalInvalidationTransport> members = channels.get(channel);
+      if (members != null) {
+        members.remove(this);
+        if (members.isEmpty()) {
+          channels.remove(channel);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of open transports of a channel
+   */
+  public static int getMemberCount(String channel) {
+    List<LocalInvalidationTransport> members = channels.get(channel);
+    return members == null ? 0 : members.size();
+  }
+
+}
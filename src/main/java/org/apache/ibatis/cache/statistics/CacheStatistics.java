@@ -0,0 +1,258 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.statistics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.metrics.Histogram;
+
+/**
+ * Counters of a second level cache.
+ * <p>
+ * Hits, misses, puts, clears and invalidations are recorded by the
+ * {@link org.apache.ibatis.cache.decorators.StatisticsCache} decorator, evictions by the decorators
+ * removing entries on their own, and load times by the caching executor. Every update is an atomic
+ * operation, so the counters can be read from any thread. The size of the entries is estimated
+ * from a sample of the written values.
+ */
+public class CacheStatistics implements CacheStatisticsMXBean {
+
+  private static final EvictionCause[] CAUSES = EvictionCause.values();
+
+  private final String cacheId;
+
+  private final List<CacheStatisticsListener> listeners;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong puts = new AtomicLong();
+
+  private final AtomicLong clears = new AtomicLong();
+
+  private final AtomicLongArray evictions = new AtomicLongArray(CAUSES.length);
+
+  private final AtomicLong sampledEntries = new AtomicLong();
+
+  private final AtomicLong sampledBytes = new AtomicLong();
+
+  private final Histogram loadTime = new Histogram();
+
+  private volatile Cache cache;
+
+  CacheStatistics(String cacheId, List<CacheStatisticsListener> listeners) {
+    this.cacheId = cacheId;
+    this.listeners = listeners;
+  }
+
+  /**
+   * @param cache the cache whose size is reported as the entry count
+   */
+  public void setCache(Cache cache) {
+    this.cache = cache;
+  }
+
+  public void recordHit() {
+    hits.incrementAndGet();
+    for (CacheStatisticsListener listener : listeners) {
+      listener.hit(cacheId);
+    }
+  }
+
+  public void recordMiss() {
+    misses.incrementAndGet();
+    for (CacheStatisticsListener listener : listeners) {
+      listener.miss(cacheId);
+    }
+  }
+
+  public void recordPut() {
+    puts.incrementAndGet();
+    for (CacheStatisticsListener listener : listeners) {
+      listener.put(cacheId);
+    }
+  }
+
+  public void recordClear() {
+    clears.incrementAndGet();
+    for (CacheStatisticsListener listener : listeners) {
+      listener.cleared(cacheId);
+    }
+  }
+
+  public void recordEviction(EvictionCause cause, int count) {
+    if (count <= 0) {
+      return;
+    }
+    evictions.addAndGet(cause.ordinal(), count);
+    for (CacheStatisticsListener listener : listeners) {
+      listener.evicted(cacheId, cause, count);
+    }
+  }
+
+  public void recordLoad(long nanos) {
+    loadTime.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    for (CacheStatisticsListener listener : listeners) {
+      listener.loaded(cacheId, nanos);
+    }
+  }
+
+  /**
+   * Records the serialized size of a sampled entry.
+   */
+  public void recordEntrySize(long bytes) {
+    sampledEntries.incrementAndGet();
+    sampledBytes.addAndGet(bytes);
+  }
+
+  @Override
+  public String getCacheId() {
+    return cacheId;
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  @Override
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  @Override
+  public double getHitRatio() {
+    long hit = hits.get();
+    long requests = hit + misses.get();
+    return requests == 0 ? 0d : (double) hit / requests;
+  }
+
+  @Override
+  public long getPutCount() {
+    return puts.get();
+  }
+
+  @Override
+  public long getClearCount() {
+    return clears.get();
+  }
+
+  public long getEvictionCount(EvictionCause cause) {
+    return evictions.get(cause.ordinal());
+  }
+
+  /**
+   * @return the entries removed for any cause but an invalidation
+   */
+  @Override
+  public long getEvictionCount() {
+    long count = 0;
+    for (EvictionCause cause : CAUSES) {
+      if (cause != EvictionCause.INVALIDATED) {
+        count += evictions.get(cause.ordinal());
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public long getSizeEvictionCount() {
+    return getEvictionCount(EvictionCause.SIZE);
+  }
+
+  @Override
+  public long getExpiredEvictionCount() {
+    return getEvictionCount(EvictionCause.EXPIRED);
+  }
+
+  @Override
+  public long getMemoryPressureEvictionCount() {
+    return getEvictionCount(EvictionCause.MEMORY_PRESSURE);
+  }
+
+  @Override
+  public long getCollectedEvictionCount() {
+    return getEvictionCount(EvictionCause.COLLECTED);
+  }
+
+  @Override
+  public long getInvalidationCount() {
+    return getEvictionCount(EvictionCause.INVALIDATED);
+  }
+
+  @Override
+  public int getEntryCount() {
+    Cache current = cache;
+    return current == null ? 0 : current.getSize();
+  }
+
+  /**
+   * @return the entry count times the average serialized size of the sampled entries, <code>-1</code> if none was sampled
+   */
+  @Override
+  public long getEstimatedBytes() {
+    long sampled = sampledEntries.get();
+    return sampled == 0 ? -1 : getEntryCount() * (sampledBytes.get() / sampled);
+  }
+
+  @Override
+  public long getLoadCount() {
+    return loadTime.getCount();
+  }
+
+  @Override
+  public long getLoadTimeMean() {
+    return loadTime.getMean();
+  }
+
+  @Override
+  public long getLoadTimeP99() {
+    return loadTime.getPercentile(99);
+  }
+
+  @Override
+  public long getLoadTimeMax() {
+    return loadTime.getMax();
+  }
+
+  public Histogram getLoadTimeHistogram() {
+    return loadTime;
+  }
+
+  @Override
+  public void reset() {
+    hits.set(0);
+    misses.set(0);
+    puts.set(0);
+    clears.set(0);
+    for (int i = 0; i < CAUSES.length; i++) {
+      evictions.set(i, 0);
+    }
+    sampledEntries.set(0);
+    sampledBytes.set(0);
+    loadTime.reset();
+  }
+
+  @Override
+  public String toString() {
+    return cacheId + ": hits=" + getHitCount() + ", misses=" + getMissCount() + ", puts=" + getPutCount()
+        + ", evictions=" + getEvictionCount() + ", invalidations=" + getInvalidationCount()
+        + ", clears=" + getClearCount() + ", entries=" + getEntryCount();
+  }
+
+}
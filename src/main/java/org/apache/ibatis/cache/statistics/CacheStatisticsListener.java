@@ -0,0 +1,44 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.statistics;
+
+/**
+ * Receives the events of every cache of a {@link CacheStatisticsRegistry}, for instance to
+ * forward them to an external metrics library.
+ * <p>
+ * Callbacks are invoked on the thread using the cache, most of them while the cache is locked,
+ * so implementations must be quick and must never call back into the cache.
+ */
+public interface CacheStatisticsListener {
+
+  void hit(String cacheId);
+
+  void miss(String cacheId);
+
+  void put(String cacheId);
+
+  /**
+   * @param count the number of entries that left the cache
+   */
+  void evicted(String cacheId, EvictionCause cause, int count);
+
+  void cleared(String cacheId);
+
+  /**
+   * A missed entry was loaded from the database.
+   *
+   * @param nanos the duration of the load
+   */
+  void loaded(String cacheId, long nanos);
+
+}
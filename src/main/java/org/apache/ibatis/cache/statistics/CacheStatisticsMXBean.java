@@ -0,0 +1,59 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.statistics;
+
+/**
+ * JMX view of the {@link CacheStatistics} of a cache.
+ * Load times are in microseconds.
+ */
+public interface CacheStatisticsMXBean {
+
+  String getCacheId();
+
+  long getHitCount();
+
+  long getMissCount();
+
+  double getHitRatio();
+
+  long getPutCount();
+
+  long getClearCount();
+
+  long getEvictionCount();
+
+  long getSizeEvictionCount();
+
+  long getExpiredEvictionCount();
+
+  long getMemoryPressureEvictionCount();
+
+  long getCollectedEvictionCount();
+
+  long getInvalidationCount();
+
+  int getEntryCount();
+
+  long getEstimatedBytes();
+
+  long getLoadCount();
+
+  long getLoadTimeMean();
+
+  long getLoadTimeP99();
+
+  long getLoadTimeMax();
+
+  void reset();
+
+}
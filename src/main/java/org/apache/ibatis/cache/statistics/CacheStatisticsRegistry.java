@@ -0,0 +1,153 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.statistics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Holds the {@link CacheStatistics} of every second level cache of a configuration.
+ * <p>
+ * Disabled by default: the caches built while it is disabled are not instrumented at all. When
+ * enabled, the statistics of each new cache are registered in the platform MBean server under
+ * <code>org.apache.ibatis.cache:type=CacheStatistics,registry=&lt;n&gt;,name="&lt;cache id&gt;"</code>,
+ * where <code>n</code> tells apart the registries of the configurations of the JVM. A previous
+ * registration of the same cache by this registry is replaced. The events of the statistics are
+ * forwarded to the registered {@link CacheStatisticsListener}s.
+ */
+public class CacheStatisticsRegistry {
+
+  public static final String JMX_DOMAIN = "org.apache.ibatis.cache";
+
+  private static final Log log = LogFactory.getLog(CacheStatisticsRegistry.class);
+
+  private static final AtomicInteger registryCount = new AtomicInteger();
+
+  private final int registryId = registryCount.incrementAndGet();
+
+  private final ConcurrentMap<String, CacheStatistics> statistics = new ConcurrentHashMap<String, CacheStatistics>();
+
+  private final ConcurrentMap<String, ObjectName> objectNames = new ConcurrentHashMap<String, ObjectName>();
+
+  private final List<CacheStatisticsListener> listeners = new CopyOnWriteArrayList<CacheStatisticsListener>();
+
+  private volatile boolean enabled;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Only the caches built after this call are affected.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void addListener(CacheStatisticsListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(CacheStatisticsListener listener) {
+    listeners.remove(listener);
+  }
+
+  public List<CacheStatisticsListener> getListeners() {
+    return Collections.unmodifiableList(listeners);
+  }
+
+  /**
+   * Creates the statistics of a new cache.
+   *
+   * @return <code>null</code> when the statistics are disabled
+   */
+  public CacheStatistics newStatistics(String cacheId) {
+    if (!enabled) {
+      return null;
+    }
+    CacheStatistics cacheStatistics = new CacheStatistics(cacheId, listeners);
+    statistics.put(cacheId, cacheStatistics);
+    registerMBean(cacheStatistics);
+    return cacheStatistics;
+  }
+
+  /**
+   * @return <code>null</code> if the cache is not instrumented
+   */
+  public CacheStatistics getStatistics(String cacheId) {
+    return statistics.get(cacheId);
+  }
+
+  public Collection<CacheStatistics> getStatistics() {
+    return Collections.unmodifiableCollection(statistics.values());
+  }
+
+  /**
+   * @return the number telling apart the MBeans of this registry from those of the other configurations
+   */
+  public int getRegistryId() {
+    return registryId;
+  }
+
+  public ObjectName getObjectName(String cacheId) {
+    return objectNames.get(cacheId);
+  }
+
+  private void registerMBean(CacheStatistics cacheStatistics) {
+    try {
+      ObjectName name = new ObjectName(JMX_DOMAIN + ":type=CacheStatistics,registry=" + registryId
+          + ",name=" + ObjectName.quote(cacheStatistics.getCacheId()));
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(cacheStatistics, name);
+      objectNames.put(cacheStatistics.getCacheId(), name);
+    }
+    catch (Exception e) {
+      // 统计信息仍然可以通过注册中心读取
+      log.warn("Error registering the statistics MBean of cache " + cacheStatistics.getCacheId() + ". Cause: " + e);
+    }
+  }
+
+  /**
+   * Unregisters the MBeans of this registry. The statistics keep being updated.
+   */
+  public void unregisterMBeans() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (ObjectName name : objectNames.values()) {
+      try {
+        if (server.isRegistered(name)) {
+          server.unregisterMBean(name);
+        }
+      }
+      catch (Exception e) {
+        log.warn("Error unregistering the cache statistics MBean " + name + ". Cause: " + e);
+      }
+    }
+    objectNames.clear();
+  }
+
+}
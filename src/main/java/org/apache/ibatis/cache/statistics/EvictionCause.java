@@ -0,0 +1,45 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.statistics;
+
+/**
+ * Why entries left a cache.
+ */
+public enum EvictionCause {
+
+  /**
+   * Removed by the eviction policy (LRU, FIFO) to stay within the cache size.
+   */
+  SIZE,
+
+  /**
+   * Expired: per entry time to live, or flush interval.
+   */
+  EXPIRED,
+
+  /**
+   * Dropped to give memory back when the old generation filled up.
+   */
+  MEMORY_PRESSURE,
+
+  /**
+   * Reclaimed by the garbage collector from a soft or weak cache.
+   */
+  COLLECTED,
+
+  /**
+   * Removed individually, for instance by a table level invalidation.
+   */
+  INVALIDATED
+
+}
@@ -0,0 +1,301 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.metrics.Histogram;
+
+/**
+ * Counters, gauges and histograms of a {@link PooledDataSource}.
+ * <p>
+ * Every update is a lock free atomic operation, so the metrics never add contention to the
+ * checkout path. Readers (JMX clients, dashboards) never take the pool lock either: the gauges
+ * are published by the pool while it already holds it.
+ * Additional {@link PoolMetricsListener}s can be registered to forward the events to an
+ * external metrics library.
+ */
+public class PoolMetrics implements PoolMetricsListener, PoolMetricsMXBean {
+
+  public static final String JMX_DOMAIN = "org.apache.ibatis.datasource";
+
+  private final List<PoolMetricsListener> listeners = new CopyOnWriteArrayList<PoolMetricsListener>();
+
+  private final Histogram checkoutWait = new Histogram();
+
+  private final Histogram checkoutTime = new Histogram();
+
+  private final Histogram connectionLifetime = new Histogram();
+
+  private final AtomicLong hadToWaitCount = new AtomicLong();
+
+  private final AtomicLong timeoutCount = new AtomicLong();
+
+  private final AtomicLong overdueClaimCount = new AtomicLong();
+
+  private final AtomicLong badConnectionCount = new AtomicLong();
+
+  private final AtomicLong createdConnectionCount = new AtomicLong();
+
+  private volatile int activeConnections;
+
+  private volatile int idleConnections;
+
+  private ObjectName objectName;
+
+  public void addListener(PoolMetricsListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(PoolMetricsListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Called by the pool, with the pool state locked, each time the connection lists change.
+   */
+  void updateGauges(int active, int idle) {
+    this.activeConnections = active;
+    this.idleConnections = idle;
+  }
+
+  @Override
+  public void connectionCheckedOut(long requestTime, boolean hadToWait) {
+    checkoutWait.record(requestTime);
+    if (hadToWait) {
+      hadToWaitCount.incrementAndGet();
+    }
+    for (PoolMetricsListener listener : listeners) {
+      listener.connectionCheckedOut(requestTime, hadToWait);
+    }
+  }
+
+  @Override
+  public void connectionCheckedIn(long checkoutTime) {
+    this.checkoutTime.record(checkoutTime);
+    for (PoolMetricsListener listener : listeners) {
+      listener.connectionCheckedIn(checkoutTime);
+    }
+  }
+
+  @Override
+  public void checkoutTimedOut(long waitTime) {
+    timeoutCount.incrementAndGet();
+    for (PoolMetricsListener listener : listeners) {
+      listener.checkoutTimedOut(waitTime);
+    }
+  }
+
+  @Override
+  public void overdueConnectionClaimed(long checkoutTime) {
+    overdueClaimCount.incrementAndGet();
+    this.checkoutTime.record(checkoutTime);
+    for (PoolMetricsListener listener : listeners) {
+      listener.overdueConnectionClaimed(checkoutTime);
+    }
+  }
+
+  @Override
+  public void badConnection() {
+    badConnectionCount.incrementAndGet();
+    for (PoolMetricsListener listener : listeners) {
+      listener.badConnection();
+    }
+  }
+
+  @Override
+  public void connectionCreated() {
+    createdConnectionCount.incrementAndGet();
+    for (PoolMetricsListener listener : listeners) {
+      listener.connectionCreated();
+    }
+  }
+
+  @Override
+  public void connectionClosed(long lifetime) {
+    connectionLifetime.record(lifetime);
+    for (PoolMetricsListener listener : listeners) {
+      listener.connectionClosed(lifetime);
+    }
+  }
+
+  /**
+   * Registers this object in the platform MBean server, replacing a previous registration.
+   *
+   * @param name the value of the <code>name</code> key of the object name, <code>null</code> to only unregister
+   */
+  public synchronized void registerMBean(String name) {
+    unregisterMBean();
+    if (name == null) {
+      return;
+    }
+    try {
+      ObjectName newName = new ObjectName(JMX_DOMAIN + ":type=PooledDataSource,name=" + ObjectName.quote(name));
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(newName)) {
+        server.unregisterMBean(newName);
+      }
+      server.registerMBean(this, newName);
+      objectName = newName;
+    }
+    catch (Exception e) {
+      throw new DataSourceException("Error registering pool metrics MBean '" + name + "'. Cause: " + e, e);
+    }
+  }
+
+  public synchronized void unregisterMBean() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    }
+    catch (Exception e) {
+      throw new DataSourceException("Error unregistering pool metrics MBean " + objectName + ". Cause: " + e, e);
+    }
+    finally {
+      objectName = null;
+    }
+  }
+
+  public synchronized ObjectName getObjectName() {
+    return objectName;
+  }
+
+  public Histogram getCheckoutWaitHistogram() {
+    return checkoutWait;
+  }
+
+  public Histogram getCheckoutTimeHistogram() {
+    return checkoutTime;
+  }
+
+  public Histogram getConnectionLifetimeHistogram() {
+    return connectionLifetime;
+  }
+
+  @Override
+  public int getActiveConnections() {
+    return activeConnections;
+  }
+
+  @Override
+  public int getIdleConnections() {
+    return idleConnections;
+  }
+
+  @Override
+  public long getCheckoutCount() {
+    return checkoutWait.getCount();
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitCount.get();
+  }
+
+  @Override
+  public long getTimeoutCount() {
+    return timeoutCount.get();
+  }
+
+  @Override
+  public long getOverdueClaimCount() {
+    return overdueClaimCount.get();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionCount.get();
+  }
+
+  @Override
+  public double getBadConnectionRate() {
+    long bad = badConnectionCount.get();
+    long attempts = checkoutWait.getCount() + bad;
+    return attempts == 0 ? 0d : (double) bad / attempts;
+  }
+
+  @Override
+  public long getCreatedConnectionCount() {
+    return createdConnectionCount.get();
+  }
+
+  @Override
+  public long getClosedConnectionCount() {
+    return connectionLifetime.getCount();
+  }
+
+  @Override
+  public long getCheckoutWaitMean() {
+    return checkoutWait.getMean();
+  }
+
+  @Override
+  public long getCheckoutWaitP50() {
+    return checkoutWait.getPercentile(50);
+  }
+
+  @Override
+  public long getCheckoutWaitP99() {
+    return checkoutWait.getPercentile(99);
+  }
+
+  @Override
+  public long getCheckoutWaitMax() {
+    return checkoutWait.getMax();
+  }
+
+  @Override
+  public long getCheckoutTimeMean() {
+    return checkoutTime.getMean();
+  }
+
+  @Override
+  public long getCheckoutTimeP99() {
+    return checkoutTime.getPercentile(99);
+  }
+
+  @Override
+  public long getConnectionLifetimeMean() {
+    return connectionLifetime.getMean();
+  }
+
+  @Override
+  public long getConnectionLifetimeMax() {
+    return connectionLifetime.getMax();
+  }
+
+  @Override
+  public void reset() {
+    checkoutWait.reset();
+    checkoutTime.reset();
+    connectionLifetime.reset();
+    hadToWaitCount.set(0);
+    timeoutCount.set(0);
+    overdueClaimCount.set(0);
+    badConnectionCount.set(0);
+    createdConnectionCount.set(0);
+  }
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Receives the events of a {@link PooledDataSource}.
+ * <p>
+ * Callbacks are invoked while the pool state is locked, so implementations must be quick
+ * and must never call back into the data source.
+ */
+public interface PoolMetricsListener {
+
+  /**
+   * A connection was handed out.
+   *
+   * @param requestTime milliseconds spent in the pool to obtain the connection
+   * @param hadToWait true if the caller had to wait for another connection to be returned
+   */
+  void connectionCheckedOut(long requestTime, boolean hadToWait);
+
+  /**
+   * A connection was returned to the pool (or closed because the pool was full).
+   *
+   * @param checkoutTime milliseconds the connection was used by the caller
+   */
+  void connectionCheckedIn(long checkoutTime);
+
+  /**
+   * A caller waited <code>poolTimeToWait</code> milliseconds without getting a connection.
+   *
+   * @param waitTime milliseconds actually waited
+   */
+  void checkoutTimedOut(long waitTime);
+
+  /**
+   * An active connection exceeded <code>poolMaximumCheckoutTime</code> and was claimed by another caller.
+   *
+   * @param checkoutTime milliseconds the connection had been checked out
+   */
+  void overdueConnectionClaimed(long checkoutTime);
+
+  /**
+   * A connection failed validation and was discarded.
+   */
+  void badConnection();
+
+  /**
+   * A new physical connection was opened.
+   */
+  void connectionCreated();
+
+  /**
+   * A physical connection was closed.
+   *
+   * @param lifetime milliseconds elapsed since the connection was opened
+   */
+  void connectionClosed(long lifetime);
+
+}
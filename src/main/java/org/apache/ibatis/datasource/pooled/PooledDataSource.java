@@ -40,6 +40,8 @@ public class PooledDataSource implements DataSource {
 
   private final PoolState state = new PoolState(this);
 
+  private final PoolMetrics metrics = new PoolMetrics();
+
   /**
    * 链接地址 用户名 密码 在这里面
    */
@@ -66,6 +68,8 @@ public class PooledDataSource implements DataSource {
 
   private int expectedConnectionTypeCode;
 
+  private String jmxName;
+
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
   }
@@ -321,6 +325,39 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  public String getJmxName() {
+    return jmxName;
+  }
+
+  /*
+   * Publishes the pool metrics as an MBean named
+   * <code>org.apache.ibatis.datasource:type=PooledDataSource,name=&lt;jmxName&gt;</code>.
+   * A <code>null</code> name unregisters the MBean.
+   *
+   * @param jmxName The name of the pool in JMX
+   */
+  public void setJmxName(String jmxName) {
+    metrics.registerMBean(jmxName);
+    this.jmxName = jmxName;
+  }
+
+  public PoolMetrics getPoolMetrics() {
+    return metrics;
+  }
+
+  /*
+   * Registers a listener receiving the checkout, check in and connection lifecycle events.
+   *
+   * @param listener The listener
+   */
+  public void addPoolMetricsListener(PoolMetricsListener listener) {
+    metrics.addListener(listener);
+  }
+
+  public void removePoolMetricsListener(PoolMetricsListener listener) {
+    metrics.removeListener(listener);
+  }
+
   /*
    * Closes all active and idle connections in the pool
    */
@@ -337,6 +374,7 @@ public class PooledDataSource implements DataSource {
             realConn.rollback();
           }
           realConn.close();
+          metrics.connectionClosed(conn.getAge());
         }
         catch (Exception e) {
           // ignore
@@ -352,11 +390,13 @@ public class PooledDataSource implements DataSource {
             realConn.rollback();
           }
           realConn.close();
+          metrics.connectionClosed(conn.getAge());
         }
         catch (Exception e) {
           // ignore
         }
       }
+      metrics.updateGauges(state.activeConnections.size(), state.idleConnections.size());
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
@@ -378,6 +418,7 @@ public class PooledDataSource implements DataSource {
       if (conn.isValid()) {
         if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          metrics.connectionCheckedIn(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -393,10 +434,12 @@ public class PooledDataSource implements DataSource {
         }
         else {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          metrics.connectionCheckedIn(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
           conn.getRealConnection().close();
+          metrics.connectionClosed(conn.getAge());
           if (log.isDebugEnabled()) {
             log.debug("Closed connection " + conn.getRealHashCode() + ".");
           }
@@ -408,7 +451,9 @@ public class PooledDataSource implements DataSource {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
         state.badConnectionCount++;
+        metrics.badConnection();
       }
+      metrics.updateGauges(state.activeConnections.size(), state.idleConnections.size());
     }
   }
 
@@ -432,6 +477,7 @@ public class PooledDataSource implements DataSource {
           if (state.activeConnections.size() < poolMaximumActiveConnections) {
             // Can create new connection
             conn = new PooledConnection(dataSource.getConnection(), this);
+            metrics.connectionCreated();
             if (log.isDebugEnabled()) {
               log.debug("Created connection " + conn.getRealHashCode() + ".");
             }
@@ -445,6 +491,7 @@ public class PooledDataSource implements DataSource {
               state.claimedOverdueConnectionCount++;
               state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
               state.accumulatedCheckoutTime += longestCheckoutTime;
+              metrics.overdueConnectionClaimed(longestCheckoutTime);
               state.activeConnections.remove(oldestActiveConnection);
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
                 try {
@@ -482,7 +529,11 @@ public class PooledDataSource implements DataSource {
                 }
                 long wt = System.currentTimeMillis();
                 state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+                long waited = System.currentTimeMillis() - wt;
+                state.accumulatedWaitTime += waited;
+                if (waited >= poolTimeToWait) {
+                  metrics.checkoutTimedOut(waited);
+                }
               }
               catch (InterruptedException e) {
                 break;
@@ -501,13 +552,16 @@ public class PooledDataSource implements DataSource {
             conn.setLastUsedTimestamp(System.currentTimeMillis());
             state.activeConnections.add(conn);
             state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            long requestTime = System.currentTimeMillis() - t;
+            state.accumulatedRequestTime += requestTime;
+            metrics.connectionCheckedOut(requestTime, countedWait);
           }
           else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
             state.badConnectionCount++;
+            metrics.badConnection();
             localBadConnectionCount++;
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
@@ -517,6 +571,7 @@ public class PooledDataSource implements DataSource {
               throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
             }
           }
+          metrics.updateGauges(state.activeConnections.size(), state.idleConnections.size());
         }
       }
 
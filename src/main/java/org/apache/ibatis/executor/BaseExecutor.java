@@ -12,24 +12,32 @@
  */
 package org.apache.ibatis.executor;
 
+import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.parameter.ParameterBinder;
+import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.logging.jdbc.ConnectionLogger;
+import org.apache.ibatis.logging.jdbc.JdbcEventBuffer;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
@@ -37,7 +45,7 @@ import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
-import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.ParameterResources;
 
 import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
 
@@ -81,6 +89,13 @@ public abstract class BaseExecutor implements Executor {
 
   protected int queryStack;
 
+  /**
+   * 设置参数时类型处理器创建的资源, 随对应的Statement一起释放
+   */
+  private final Map<Statement, List<Closeable>> statementResources = new IdentityHashMap<Statement, List<Closeable>>();
+
+  private final List<Closeable> pendingResources = new ArrayList<Closeable>();
+
   private boolean closed;
 
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
@@ -122,6 +137,7 @@ public abstract class BaseExecutor implements Executor {
       deferredLoads = null;
       localCache = null;
       localOutputParameterCache = null;
+      releaseAllResources();
       closed = true;
     }
   }
@@ -139,8 +155,24 @@ public abstract class BaseExecutor implements Executor {
     }
     // 清空本地缓存
     clearLocalCache();
-    // 子类来实现 doUpdate 方法
-    return doUpdate(ms, parameter);
+    StatementMetrics metrics = configuration.getStatementMetricsRegistry().forStatement(ms);
+    if (metrics == null) {
+      // 子类来实现 doUpdate 方法
+      return doUpdate(ms, parameter);
+    }
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      int rows = doUpdate(ms, parameter);
+      if (rows > 0) {
+        metrics.addRows(rows);
+      }
+      failed = false;
+      return rows;
+    }
+    finally {
+      configuration.getStatementMetricsRegistry().recordExecution(metrics, ms, parameter, null, System.nanoTime() - start, failed);
+    }
   }
 
   @Override
@@ -186,6 +218,10 @@ public abstract class BaseExecutor implements Executor {
       if (list != null) {
         // 通过缓存 key 查到后处理  localOutputParameterCache
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
+        StatementMetrics metrics = configuration.getStatementMetricsRegistry().forStatement(ms);
+        if (metrics != null) {
+          metrics.recordLocalCacheHit();
+        }
       }
       else {
         // 没有查询到从数据库查询
@@ -258,29 +294,8 @@ public abstract class BaseExecutor implements Executor {
     cacheKey.update(rowBounds.getLimit());
     // sql
     cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
-    TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
-    // mimic DefaultParameterHandler logic
-    for (ParameterMapping parameterMapping : parameterMappings) {
-      if (parameterMapping.getMode() != ParameterMode.OUT) {
-        Object value;
-        String propertyName = parameterMapping.getProperty();
-        if (boundSql.hasAdditionalParameter(propertyName)) {
-          value = boundSql.getAdditionalParameter(propertyName);
-        }
-        else if (parameterObject == null) {
-          value = null;
-        }
-        else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
-          value = parameterObject;
-        }
-        else {
-          MetaObject metaObject = configuration.newMetaObject(parameterObject);
-          value = metaObject.getValue(propertyName);
-        }
-        cacheKey.update(value);
-      }
-    }
+    // the values DefaultParameterHandler binds
+    ParameterBinder.forBoundSql(ms, boundSql, parameterObject).updateCacheKey(cacheKey, boundSql, parameterObject);
     if (configuration.getEnvironment() != null) {
       // issue #176
       cacheKey.update(configuration.getEnvironment().getId());
@@ -342,6 +357,7 @@ public abstract class BaseExecutor implements Executor {
 
   protected void closeStatement(Statement statement) {
     if (statement != null) {
+      releaseResources(statement);
       try {
         statement.close();
       }
@@ -351,6 +367,49 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  /**
+   * Sets the parameters of the statement, keeping what the type handlers registered with
+   * {@link ParameterResources} until the statement is closed or parameterized again.
+   */
+  protected void parameterize(StatementHandler handler, Statement statement) throws SQLException {
+    List<Closeable> previous = ParameterResources.beginCollecting(pendingResources);
+    try {
+      handler.parameterize(statement);
+    }
+    finally {
+      ParameterResources.endCollecting(previous);
+      if (!pendingResources.isEmpty()) {
+        List<Closeable> resources = statementResources.get(statement);
+        if (resources == null) {
+          resources = new ArrayList<Closeable>(pendingResources.size());
+          statementResources.put(statement, resources);
+        }
+        resources.addAll(pendingResources);
+        pendingResources.clear();
+      }
+    }
+  }
+
+  /**
+   * Releases the parameter resources of a statement that is closed or about to be reused.
+   */
+  protected void releaseResources(Statement statement) {
+    if (!statementResources.isEmpty()) {
+      List<Closeable> resources = statementResources.remove(statement);
+      if (resources != null) {
+        ParameterResources.closeAll(resources);
+      }
+    }
+  }
+
+  private void releaseAllResources() {
+    // 例如游标查询的Statement由游标自己关闭
+    for (List<Closeable> resources : statementResources.values()) {
+      ParameterResources.closeAll(resources);
+    }
+    statementResources.clear();
+  }
+
   /**
    * Apply a transaction timeout.
    *
@@ -404,13 +463,20 @@ public abstract class BaseExecutor implements Executor {
    */
   private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
     List<E> list;
+    StatementMetrics metrics = configuration.getStatementMetricsRegistry().forStatement(ms);
+    long start = metrics == null ? 0L : System.nanoTime();
+    boolean failed = true;
     localCache.putObject(key, EXECUTION_PLACEHOLDER);
     try {
       // 查询方法
       list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
+      failed = false;
     }
     finally {
       localCache.removeObject(key);
+      if (metrics != null) {
+        configuration.getStatementMetricsRegistry().recordExecution(metrics, ms, parameter, boundSql, System.nanoTime() - start, failed);
+      }
     }
     localCache.putObject(key, list);
     if (ms.getStatementType() == StatementType.CALLABLE) {
@@ -421,7 +487,9 @@ public abstract class BaseExecutor implements Executor {
 
   protected Connection getConnection(Log statementLog) throws SQLException {
     Connection connection = transaction.getConnection();
-    if (statementLog.isDebugEnabled()) {
+    // the jdbc event buffer replaces the logging proxies only when it writes to the statement loggers itself
+    JdbcEventBuffer jdbcEventBuffer = configuration.getJdbcEventBuffer();
+    if (statementLog.isDebugEnabled() && (jdbcEventBuffer == null || !jdbcEventBuffer.isLogging())) {
       return ConnectionLogger.newInstance(connection, statementLog, queryStack);
     }
     else {
@@ -13,17 +13,25 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.NegativeResult;
+import org.apache.ibatis.cache.TableDependencyIndex;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.statistics.CacheStatistics;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -37,12 +45,32 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class CachingExecutor implements Executor {
 
+  /**
+   * Key of the entry refreshed by the current thread, see {@link StatementCacheEntryLoader}
+   */
+  private static final ThreadLocal<CacheKey> refreshedKey = new ThreadLocal<CacheKey>();
+
   private final Executor delegate;
 
-  private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+  private final TransactionalCacheManager tcm;
+
+  /**
+   * <code>null</code> unless table level invalidation is enabled
+   */
+  private final TableDependencyIndex tableDependencyIndex;
 
   public CachingExecutor(Executor delegate) {
+    this(delegate, null);
+  }
+
+  public CachingExecutor(Executor delegate, TableDependencyIndex tableDependencyIndex) {
+    this(delegate, tableDependencyIndex, null);
+  }
+
+  public CachingExecutor(Executor delegate, TableDependencyIndex tableDependencyIndex, CacheInvalidationBus invalidationBus) {
     this.delegate = delegate;
+    this.tableDependencyIndex = tableDependencyIndex;
+    this.tcm = new TransactionalCacheManager(tableDependencyIndex, invalidationBus);
     delegate.setExecutorWrapper(this);
   }
 
@@ -74,7 +102,12 @@ public class CachingExecutor implements Executor {
 
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
+    if (tableDependencyIndex != null && ms.isFlushCacheRequired()) {
+      invalidateTables(ms, parameterObject);
+    }
+    else {
+      flushCacheIfRequired(ms);
+    }
     return delegate.update(ms, parameterObject);
   }
 
@@ -101,12 +134,51 @@ public class CachingExecutor implements Executor {
       if (ms.isUseCache() && resultHandler == null) {
         // 判断是否使用缓存 和 结果处理器
         ensureNoOutParams(ms, boundSql);
+        Set<String> tables = tableDependencyIndex == null ? null : tableDependencyIndex.getTables(ms, parameterObject, boundSql);
+        // 刷新的条目不读缓存,结果和未命中一样在提交时写入
+        boolean refreshing = key.equals(refreshedKey.get());
+        Object cached = refreshing ? null : tables == null ? tcm.getObject(cache, key) : tcm.getObject(cache, key, tables);
         @SuppressWarnings("unchecked")
-        List<E> list = (List<E>) tcm.getObject(cache, key);
+        List<E> list = cached instanceof NegativeResult ? new ArrayList<E>() : (List<E>) cached;
+        StatementMetrics metrics = refreshing ? null : ms.getConfiguration().getStatementMetricsRegistry().forStatement(ms);
+        if (metrics != null) {
+          if (list == null) {
+            metrics.recordCacheMiss();
+          }
+          else {
+            metrics.recordCacheHit();
+          }
+        }
         if (list == null) {
           // 二级缓存是否有数据,查询流程:2级缓存\1级缓存\数据库
-          list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578 and #116
+          boolean loaded = false;
+          CacheStatistics statistics = ms.getConfiguration().getCacheStatisticsRegistry().getStatistics(cache.getId());
+          long start = statistics == null ? 0L : System.nanoTime();
+          try {
+            list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+            loaded = true;
+            if (statistics != null) {
+              statistics.recordLoad(System.nanoTime() - start);
+            }
+          }
+          finally {
+            if (!loaded) {
+              // 查询失败,立即释放其他会话在等待的key
+              tcm.abortLoad(cache, key);
+            }
+          }
+          // 空结果由NegativeResultCache单独保存
+          Object value = list.isEmpty() && ms.getNegativeResult() != null ? ms.getNegativeResult() : list;
+          ExpiringCache expiringCache = ms.getConfiguration().getRefreshAheadCache(cache.getId());
+          if (expiringCache != null && value == list) {
+            expiringCache.setLoader(key, new StatementCacheEntryLoader(ms, parameterObject, rowBounds));
+          }
+          if (tables == null) {
+            tcm.putObject(cache, key, value); // issue #578 and #116
+          }
+          else {
+            tcm.putObject(cache, key, value, tables);
+          }
         }
         return list;
       }
@@ -142,6 +214,21 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  /**
+   * Makes the queries of the current thread for <code>key</code> skip the cache read, so that their
+   * result replaces the cached one when the session commits.
+   *
+   * @param key the refreshed key, <code>null</code> when done
+   */
+  static void setRefreshedKey(CacheKey key) {
+    if (key == null) {
+      refreshedKey.remove();
+    }
+    else {
+      refreshedKey.set(key);
+    }
+  }
+
   private void ensureNoOutParams(MappedStatement ms, BoundSql boundSql) {
     if (ms.getStatementType() == StatementType.CALLABLE) {
       for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
@@ -172,6 +259,20 @@ public class CachingExecutor implements Executor {
     delegate.clearLocalCache();
   }
 
+  /**
+   * Invalidates the entries read from the tables written by the statement, in every namespace.
+   * Falls back to flushing the statement cache when its tables are unknown.
+   */
+  private void invalidateTables(MappedStatement ms, Object parameterObject) {
+    Set<String> tables = tableDependencyIndex.getTables(ms, parameterObject, null);
+    if (tables.isEmpty()) {
+      flushCacheIfRequired(ms);
+    }
+    else {
+      tcm.invalidateTables(tables);
+    }
+  }
+
   private void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
     if (cache != null && ms.isFlushCacheRequired()) {
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.binding.FixedParamMap;
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap;
+
+/**
+ * Splits the parameter of a chunked statement into one parameter object per chunk of its
+ * {@link MappedStatement#getChunkParameter() chunk parameter}.
+ * <p>
+ * Each chunk parameter is a shallow copy of the original one where the collection or array is
+ * replaced by a slice of at most {@link MappedStatement#getChunkSize()} elements: map parameters
+ * are copied with every key bound to the collection replaced, beans are created with the object
+ * factory and their readable and writable properties copied. The elements themselves are shared,
+ * so generated keys are still written to the objects of the caller.
+ */
+public final class ParameterChunks {
+
+  private ParameterChunks() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * @param ms the executed statement
+   * @param parameterObject the parameter, with collections and arrays already wrapped in a map
+   * @return the parameter objects of the chunks, <code>null</code> if the statement is not chunked or the collection fits in one chunk
+   */
+  public static List<Object> split(MappedStatement ms, Object parameterObject) {
+    int chunkSize = ms.getChunkSize();
+    if (chunkSize <= 0 || parameterObject == null) {
+      return null;
+    }
+    String name = ms.getChunkParameter();
+    Configuration configuration = ms.getConfiguration();
+    Object elements;
+    if (parameterObject instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) parameterObject;
+      if (!map.containsKey(name)) {
+        throw new ExecutorException("Chunk parameter '" + name + "' of statement " + ms.getId() + " not found. Available parameters are " + map.keySet());
+      }
+      elements = map.get(name);
+    }
+    else {
+      MetaObject metaParameter = configuration.newMetaObject(parameterObject);
+      if (!metaParameter.hasGetter(name)) {
+        throw new ExecutorException("Chunk parameter '" + name + "' of statement " + ms.getId() + " is not a property of " + parameterObject.getClass().getName());
+      }
+      elements = metaParameter.getValue(name);
+    }
+    List<Object> slices = slice(ms, elements, chunkSize);
+    if (slices == null) {
+      return null;
+    }
+    List<Object> chunks = new ArrayList<Object>(slices.size());
+    for (Object slice : slices) {
+      chunks.add(copyWith(configuration, parameterObject, name, elements, slice));
+    }
+    return chunks;
+  }
+
+  private static List<Object> slice(MappedStatement ms, Object elements, int chunkSize) {
+    if (elements instanceof Collection) {
+      Collection<?> collection = (Collection<?>) elements;
+      int size = collection.size();
+      if (size <= chunkSize) {
+        return null;
+      }
+      List<?> list = collection instanceof List ? (List<?>) collection : new ArrayList<Object>(collection);
+      List<Object> slices = new ArrayList<Object>((size + chunkSize - 1) / chunkSize);
+      for (int from = 0; from < size; from += chunkSize) {
+        List<?> slice = list.subList(from, Math.min(from + chunkSize, size));
+        slices.add(collection instanceof Set ? new LinkedHashSet<Object>(slice) : slice);
+      }
+      return slices;
+    }
+    if (elements != null && elements.getClass().isArray()) {
+      int size = Array.getLength(elements);
+      if (size <= chunkSize) {
+        return null;
+      }
+      List<Object> slices = new ArrayList<Object>((size + chunkSize - 1) / chunkSize);
+      for (int from = 0; from < size; from += chunkSize) {
+        int length = Math.min(chunkSize, size - from);
+        Object slice = Array.newInstance(elements.getClass().getComponentType(), length);
+        System.arraycopy(elements, from, slice, 0, length);
+        slices.add(slice);
+      }
+      return slices;
+    }
+    if (elements == null) {
+      return null;
+    }
+    throw new ExecutorException("Chunk parameter '" + ms.getChunkParameter() + "' of statement " + ms.getId()
+        + " is neither a collection nor an array but a " + elements.getClass().getName());
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static Object copyWith(Configuration configuration, Object parameterObject, String name, Object elements, Object slice) {
+    if (parameterObject instanceof Map) {
+      Map<Object, Object> copy;
+      if (parameterObject instanceof FixedParamMap) {
+        copy = (Map) new FixedParamMap((FixedParamMap) parameterObject);
+      }
+      else {
+        // 保留参数类型, 插件可能据此判断
+        if (parameterObject instanceof ParamMap) {
+          copy = (Map) new ParamMap<Object>();
+        }
+        else if (parameterObject instanceof StrictMap) {
+          copy = (Map) new StrictMap<Object>();
+        }
+        else {
+          copy = new HashMap<Object, Object>();
+        }
+        copy.putAll((Map<Object, Object>) parameterObject);
+      }
+      // the same collection may be bound to several names, e.g. "collection" and "list" or "param1"
+      for (Map.Entry<Object, Object> entry : copy.entrySet()) {
+        if (entry.getValue() == elements) {
+          entry.setValue(slice);
+        }
+      }
+      return copy;
+    }
+    MetaObject metaParameter = configuration.newMetaObject(parameterObject);
+    Object copy = configuration.getObjectFactory().create(parameterObject.getClass());
+    MetaObject metaCopy = configuration.newMetaObject(copy);
+    for (String property : metaParameter.getGetterNames()) {
+      if (metaCopy.hasSetter(property)) {
+        metaCopy.setValue(property, metaParameter.getValue(property));
+      }
+    }
+    metaCopy.setValue(name, slice);
+    return copy;
+  }
+
+}
@@ -81,6 +81,8 @@ public class ReuseExecutor extends BaseExecutor {
     String sql = boundSql.getSql();
     if (hasStatementFor(sql)) {
       stmt = getStatement(sql);
+      // 上一次执行设置参数时创建的资源已不再需要
+      releaseResources(stmt);
       applyTransactionTimeout(stmt);
     }
     else {
@@ -88,7 +90,7 @@ public class ReuseExecutor extends BaseExecutor {
       stmt = handler.prepare(connection, transaction.getTimeout());
       putStatement(sql, stmt);
     }
-    handler.parameterize(stmt);
+    parameterize(handler, stmt);
     return stmt;
   }
 
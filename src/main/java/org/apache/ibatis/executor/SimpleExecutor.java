@@ -100,7 +100,7 @@ public class SimpleExecutor extends BaseExecutor {
     // stms 创建
     stmt = handler.prepare(connection, transaction.getTimeout());
     // 参数放入
-    handler.parameterize(stmt);
+    parameterize(handler, stmt);
     return stmt;
   }
 
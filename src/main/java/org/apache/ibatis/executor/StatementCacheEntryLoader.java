@@ -0,0 +1,78 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import org.apache.ibatis.cache.CacheEntryLoader;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Refreshes a cached query result by executing its statement again, in a session of its own.
+ * <p>
+ * The query goes through the same executor chain as the application queries: plugins, and the
+ * {@link CachingExecutor} putting the result through the transactional cache on commit, with its
+ * table dependencies and empty result handling. Only the read of the refreshed entry is skipped.
+ * <p>
+ * The parameter object is kept by reference: when it has been changed since the original
+ * query and no longer yields the same cache key, the refresh is skipped.
+ */
+class StatementCacheEntryLoader implements CacheEntryLoader {
+
+  private final MappedStatement ms;
+
+  private final Object parameterObject;
+
+  private final RowBounds rowBounds;
+
+  StatementCacheEntryLoader(MappedStatement ms, Object parameterObject, RowBounds rowBounds) {
+    this.ms = ms;
+    this.parameterObject = parameterObject;
+    this.rowBounds = rowBounds;
+  }
+
+  @Override
+  public void reload(Object key) throws Exception {
+    Configuration configuration = ms.getConfiguration();
+    Environment environment = configuration.getEnvironment();
+    if (environment == null) {
+      return;
+    }
+    Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, false);
+    Executor executor = configuration.newExecutor(tx, ExecutorType.SIMPLE);
+    try {
+      BoundSql boundSql = ms.getBoundSql(parameterObject);
+      CacheKey currentKey = executor.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+      if (!currentKey.equals(key)) {
+        return;
+      }
+      CachingExecutor.setRefreshedKey(currentKey);
+      try {
+        executor.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, currentKey, boundSql);
+      }
+      finally {
+        CachingExecutor.setRefreshedKey(null);
+      }
+      executor.commit(false);
+    }
+    finally {
+      executor.close(true);
+    }
+  }
+
+}
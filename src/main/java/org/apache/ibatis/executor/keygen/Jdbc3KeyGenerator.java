@@ -27,6 +27,7 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -66,6 +67,10 @@ public class Jdbc3KeyGenerator implements KeyGenerator {
       final ResultSetMetaData rsmd = rs.getMetaData();
       TypeHandler<?>[] typeHandlers = null;
       if (keyProperties != null && rsmd.getColumnCount() >= keyProperties.length) {
+        final PropertyPath[] keyPaths = new PropertyPath[keyProperties.length];
+        for (int i = 0; i < keyProperties.length; i++) {
+          keyPaths[i] = PropertyPath.compile(keyProperties[i]);
+        }
         for (Object parameter : parameters) {
           // there should be one row for each statement (also one for each parameter)
           if (!rs.next()) {
@@ -75,7 +80,7 @@ public class Jdbc3KeyGenerator implements KeyGenerator {
           if (typeHandlers == null) {
             typeHandlers = getTypeHandlers(typeHandlerRegistry, metaParam, keyProperties, rsmd);
           }
-          populateKeys(rs, metaParam, keyProperties, typeHandlers);
+          populateKeys(rs, metaParam, keyPaths, typeHandlers);
         }
       }
     }
@@ -136,13 +141,12 @@ public class Jdbc3KeyGenerator implements KeyGenerator {
     return typeHandlers;
   }
 
-  private void populateKeys(ResultSet rs, MetaObject metaParam, String[] keyProperties, TypeHandler<?>[] typeHandlers) throws SQLException {
-    for (int i = 0; i < keyProperties.length; i++) {
-      String property = keyProperties[i];
+  private void populateKeys(ResultSet rs, MetaObject metaParam, PropertyPath[] keyPaths, TypeHandler<?>[] typeHandlers) throws SQLException {
+    for (int i = 0; i < keyPaths.length; i++) {
       TypeHandler<?> th = typeHandlers[i];
       if (th != null) {
         Object value = th.getResult(rs, i + 1);
-        metaParam.setValue(property, value);
+        metaParam.setValue(keyPaths[i], value);
       }
     }
   }
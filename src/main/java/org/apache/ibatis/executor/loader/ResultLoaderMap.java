@@ -33,6 +33,7 @@ import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
@@ -223,6 +224,10 @@ public class ResultLoaderMap {
             old.parameterObject, old.targetType, old.cacheKey, old.boundSql);
       }
 
+      StatementMetrics metrics = resultLoader.configuration.getStatementMetricsRegistry().forStatement(resultLoader.mappedStatement);
+      if (metrics != null) {
+        metrics.recordLazyLoad();
+      }
       this.metaResultObject.setValue(property, this.resultLoader.loadResult());
     }
 
@@ -0,0 +1,324 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.parameter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.binding.FixedParamMap;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeException;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Sets the parameters of a statement, compiled once for a list of parameter mappings and a
+ * parameter class.
+ * <p>
+ * The value of each mapping is resolved as the {@code DefaultParameterHandler} always did: an
+ * additional parameter of the bound sql first, then the parameter object itself when it has a type
+ * handler, then a property of the parameter object. The property accessors are resolved when the
+ * binder is compiled: a map entry, a getter invoker, or a {@link org.apache.ibatis.reflection.MetaObject}
+ * for property paths and wrapped objects. Binding is then a loop over arrays. The mappings of
+ * collection elements ({@link ParameterMapping#getElementIndex()}) read their additional parameter
+ * at the element position instead.
+ * <p>
+ * Binders are cached by the {@link MappedStatement} when its parameter mappings do not change
+ * from one execution to the next (raw and static sql sources, parameter maps). Dynamic sql builds
+ * new mappings for each execution, so its binders are compiled per execution.
+ */
+public final class ParameterBinder {
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final Configuration configuration;
+
+  private final List<ParameterMapping> parameterMappings;
+
+  private final Class<?> parameterType;
+
+  /**
+   * Positions of the IN and INOUT mappings in <code>parameterMappings</code>
+   */
+  private final int[] positions;
+
+  private final ParameterMapping[] mappings;
+
+  private final String[] properties;
+
+  private final TypeHandler[] typeHandlers;
+
+  private final JdbcType[] jdbcTypes;
+
+  private final Reader[] readers;
+
+  private ParameterBinder(Configuration configuration, List<ParameterMapping> parameterMappings, Object parameterObject) {
+    this.configuration = configuration;
+    this.parameterMappings = parameterMappings;
+    this.parameterType = parameterObject == null ? null : parameterObject.getClass();
+    int count = 0;
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      if (parameterMapping.getMode() != ParameterMode.OUT) {
+        count++;
+      }
+    }
+    this.positions = new int[count];
+    this.mappings = new ParameterMapping[count];
+    this.properties = new String[count];
+    this.typeHandlers = new TypeHandler[count];
+    this.jdbcTypes = new JdbcType[count];
+    this.readers = new Reader[count];
+    boolean self = parameterObject != null && configuration.getTypeHandlerRegistry().hasTypeHandler(parameterType);
+    for (int i = 0, j = 0; i < parameterMappings.size(); i++) {
+      ParameterMapping parameterMapping = parameterMappings.get(i);
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      positions[j] = i + 1;
+      mappings[j] = parameterMapping;
+      properties[j] = parameterMapping.getProperty();
+      typeHandlers[j] = parameterMapping.getTypeHandler();
+      jdbcTypes[j] = parameterMapping.getJdbcType();
+      readers[j] = parameterObject == null ? NullReader.INSTANCE
+          : self ? SelfReader.INSTANCE
+          : newReader(parameterObject, parameterMapping.getProperty());
+      j++;
+    }
+  }
+
+  /**
+   * Returns the binder of a bound sql, compiling it if it is not cached by the statement.
+   */
+  public static ParameterBinder forBoundSql(MappedStatement ms, BoundSql boundSql, Object parameterObject) {
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    Class<?> parameterType = parameterObject == null ? null : parameterObject.getClass();
+    ParameterBinder binder = ms.getParameterBinder(parameterMappings, parameterType);
+    if (binder == null) {
+      binder = new ParameterBinder(ms.getConfiguration(), parameterMappings, parameterObject);
+      if (hasStableParameterMappings(ms, parameterMappings)) {
+        ms.addParameterBinder(binder);
+      }
+    }
+    return binder;
+  }
+
+  private static boolean hasStableParameterMappings(MappedStatement ms, List<ParameterMapping> parameterMappings) {
+    SqlSource sqlSource = ms.getSqlSource();
+    return sqlSource instanceof RawSqlSource
+        || sqlSource instanceof StaticSqlSource
+        || (ms.getParameterMap() != null && parameterMappings == ms.getParameterMap().getParameterMappings());
+  }
+
+  public List<ParameterMapping> getParameterMappings() {
+    return parameterMappings;
+  }
+
+  /**
+   * @return the class of the parameter objects this binder was compiled for, <code>null</code> for a null parameter
+   */
+  public Class<?> getParameterType() {
+    return parameterType;
+  }
+
+  /**
+   * Sets the parameters of a prepared statement.
+   *
+   * @param values when not <code>null</code>, receives the bound values at the position of their mapping
+   */
+  @SuppressWarnings("unchecked")
+  public void bind(PreparedStatement ps, BoundSql boundSql, Object parameterObject, Object[] values) {
+    boolean additional = boundSql.hasAdditionalParameters();
+    JdbcType jdbcTypeForNull = configuration.getJdbcTypeForNull();
+    for (int j = 0; j < positions.length; j++) {
+      Object value = valueOf(j, boundSql, parameterObject, additional);
+      JdbcType jdbcType = jdbcTypes[j];
+      if (value == null && jdbcType == null) {
+        jdbcType = jdbcTypeForNull;
+      }
+      if (values != null) {
+        values[positions[j] - 1] = value;
+      }
+      try {
+        typeHandlers[j].setParameter(ps, positions[j], value, jdbcType);
+      }
+      catch (TypeException e) {
+        throw new TypeException("Could not set parameters for mapping: " + mappings[j] + ". Cause: " + e, e);
+      }
+      catch (SQLException e) {
+        throw new TypeException("Could not set parameters for mapping: " + mappings[j] + ". Cause: " + e, e);
+      }
+    }
+  }
+
+  /**
+   * Adds the values that would be bound to a cache key.
+   */
+  public void updateCacheKey(CacheKey cacheKey, BoundSql boundSql, Object parameterObject) {
+    boolean additional = boundSql.hasAdditionalParameters();
+    for (int j = 0; j < positions.length; j++) {
+      cacheKey.update(valueOf(j, boundSql, parameterObject, additional));
+    }
+  }
+
+  private Object valueOf(int j, BoundSql boundSql, Object parameterObject, boolean additional) {
+    ParameterMapping mapping = mappings[j];
+    int elementIndex = mapping.getElementIndex();
+    if (elementIndex >= 0) {
+      // an element of a collection bound by position, no property name to resolve
+      Object element = ((Object[]) boundSql.getAdditionalParameter(mapping.getElementsName()))[elementIndex];
+      return mapping.getElementPath() == null || element == null ? element : configuration.newMetaObject(element).getValue(mapping.getElementPath());
+    }
+    return additional && boundSql.hasAdditionalParameter(properties[j])
+        ? boundSql.getAdditionalParameter(properties[j])
+        : readers[j].read(parameterObject, properties[j], configuration);
+  }
+
+  private Reader newReader(Object parameterObject, String property) {
+    boolean path = property.indexOf('.') >= 0 || property.indexOf('[') >= 0;
+    if (path
+        || parameterObject instanceof ObjectWrapper
+        || configuration.getObjectWrapperFactory().hasWrapperFor(parameterObject)
+        || parameterObject instanceof Collection) {
+      return MetaObjectReader.INSTANCE;
+    }
+    if (parameterObject instanceof FixedParamMap) {
+      FixedParamMap.Names names = ((FixedParamMap) parameterObject).getNames();
+      int slot = names.indexOf(property);
+      return slot < 0 ? MapReader.INSTANCE : new SlotReader(names, slot);
+    }
+    if (parameterObject instanceof Map) {
+      return MapReader.INSTANCE;
+    }
+    Reflector reflector = configuration.getReflectorFactory().findForClass(parameterType);
+    if (!reflector.hasGetter(property)) {
+      // let the meta object report the missing getter
+      return MetaObjectReader.INSTANCE;
+    }
+    return new GetterReader(reflector.getGetInvoker(property));
+  }
+
+  private interface Reader {
+
+    Object read(Object parameterObject, String property, Configuration configuration);
+
+  }
+
+  private static final class NullReader implements Reader {
+
+    static final Reader INSTANCE = new NullReader();
+
+    @Override
+    public Object read(Object parameterObject, String property, Configuration configuration) {
+      return null;
+    }
+  }
+
+  private static final class SelfReader implements Reader {
+
+    static final Reader INSTANCE = new SelfReader();
+
+    @Override
+    public Object read(Object parameterObject, String property, Configuration configuration) {
+      return parameterObject;
+    }
+  }
+
+  private static final class MapReader implements Reader {
+
+    static final Reader INSTANCE = new MapReader();
+
+    @Override
+    public Object read(Object parameterObject, String property, Configuration configuration) {
+      return ((Map<?, ?>) parameterObject).get(property);
+    }
+  }
+
+  /**
+   * Reads a slot of the parameter objects of a mapper method, falling back to a key lookup for
+   * the parameter objects of other methods calling the same statement.
+   */
+  private static final class SlotReader implements Reader {
+
+    private final FixedParamMap.Names names;
+
+    private final int slot;
+
+    SlotReader(FixedParamMap.Names names, int slot) {
+      this.names = names;
+      this.slot = slot;
+    }
+
+    @Override
+    public Object read(Object parameterObject, String property, Configuration configuration) {
+      FixedParamMap map = (FixedParamMap) parameterObject;
+      return map.getNames() == names ? map.get(slot, property) : map.get(property);
+    }
+  }
+
+  private static final class MetaObjectReader implements Reader {
+
+    static final Reader INSTANCE = new MetaObjectReader();
+
+    @Override
+    public Object read(Object parameterObject, String property, Configuration configuration) {
+      return configuration.newMetaObject(parameterObject).getValue(property);
+    }
+  }
+
+  /**
+   * Same as {@link org.apache.ibatis.reflection.wrapper.BeanWrapper} does for a top level property.
+   */
+  private static final class GetterReader implements Reader {
+
+    private final Invoker invoker;
+
+    GetterReader(Invoker invoker) {
+      this.invoker = invoker;
+    }
+
+    @Override
+    public Object read(Object parameterObject, String property, Configuration configuration) {
+      try {
+        try {
+          return invoker.invoke(parameterObject, NO_ARGUMENTS);
+        }
+        catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      }
+      catch (RuntimeException e) {
+        throw e;
+      }
+      catch (Throwable t) {
+        throw new ReflectionException("Could not get property '" + property + "' from " + parameterObject.getClass() + ".  Cause: " + t.toString(), t);
+      }
+    }
+  }
+
+}
@@ -18,6 +18,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -46,10 +48,18 @@ import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyPath;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
@@ -101,6 +111,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<String, List<UnMappedColumnAutoMapping>>();
 
+  // Cached Automappings of the rows mapped without column prefix, avoids building the key for every row
+  private final Map<ResultMap, List<UnMappedColumnAutoMapping>> simpleAutoMappingsCache = new HashMap<ResultMap, List<UnMappedColumnAutoMapping>>();
+
+  // reused setter argument of the properties set without a MetaObject
+  private final Object[] setterArguments = new Object[1];
+
   private final PrimitiveTypes primitiveTypes;
 
   private Object previousRowValue;
@@ -108,6 +124,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
+  // statement metrics, null when disabled
+  private final StatementMetrics metrics;
+
+  private long fetchNanos;
+
+  private long fetchedRows;
+
   public DefaultResultSetHandler(Executor executor, MappedStatement mappedStatement, ParameterHandler parameterHandler, ResultHandler<?> resultHandler, BoundSql boundSql,
       RowBounds rowBounds) {
     this.executor = executor;
@@ -121,6 +144,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.reflectorFactory = configuration.getReflectorFactory();
     this.resultHandler = resultHandler;
     this.primitiveTypes = new PrimitiveTypes();
+    this.metrics = configuration.getStatementMetricsRegistry().forStatement(mappedStatement);
   }
 
   @Override
@@ -179,6 +203,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   @Override
   public List<Object> handleResultSets(Statement stmt) throws SQLException {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
+    final long start = metrics == null ? 0L : System.nanoTime();
 
     final List<Object> multipleResults = new ArrayList<Object>();
 
@@ -214,6 +239,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    if (metrics != null) {
+      // fetch = ResultSet.next() 耗时, mapping = 其余的结果处理耗时
+      metrics.recordResultHandling(fetchNanos, System.nanoTime() - start - fetchNanos, fetchedRows);
+      fetchNanos = 0;
+      fetchedRows = 0;
+    }
     // 查询结果
     return collapseSingleResultList(multipleResults);
   }
@@ -392,7 +423,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     DefaultResultContext<Object> resultContext = new DefaultResultContext<Object>();
     // 跳过几行
     skipRows(rsw.getResultSet(), rowBounds);
-    while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
+    while (shouldProcessMoreRows(resultContext, rowBounds) && nextRow(rsw.getResultSet())) {
       ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
       // 换成对应的实体类
       Object rowValue = getRowValue(rsw, discriminatedResultMap);
@@ -420,6 +451,19 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return !context.isStopped() && context.getResultCount() < rowBounds.getLimit();
   }
 
+  private boolean nextRow(ResultSet rs) throws SQLException {
+    if (metrics == null) {
+      return rs.next();
+    }
+    long start = System.nanoTime();
+    boolean hasNext = rs.next();
+    fetchNanos += System.nanoTime() - start;
+    if (hasNext) {
+      fetchedRows++;
+    }
+    return hasNext;
+  }
+
   private void skipRows(ResultSet rs, RowBounds rowBounds) throws SQLException {
     if (rs.getType() != ResultSet.TYPE_FORWARD_ONLY) {
       if (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET) {
@@ -443,23 +487,71 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @throws SQLException
    */
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
-    final ResultLoaderMap lazyLoader = new ResultLoaderMap();
+    // 没有嵌套查询时不会有延迟加载, 不需要 ResultLoaderMap
+    final ResultLoaderMap lazyLoader = resultMap.hasNestedQueries() ? new ResultLoaderMap() : null;
     // 创建结果实体对象
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, null);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
-      final MetaObject metaObject = configuration.newMetaObject(rowValue);
       boolean foundValues = this.useConstructorMappings;
-      if (shouldApplyAutomaticMappings(resultMap, false)) {
-        foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, null) || foundValues;
+      final Reflector reflector = findRowReflector(resultMap, rowValue);
+      if (reflector != null) {
+        // 简单的 bean 映射, 直接调用 setter 不创建 MetaObject
+        if (shouldApplyAutomaticMappings(resultMap, false)) {
+          foundValues = applyAutomaticMappings(rsw, resultMap, reflector, rowValue) || foundValues;
+        }
+        foundValues = applyPropertyMappings(rsw, resultMap, reflector, rowValue) || foundValues;
+      }
+      else {
+        final MetaObject metaObject = configuration.newMetaObject(rowValue);
+        if (shouldApplyAutomaticMappings(resultMap, false)) {
+          foundValues = applyAutomaticMappings(rsw, resultMap, metaObject, null) || foundValues;
+        }
+        // resultMap 标签的的映射关系比对返回结果
+        foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, null) || foundValues;
+        foundValues = (lazyLoader != null && lazyLoader.size() > 0) || foundValues;
       }
-      // resultMap 标签的的映射关系比对返回结果
-      foundValues = applyPropertyMappings(rsw, resultMap, metaObject, lazyLoader, null) || foundValues;
-      foundValues = lazyLoader.size() > 0 || foundValues;
       rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
     }
     return rowValue;
   }
 
+  /**
+   * Returns the reflector used to set the properties of a row value directly,
+   * or <code>null</code> if the row value must be mapped through a {@link MetaObject}.
+   */
+  private Reflector findRowReflector(ResultMap resultMap, Object rowValue) {
+    if (resultMap.hasComplexPropertyMappings()
+        || rowValue instanceof ObjectWrapper
+        || rowValue instanceof Map
+        || rowValue instanceof Collection
+        || configuration.getObjectWrapperFactory().hasWrapperFor(rowValue)) {
+      return null;
+    }
+    return reflectorFactory.findForClass(rowValue.getClass());
+  }
+
+  /**
+   * Same as {@link BeanWrapper} does for a top level property, reusing the argument array.
+   */
+  private void setRowProperty(Reflector reflector, Object rowValue, String property, Object value) {
+    try {
+      Invoker method = reflector.getSetInvoker(property);
+      setterArguments[0] = value;
+      try {
+        method.invoke(rowValue, setterArguments);
+      }
+      catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+      finally {
+        setterArguments[0] = null;
+      }
+    }
+    catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + property + "' of '" + rowValue.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
   /**
    * 判断是否可以互相映射上
    * 自动映射
@@ -490,17 +582,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    final boolean[] mappedProperties = rsw.getMappedPropertyMappings(resultMap, columnPrefix);
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      if (propertyMapping.getNestedResultMapId() != null) {
-        // the user added a column attribute to a nested result map, ignore it
-        column = null;
-      }
+    for (int i = 0, n = propertyMappings.size(); i < n; i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      // the user may have added a column attribute to a nested result map, ignore it
       if (propertyMapping.isCompositeResult()
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || (mappedProperties[i] && propertyMapping.getNestedResultMapId() == null)
           || propertyMapping.getResultSet() != null) {
         Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
         // issue #541 make property optional
@@ -517,7 +606,35 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
         if (value != null || (configuration.isCallSettersOnNulls() && !metaObject.getSetterType(property).isPrimitive())) {
           // gcode issue #377, call setter on nulls (value is not 'found')
-          metaObject.setValue(property, value);
+          metaObject.setValue(propertyMapping.getPropertyPath(), value);
+        }
+      }
+    }
+    return foundValues;
+  }
+
+  /**
+   * Property mappings of a result map without complex mappings, see {@link ResultMap#hasComplexPropertyMappings()}.
+   */
+  private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, Reflector reflector, Object rowValue) throws SQLException {
+    final boolean[] mappedProperties = rsw.getMappedPropertyMappings(resultMap, null);
+    boolean foundValues = false;
+    final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+    for (int i = 0, n = propertyMappings.size(); i < n; i++) {
+      if (mappedProperties[i]) {
+        final ResultMapping propertyMapping = propertyMappings.get(i);
+        final Object value = propertyMapping.getTypeHandler().getResult(rsw.getResultSet(), propertyMapping.getColumn());
+        // issue #541 make property optional
+        final String property = propertyMapping.getProperty();
+        if (property == null) {
+          continue;
+        }
+        if (value != null) {
+          foundValues = true;
+        }
+        if (value != null || (configuration.isCallSettersOnNulls() && !reflector.getSetterType(property).isPrimitive())) {
+          // gcode issue #377, call setter on nulls (value is not 'found')
+          setRowProperty(reflector, rowValue, property, value);
         }
       }
     }
@@ -624,6 +741,40 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
+  /**
+   * Automatic mappings of a row value set without a {@link MetaObject}. A MetaObject is still created
+   * when an automatic mapping targets a property path.
+   */
+  private boolean applyAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, Reflector reflector, Object rowValue) throws SQLException {
+    List<UnMappedColumnAutoMapping> autoMapping = simpleAutoMappingsCache.get(resultMap);
+    if (autoMapping == null) {
+      autoMapping = createAutomaticMappings(rsw, resultMap, configuration.newMetaObject(rowValue), null);
+      simpleAutoMappingsCache.put(resultMap, autoMapping);
+    }
+    boolean foundValues = false;
+    MetaObject metaObject = null;
+    for (int i = 0, n = autoMapping.size(); i < n; i++) {
+      final UnMappedColumnAutoMapping mapping = autoMapping.get(i);
+      final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || (configuration.isCallSettersOnNulls() && !mapping.primitive)) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        if (mapping.topLevel) {
+          setRowProperty(reflector, rowValue, mapping.property, value);
+        }
+        else {
+          if (metaObject == null) {
+            metaObject = configuration.newMetaObject(rowValue);
+          }
+          metaObject.setValue(mapping.property, value);
+        }
+      }
+    }
+    return foundValues;
+  }
+
   private void linkToParents(ResultSet rs, ResultMapping parentMapping, Object rowValue) throws SQLException {
     CacheKey parentKey = createKeyForMultipleResults(rs, parentMapping, parentMapping.getColumn(), parentMapping.getForeignColumn());
     List<PendingRelation> parents = pendingRelations.get(parentKey);
@@ -690,27 +841,39 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    */
   private Object createResultObject(ResultSetWrapper rsw, ResultMap resultMap, ResultLoaderMap lazyLoader, String columnPrefix) throws SQLException {
     this.useConstructorMappings = false; // reset previous mapping result
-    final List<Class<?>> constructorArgTypes = new ArrayList<Class<?>>();
-    final List<Object> constructorArgs = new ArrayList<Object>();
+    final List<Class<?>> constructorArgTypes;
+    final List<Object> constructorArgs;
+    if (mayUseConstructorArgs(resultMap)) {
+      constructorArgTypes = new ArrayList<Class<?>>();
+      constructorArgs = new ArrayList<Object>();
+    }
+    else {
+      constructorArgTypes = Collections.emptyList();
+      constructorArgs = Collections.emptyList();
+    }
     // 创建结果对象
     Object resultObject = createResultObject(rsw, resultMap, constructorArgTypes, constructorArgs, columnPrefix);
     // 判断是否有相关的类型处理器
-    if (resultObject != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
-      final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-      for (ResultMapping propertyMapping : propertyMappings) {
-        // issue gcode #109 && issue #149
-        // 延迟加载判断
-        if (propertyMapping.getNestedQueryId() != null && propertyMapping.isLazy()) {
-          // 代理对象创建
-          resultObject = configuration.getProxyFactory().createProxy(resultObject, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
-          break;
-        }
-      }
+    // issue gcode #109 && issue #149
+    // 延迟加载判断
+    if (resultObject != null && resultMap.hasLazyProperties() && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+      // 代理对象创建
+      resultObject = configuration.getProxyFactory().createProxy(resultObject, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
     }
     this.useConstructorMappings = resultObject != null && !constructorArgTypes.isEmpty(); // set current mapping result
     return resultObject;
   }
 
+  /**
+   * @return false if the result object is created with its default constructor (or a type handler) and is never proxied
+   */
+  private boolean mayUseConstructorArgs(ResultMap resultMap) {
+    final Class<?> resultType = resultMap.getType();
+    return !resultMap.getConstructorResultMappings().isEmpty()
+        || resultMap.hasLazyProperties()
+        || !(resultType.isInterface() || reflectorFactory.findForClass(resultType).hasDefaultConstructor());
+  }
+
   /**
    * 创建结果对象
    *
@@ -725,7 +888,6 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private Object createResultObject(ResultSetWrapper rsw, ResultMap resultMap, List<Class<?>> constructorArgTypes, List<Object> constructorArgs, String columnPrefix)
       throws SQLException {
     final Class<?> resultType = resultMap.getType();
-    final MetaClass metaType = MetaClass.forClass(resultType, reflectorFactory);
     // constructorMappings 标签
     final List<ResultMapping> constructorMappings = resultMap.getConstructorResultMappings();
     // 是否有类型处理器
@@ -735,7 +897,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     else if (!constructorMappings.isEmpty()) {
       return createParameterizedResultObject(rsw, resultType, constructorMappings, constructorArgTypes, constructorArgs, columnPrefix);
     }
-    else if (resultType.isInterface() || metaType.hasDefaultConstructor()) {
+    else if (resultType.isInterface() || reflectorFactory.findForClass(resultType).hasDefaultConstructor()) {
       return objectFactory.create(resultType);
     }
     else if (shouldApplyAutomaticMappings(resultMap, false)) {
@@ -960,8 +1122,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   public ResultMap resolveDiscriminatedResultMap(ResultSet rs, ResultMap resultMap, String columnPrefix) throws SQLException {
-    Set<String> pastDiscriminators = new HashSet<String>();
     Discriminator discriminator = resultMap.getDiscriminator();
+    if (discriminator == null) {
+      return resultMap;
+    }
+    Set<String> pastDiscriminators = new HashSet<String>();
     while (discriminator != null) {
       final Object value = getDiscriminatorValue(rs, discriminator, columnPrefix);
       final String discriminatedMapId = discriminator.getMapIdFor(String.valueOf(value));
@@ -1011,7 +1176,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final DefaultResultContext<Object> resultContext = new DefaultResultContext<Object>();
     skipRows(rsw.getResultSet(), rowBounds);
     Object rowValue = previousRowValue;
-    while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
+    while (shouldProcessMoreRows(resultContext, rowBounds) && nextRow(rsw.getResultSet())) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
@@ -1225,9 +1390,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       else if (resultMapping.getNestedQueryId() == null) {
         final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
         final TypeHandler<?> th = resultMapping.getTypeHandler();
-        List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
-        if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        if (rsw.isMappedColumn(resultMap, columnPrefix, column)) {
           final Object value = th.getResult(rsw.getResultSet(), column);
           if (value != null || configuration.isReturnInstanceForEmptyRow()) {
             cacheKey.update(column);
@@ -1280,13 +1444,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       targetMetaObject.add(rowValue);
     }
     else {
-      metaObject.setValue(resultMapping.getProperty(), rowValue);
+      metaObject.setValue(resultMapping.getPropertyPath(), rowValue);
     }
   }
 
   private Object instantiateCollectionPropertyIfAppropriate(ResultMapping resultMapping, MetaObject metaObject) {
     final String propertyName = resultMapping.getProperty();
-    Object propertyValue = metaObject.getValue(propertyName);
+    final PropertyPath propertyPath = resultMapping.getPropertyPath();
+    Object propertyValue = metaObject.getValue(propertyPath);
     if (propertyValue == null) {
       Class<?> type = resultMapping.getJavaType();
       if (type == null) {
@@ -1295,7 +1460,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       try {
         if (objectFactory.isCollection(type)) {
           propertyValue = objectFactory.create(type);
-          metaObject.setValue(propertyName, propertyValue);
+          metaObject.setValue(propertyPath, propertyValue);
           return propertyValue;
         }
       }
@@ -1338,11 +1503,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
     private final boolean primitive;
 
+    // true if property is not a property path
+    private final boolean topLevel;
+
     public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
       this.property = property;
       this.typeHandler = typeHandler;
       this.primitive = primitive;
+      this.topLevel = property.indexOf('.') < 0 && property.indexOf('[') < 0;
     }
   }
 
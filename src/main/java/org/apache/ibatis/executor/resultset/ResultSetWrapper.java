@@ -16,6 +16,7 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -26,6 +27,7 @@ import java.util.Set;
 
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.ObjectTypeHandler;
@@ -45,26 +47,43 @@ public class ResultSetWrapper {
   /**
    * 字段名称
    */
-  private final List<String> columnNames = new ArrayList<String>();
+  private final List<String> columnNames;
+
+  /**
+   * 大写的字段名称 (interned), 与 columnNames 下标一致
+   */
+  private final String[] upperColumnNames;
 
   /**
    * 字段类型
    */
-  private final List<String> classNames = new ArrayList<String>();
+  private final String[] classNames;
 
   /**
    * jdbc 数据类型
    */
-  private final List<JdbcType> jdbcTypes = new ArrayList<JdbcType>();
+  private final JdbcType[] jdbcTypes;
+
+  /**
+   * 字段名称 (原始及大写) 到下标的索引, 重复的字段取第一个
+   */
+  private final Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+
+  /**
+   * 每个字段最近解析的 java 类型及类型处理器, 其它 java 类型放在 typeHandlerMap
+   */
+  private final Class<?>[] handlerTypes;
 
-  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<String, Map<Class<?>, TypeHandler<?>>>();
+  private final TypeHandler<?>[] handlers;
+
+  private final Map<Integer, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<Integer, Map<Class<?>, TypeHandler<?>>>();
 
   /**
-   * sql 查询结果
+   * 结果映射对应的字段, 没有前缀的按 ResultMap 直接索引
    */
-  private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<String, List<String>>();
+  private final Map<ResultMap, ColumnMapping> columnMappings = new HashMap<ResultMap, ColumnMapping>();
 
-  private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<String, List<String>>();
+  private final Map<ResultMap, Map<String, ColumnMapping>> prefixedColumnMappings = new HashMap<ResultMap, Map<String, ColumnMapping>>();
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -72,11 +91,29 @@ public class ResultSetWrapper {
     this.resultSet = rs;
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
-    for (int i = 1; i <= columnCount; i++) {
-      columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
-      jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
-      classNames.add(metaData.getColumnClassName(i));
+    final String[] names = new String[columnCount];
+    this.upperColumnNames = new String[columnCount];
+    this.classNames = new String[columnCount];
+    this.jdbcTypes = new JdbcType[columnCount];
+    this.handlerTypes = new Class<?>[columnCount];
+    this.handlers = new TypeHandler<?>[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      names[i] = configuration.isUseColumnLabel() ? metaData.getColumnLabel(i + 1) : metaData.getColumnName(i + 1);
+      jdbcTypes[i] = JdbcType.forCode(metaData.getColumnType(i + 1));
+      classNames[i] = metaData.getColumnClassName(i + 1);
+      upperColumnNames[i] = names[i] == null ? null : names[i].toUpperCase(Locale.ENGLISH).intern();
+    }
+    for (int i = 0; i < columnCount; i++) {
+      if (names[i] != null && !columnIndexes.containsKey(names[i])) {
+        columnIndexes.put(names[i], i);
+      }
+    }
+    for (int i = 0; i < columnCount; i++) {
+      if (upperColumnNames[i] != null && !columnIndexes.containsKey(upperColumnNames[i])) {
+        columnIndexes.put(upperColumnNames[i], i);
+      }
     }
+    this.columnNames = Collections.unmodifiableList(Arrays.asList(names));
   }
 
   public ResultSet getResultSet() {
@@ -88,16 +125,26 @@ public class ResultSetWrapper {
   }
 
   public List<String> getClassNames() {
-    return Collections.unmodifiableList(classNames);
+    return Collections.unmodifiableList(Arrays.asList(classNames));
   }
 
-  public JdbcType getJdbcType(String columnName) {
-    for (int i = 0; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
-      }
+  /**
+   * @return the 0 based index of the column, ignoring case, or <code>-1</code> if the result set has no such column
+   */
+  public int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return -1;
     }
-    return null;
+    Integer index = columnIndexes.get(columnName);
+    if (index == null) {
+      index = columnIndexes.get(columnName.toUpperCase(Locale.ENGLISH));
+    }
+    return index == null ? -1 : index;
+  }
+
+  public JdbcType getJdbcType(String columnName) {
+    final int index = getColumnIndex(columnName);
+    return index < 0 ? null : jdbcTypes[index];
   }
 
   /**
@@ -110,37 +157,54 @@ public class ResultSetWrapper {
    * @return
    */
   public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
-    TypeHandler<?> handler = null;
-    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
-    if (columnHandlers == null) {
-      columnHandlers = new HashMap<Class<?>, TypeHandler<?>>();
-      typeHandlerMap.put(columnName, columnHandlers);
+    final int index = getColumnIndex(columnName);
+    if (index < 0) {
+      // not a column of this result set, nothing to cache
+      return resolveTypeHandler(propertyType, null, null);
     }
-    else {
+    if (handlerTypes[index] == propertyType && handlers[index] != null) {
+      return handlers[index];
+    }
+    TypeHandler<?> handler = null;
+    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(index);
+    if (columnHandlers != null) {
       handler = columnHandlers.get(propertyType);
     }
     if (handler == null) {
-      JdbcType jdbcType = getJdbcType(columnName);
-      handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
-      // Replicate logic of UnknownTypeHandler#resolveTypeHandler
-      // See issue #59 comment 10
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        final int index = columnNames.indexOf(columnName);
-        final Class<?> javaType = resolveClass(classNames.get(index));
-        if (javaType != null && jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
-        }
-        else if (javaType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType);
-        }
-        else if (jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
+      handler = resolveTypeHandler(propertyType, jdbcTypes[index], classNames[index]);
+      if (handlers[index] == null) {
+        handlerTypes[index] = propertyType;
+        handlers[index] = handler;
+      }
+      else {
+        if (columnHandlers == null) {
+          columnHandlers = new HashMap<Class<?>, TypeHandler<?>>();
+          typeHandlerMap.put(index, columnHandlers);
         }
+        columnHandlers.put(propertyType, handler);
       }
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        handler = new ObjectTypeHandler();
+    }
+    return handler;
+  }
+
+  private TypeHandler<?> resolveTypeHandler(Class<?> propertyType, JdbcType jdbcType, String className) {
+    TypeHandler<?> handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
+    // Replicate logic of UnknownTypeHandler#resolveTypeHandler
+    // See issue #59 comment 10
+    if (handler == null || handler instanceof UnknownTypeHandler) {
+      final Class<?> javaType = resolveClass(className);
+      if (javaType != null && jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
       }
-      columnHandlers.put(propertyType, handler);
+      else if (javaType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType);
+      }
+      else if (jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(jdbcType);
+      }
+    }
+    if (handler == null || handler instanceof UnknownTypeHandler) {
+      handler = new ObjectTypeHandler();
     }
     return handler;
   }
@@ -165,44 +229,83 @@ public class ResultSetWrapper {
    * @param columnPrefix
    * @throws SQLException
    */
-  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
+  private ColumnMapping getColumnMapping(ResultMap resultMap, String columnPrefix) throws SQLException {
+    Map<String, ColumnMapping> prefixed = null;
+    ColumnMapping columnMapping;
+    if (columnPrefix == null) {
+      columnMapping = columnMappings.get(resultMap);
+    }
+    else {
+      prefixed = prefixedColumnMappings.get(resultMap);
+      if (prefixed == null) {
+        prefixed = new HashMap<String, ColumnMapping>();
+        prefixedColumnMappings.put(resultMap, prefixed);
+      }
+      columnMapping = prefixed.get(columnPrefix);
+    }
+    if (columnMapping == null) {
+      columnMapping = loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
+      if (prefixed == null) {
+        columnMappings.put(resultMap, columnMapping);
+      }
+      else {
+        prefixed.put(columnPrefix, columnMapping);
+      }
+    }
+    return columnMapping;
+  }
+
+  private ColumnMapping loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
     List<String> mappedColumnNames = new ArrayList<String>();
     List<String> unmappedColumnNames = new ArrayList<String>();
     final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
     final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
-    for (String columnName : columnNames) {
-      final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+    for (int i = 0; i < upperColumnNames.length; i++) {
+      final String upperColumnName = upperColumnNames[i];
       if (mappedColumns.contains(upperColumnName)) {
         mappedColumnNames.add(upperColumnName);
       }
       else {
-        unmappedColumnNames.add(columnName);
+        unmappedColumnNames.add(columnNames.get(i));
+      }
+    }
+    final Set<String> mappedColumnSet = new HashSet<String>(mappedColumnNames);
+    final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+    final boolean[] mappedProperties = new boolean[propertyMappings.size()];
+    for (int i = 0; i < mappedProperties.length; i++) {
+      final String column = propertyMappings.get(i).getColumn();
+      if (column != null) {
+        final String prefixedColumn = columnPrefix == null ? column : columnPrefix + column;
+        mappedProperties[i] = mappedColumnSet.contains(prefixedColumn.toUpperCase(Locale.ENGLISH));
       }
     }
-    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+    return new ColumnMapping(Collections.unmodifiableList(mappedColumnNames), mappedColumnSet,
+        Collections.unmodifiableList(unmappedColumnNames), mappedProperties);
   }
 
   public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (mappedColumnNames == null) {
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return mappedColumnNames;
+    return getColumnMapping(resultMap, columnPrefix).mappedColumnNames;
   }
 
   public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (unMappedColumnNames == null) {
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return unMappedColumnNames;
+    return getColumnMapping(resultMap, columnPrefix).unmappedColumnNames;
   }
 
-  private String getMapKey(ResultMap resultMap, String columnPrefix) {
-    return resultMap.getId() + ":" + columnPrefix;
+  /**
+   * @param column the column of a result mapping, column prefix included
+   * @return true if the column is one of the mapped columns of the result set
+   */
+  public boolean isMappedColumn(ResultMap resultMap, String columnPrefix, String column) throws SQLException {
+    return column != null && getColumnMapping(resultMap, columnPrefix).mappedColumnSet.contains(column.toUpperCase(Locale.ENGLISH));
+  }
+
+  /**
+   * Returns, for each of the {@link ResultMap#getPropertyResultMappings()}, whether its column
+   * (prefixed with <code>columnPrefix</code>) is one of the mapped columns of the result set.
+   * The returned array is shared and must not be modified.
+   */
+  public boolean[] getMappedPropertyMappings(ResultMap resultMap, String columnPrefix) throws SQLException {
+    return getColumnMapping(resultMap, columnPrefix).mappedProperties;
   }
 
   private Set<String> prependPrefixes(Set<String> columnNames, String prefix) {
@@ -216,4 +319,25 @@ public class ResultSetWrapper {
     return prefixed;
   }
 
+  /**
+   * The columns of the result set matched against a result map and a column prefix.
+   */
+  private static class ColumnMapping {
+
+    private final List<String> mappedColumnNames;
+
+    private final Set<String> mappedColumnSet;
+
+    private final List<String> unmappedColumnNames;
+
+    private final boolean[] mappedProperties;
+
+    ColumnMapping(List<String> mappedColumnNames, Set<String> mappedColumnSet, List<String> unmappedColumnNames, boolean[] mappedProperties) {
+      this.mappedColumnNames = mappedColumnNames;
+      this.mappedColumnSet = mappedColumnSet;
+      this.unmappedColumnNames = unmappedColumnNames;
+      this.mappedProperties = mappedProperties;
+    }
+  }
+
 }
@@ -22,9 +22,12 @@ import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.logging.jdbc.JdbcEventBuffer;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.metrics.StatementMetrics;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -53,6 +56,18 @@ public abstract class BaseStatementHandler implements StatementHandler {
 
   protected BoundSql boundSql;
 
+  /**
+   * <code>null</code> unless the statement metrics are enabled
+   */
+  protected final StatementMetrics metrics;
+
+  /**
+   * <code>null</code> unless the jdbc event buffer is enabled
+   */
+  protected final JdbcEventBuffer jdbcEventBuffer;
+
+  private long prepareNanos;
+
   protected BaseStatementHandler(Executor executor, MappedStatement mappedStatement, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
     this.configuration = mappedStatement.getConfiguration();
     this.executor = executor;
@@ -61,6 +76,8 @@ public abstract class BaseStatementHandler implements StatementHandler {
 
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.objectFactory = configuration.getObjectFactory();
+    this.metrics = configuration.getStatementMetricsRegistry().forStatement(mappedStatement);
+    this.jdbcEventBuffer = configuration.getJdbcEventBuffer();
 
     if (boundSql == null) { // issue #435, get the key before calculating the statement
       generateKeys(parameterObject);
@@ -87,10 +104,14 @@ public abstract class BaseStatementHandler implements StatementHandler {
   public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
     ErrorContext.instance().sql(boundSql.getSql());
     Statement statement = null;
+    long start = startTiming();
     try {
       statement = instantiateStatement(connection);
       setStatementTimeout(statement, transactionTimeout);
       setFetchSize(statement);
+      if (metrics != null) {
+        prepareNanos = System.nanoTime() - start;
+      }
       return statement;
     }
     catch (SQLException e) {
@@ -142,6 +163,39 @@ public abstract class BaseStatementHandler implements StatementHandler {
     }
   }
 
+  protected long startTiming() {
+    return metrics == null && jdbcEventBuffer == null ? 0L : System.nanoTime();
+  }
+
+  /**
+   * Records the statement preparation, if any, plus the parameter binding started at <code>start</code>.
+   */
+  protected void recordPrepare(long start) {
+    if (metrics != null) {
+      metrics.recordPrepare(prepareNanos + System.nanoTime() - start);
+      prepareNanos = 0;
+    }
+  }
+
+  /**
+   * Records the JDBC call started at <code>start</code>.
+   *
+   * @param updateCount the update count, {@link JdbcEventBuffer#QUERY} or {@link JdbcEventBuffer#BATCHED}
+   */
+  protected void recordExecute(long start, int updateCount) {
+    if (metrics == null && jdbcEventBuffer == null) {
+      return;
+    }
+    long elapsed = System.nanoTime() - start;
+    if (metrics != null && updateCount != JdbcEventBuffer.BATCHED) {
+      metrics.recordExecute(elapsed);
+    }
+    if (jdbcEventBuffer != null) {
+      Object[] values = parameterHandler instanceof DefaultParameterHandler ? ((DefaultParameterHandler) parameterHandler).getBoundValues() : null;
+      jdbcEventBuffer.record(mappedStatement, boundSql.getSql(), values, elapsed, updateCount);
+    }
+  }
+
   protected void generateKeys(Object parameter) {
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
     ErrorContext.instance().store();
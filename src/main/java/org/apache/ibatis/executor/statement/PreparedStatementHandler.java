@@ -23,6 +23,7 @@ import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.logging.jdbc.JdbcEventBuffer;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.ResultHandler;
@@ -42,9 +43,11 @@ public class PreparedStatementHandler extends BaseStatementHandler {
     // 类型转换
     PreparedStatement ps = (PreparedStatement) statement;
     // 执行sql
+    long start = startTiming();
     ps.execute();
     // 受影响行数
     int rows = ps.getUpdateCount();
+    recordExecute(start, rows);
     Object parameterObject = boundSql.getParameterObject();
     //  key 生成器
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
@@ -56,20 +59,26 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   @Override
   public void batch(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    long start = startTiming();
     ps.addBatch();
+    recordExecute(start, JdbcEventBuffer.BATCHED);
   }
 
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    long start = startTiming();
     ps.execute();
+    recordExecute(start, JdbcEventBuffer.QUERY);
     return resultSetHandler.handleResultSets(ps);
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    long start = startTiming();
     ps.execute();
+    recordExecute(start, JdbcEventBuffer.QUERY);
     return resultSetHandler.handleCursorResultSets(ps);
   }
 
@@ -95,7 +104,9 @@ public class PreparedStatementHandler extends BaseStatementHandler {
 
   @Override
   public void parameterize(Statement statement) throws SQLException {
+    long start = startTiming();
     parameterHandler.setParameters((PreparedStatement) statement);
+    recordPrepare(start);
   }
 
 }
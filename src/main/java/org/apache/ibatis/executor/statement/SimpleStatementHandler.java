@@ -23,6 +23,7 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.logging.jdbc.JdbcEventBuffer;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.ResultHandler;
@@ -43,19 +44,23 @@ public class SimpleStatementHandler extends BaseStatementHandler {
     Object parameterObject = boundSql.getParameterObject();
     KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
     int rows;
+    long start = startTiming();
     if (keyGenerator instanceof Jdbc3KeyGenerator) {
       statement.execute(sql, Statement.RETURN_GENERATED_KEYS);
       rows = statement.getUpdateCount();
+      recordExecute(start, rows);
       keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
     }
     else if (keyGenerator instanceof SelectKeyGenerator) {
       statement.execute(sql);
       rows = statement.getUpdateCount();
+      recordExecute(start, rows);
       keyGenerator.processAfter(executor, mappedStatement, statement, parameterObject);
     }
     else {
       statement.execute(sql);
       rows = statement.getUpdateCount();
+      recordExecute(start, rows);
     }
     return rows;
   }
@@ -63,20 +68,26 @@ public class SimpleStatementHandler extends BaseStatementHandler {
   @Override
   public void batch(Statement statement) throws SQLException {
     String sql = boundSql.getSql();
+    long start = startTiming();
     statement.addBatch(sql);
+    recordExecute(start, JdbcEventBuffer.BATCHED);
   }
 
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     String sql = boundSql.getSql();
+    long start = startTiming();
     statement.execute(sql);
+    recordExecute(start, JdbcEventBuffer.QUERY);
     return resultSetHandler.handleResultSets(statement);
   }
 
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     String sql = boundSql.getSql();
+    long start = startTiming();
     statement.execute(sql);
+    recordExecute(start, JdbcEventBuffer.QUERY);
     return resultSetHandler.handleCursorResultSets(statement);
   }
 
@@ -92,7 +103,8 @@ public class SimpleStatementHandler extends BaseStatementHandler {
 
   @Override
   public void parameterize(Statement statement) throws SQLException {
-    // N/A
+    // nothing to bind, only the statement creation is recorded
+    recordPrepare(startTiming());
   }
 
 }
@@ -0,0 +1,421 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.logging.jdbc;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * Records the executed statements in a pre-allocated ring buffer instead of logging them through
+ * the {@link ConnectionLogger} proxies.
+ * <p>
+ * Recording copies a few references into a reusable slot: no string is built and no proxy is
+ * created on the executing thread. The events are only turned into text on demand with
+ * {@link #format(int)}, or by a background thread writing them to the statement loggers at DEBUG
+ * level when a log interval is set. Immutable parameter values are kept by reference; dates are
+ * copied and the other values are formatted when they are recorded, so that a later change does
+ * not alter what is printed.
+ * <p>
+ * When the buffer wraps faster than events are logged, the oldest events are overwritten and
+ * counted by {@link #getDroppedCount()}.
+ */
+public class JdbcEventBuffer {
+
+  /**
+   * Update count recorded for queries.
+   */
+  public static final int QUERY = -1;
+
+  /**
+   * Update count recorded for the statements added to a batch.
+   */
+  public static final int BATCHED = -2;
+
+  private static final Object[] NO_PARAMETERS = new Object[0];
+
+  private final Slot[] slots;
+
+  private final int mask;
+
+  private final AtomicLong cursor = new AtomicLong();
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private long logged;
+
+  private LogThread logThread;
+
+  public JdbcEventBuffer(int size) {
+    int capacity = 1;
+    while (capacity < size) {
+      capacity <<= 1;
+    }
+    this.slots = new Slot[capacity];
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new Slot();
+    }
+    this.mask = capacity - 1;
+  }
+
+  public int getCapacity() {
+    return slots.length;
+  }
+
+  /**
+   * Number of events recorded since the creation of the buffer.
+   */
+  public long getRecordedCount() {
+    return cursor.get();
+  }
+
+  /**
+   * Number of events that could not be recorded or were overwritten before being logged.
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Records an execution.
+   *
+   * @param ms the executed statement
+   * @param sql the executed sql
+   * @param parameters the bound values, may be <code>null</code>
+   * @param elapsedNanos the duration of the JDBC call
+   * @param updateCount the update count, {@link #QUERY} or {@link #BATCHED}
+   */
+  public void record(MappedStatement ms, String sql, Object[] parameters, long elapsedNanos, int updateCount) {
+    long sequence = cursor.getAndIncrement();
+    Slot slot = slots[(int) (sequence & mask)];
+    // a slow writer still owns the slot a full lap later: give up rather than wait
+    if (!slot.tryAcquire()) {
+      dropped.incrementAndGet();
+      return;
+    }
+    slot.statement = ms;
+    slot.sql = sql;
+    slot.setParameters(parameters == null ? NO_PARAMETERS : parameters);
+    slot.timestamp = System.currentTimeMillis();
+    slot.elapsedNanos = elapsedNanos;
+    slot.updateCount = updateCount;
+    slot.publish(sequence);
+  }
+
+  /**
+   * Formats the most recent events, oldest first.
+   *
+   * @param max the maximum number of events to return
+   */
+  public List<String> format(int max) {
+    long end = cursor.get();
+    long start = Math.max(0, Math.max(end - slots.length, end - max));
+    List<String> lines = new ArrayList<String>();
+    StringBuilder builder = new StringBuilder();
+    for (long sequence = start; sequence < end; sequence++) {
+      builder.setLength(0);
+      if (appendEvent(sequence, builder) != null) {
+        lines.add(builder.toString());
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Writes every event recorded since the previous call to the DEBUG log of its statement.
+   *
+   * @return the number of events written
+   */
+  public synchronized int flushToLog() {
+    long end = cursor.get();
+    long start = logged;
+    if (end - start > slots.length) {
+      dropped.addAndGet(end - start - slots.length);
+      start = end - slots.length;
+    }
+    int count = 0;
+    StringBuilder builder = new StringBuilder();
+    for (long sequence = start; sequence < end; sequence++) {
+      builder.setLength(0);
+      MappedStatement ms = appendEvent(sequence, builder);
+      if (ms == null) {
+        if (slots[(int) (sequence & mask)].isWriting()) {
+          // still being written: retry on the next flush
+          end = sequence;
+          break;
+        }
+        continue;
+      }
+      Log log = ms.getStatementLog();
+      if (log.isDebugEnabled()) {
+        log.debug(builder.toString());
+        count++;
+      }
+    }
+    logged = end;
+    return count;
+  }
+
+  /**
+   * Starts a daemon thread that calls {@link #flushToLog()} every <code>intervalMillis</code> milliseconds.
+   * The thread does not keep the buffer reachable: it stops by itself once the buffer is collected.
+   */
+  public synchronized void startLogging(long intervalMillis) {
+    if (logThread != null || intervalMillis <= 0) {
+      return;
+    }
+    logThread = new LogThread(this, intervalMillis);
+    logThread.start();
+  }
+
+  /**
+   * Stops the thread started by {@link #startLogging(long)}, after a last flush.
+   */
+  public synchronized void stopLogging() {
+    if (logThread != null) {
+      logThread.interrupt();
+      logThread = null;
+    }
+  }
+
+  /**
+   * @return true while a thread writes the events to the statement loggers
+   */
+  public synchronized boolean isLogging() {
+    return logThread != null;
+  }
+
+  /**
+   * Appends the event with the given sequence.
+   *
+   * @return the statement of the event, <code>null</code> if it is not available (overwritten or not yet published)
+   */
+  private MappedStatement appendEvent(long sequence, StringBuilder builder) {
+    Slot slot = slots[(int) (sequence & mask)];
+    if (slot.sequence() != sequence) {
+      return null;
+    }
+    MappedStatement ms = slot.statement;
+    String sql = slot.sql;
+    Object[] parameters = new Object[Math.min(slot.parameterCount, slot.parameters.length)];
+    System.arraycopy(slot.parameters, 0, parameters, 0, parameters.length);
+    long timestamp = slot.timestamp;
+    long elapsedNanos = slot.elapsedNanos;
+    int updateCount = slot.updateCount;
+    if (slot.sequence() != sequence) {
+      // overwritten while reading
+      return null;
+    }
+    builder.append(timestamp).append(' ').append(ms.getId());
+    builder.append(" ==> ").append(removeBreakingWhitespace(sql));
+    builder.append(" | Parameters: ");
+    for (int i = 0; i < parameters.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      Object value = parameters[i];
+      if (value == null) {
+        builder.append("null");
+      }
+      else if (value instanceof CapturedValue) {
+        CapturedValue captured = (CapturedValue) value;
+        builder.append(captured.text).append('(').append(captured.type).append(')');
+      }
+      else {
+        builder.append(objectValueString(value)).append('(').append(value.getClass().getSimpleName()).append(')');
+      }
+    }
+    builder.append(" | ").append(TimeUnit.NANOSECONDS.toMicros(elapsedNanos)).append(" us");
+    if (updateCount == BATCHED) {
+      builder.append(" | batched");
+    }
+    else if (updateCount != QUERY) {
+      builder.append(" | Updates: ").append(updateCount);
+    }
+    return ms;
+  }
+
+  /**
+   * Returns a value that a later change of <code>value</code> does not alter.
+   */
+  private static Object capture(Object value) {
+    if (value == null || value instanceof String || value instanceof Integer || value instanceof Long
+        || value instanceof Short || value instanceof Byte || value instanceof Double || value instanceof Float
+        || value instanceof BigDecimal || value instanceof BigInteger || value instanceof Boolean
+        || value instanceof Character || value instanceof Enum) {
+      return value;
+    }
+    if (value instanceof Date) {
+      return ((Date) value).clone();
+    }
+    return new CapturedValue(objectValueString(value), value.getClass().getSimpleName());
+  }
+
+  private static String objectValueString(Object value) {
+    if (value instanceof Array) {
+      try {
+        return ArrayUtil.toString(((Array) value).getArray());
+      }
+      catch (SQLException e) {
+        return value.toString();
+      }
+    }
+    return ArrayUtil.toString(value);
+  }
+
+  private static String removeBreakingWhitespace(String original) {
+    StringBuilder builder = new StringBuilder(original.length());
+    boolean whitespace = false;
+    for (int i = 0; i < original.length(); i++) {
+      char c = original.charAt(i);
+      if (Character.isWhitespace(c)) {
+        whitespace = true;
+      }
+      else {
+        if (whitespace && builder.length() > 0) {
+          builder.append(' ');
+        }
+        whitespace = false;
+        builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * A reusable event. <code>state</code> holds the sequence of the published event, or
+   * <code>WRITING</code> while a writer fills it.
+   */
+  private static final class Slot {
+
+    private static final long WRITING = -1L;
+
+    private final AtomicLong state = new AtomicLong(WRITING - 1);
+
+    private MappedStatement statement;
+
+    private String sql;
+
+    private Object[] parameters = new Object[8];
+
+    private int parameterCount;
+
+    private long timestamp;
+
+    private long elapsedNanos;
+
+    private int updateCount;
+
+    boolean tryAcquire() {
+      long current = state.get();
+      return current != WRITING && state.compareAndSet(current, WRITING);
+    }
+
+    void publish(long sequence) {
+      state.set(sequence);
+    }
+
+    long sequence() {
+      return state.get();
+    }
+
+    boolean isWriting() {
+      return state.get() == WRITING;
+    }
+
+    void setParameters(Object[] values) {
+      if (parameters.length < values.length) {
+        parameters = new Object[Math.max(values.length, parameters.length * 2)];
+      }
+      for (int i = 0; i < values.length; i++) {
+        parameters[i] = capture(values[i]);
+      }
+      for (int i = values.length; i < parameterCount; i++) {
+        parameters[i] = null;
+      }
+      parameterCount = values.length;
+    }
+  }
+
+  /**
+   * A mutable parameter value formatted when it was recorded.
+   */
+  private static final class CapturedValue {
+
+    private final String text;
+
+    private final String type;
+
+    CapturedValue(String text, String type) {
+      this.text = text;
+      this.type = type;
+    }
+  }
+
+  /**
+   * Flushes a buffer periodically, holding it weakly so that a discarded configuration is not kept alive.
+   */
+  private static final class LogThread extends Thread {
+
+    private final WeakReference<JdbcEventBuffer> buffer;
+
+    private final long intervalMillis;
+
+    LogThread(JdbcEventBuffer buffer, long intervalMillis) {
+      super("mybatis-jdbc-event-log");
+      this.buffer = new WeakReference<JdbcEventBuffer>(buffer);
+      this.intervalMillis = intervalMillis;
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        try {
+          Thread.sleep(intervalMillis);
+        }
+        catch (InterruptedException e) {
+          break;
+        }
+        if (!flush()) {
+          return;
+        }
+      }
+      flush();
+    }
+
+    /**
+     * @return false if the buffer was collected
+     */
+    private boolean flush() {
+      JdbcEventBuffer target = buffer.get();
+      if (target == null) {
+        return false;
+      }
+      target.flushToLog();
+      return true;
+    }
+  }
+
+}
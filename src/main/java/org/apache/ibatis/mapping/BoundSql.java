@@ -77,6 +77,13 @@ public class BoundSql {
     return parameterObject;
   }
 
+  /**
+   * @return true if parameters were added by the sql source (foreach items, bind variables)
+   */
+  public boolean hasAdditionalParameters() {
+    return !additionalParameters.isEmpty();
+  }
+
   public boolean hasAdditionalParameter(String name) {
     String paramName = new PropertyTokenizer(name).getName();
     return additionalParameters.containsKey(paramName);
@@ -21,13 +21,27 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
-import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.CacheMemoryMonitor;
+import org.apache.ibatis.cache.CacheSnapshotManager;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.TableDependencyIndex;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.InvalidationBroadcastCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.MemoryPressureCache;
+import org.apache.ibatis.cache.decorators.NegativeResultCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SingleFlightCache;
+import org.apache.ibatis.cache.decorators.SnapshotCache;
+import org.apache.ibatis.cache.decorators.StatisticsCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.statistics.CacheStatistics;
+import org.apache.ibatis.cache.statistics.CacheStatisticsRegistry;
+import org.apache.ibatis.cache.statistics.EvictionCause;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -51,6 +65,22 @@ public class CacheBuilder {
 
   private boolean blocking;
 
+  private CacheInvalidationBus invalidationBus;
+
+  private CacheMemoryMonitor memoryMonitor;
+
+  private CacheSnapshotManager snapshotManager;
+
+  private CacheStatisticsRegistry statisticsRegistry;
+
+  private TableDependencyIndex tableDependencyIndex;
+
+  private CacheStatistics statistics;
+
+  private DecoratorEvictionListener evictionListener;
+
+  private ExpiringCache expiringCache;
+
   public CacheBuilder(String id) {
     this.id = id;
     this.decorators = new ArrayList<Class<? extends Cache>>();
@@ -88,6 +118,46 @@ public class CacheBuilder {
     return this;
   }
 
+  /**
+   * @param invalidationBus the bus publishing the clears of the cache to the other nodes, <code>null</code> to keep them local
+   */
+  public CacheBuilder invalidationBus(CacheInvalidationBus invalidationBus) {
+    this.invalidationBus = invalidationBus;
+    return this;
+  }
+
+  /**
+   * @param memoryMonitor the monitor shrinking the cache when the heap fills up, <code>null</code> to leave the eviction to the eviction policy
+   */
+  public CacheBuilder memoryMonitor(CacheMemoryMonitor memoryMonitor) {
+    this.memoryMonitor = memoryMonitor;
+    return this;
+  }
+
+  /**
+   * @param snapshotManager the manager writing the cache to disk on shutdown and restoring it on startup, <code>null</code> to start empty
+   */
+  public CacheBuilder snapshotManager(CacheSnapshotManager snapshotManager) {
+    this.snapshotManager = snapshotManager;
+    return this;
+  }
+
+  /**
+   * @param statisticsRegistry the registry creating the statistics of the cache, <code>null</code> to not record them
+   */
+  public CacheBuilder statisticsRegistry(CacheStatisticsRegistry statisticsRegistry) {
+    this.statisticsRegistry = statisticsRegistry;
+    return this;
+  }
+
+  /**
+   * @param tableDependencyIndex the index to notify of the entries evicted by the decorators, <code>null</code> if not used
+   */
+  public CacheBuilder tableDependencyIndex(TableDependencyIndex tableDependencyIndex) {
+    this.tableDependencyIndex = tableDependencyIndex;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -97,20 +167,41 @@ public class CacheBuilder {
     setDefaultImplementations();
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
+    statistics = statisticsRegistry == null ? null : statisticsRegistry.newStatistics(id);
+    evictionListener = statistics == null && tableDependencyIndex == null && memoryMonitor == null && snapshotManager == null ? null
+        : new DecoratorEvictionListener(statistics, tableDependencyIndex);
     // issue #352, do not apply decorators to custom caches
     if (PerpetualCache.class.equals(cache.getClass())) {
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        setEvictionListener(cache);
       }
       cache = setStandardDecorators(cache);
+      if (evictionListener != null) {
+        evictionListener.cache = cache;
+      }
     }
-    else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-      cache = new LoggingCache(cache);
+    else {
+      boolean logging = LoggingCache.class.isAssignableFrom(cache.getClass());
+      if (statistics != null) {
+        cache = new StatisticsCache(cache, statistics);
+      }
+      if (!logging) {
+        cache = new LoggingCache(cache);
+      }
     }
     return cache;
   }
 
+  /**
+   * @return the per entry time to live decorator of the built cache, <code>null</code> if the
+   *     <code>timeToLive</code> property was not set
+   */
+  public ExpiringCache getExpiringCache() {
+    return expiringCache;
+  }
+
   private void setDefaultImplementations() {
     if (implementation == null) {
       implementation = PerpetualCache.class;
@@ -126,17 +217,48 @@ public class CacheBuilder {
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
+      if (memoryMonitor != null) {
+        // 放在淘汰策略之上,收缩时一并清理淘汰策略记录的key
+        MemoryPressureCache memoryPressureCache = new MemoryPressureCache(cache, memoryMonitor);
+        memoryPressureCache.setEvictionListener(evictionListener);
+        evictionListener.memoryPressureCache = memoryPressureCache;
+        cache = memoryPressureCache;
+      }
+      if (snapshotManager != null) {
+        // 恢复的条目经过淘汰策略,计入其容量
+        SnapshotCache snapshotCache = new SnapshotCache(cache, snapshotManager);
+        evictionListener.snapshotCache = snapshotCache;
+        cache = snapshotCache;
+      }
       if (clearInterval != null) {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
+        setEvictionListener(cache);
+      }
+      if (properties != null && properties.getProperty("timeToLive") != null) {
+        // 每个条目单独过期,放在SerializedCache之下
+        expiringCache = new ExpiringCache(cache);
+        cache = expiringCache;
+        setCacheProperties(cache);
+        setEvictionListener(cache);
       }
       if (readWrite) {
         cache = new SerializedCache(cache);
+        setCacheProperties(cache);
+      }
+      // 空结果不占用淘汰策略的容量,也不序列化
+      cache = new NegativeResultCache(cache);
+      if (statistics != null) {
+        cache = new StatisticsCache(cache, statistics);
       }
       cache = new LoggingCache(cache);
       cache = new SynchronizedCache(cache);
       if (blocking) {
-        cache = new BlockingCache(cache);
+        cache = new SingleFlightCache(cache);
+        setCacheProperties(cache);
+      }
+      if (invalidationBus != null) {
+        cache = new InvalidationBroadcastCache(cache, invalidationBus);
       }
       return cache;
     }
@@ -145,6 +267,18 @@ public class CacheBuilder {
     }
   }
 
+  /**
+   * Hands the eviction listener of the cache to the decorators evicting entries on their own.
+   */
+  private void setEvictionListener(Cache cache) {
+    if (evictionListener != null) {
+      MetaObject metaCache = SystemMetaObject.forObject(cache);
+      if (metaCache.hasSetter("evictionListener") && metaCache.getSetterType("evictionListener") == EvictionListener.class) {
+        metaCache.setValue("evictionListener", evictionListener);
+      }
+    }
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
@@ -240,4 +374,55 @@ public class CacheBuilder {
           "Cache decorators must have a constructor that takes a Cache instance as a parameter.  Cause: " + e, e);
     }
   }
+
+  /**
+   * Reports the evictions of the decorators to the statistics, to the table dependency index and
+   * to the memory pressure and snapshot decorators above the eviction policy. The index knows the
+   * entries by the outermost cache, set once it is built.
+   */
+  private static final class DecoratorEvictionListener implements EvictionListener {
+
+    private final CacheStatistics statistics;
+
+    private final TableDependencyIndex tableDependencyIndex;
+
+    private volatile Cache cache;
+
+    private MemoryPressureCache memoryPressureCache;
+
+    private SnapshotCache snapshotCache;
+
+    DecoratorEvictionListener(CacheStatistics statistics, TableDependencyIndex tableDependencyIndex) {
+      this.statistics = statistics;
+      this.tableDependencyIndex = tableDependencyIndex;
+    }
+
+    @Override
+    public void evicted(Object key, EvictionCause cause) {
+      if (statistics != null) {
+        statistics.recordEviction(cause, 1);
+      }
+      if (memoryPressureCache != null && cause != EvictionCause.MEMORY_PRESSURE) {
+        memoryPressureCache.evicted(key);
+      }
+      if (snapshotCache != null) {
+        snapshotCache.evicted(key);
+      }
+      Cache current = cache;
+      if (tableDependencyIndex != null && current != null) {
+        tableDependencyIndex.evicted(current, key);
+      }
+    }
+
+    @Override
+    public void cleared(EvictionCause cause, int count) {
+      if (statistics != null) {
+        statistics.recordEviction(cause, count);
+      }
+      Cache current = cache;
+      if (tableDependencyIndex != null && current != null) {
+        tableDependencyIndex.cacheCleared(current);
+      }
+    }
+  }
 }
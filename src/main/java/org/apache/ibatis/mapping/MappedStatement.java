@@ -15,11 +15,15 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.NegativeResult;
+import org.apache.ibatis.cache.SqlTableExtractor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.parameter.ParameterBinder;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
@@ -30,6 +34,11 @@ import org.apache.ibatis.session.Configuration;
  */
 public final class MappedStatement {
 
+  /**
+   * Maximum number of parameter classes a statement keeps compiled binders for
+   */
+  public static final int MAX_PARAMETER_BINDERS = 8;
+
   private String resource;
 
   private Configuration configuration;
@@ -76,6 +85,19 @@ public final class MappedStatement {
 
   private String[] resultSets;
 
+  private Set<String> tables;
+
+  private NegativeResult negativeResult;
+
+  private String chunkParameter;
+
+  private int chunkSize;
+
+  /**
+   * Binders compiled for the parameter classes seen so far, replaced as a whole when one is added
+   */
+  private volatile ParameterBinder[] parameterBinders = new ParameterBinder[0];
+
   MappedStatement() {
     // constructor disabled
   }
@@ -181,6 +203,62 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * @return the tables declared by the <code>tables</code> attribute, normalized by {@link SqlTableExtractor#normalize(String)},
+   * <code>null</code> if not declared
+   */
+  public Set<String> getTables() {
+    return tables;
+  }
+
+  /**
+   * @return the value cached in place of an empty result, <code>null</code> if the empty results are cached like the others
+   */
+  public NegativeResult getNegativeResult() {
+    return negativeResult;
+  }
+
+  /**
+   * @return the name of the collection or array parameter split into chunks, <code>null</code> if the statement is not chunked
+   */
+  public String getChunkParameter() {
+    return chunkParameter;
+  }
+
+  /**
+   * @return the maximum number of elements of {@link #getChunkParameter()} passed to one execution, <code>0</code> if the statement is not chunked
+   */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * @return the binder cached for the given parameter mappings and parameter class, <code>null</code> if none
+   */
+  public ParameterBinder getParameterBinder(List<ParameterMapping> parameterMappings, Class<?> parameterType) {
+    for (ParameterBinder binder : parameterBinders) {
+      if (binder.getParameterMappings() == parameterMappings && binder.getParameterType() == parameterType) {
+        return binder;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Caches a binder, unless {@link #MAX_PARAMETER_BINDERS} are already cached.
+   */
+  public synchronized void addParameterBinder(ParameterBinder binder) {
+    ParameterBinder[] binders = parameterBinders;
+    if (binders.length >= MAX_PARAMETER_BINDERS
+        || getParameterBinder(binder.getParameterMappings(), binder.getParameterType()) != null) {
+      return;
+    }
+    ParameterBinder[] newBinders = new ParameterBinder[binders.length + 1];
+    System.arraycopy(binders, 0, newBinders, 0, binders.length);
+    newBinders[binders.length] = binder;
+    parameterBinders = newBinders;
+  }
+
   /**
    * @deprecated Use {@link #getResultSets()}
    */
@@ -330,6 +408,34 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @param tables comma separated names of the tables read or written by the statement
+     */
+    public Builder tables(String tables) {
+      mappedStatement.tables = SqlTableExtractor.normalizeAll(tables);
+      return this;
+    }
+
+    /**
+     * @param timeToLive milliseconds during which an empty result is cached, <code>null</code> to cache the empty results like the others
+     * @param maxEntries maximum number of empty results cached for the statement, <code>null</code> for {@link NegativeResult#DEFAULT_MAX_ENTRIES}
+     */
+    public Builder negativeCache(Long timeToLive, Integer maxEntries) {
+      mappedStatement.negativeResult = timeToLive == null ? null
+          : new NegativeResult(mappedStatement.id, timeToLive, maxEntries == null ? NegativeResult.DEFAULT_MAX_ENTRIES : maxEntries);
+      return this;
+    }
+
+    /**
+     * @param parameter the name of the collection or array parameter to split, <code>null</code> to disable the chunks
+     * @param size the maximum number of elements passed to one execution
+     */
+    public Builder chunk(String parameter, Integer size) {
+      mappedStatement.chunkParameter = parameter == null || size == null ? null : parameter;
+      mappedStatement.chunkSize = mappedStatement.chunkParameter == null ? 0 : size;
+      return this;
+    }
+
     /**
      * @deprecated Use {@link #resultSets}
      */
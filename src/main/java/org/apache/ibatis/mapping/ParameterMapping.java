@@ -14,6 +14,7 @@ package org.apache.ibatis.mapping;
 
 import java.sql.ResultSet;
 
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -44,9 +45,46 @@ public class ParameterMapping {
 
   private String expression;
 
+  private String elementsName;
+
+  private int elementIndex = -1;
+
+  private PropertyPath elementPath;
+
   private ParameterMapping() {
   }
 
+  /**
+   * Copies this mapping for one element of the <code>Object[]</code> bound as the additional parameter
+   * <code>elementsName</code>, so that the value is read at its position instead of through the property name.
+   *
+   * @param elementsName the name of the additional parameter holding the elements
+   * @param index the position of the element
+   * @param path the property of the element, <code>null</code> for the element itself
+   * @since 3.4.7
+   */
+  public ParameterMapping forElement(String elementsName, int index, PropertyPath path) {
+    ParameterMapping copy = new ParameterMapping();
+    copy.configuration = configuration;
+    StringBuilder property = new StringBuilder(elementsName.length() + 8).append(elementsName).append('[').append(index).append(']');
+    if (path != null) {
+      property.append('.').append(path.getExpression());
+    }
+    copy.property = property.toString();
+    copy.mode = mode;
+    copy.javaType = javaType;
+    copy.jdbcType = jdbcType;
+    copy.numericScale = numericScale;
+    copy.typeHandler = typeHandler;
+    copy.resultMapId = resultMapId;
+    copy.jdbcTypeName = jdbcTypeName;
+    copy.expression = expression;
+    copy.elementsName = elementsName;
+    copy.elementIndex = index;
+    copy.elementPath = path;
+    return copy;
+  }
+
   public String getProperty() {
     return property;
   }
@@ -115,6 +153,30 @@ public class ParameterMapping {
     return expression;
   }
 
+  /**
+   * @return the additional parameter holding the element bound by this mapping, <code>null</code> if it binds a property
+   * @since 3.4.7
+   */
+  public String getElementsName() {
+    return elementsName;
+  }
+
+  /**
+   * @return the position of the element in {@link #getElementsName()}, <code>-1</code> if this mapping binds a property
+   * @since 3.4.7
+   */
+  public int getElementIndex() {
+    return elementIndex;
+  }
+
+  /**
+   * @return the property of the element, <code>null</code> for the element itself
+   * @since 3.4.7
+   */
+  public PropertyPath getElementPath() {
+    return elementPath;
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder("ParameterMapping{");
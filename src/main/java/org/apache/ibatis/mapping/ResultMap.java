@@ -66,6 +66,10 @@ public class ResultMap {
 
   private boolean hasNestedQueries;
 
+  private boolean hasLazyProperties;
+
+  private boolean hasComplexPropertyMappings;
+
   private Boolean autoMapping;
 
   private ResultMap() {
@@ -83,6 +87,21 @@ public class ResultMap {
     return hasNestedQueries;
   }
 
+  /**
+   * @return true if a property is loaded by a lazy nested query, so the result objects must be proxied
+   */
+  public boolean hasLazyProperties() {
+    return hasLazyProperties;
+  }
+
+  /**
+   * @return true unless every property mapping reads a column into a top level property
+   * (no nested query or result map, no composite, no property path)
+   */
+  public boolean hasComplexPropertyMappings() {
+    return hasComplexPropertyMappings;
+  }
+
   public Class<?> getType() {
     return type;
   }
@@ -186,6 +205,8 @@ public class ResultMap {
         }
         else {
           resultMap.propertyResultMappings.add(resultMapping);
+          resultMap.hasLazyProperties = resultMap.hasLazyProperties || (resultMapping.getNestedQueryId() != null && resultMapping.isLazy());
+          resultMap.hasComplexPropertyMappings = resultMap.hasComplexPropertyMappings || isComplex(resultMapping);
         }
         if (resultMapping.getFlags().contains(ResultFlag.ID)) {
           resultMap.idResultMappings.add(resultMapping);
@@ -220,6 +241,15 @@ public class ResultMap {
       return resultMap;
     }
 
+    private boolean isComplex(ResultMapping resultMapping) {
+      final String property = resultMapping.getProperty();
+      return resultMapping.getNestedQueryId() != null
+          || resultMapping.getNestedResultMapId() != null
+          || resultMapping.getResultSet() != null
+          || resultMapping.isCompositeResult()
+          || (property != null && (property.indexOf('.') >= 0 || property.indexOf('[') >= 0));
+    }
+
     private List<String> argNamesOfMatchingConstructor(List<String> constructorArgNames) {
       Constructor<?>[] constructors = resultMap.type.getDeclaredConstructors();
       for (Constructor<?> constructor : constructors) {
@@ -17,6 +17,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -38,6 +39,11 @@ public class ResultMapping {
 
   private String property;
 
+  /**
+   * <code>property</code> parsed once, <code>null</code> for mappings without property
+   */
+  private PropertyPath propertyPath;
+
   private String column;
 
   private Class<?> javaType;
@@ -71,6 +77,10 @@ public class ResultMapping {
     return property;
   }
 
+  public PropertyPath getPropertyPath() {
+    return propertyPath;
+  }
+
   public String getColumn() {
     return column;
   }
@@ -273,6 +283,9 @@ public class ResultMapping {
       resultMapping.composites = Collections.unmodifiableList(resultMapping.composites);
       resolveTypeHandler();
       validate();
+      if (resultMapping.property != null) {
+        resultMapping.propertyPath = PropertyPath.compile(resultMapping.property);
+      }
       return resultMapping;
     }
 
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+/**
+ * An execution that took longer than the configured <code>slowQueryThreshold</code>.
+ */
+public class SlowQuery {
+
+  private final String statementId;
+
+  private final String sql;
+
+  private final long elapsedMillis;
+
+  private final long timestamp;
+
+  private final String threadName;
+
+  public SlowQuery(String statementId, String sql, long elapsedMillis, long timestamp, String threadName) {
+    this.statementId = statementId;
+    this.sql = sql;
+    this.elapsedMillis = elapsedMillis;
+    this.timestamp = timestamp;
+    this.threadName = threadName;
+  }
+
+  public String getStatementId() {
+    return statementId;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getThreadName() {
+    return threadName;
+  }
+
+  @Override
+  public String toString() {
+    return "Slow query " + statementId + " took " + elapsedMillis + " ms on " + threadName + ": " + sql;
+  }
+
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution metrics of one mapped statement.
+ * <p>
+ * Latencies are recorded in microseconds and split in phases:
+ * <ul>
+ * <li>prepare: statement creation and parameter binding</li>
+ * <li>execute: the JDBC <code>execute</code> call</li>
+ * <li>fetch: time spent in <code>ResultSet.next()</code></li>
+ * <li>mapping: the rest of the result handling (type handlers, object creation, nested queries)</li>
+ * <li>total: the whole database round trip as seen by the executor, cache lookups excluded</li>
+ * </ul>
+ */
+public class StatementMetrics {
+
+  private final String id;
+
+  private final Histogram prepare = new Histogram();
+
+  private final Histogram execute = new Histogram();
+
+  private final Histogram fetch = new Histogram();
+
+  private final Histogram mapping = new Histogram();
+
+  private final Histogram total = new Histogram();
+
+  private final AtomicLong rows = new AtomicLong();
+
+  private final AtomicLong errors = new AtomicLong();
+
+  private final AtomicLong cacheHits = new AtomicLong();
+
+  private final AtomicLong cacheMisses = new AtomicLong();
+
+  private final AtomicLong localCacheHits = new AtomicLong();
+
+  private final AtomicLong lazyLoads = new AtomicLong();
+
+  private final AtomicLong slowQueries = new AtomicLong();
+
+  public StatementMetrics(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void recordPrepare(long nanos) {
+    prepare.record(toMicros(nanos));
+  }
+
+  public void recordExecute(long nanos) {
+    execute.record(toMicros(nanos));
+  }
+
+  public void recordResultHandling(long fetchNanos, long mappingNanos, long rowCount) {
+    fetch.record(toMicros(fetchNanos));
+    mapping.record(toMicros(mappingNanos));
+    rows.addAndGet(rowCount);
+  }
+
+  public void recordTotal(long nanos, boolean failed) {
+    total.record(toMicros(nanos));
+    if (failed) {
+      errors.incrementAndGet();
+    }
+  }
+
+  public void addRows(long rowCount) {
+    rows.addAndGet(rowCount);
+  }
+
+  public void recordCacheHit() {
+    cacheHits.incrementAndGet();
+  }
+
+  public void recordCacheMiss() {
+    cacheMisses.incrementAndGet();
+  }
+
+  public void recordLocalCacheHit() {
+    localCacheHits.incrementAndGet();
+  }
+
+  public void recordLazyLoad() {
+    lazyLoads.incrementAndGet();
+  }
+
+  void recordSlowQuery() {
+    slowQueries.incrementAndGet();
+  }
+
+  public Histogram getPrepare() {
+    return prepare;
+  }
+
+  public Histogram getExecute() {
+    return execute;
+  }
+
+  public Histogram getFetch() {
+    return fetch;
+  }
+
+  public Histogram getMapping() {
+    return mapping;
+  }
+
+  public Histogram getTotal() {
+    return total;
+  }
+
+  public long getExecutions() {
+    return total.getCount();
+  }
+
+  public long getRows() {
+    return rows.get();
+  }
+
+  public long getErrors() {
+    return errors.get();
+  }
+
+  public long getCacheHits() {
+    return cacheHits.get();
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses.get();
+  }
+
+  public long getLocalCacheHits() {
+    return localCacheHits.get();
+  }
+
+  public long getLazyLoads() {
+    return lazyLoads.get();
+  }
+
+  public long getSlowQueries() {
+    return slowQueries.get();
+  }
+
+  public void reset() {
+    prepare.reset();
+    execute.reset();
+    fetch.reset();
+    mapping.reset();
+    total.reset();
+    rows.set(0);
+    errors.set(0);
+    cacheHits.set(0);
+    cacheMisses.set(0);
+    localCacheHits.set(0);
+    lazyLoads.set(0);
+    slowQueries.set(0);
+  }
+
+  private static long toMicros(long nanos) {
+    return nanos / 1000L;
+  }
+
+  @Override
+  public String toString() {
+    return id + " [executions=" + getExecutions() + ", errors=" + getErrors() + ", rows=" + getRows()
+        + ", cacheHits=" + getCacheHits() + ", cacheMisses=" + getCacheMisses()
+        + ", lazyLoads=" + getLazyLoads() + ", total(us)={" + total + "}]";
+  }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Holds the {@link StatementMetrics} of every mapped statement of a configuration.
+ * <p>
+ * Disabled by default: {@link #forStatement(MappedStatement)} then returns <code>null</code> and
+ * the instrumented code skips even reading the clock. Executions slower than the slow query
+ * threshold are logged at WARN level under <code>org.apache.ibatis.metrics.SlowQuery</code>,
+ * kept in a small ring buffer and forwarded to the registered {@link MetricsExporter}s.
+ */
+public class StatementMetricsRegistry {
+
+  private static final Log slowQueryLog = LogFactory.getLog("org.apache.ibatis.metrics.SlowQuery");
+
+  private static final int RECENT_SLOW_QUERIES = 128;
+
+  private final ConcurrentMap<String, StatementMetrics> statements = new ConcurrentHashMap<String, StatementMetrics>();
+
+  private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<MetricsExporter>();
+
+  private final AtomicReferenceArray<SlowQuery> recentSlowQueries = new AtomicReferenceArray<SlowQuery>(RECENT_SLOW_QUERIES);
+
+  private final AtomicLong slowQueryCount = new AtomicLong();
+
+  private volatile boolean enabled;
+
+  private volatile long slowQueryThresholdNanos;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getSlowQueryThreshold() {
+    return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+  }
+
+  /**
+   * @param millis executions taking at least this many milliseconds are reported, <code>0</code> disables the report
+   */
+  public void setSlowQueryThreshold(long millis) {
+    this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(millis, 0));
+  }
+
+  public void addExporter(MetricsExporter exporter) {
+    exporters.add(exporter);
+  }
+
+  public void removeExporter(MetricsExporter exporter) {
+    exporters.remove(exporter);
+  }
+
+  public List<MetricsExporter> getExporters() {
+    return Collections.unmodifiableList(exporters);
+  }
+
+  /**
+   * Returns the metrics of a statement, creating them on first use.
+   *
+   * @param ms the statement
+   * @return <code>null</code> when the metrics are disabled
+   */
+  public StatementMetrics forStatement(MappedStatement ms) {
+    if (!enabled) {
+      return null;
+    }
+    return getStatementMetrics(ms.getId());
+  }
+
+  public StatementMetrics getStatementMetrics(String id) {
+    StatementMetrics metrics = statements.get(id);
+    if (metrics == null) {
+      metrics = new StatementMetrics(id);
+      StatementMetrics previous = statements.putIfAbsent(id, metrics);
+      if (previous != null) {
+        metrics = previous;
+      }
+    }
+    return metrics;
+  }
+
+  public Collection<StatementMetrics> getStatementMetrics() {
+    return Collections.unmodifiableCollection(statements.values());
+  }
+
+  /**
+   * Records a database round trip and reports it when it exceeded the slow query threshold.
+   *
+   * @param metrics the metrics of the executed statement
+   * @param ms the executed statement
+   * @param parameter the parameter object, used to render the sql when <code>boundSql</code> is not available
+   * @param boundSql the executed sql, may be <code>null</code>
+   * @param elapsedNanos the duration of the execution
+   * @param failed true if the execution threw an exception
+   */
+  public void recordExecution(StatementMetrics metrics, MappedStatement ms, Object parameter, BoundSql boundSql, long elapsedNanos, boolean failed) {
+    metrics.recordTotal(elapsedNanos, failed);
+    long threshold = slowQueryThresholdNanos;
+    if (threshold > 0 && elapsedNanos >= threshold) {
+      metrics.recordSlowQuery();
+      String sql = boundSql != null ? boundSql.getSql() : ms.getBoundSql(parameter).getSql();
+      SlowQuery slowQuery = new SlowQuery(metrics.getId(), sql, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+          System.currentTimeMillis(), Thread.currentThread().getName());
+      recentSlowQueries.set((int) (slowQueryCount.getAndIncrement() % RECENT_SLOW_QUERIES), slowQuery);
+      slowQueryLog.warn(slowQuery.toString());
+      for (MetricsExporter exporter : exporters) {
+        exporter.slowQuery(slowQuery);
+      }
+    }
+  }
+
+  /**
+   * Returns the most recent slow queries, oldest first.
+   */
+  public List<SlowQuery> getRecentSlowQueries() {
+    long count = slowQueryCount.get();
+    long first = Math.max(0, count - RECENT_SLOW_QUERIES);
+    List<SlowQuery> result = new ArrayList<SlowQuery>();
+    for (long i = first; i < count; i++) {
+      SlowQuery slowQuery = recentSlowQueries.get((int) (i % RECENT_SLOW_QUERIES));
+      if (slowQuery != null) {
+        result.add(slowQuery);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Pushes the current metrics to every registered exporter.
+   */
+  public void export() {
+    Collection<StatementMetrics> snapshot = getStatementMetrics();
+    for (MetricsExporter exporter : exporters) {
+      exporter.export(snapshot);
+    }
+  }
+
+  public void reset() {
+    for (StatementMetrics metrics : statements.values()) {
+      metrics.reset();
+    }
+    for (int i = 0; i < RECENT_SLOW_QUERIES; i++) {
+      recentSlowQueries.set(i, null);
+    }
+    slowQueryCount.set(0);
+  }
+
+}
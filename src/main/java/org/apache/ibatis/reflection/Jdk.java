@@ -27,6 +27,11 @@ public class Jdk {
 
   public static final boolean dateAndTimeApiExists;
 
+  /**
+   * <code>true</code> if <code>java.nio.file.Files</code> is available.
+   */
+  public static final boolean fileApiExists;
+
   static {
     boolean available = false;
     try {
@@ -51,6 +56,18 @@ public class Jdk {
     dateAndTimeApiExists = available;
   }
 
+  static {
+    boolean available = false;
+    try {
+      Resources.classForName("java.nio.file.Files");
+      available = true;
+    }
+    catch (ClassNotFoundException e) {
+      // ignore
+    }
+    fileApiExists = available;
+  }
+
   private Jdk() {
     super();
   }
@@ -17,6 +17,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.reflection.wrapper.CollectionWrapper;
@@ -29,6 +31,7 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
  */
 public class MetaObject {
 
+  private static final Object[] NO_ARGUMENTS = new Object[0];
 
   /**
    * 原始的数据对象,初始化时的对象
@@ -139,20 +142,25 @@ public class MetaObject {
    * @return
    */
   public Object getValue(String name) {
-    PropertyTokenizer prop = new PropertyTokenizer(name);
-    if (prop.hasNext()) {
-      MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
-      // 判断是否是空的metaObject
-      if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
+    return getValue(PropertyPath.compile(name));
+  }
+
+  /**
+   * Same as {@link #getValue(String)} with an already parsed path.
+   * <p>
+   * Intermediate beans and maps are read directly through the accessors cached by the path;
+   * only indexed segments and objects with a custom wrapper get a meta object of their own.
+   */
+  public Object getValue(PropertyPath path) {
+    Object value = objectWrapper.get(path.getSegment(0));
+    for (int i = 1; i < path.size(); i++) {
+      // 中间属性为空直接返回
+      if (value == null) {
         return null;
       }
-      else {
-        return metaValue.getValue(prop.getChildren());
-      }
-    }
-    else {
-      return objectWrapper.get(prop);
+      value = getChildValue(value, path, i);
     }
+    return value;
   }
 
   /**
@@ -162,25 +170,113 @@ public class MetaObject {
    * @param value
    */
   public void setValue(String name, Object value) {
-    PropertyTokenizer prop = new PropertyTokenizer(name);
-    if (prop.hasNext()) {
-      // 获取属性实例
-      MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
-      if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
-        if (value == null && prop.getChildren() != null) {
-          // don't instantiate child path if value is null
-          return;
+    setValue(PropertyPath.compile(name), value);
+  }
+
+  /**
+   * Same as {@link #setValue(String, Object)} with an already parsed path. Missing intermediate
+   * properties are instantiated, unless <code>value</code> is <code>null</code>.
+   */
+  public void setValue(PropertyPath path, Object value) {
+    int last = path.size() - 1;
+    // exactly one of wrapper and target is set: the current level, wrapped or not
+    ObjectWrapper wrapper = objectWrapper;
+    Object target = null;
+    for (int i = 0; i < last; i++) {
+      PropertyTokenizer prop = path.getSegment(i);
+      Object child = wrapper != null ? wrapper.get(prop) : getChildValue(target, path, i);
+      if (child != null) {
+        wrapper = null;
+        target = child;
+        continue;
+      }
+      if (value == null) {
+        // don't instantiate child path if value is null
+        return;
+      }
+      if (wrapper == null) {
+        wrapper = wrap(target);
+      }
+      // 创建属性值
+      wrapper = wrapper.instantiatePropertyValue(path.getSuffix(i), prop, objectFactory).getObjectWrapper();
+      target = null;
+    }
+    if (wrapper != null) {
+      wrapper.set(path.getSegment(last), value);
+    }
+    else {
+      setChildValue(target, path, last, value);
+    }
+  }
+
+  /**
+   * Reads the segment <code>index</code> of <code>path</code> on a non null intermediate value.
+   */
+  private Object getChildValue(Object target, PropertyPath path, int index) {
+    PropertyTokenizer prop = path.getSegment(index);
+    if (prop.getIndex() == null && isPlainObject(target)) {
+      if (target instanceof Map) {
+        return ((Map<?, ?>) target).get(prop.getName());
+      }
+      if (!(target instanceof Collection)) {
+        // same as BeanWrapper.getBeanProperty
+        try {
+          Invoker method = path.getGetInvoker(index, target.getClass(), reflectorFactory);
+          try {
+            return method.invoke(target, NO_ARGUMENTS);
+          }
+          catch (Throwable t) {
+            throw ExceptionUtil.unwrapThrowable(t);
+          }
+        }
+        catch (RuntimeException e) {
+          throw e;
         }
-        else {
-          // 创建属性值
-          metaValue = objectWrapper.instantiatePropertyValue(name, prop, objectFactory);
+        catch (Throwable t) {
+          throw new ReflectionException("Could not get property '" + prop.getName() + "' from " + target.getClass() + ".  Cause: " + t.toString(), t);
         }
       }
-      metaValue.setValue(prop.getChildren(), value);
     }
-    else {
-      objectWrapper.set(prop, value);
+    return wrap(target).get(prop);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setChildValue(Object target, PropertyPath path, int index, Object value) {
+    PropertyTokenizer prop = path.getSegment(index);
+    if (prop.getIndex() == null && isPlainObject(target)) {
+      if (target instanceof Map) {
+        ((Map<String, Object>) target).put(prop.getName(), value);
+        return;
+      }
+      if (!(target instanceof Collection)) {
+        // same as BeanWrapper.setBeanProperty
+        try {
+          Invoker method = path.getSetInvoker(index, target.getClass(), reflectorFactory);
+          try {
+            method.invoke(target, new Object[] { value });
+          }
+          catch (Throwable t) {
+            throw ExceptionUtil.unwrapThrowable(t);
+          }
+        }
+        catch (Throwable t) {
+          throw new ReflectionException("Could not set property '" + prop.getName() + "' of '" + target.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+        }
+        return;
+      }
     }
+    wrap(target).set(prop, value);
+  }
+
+  /**
+   * True if {@link #forObject} would wrap <code>object</code> in one of the default wrappers.
+   */
+  private boolean isPlainObject(Object object) {
+    return !(object instanceof ObjectWrapper) && !objectWrapperFactory.hasWrapperFor(object);
+  }
+
+  private ObjectWrapper wrap(Object object) {
+    return MetaObject.forObject(object, objectFactory, objectWrapperFactory, reflectorFactory).getObjectWrapper();
   }
 
   public MetaObject metaObjectForProperty(String name) {
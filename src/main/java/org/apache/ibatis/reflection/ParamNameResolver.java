@@ -16,11 +16,13 @@ package org.apache.ibatis.reflection;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.binding.FixedParamMap;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
@@ -52,6 +54,14 @@ public class ParamNameResolver {
 
   private boolean hasParamAnnotation;
 
+  /**
+   * The slots of the parameter object, with the generic names (param1, param2, ...),
+   * <code>null</code> when a single argument is passed as is
+   */
+  private final FixedParamMap.Names paramObjectNames;
+
+  private final boolean useFixedParamMap;
+
   public ParamNameResolver(Configuration config, Method method) {
     // 方法参数类型
     final Class<?>[] paramTypes = method.getParameterTypes();
@@ -96,6 +106,28 @@ public class ParamNameResolver {
       map.put(paramIndex, name);
     }
     names = Collections.unmodifiableSortedMap(map);
+    paramObjectNames = hasParamAnnotation || names.size() > 1 ? paramObjectNames(names) : null;
+    useFixedParamMap = config.isUseFixedParamMap();
+  }
+
+  /**
+   * Computes the keys the parameter map used to get on each call: the names, then the generic
+   * names that do not overwrite a name.
+   */
+  private static FixedParamMap.Names paramObjectNames(SortedMap<Integer, String> names) {
+    final Map<String, Integer> argIndexes = new LinkedHashMap<String, Integer>();
+    int i = 0;
+    for (Map.Entry<Integer, String> entry : names.entrySet()) {
+      argIndexes.put(entry.getValue(), entry.getKey());
+      // add generic param names (param1, param2, ...)
+      final String genericParamName = GENERIC_NAME_PREFIX + (i + 1);
+      // ensure not to overwrite parameter named with @Param
+      if (!names.containsValue(genericParamName)) {
+        argIndexes.put(genericParamName, entry.getKey());
+      }
+      i++;
+    }
+    return new FixedParamMap.Names(argIndexes);
   }
 
   /**
@@ -150,20 +182,12 @@ public class ParamNameResolver {
       return args[names.firstKey()];
     }
     else {
-      // 根据索引创建
-      final Map<String, Object> param = new ParamMap<Object>();
-      int i = 0;
-      for (Map.Entry<Integer, String> entry : names.entrySet()) {
-        param.put(entry.getValue(), args[entry.getKey()]);
-        // add generic param names (param1, param2, ...)
-        // param + 当前索引位置
-        final String genericParamName = GENERIC_NAME_PREFIX + (i + 1);
-        // ensure not to overwrite parameter named with @Param
-        if (!names.containsValue(genericParamName)) {
-          param.put(genericParamName, args[entry.getKey()]);
-        }
-        i++;
+      // 按方法预先计算的槽位创建
+      if (useFixedParamMap) {
+        return new FixedParamMap(paramObjectNames, args);
       }
+      final Map<String, Object> param = new ParamMap<Object>();
+      paramObjectNames.putAll(param, args);
       return param;
     }
   }
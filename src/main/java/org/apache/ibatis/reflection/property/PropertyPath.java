@@ -0,0 +1,157 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * A property expression such as <code>order.items[0].sku</code>, split once into its
+ * {@link PropertyTokenizer} segments.
+ * <p>
+ * Paths are immutable and shared: {@link #compile(String)} caches them by expression, so the
+ * property names of mapped statements, result maps and key properties are only parsed the first
+ * time they are used. The getters and setters of the segments are looked up in the per-class
+ * cache of the {@link ReflectorFactory}, which lets {@link org.apache.ibatis.reflection.MetaObject}
+ * walk a chain of beans without wrapping every level in its own meta object. A path holds no
+ * reference to the classes it was applied to.
+ */
+public final class PropertyPath {
+
+  /**
+   * Past this size an arbitrary path is evicted for each new one.
+   */
+  private static final int MAX_CACHED_PATHS = 4096;
+
+  /**
+   * Prefix of the foreach item names (see <code>ForEachSqlNode.ITEM_PREFIX</code>), generated per
+   * element and per call: caching them would only evict the paths worth keeping.
+   */
+  private static final String GENERATED_NAME_PREFIX = "__frch_";
+
+  private static final ConcurrentMap<String, PropertyPath> PATHS = new ConcurrentHashMap<String, PropertyPath>();
+
+  private final String expression;
+
+  /**
+   * segments[i] is the tokenizer of suffixes[i], as returned by {@link PropertyTokenizer#next()}
+   */
+  private final PropertyTokenizer[] segments;
+
+  private final String[] suffixes;
+
+  private PropertyPath(String expression) {
+    int size = 1;
+    PropertyTokenizer prop = new PropertyTokenizer(expression);
+    while (prop.hasNext()) {
+      prop = prop.next();
+      size++;
+    }
+    this.expression = expression;
+    this.segments = new PropertyTokenizer[size];
+    this.suffixes = new String[size];
+    String suffix = expression;
+    for (int i = 0; i < size; i++) {
+      segments[i] = new PropertyTokenizer(suffix);
+      suffixes[i] = suffix;
+      suffix = segments[i].getChildren();
+    }
+  }
+
+  /**
+   * Returns the parsed form of an expression, parsing it on first use. Foreach item names are
+   * parsed on every call.
+   */
+  public static PropertyPath compile(String expression) {
+    if (expression.startsWith(GENERATED_NAME_PREFIX)) {
+      return new PropertyPath(expression);
+    }
+    PropertyPath path = PATHS.get(expression);
+    if (path == null) {
+      path = new PropertyPath(expression);
+      if (PATHS.size() >= MAX_CACHED_PATHS) {
+        Iterator<String> iterator = PATHS.keySet().iterator();
+        if (iterator.hasNext()) {
+          iterator.next();
+          iterator.remove();
+        }
+      }
+      PropertyPath previous = PATHS.putIfAbsent(expression, path);
+      if (previous != null) {
+        path = previous;
+      }
+    }
+    return path;
+  }
+
+  /**
+   * @return true if the expression is in the cache of compiled paths
+   */
+  static boolean isCached(String expression) {
+    return PATHS.containsKey(expression);
+  }
+
+  static int getCachedCount() {
+    return PATHS.size();
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  /**
+   * Number of segments, <code>1</code> for a simple property name.
+   */
+  public int size() {
+    return segments.length;
+  }
+
+  public PropertyTokenizer getSegment(int index) {
+    return segments[index];
+  }
+
+  /**
+   * The expression starting at the given segment, e.g. <code>items[0].sku</code> for the segment 1 of <code>order.items[0].sku</code>.
+   */
+  public String getSuffix(int index) {
+    return suffixes[index];
+  }
+
+  /**
+   * The getter of the given segment on <code>type</code>, which must be a bean.
+   *
+   * @throws org.apache.ibatis.reflection.ReflectionException if <code>type</code> has no such getter
+   */
+  public Invoker getGetInvoker(int index, Class<?> type, ReflectorFactory reflectorFactory) {
+    return reflectorFactory.findForClass(type).getGetInvoker(segments[index].getName());
+  }
+
+  /**
+   * The setter of the given segment on <code>type</code>, which must be a bean.
+   *
+   * @throws org.apache.ibatis.reflection.ReflectionException if <code>type</code> has no such setter
+   */
+  public Invoker getSetInvoker(int index, Class<?> type, ReflectorFactory reflectorFactory) {
+    return reflectorFactory.findForClass(type).getSetInvoker(segments[index].getName());
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+}
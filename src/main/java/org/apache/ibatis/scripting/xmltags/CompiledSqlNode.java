@@ -0,0 +1,43 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+/**
+ * Base class of the nodes generated by the {@link CompiledXMLLanguageDriver}.
+ * <p>
+ * The generated {@link #apply(DynamicContext)} method appends the texts and evaluates the tests
+ * of the script in straight-line code; the nodes it cannot inline (<code>trim</code>,
+ * <code>where</code>, <code>set</code>, <code>foreach</code>, <code>bind</code> and texts with
+ * <code>${}</code>) are applied from {@link #nodes}.
+ */
+public abstract class CompiledSqlNode implements SqlNode {
+
+  private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+  protected final String[] texts;
+
+  protected final String[] tests;
+
+  protected final SqlNode[] nodes;
+
+  protected CompiledSqlNode(String[] texts, String[] tests, SqlNode[] nodes) {
+    this.texts = texts;
+    this.tests = tests;
+    this.nodes = nodes;
+  }
+
+  protected final boolean test(int i, DynamicContext context) {
+    return evaluator.evaluateBoolean(tests[i], context.getBindings());
+  }
+
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Same scripts as the {@link XMLLanguageDriver}, but each dynamic script is compiled into a
+ * generated class when the statement is built instead of being interpreted node by node.
+ * <p>
+ * Selected per statement with <code>lang="COMPILED_XML"</code>, or for all of them with the
+ * <code>defaultScriptingLanguage</code> setting. The <code>test</code> expressions are still
+ * evaluated by OGNL.
+ */
+public class CompiledXMLLanguageDriver extends XMLLanguageDriver {
+
+  @Override
+  public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
+    SqlSource sqlSource = super.createSqlSource(configuration, script, parameterType);
+    if (sqlSource instanceof DynamicSqlSource) {
+      return new DynamicSqlSource(configuration, SqlNodeCompiler.compile(((DynamicSqlSource) sqlSource).getRootSqlNode()));
+    }
+    return sqlSource;
+  }
+
+}
@@ -47,4 +47,8 @@ public class DynamicSqlSource implements SqlSource {
     return boundSql;
   }
 
+  SqlNode getRootSqlNode() {
+    return rootSqlNode;
+  }
+
 }
@@ -12,11 +12,23 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
+import org.apache.ibatis.builder.BoundSqlFragment;
+import org.apache.ibatis.builder.ParameterExpression;
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.parsing.TokenHandler;
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.ArrayParameter;
+import org.apache.ibatis.type.ArrayTypeHandler;
 
 /**
  * @author Clinton Begin
@@ -24,6 +36,11 @@ import org.apache.ibatis.session.Configuration;
 public class ForEachSqlNode implements SqlNode {
   public static final String ITEM_PREFIX = "__frch_";
 
+  /**
+   * Stands for the item or the index in the parameters of a compiled template
+   */
+  private static final String ELEMENT = ITEM_PREFIX + "element";
+
   private final ExpressionEvaluator evaluator;
 
   private final String collectionExpression;
@@ -42,7 +59,37 @@ public class ForEachSqlNode implements SqlNode {
 
   private final Configuration configuration;
 
+  /**
+   * Ascending list sizes the iterations are padded to, <code>null</code> to iterate exactly once per element
+   */
+  private final int[] bucketSizes;
+
+  /**
+   * SQL type name of the elements when the whole collection is bound as a single array parameter
+   */
+  private final String arrayType;
+
+  /**
+   * The contents compiled once when they are a static text whose parameters only reference the item and the index,
+   * <code>null</code> to apply the contents at each iteration
+   */
+  private final Template template;
+
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, null, null);
+  }
+
+  /**
+   * @param bucketSizes when not <code>null</code>, the last element is repeated until the number of iterations
+   *     reaches the smallest of these sizes that fits the collection (or a multiple of the largest one), so that
+   *     collections of different sizes share the same SQL text; only meant for IN lists, where repeated elements
+   *     do not change the result
+   * @param arrayType when not <code>null</code>, the contents are not applied: the whole collection is bound as a
+   *     single {@link java.sql.Array} of this SQL type, written between <code>open</code> and <code>close</code>
+   * @since 3.4.7
+   */
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator,
+      int[] bucketSizes, String arrayType) {
     this.evaluator = new ExpressionEvaluator();
     this.collectionExpression = collectionExpression;
     this.contents = contents;
@@ -52,6 +99,27 @@ public class ForEachSqlNode implements SqlNode {
     this.index = index;
     this.item = item;
     this.configuration = configuration;
+    this.bucketSizes = bucketSizes;
+    this.arrayType = arrayType;
+    this.template = Template.compile(contents, item, index);
+  }
+
+  SqlNode getContents() {
+    return contents;
+  }
+
+  /**
+   * @return true if the contents are compiled into a template instead of being applied at each iteration
+   */
+  boolean hasTemplate() {
+    return template != null;
+  }
+
+  /**
+   * @return a node iterating the same way over other contents
+   */
+  ForEachSqlNode withContents(SqlNode contents) {
+    return new ForEachSqlNode(configuration, contents, collectionExpression, index, item, open, close, separator, bucketSizes, arrayType);
   }
 
   private static String itemizeItem(String item, int i) {
@@ -62,43 +130,176 @@ public class ForEachSqlNode implements SqlNode {
   public boolean apply(DynamicContext context) {
     Map<String, Object> bindings = context.getBindings();
     final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    if (arrayType != null) {
+      applyArray(context, iterable);
+      return true;
+    }
     if (!iterable.iterator().hasNext()) {
       return true;
     }
+    if (template != null) {
+      applyTemplate(context, iterable);
+      return true;
+    }
     boolean first = true;
     applyOpen(context);
     int i = 0;
+    Object last = null;
     for (Object o : iterable) {
-      DynamicContext oldContext = context;
-      if (first || separator == null) {
-        context = new PrefixedContext(context, "");
-      }
-      else {
-        context = new PrefixedContext(context, separator);
+      first = applyIteration(context, o, i, first);
+      last = o;
+      i++;
+    }
+    if (bucketSizes != null) {
+      // 重复最后一个元素(及其下标), 补齐到分桶大小
+      int lastIndex = i - 1;
+      for (int padded = bucketSize(bucketSizes, i); i < padded; i++) {
+        first = applyIteration(context, last, lastIndex, first);
       }
-      int uniqueNumber = context.getUniqueNumber();
-      // Issue #709
+    }
+    applyClose(context);
+    context.getBindings().remove(item);
+    context.getBindings().remove(index);
+    return true;
+  }
+
+  /**
+   * @return the updated <code>first</code> flag: true while no separator is needed yet
+   */
+  private boolean applyIteration(DynamicContext context, Object o, int i, boolean first) {
+    DynamicContext oldContext = context;
+    if (first || separator == null) {
+      context = new PrefixedContext(context, "");
+    }
+    else {
+      context = new PrefixedContext(context, separator);
+    }
+    int uniqueNumber = context.getUniqueNumber();
+    // Issue #709
+    if (o instanceof Map.Entry) {
+      @SuppressWarnings("unchecked")
+      Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
+      applyIndex(context, mapEntry.getKey(), uniqueNumber);
+      applyItem(context, mapEntry.getValue(), uniqueNumber);
+    }
+    else {
+      applyIndex(context, i, uniqueNumber);
+      applyItem(context, o, uniqueNumber);
+    }
+    contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
+    if (first) {
+      first = !((PrefixedContext) context).isPrefixApplied();
+    }
+    return first;
+  }
+
+  /**
+   * Binds the items (the values of a map) as one array parameter: the SQL text no longer depends on their number.
+   */
+  private void applyArray(DynamicContext context, Iterable<?> iterable) {
+    List<Object> elements = new ArrayList<Object>();
+    for (Object o : iterable) {
+      elements.add(o instanceof Map.Entry ? ((Map.Entry<?, ?>) o).getValue() : o);
+    }
+    String name = itemizeItem(item == null ? "array" : item, context.getUniqueNumber());
+    context.bind(name, new ArrayParameter(arrayType, elements.toArray()));
+    applyOpen(context);
+    context.appendSql("#{" + name + ",typeHandler=" + ArrayTypeHandler.class.getName() + "}");
+    applyClose(context);
+  }
+
+  /**
+   * Binds the items (and the indexes if used) as one array each and renders all the iterations at once:
+   * each parameter is mapped to its position in the array, without binding every item under its own name
+   * nor parsing the iterations again.
+   */
+  private void applyTemplate(DynamicContext context, Iterable<?> iterable) {
+    List<Object> items = iterable instanceof Collection ? new ArrayList<Object>(((Collection<?>) iterable).size()) : new ArrayList<Object>();
+    List<Object> indexes = template.usesIndex ? new ArrayList<Object>(items.size()) : null;
+    int i = 0;
+    for (Object o : iterable) {
       if (o instanceof Map.Entry) {
-        @SuppressWarnings("unchecked")
-        Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
-        applyIndex(context, mapEntry.getKey(), uniqueNumber);
-        applyItem(context, mapEntry.getValue(), uniqueNumber);
+        Map.Entry<?, ?> mapEntry = (Map.Entry<?, ?>) o;
+        items.add(mapEntry.getValue());
+        if (indexes != null) {
+          indexes.add(mapEntry.getKey());
+        }
       }
       else {
-        applyIndex(context, i, uniqueNumber);
-        applyItem(context, o, uniqueNumber);
-      }
-      contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
-      if (first) {
-        first = !((PrefixedContext) context).isPrefixApplied();
+        items.add(o);
+        if (indexes != null) {
+          indexes.add(i);
+        }
       }
-      context = oldContext;
       i++;
     }
+    if (bucketSizes != null) {
+      Object lastItem = items.get(i - 1);
+      Object lastIndex = indexes == null ? null : indexes.get(i - 1);
+      for (int padded = bucketSize(bucketSizes, i); i < padded; i++) {
+        items.add(lastItem);
+        if (indexes != null) {
+          indexes.add(lastIndex);
+        }
+      }
+    }
+    int uniqueNumber = context.getUniqueNumber();
+    String itemsName = itemizeItem(item == null ? "item" : item, uniqueNumber);
+    Object[] itemArray = items.toArray();
+    context.bind(itemsName, itemArray);
+    String indexesName = null;
+    Object[] indexArray = null;
+    if (indexes != null) {
+      indexesName = itemizeItem(index, uniqueNumber);
+      indexArray = indexes.toArray();
+      context.bind(indexesName, indexArray);
+    }
+
+    Object parameterObject = context.getBindings().get(DynamicContext.PARAMETER_OBJECT_KEY);
+    Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
+    SqlSourceBuilder sqlSourceBuilder = new SqlSourceBuilder(configuration);
+    int tokens = template.contents.length;
+    ParameterMapping[] mappings = new ParameterMapping[tokens];
+    Class<?>[] mappingTypes = new Class<?>[tokens];
+    StringBuilder sql = new StringBuilder();
+    List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>(itemArray.length * tokens);
+    for (i = 0; i < itemArray.length; i++) {
+      // same text as a PrefixedContext followed by a FilteredDynamicContext
+      sql.append(i == 0 || separator == null ? "" : separator).append(' ');
+      for (int k = 0; k < tokens; k++) {
+        sql.append(template.texts[k]).append('?');
+        Object element = template.indexTokens[k] ? indexArray[i] : itemArray[i];
+        Class<?> elementType = element == null ? null : element.getClass();
+        // the mapping only depends on the element type, except for the properties of maps
+        if (mappings[k] == null || mappingTypes[k] != elementType || (template.paths[k] != null && element instanceof Map)) {
+          mappings[k] = sqlSourceBuilder.buildParameterMapping(template.contents[k], parameterType,
+              Collections.singletonMap(ELEMENT, element));
+          mappingTypes[k] = elementType;
+        }
+        parameterMappings.add(mappings[k].forElement(template.indexTokens[k] ? indexesName : itemsName, i, template.paths[k]));
+      }
+      sql.append(template.texts[tokens]).append(' ');
+    }
+    // appendSql adds the last space
+    sql.setLength(sql.length() - 1);
+    String fragmentName = itemizeItem("fragment", context.getUniqueNumber());
+    context.bind(fragmentName, new BoundSqlFragment(sql.toString(), parameterMappings));
+    applyOpen(context);
+    context.appendSql("#{" + fragmentName + "}");
     applyClose(context);
-    context.getBindings().remove(item);
-    context.getBindings().remove(index);
-    return true;
+  }
+
+  /**
+   * The smallest bucket holding <code>size</code> elements, or the next multiple of the largest bucket.
+   */
+  static int bucketSize(int[] bucketSizes, int size) {
+    for (int bucketSize : bucketSizes) {
+      if (bucketSize >= size) {
+        return bucketSize;
+      }
+    }
+    int largest = bucketSizes[bucketSizes.length - 1];
+    return (size + largest - 1) / largest * largest;
   }
 
   private void applyIndex(DynamicContext context, Object o, int i) {
@@ -127,6 +328,105 @@ public class ForEachSqlNode implements SqlNode {
     }
   }
 
+  /**
+   * Contents made of a single static text, split around its parameters.
+   */
+  private static final class Template {
+
+    /**
+     * The text before each parameter, then the text after the last one
+     */
+    private final String[] texts;
+
+    /**
+     * The parameters, with the item or the index replaced by {@link #ELEMENT}
+     */
+    private final String[] contents;
+
+    /**
+     * Whether each parameter references the index rather than the item
+     */
+    private final boolean[] indexTokens;
+
+    /**
+     * The property of the element read by each parameter, <code>null</code> for the element itself
+     */
+    private final PropertyPath[] paths;
+
+    private final boolean usesIndex;
+
+    private Template(String[] texts, List<String> contents, boolean[] indexTokens, PropertyPath[] paths) {
+      this.texts = texts;
+      this.contents = contents.toArray(new String[contents.size()]);
+      this.indexTokens = indexTokens;
+      this.paths = paths;
+      boolean index = false;
+      for (boolean indexToken : indexTokens) {
+        index |= indexToken;
+      }
+      this.usesIndex = index;
+    }
+
+    /**
+     * @return <code>null</code> if the contents are dynamic or have a parameter not rooted at the item or the index
+     */
+    static Template compile(SqlNode contents, String item, String index) {
+      SqlNode node = contents;
+      if (node instanceof MixedSqlNode && ((MixedSqlNode) node).getContents().size() == 1) {
+        node = ((MixedSqlNode) node).getContents().get(0);
+      }
+      if (!(node instanceof StaticTextSqlNode)) {
+        return null;
+      }
+      String text = ((StaticTextSqlNode) node).getText();
+      // escaped tokens are parsed twice by the other path
+      if (text.trim().length() == 0 || text.indexOf('\\') >= 0 || text.indexOf('\0') >= 0) {
+        return null;
+      }
+      final List<String> tokens = new ArrayList<String>();
+      String marked = new GenericTokenParser("#{", "}", new TokenHandler() {
+        @Override
+        public String handleToken(String content) {
+          tokens.add(content);
+          return "\0";
+        }
+      }).parse(text);
+      if (tokens.isEmpty()) {
+        return null;
+      }
+      List<String> elementContents = new ArrayList<String>(tokens.size());
+      boolean[] indexTokens = new boolean[tokens.size()];
+      PropertyPath[] paths = new PropertyPath[tokens.size()];
+      for (int k = 0; k < tokens.size(); k++) {
+        String content = tokens.get(k);
+        String elementContent = item == null ? content : content.replaceFirst("^\\s*" + Pattern.quote(item) + "(?![^.,:\\s])", ELEMENT);
+        if (index != null && elementContent.equals(content)) {
+          elementContent = content.replaceFirst("^\\s*" + Pattern.quote(index) + "(?![^.,:\\s])", ELEMENT);
+          indexTokens[k] = true;
+        }
+        if (elementContent.equals(content)) {
+          return null;
+        }
+        String property;
+        try {
+          property = new ParameterExpression(elementContent).get("property");
+        }
+        catch (RuntimeException e) {
+          // reported by the other path
+          return null;
+        }
+        if (property != null && property.startsWith(ELEMENT + ".")) {
+          paths[k] = PropertyPath.compile(property.substring(ELEMENT.length() + 1));
+        }
+        else if (!ELEMENT.equals(property)) {
+          return null;
+        }
+        elementContents.add(elementContent);
+      }
+      return new Template(marked.split("\0", -1), elementContents, indexTokens, paths);
+    }
+  }
+
   private static class FilteredDynamicContext extends DynamicContext {
     private final DynamicContext delegate;
 
@@ -37,4 +37,12 @@ public class IfSqlNode implements SqlNode {
     return false;
   }
 
+  String getTest() {
+    return test;
+  }
+
+  SqlNode getContents() {
+    return contents;
+  }
+
 }
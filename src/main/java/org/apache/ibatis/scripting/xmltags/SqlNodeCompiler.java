@@ -0,0 +1,153 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Generates a {@link CompiledSqlNode} for a tree of sql nodes.
+ * <p>
+ * Static texts, <code>if</code> and <code>choose</code> are inlined into the generated method.
+ * Other nodes are kept and applied as they are, after compiling their own contents into another
+ * class, except the contents of a <code>foreach</code> already compiled into a template.
+ */
+final class SqlNodeCompiler {
+
+  private static final Log log = LogFactory.getLog(SqlNodeCompiler.class);
+
+  private static final AtomicInteger classCounter = new AtomicInteger();
+
+  private final List<String> texts = new ArrayList<String>();
+
+  private final List<String> tests = new ArrayList<String>();
+
+  private final List<SqlNode> nodes = new ArrayList<SqlNode>();
+
+  private final StringBuilder body = new StringBuilder();
+
+  private SqlNodeCompiler() {
+  }
+
+  /**
+   * @return the generated node, or <code>node</code> itself when there is nothing to compile or the generation failed
+   */
+  static SqlNode compile(SqlNode node) {
+    if (node instanceof StaticTextSqlNode) {
+      return node;
+    }
+    SqlNodeCompiler compiler = new SqlNodeCompiler();
+    compiler.append(node);
+    try {
+      return compiler.generate();
+    }
+    catch (Exception e) {
+      // e.g. a script too large for a single method
+      log.warn("Could not compile sql script, it will be interpreted. Cause: " + e);
+      return node;
+    }
+  }
+
+  private void append(SqlNode node) {
+    if (node instanceof MixedSqlNode) {
+      for (SqlNode child : ((MixedSqlNode) node).getContents()) {
+        append(child);
+      }
+    }
+    else if (node instanceof StaticTextSqlNode) {
+      body.append("context.appendSql(texts[").append(add(texts, ((StaticTextSqlNode) node).getText())).append("]);\n");
+    }
+    else if (node instanceof IfSqlNode) {
+      IfSqlNode ifSqlNode = (IfSqlNode) node;
+      body.append("if (test(").append(add(tests, ifSqlNode.getTest())).append(", context)) {\n");
+      append(ifSqlNode.getContents());
+      body.append("}\n");
+    }
+    else if (node instanceof ChooseSqlNode && onlyIfSqlNodes(((ChooseSqlNode) node).getIfSqlNodes())) {
+      ChooseSqlNode chooseSqlNode = (ChooseSqlNode) node;
+      String keyword = "if";
+      for (SqlNode when : chooseSqlNode.getIfSqlNodes()) {
+        IfSqlNode ifSqlNode = (IfSqlNode) when;
+        body.append(keyword).append(" (test(").append(add(tests, ifSqlNode.getTest())).append(", context)) {\n");
+        append(ifSqlNode.getContents());
+        body.append("}\n");
+        keyword = "else if";
+      }
+      if (chooseSqlNode.getDefaultSqlNode() != null) {
+        body.append(chooseSqlNode.getIfSqlNodes().isEmpty() ? "{\n" : "else {\n");
+        append(chooseSqlNode.getDefaultSqlNode());
+        body.append("}\n");
+      }
+    }
+    else if (node instanceof TrimSqlNode) {
+      TrimSqlNode trimSqlNode = (TrimSqlNode) node;
+      delegate(trimSqlNode.withContents(compile(trimSqlNode.getContents())));
+    }
+    else if (node instanceof ForEachSqlNode && !((ForEachSqlNode) node).hasTemplate()) {
+      ForEachSqlNode forEachSqlNode = (ForEachSqlNode) node;
+      delegate(forEachSqlNode.withContents(compile(forEachSqlNode.getContents())));
+    }
+    else {
+      delegate(node);
+    }
+  }
+
+  private void delegate(SqlNode node) {
+    body.append("nodes[").append(add(nodes, node)).append("].apply(context);\n");
+  }
+
+  private static boolean onlyIfSqlNodes(List<SqlNode> nodes) {
+    for (SqlNode node : nodes) {
+      if (!(node instanceof IfSqlNode)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static <T> int add(List<T> list, T value) {
+    list.add(value);
+    return list.size() - 1;
+  }
+
+  private SqlNode generate() throws Exception {
+    ClassLoader classLoader = CompiledSqlNode.class.getClassLoader();
+    ClassPool pool = new ClassPool(true);
+    pool.insertClassPath(new LoaderClassPath(classLoader));
+    String className = CompiledSqlNode.class.getName() + "$$" + classCounter.incrementAndGet();
+    CtClass ctClass = pool.makeClass(className, pool.get(CompiledSqlNode.class.getName()));
+    try {
+      ctClass.addConstructor(CtNewConstructor.make(new CtClass[] {
+          pool.get(String.class.getName() + "[]"), pool.get(String.class.getName() + "[]"), pool.get(SqlNode.class.getName() + "[]") },
+          new CtClass[0], ctClass));
+      ctClass.addMethod(CtNewMethod.make("public boolean apply(" + DynamicContext.class.getName() + " context) {\n"
+          + body + "return true;\n}", ctClass));
+      Class<?> type = ctClass.toClass(classLoader, CompiledSqlNode.class.getProtectionDomain());
+      return (SqlNode) type.getConstructor(String[].class, String[].class, SqlNode[].class).newInstance(
+          texts.toArray(new String[texts.size()]), tests.toArray(new String[tests.size()]), nodes.toArray(new SqlNode[nodes.size()]));
+    }
+    finally {
+      ctClass.detach();
+    }
+  }
+
+}
@@ -71,6 +71,17 @@ public class TrimSqlNode implements SqlNode {
     return result;
   }
 
+  SqlNode getContents() {
+    return contents;
+  }
+
+  /**
+   * @return a node trimming other contents the same way
+   */
+  TrimSqlNode withContents(SqlNode contents) {
+    return new TrimSqlNode(configuration, contents, prefix, prefixesToOverride, suffix, suffixesToOverride);
+  }
+
   private class FilteredDynamicContext extends DynamicContext {
     private DynamicContext delegate;
 
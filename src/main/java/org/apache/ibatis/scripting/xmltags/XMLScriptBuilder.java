@@ -179,11 +179,37 @@ public class XMLScriptBuilder extends BaseBuilder {
       String open = nodeToHandle.getStringAttribute("open");
       String close = nodeToHandle.getStringAttribute("close");
       String separator = nodeToHandle.getStringAttribute("separator");
-      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator);
+      int[] bucketSizes = parseBucketSizes(nodeToHandle.getStringAttribute("bucketSizes"));
+      if (bucketSizes != null && "insert".equals(context.getName())) {
+        // 补齐的元素在VALUES列表中会插入重复的行
+        throw new BuilderException("The foreach bucketSizes only apply to IN lists and cannot be used in an insert statement.");
+      }
+      String arrayType = nodeToHandle.getStringAttribute("arrayType");
+      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator, bucketSizes, arrayType);
       targetContents.add(forEachSqlNode);
     }
   }
 
+  private static int[] parseBucketSizes(String value) {
+    if (value == null) {
+      return null;
+    }
+    String[] tokens = value.split(",");
+    int[] sizes = new int[tokens.length];
+    for (int i = 0; i < tokens.length; i++) {
+      try {
+        sizes[i] = Integer.parseInt(tokens[i].trim());
+      }
+      catch (NumberFormatException e) {
+        throw new BuilderException("Invalid foreach bucketSizes '" + value + "'. Cause: " + e, e);
+      }
+      if (sizes[i] <= 0 || (i > 0 && sizes[i] <= sizes[i - 1])) {
+        throw new BuilderException("Invalid foreach bucketSizes '" + value + "': sizes must be positive and ascending.");
+      }
+    }
+    return sizes;
+  }
+
   private class IfHandler implements NodeHandler {
     public IfHandler() {
       // Prevent Synthetic Access
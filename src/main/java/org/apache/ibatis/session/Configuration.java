@@ -12,6 +12,7 @@
  */
 package org.apache.ibatis.session;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -28,11 +29,18 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMemoryMonitor;
+import org.apache.ibatis.cache.CacheSnapshotManager;
+import org.apache.ibatis.cache.TableDependencyIndex;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.InvalidationTransport;
+import org.apache.ibatis.cache.statistics.CacheStatisticsRegistry;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
@@ -54,6 +62,7 @@ import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.logging.commons.JakartaCommonsLoggingImpl;
+import org.apache.ibatis.logging.jdbc.JdbcEventBuffer;
 import org.apache.ibatis.logging.jdk14.Jdk14LoggingImpl;
 import org.apache.ibatis.logging.log4j.Log4jImpl;
 import org.apache.ibatis.logging.log4j2.Log4j2Impl;
@@ -66,6 +75,8 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMap;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.VendorDatabaseIdProvider;
+import org.apache.ibatis.metrics.MetricsExporter;
+import org.apache.ibatis.metrics.StatementMetricsRegistry;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.plugin.InterceptorChain;
@@ -79,6 +90,7 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.CompiledXMLLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -99,6 +111,12 @@ public class Configuration {
 
   protected final InterceptorChain interceptorChain = new InterceptorChain();
 
+  protected final StatementMetricsRegistry statementMetricsRegistry = new StatementMetricsRegistry();
+
+  protected final TableDependencyIndex tableDependencyIndex = new TableDependencyIndex();
+
+  protected final CacheStatisticsRegistry cacheStatisticsRegistry = new CacheStatisticsRegistry();
+
   protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry();
 
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
@@ -111,6 +129,10 @@ public class Configuration {
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection");
 
   protected final Map<String, Cache> caches = new StrictMap<Cache>("Caches collection");
+  /**
+   * The time to live decorators of the caches refreshing their entries ahead of expiry, by cache id
+   */
+  protected final Map<String, ExpiringCache> refreshAheadCaches = new HashMap<String, ExpiringCache>();
 
   protected final Map<String, ResultMap> resultMaps = new StrictMap<ResultMap>("Result Maps collection");
 
@@ -160,18 +182,52 @@ public class Configuration {
    */
   protected boolean cacheEnabled = true;
 
+  protected boolean tableLevelCacheInvalidation;
+
+  /**
+   * <code>null</code> unless a cache invalidation transport is set
+   */
+  protected CacheInvalidationBus cacheInvalidationBus;
+
+  protected long cacheInvalidationBatchDelay;
+
+  /**
+   * <code>null</code> unless cache memory thresholds are set
+   */
+  protected CacheMemoryMonitor cacheMemoryMonitor;
+
+  protected double cacheMemoryShrinkRatio = 0.25;
+
+  /**
+   * <code>null</code> unless a cache snapshot directory is set
+   */
+  protected CacheSnapshotManager cacheSnapshotManager;
+
+  protected long cacheSnapshotMaxAge = 24L * 60 * 60 * 1000;
+
   protected boolean callSettersOnNulls;
 
   protected boolean useActualParamName = true;
 
   protected boolean returnInstanceForEmptyRow;
 
+  protected boolean useGeneratedMappers;
+
+  protected boolean useFixedParamMap;
+
   protected String logPrefix;
 
   protected Class<? extends Log> logImpl;
 
   protected Class<? extends VFS> vfsImpl;
 
+  /**
+   * <code>null</code> unless a jdbc event buffer size is set
+   */
+  protected JdbcEventBuffer jdbcEventBuffer;
+
+  protected long jdbcEventLogInterval;
+
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
 
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
@@ -248,6 +304,7 @@ public class Configuration {
     // 语言驱动
     typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
     typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
+    typeAliasRegistry.registerAlias("COMPILED_XML", CompiledXMLLanguageDriver.class);
 
     // 日志实现类
     typeAliasRegistry.registerAlias("SLF4J", Slf4jImpl.class);
@@ -322,6 +379,280 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  public boolean isUseGeneratedMappers() {
+    return useGeneratedMappers;
+  }
+
+  /**
+   * Implements the mapper interfaces with generated classes instead of {@link java.lang.reflect.Proxy} instances.
+   *
+   * @since 3.4.7
+   */
+  public void setUseGeneratedMappers(boolean useGeneratedMappers) {
+    this.useGeneratedMappers = useGeneratedMappers;
+  }
+
+  public boolean isUseFixedParamMap() {
+    return useFixedParamMap;
+  }
+
+  /**
+   * Passes multiple mapper arguments, collections and arrays in a {@link org.apache.ibatis.binding.FixedParamMap} instead of a
+   * {@link org.apache.ibatis.binding.MapperMethod.ParamMap} or {@link org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap}.
+   * Plugins that test the parameter object against those classes do not recognize it.
+   *
+   * @since 3.4.7
+   */
+  public void setUseFixedParamMap(boolean useFixedParamMap) {
+    this.useFixedParamMap = useFixedParamMap;
+  }
+
+  public StatementMetricsRegistry getStatementMetricsRegistry() {
+    return statementMetricsRegistry;
+  }
+
+  public boolean isStatementMetricsEnabled() {
+    return statementMetricsRegistry.isEnabled();
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setStatementMetricsEnabled(boolean statementMetricsEnabled) {
+    statementMetricsRegistry.setEnabled(statementMetricsEnabled);
+  }
+
+  public CacheStatisticsRegistry getCacheStatisticsRegistry() {
+    return cacheStatisticsRegistry;
+  }
+
+  public boolean isCacheStatisticsEnabled() {
+    return cacheStatisticsRegistry.isEnabled();
+  }
+
+  /**
+   * Records the statistics of the second level caches built after this call, and exposes them through JMX.
+   *
+   * @since 3.4.7
+   */
+  public void setCacheStatisticsEnabled(boolean cacheStatisticsEnabled) {
+    cacheStatisticsRegistry.setEnabled(cacheStatisticsEnabled);
+  }
+
+  public long getSlowQueryThreshold() {
+    return statementMetricsRegistry.getSlowQueryThreshold();
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setSlowQueryThreshold(long slowQueryThreshold) {
+    statementMetricsRegistry.setSlowQueryThreshold(slowQueryThreshold);
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setMetricsExporter(MetricsExporter metricsExporter) {
+    if (metricsExporter != null) {
+      statementMetricsRegistry.addExporter(metricsExporter);
+    }
+  }
+
+  /**
+   * @return the buffer recording the JDBC calls instead of the statement loggers, <code>null</code> if disabled
+   */
+  public JdbcEventBuffer getJdbcEventBuffer() {
+    return jdbcEventBuffer;
+  }
+
+  public int getJdbcEventBufferSize() {
+    return jdbcEventBuffer == null ? 0 : jdbcEventBuffer.getCapacity();
+  }
+
+  /**
+   * @param jdbcEventBufferSize the number of JDBC calls kept in memory, <code>0</code> logs them through the statement loggers
+   * @since 3.4.7
+   */
+  public void setJdbcEventBufferSize(int jdbcEventBufferSize) {
+    if (jdbcEventBuffer != null) {
+      jdbcEventBuffer.stopLogging();
+    }
+    jdbcEventBuffer = jdbcEventBufferSize > 0 ? new JdbcEventBuffer(jdbcEventBufferSize) : null;
+    if (jdbcEventBuffer != null) {
+      jdbcEventBuffer.startLogging(jdbcEventLogInterval);
+    }
+  }
+
+  public long getJdbcEventLogInterval() {
+    return jdbcEventLogInterval;
+  }
+
+  /**
+   * @param jdbcEventLogInterval milliseconds between two writes of the buffered JDBC calls to the statement loggers, <code>0</code> never writes them
+   * @since 3.4.7
+   */
+  public void setJdbcEventLogInterval(long jdbcEventLogInterval) {
+    this.jdbcEventLogInterval = jdbcEventLogInterval;
+    if (jdbcEventBuffer != null) {
+      jdbcEventBuffer.stopLogging();
+      jdbcEventBuffer.startLogging(jdbcEventLogInterval);
+    }
+  }
+
+  public boolean isTableLevelCacheInvalidation() {
+    return tableLevelCacheInvalidation;
+  }
+
+  /**
+   * @param tableLevelCacheInvalidation true to invalidate, on writes, only the cached entries read from the written tables, in every namespace
+   * @since 3.4.7
+   */
+  public void setTableLevelCacheInvalidation(boolean tableLevelCacheInvalidation) {
+    this.tableLevelCacheInvalidation = tableLevelCacheInvalidation;
+  }
+
+  public TableDependencyIndex getTableDependencyIndex() {
+    return tableDependencyIndex;
+  }
+
+  public CacheInvalidationBus getCacheInvalidationBus() {
+    return cacheInvalidationBus;
+  }
+
+  /**
+   * Broadcasts the second level cache invalidations to the other nodes through the given transport.
+   * Only the caches built after this call broadcast their invalidations.
+   *
+   * @param transport the transport, <code>null</code> to keep the invalidations local
+   * @since 3.4.7
+   */
+  public void setCacheInvalidationTransport(InvalidationTransport transport) {
+    if (cacheInvalidationBus != null) {
+      cacheInvalidationBus.close();
+    }
+    cacheInvalidationBus = transport == null ? null : new CacheInvalidationBus(this, transport);
+    if (cacheInvalidationBus != null) {
+      cacheInvalidationBus.setBatchDelay(cacheInvalidationBatchDelay);
+    }
+  }
+
+  public CacheMemoryMonitor getCacheMemoryMonitor() {
+    return cacheMemoryMonitor;
+  }
+
+  /**
+   * Shrinks the second level caches when the old generation usage crosses one of the given thresholds.
+   * The caches built before the first thresholds were set are not shrunk; changing the thresholds
+   * later applies to every cache already built.
+   *
+   * @param thresholds fractions of the maximum old generation size, <code>null</code> or empty to disable
+   * @since 3.4.7
+   */
+  public void setCacheMemoryThresholds(double[] thresholds) {
+    if (thresholds == null) {
+      thresholds = new double[0];
+    }
+    if (cacheMemoryMonitor != null) {
+      cacheMemoryMonitor.setThresholds(thresholds);
+    }
+    else if (thresholds.length > 0) {
+      cacheMemoryMonitor = new CacheMemoryMonitor(thresholds, cacheMemoryShrinkRatio);
+    }
+  }
+
+  public CacheSnapshotManager getCacheSnapshotManager() {
+    return cacheSnapshotManager;
+  }
+
+  /**
+   * Writes the second level caches to the given directory when the JVM shuts down, and restores
+   * them from there on startup. Only the caches built after this call are written.
+   *
+   * @param directory the snapshot directory, <code>null</code> to disable
+   * @since 3.4.7
+   */
+  public void setCacheSnapshotDirectory(String directory) {
+    if (cacheSnapshotManager != null) {
+      cacheSnapshotManager.close();
+    }
+    cacheSnapshotManager = directory == null ? null : new CacheSnapshotManager(this, new File(directory));
+    if (cacheSnapshotManager != null) {
+      cacheSnapshotManager.setMaxAge(cacheSnapshotMaxAge);
+      cacheSnapshotManager.installShutdownHook();
+    }
+  }
+
+  public long getCacheSnapshotMaxAge() {
+    return cacheSnapshotMaxAge;
+  }
+
+  /**
+   * @param cacheSnapshotMaxAge cache snapshots written more than this many milliseconds ago are discarded, <code>0</code> for no limit
+   * @since 3.4.7
+   */
+  public void setCacheSnapshotMaxAge(long cacheSnapshotMaxAge) {
+    this.cacheSnapshotMaxAge = cacheSnapshotMaxAge;
+    if (cacheSnapshotManager != null) {
+      cacheSnapshotManager.setMaxAge(cacheSnapshotMaxAge);
+    }
+  }
+
+  public double getCacheMemoryShrinkRatio() {
+    return cacheMemoryShrinkRatio;
+  }
+
+  /**
+   * @param cacheMemoryShrinkRatio fraction of the entries of each cache removed per crossed memory threshold
+   * @since 3.4.7
+   */
+  public void setCacheMemoryShrinkRatio(double cacheMemoryShrinkRatio) {
+    this.cacheMemoryShrinkRatio = cacheMemoryShrinkRatio;
+    if (cacheMemoryMonitor != null) {
+      cacheMemoryMonitor.setShrinkRatio(cacheMemoryShrinkRatio);
+    }
+  }
+
+  public long getCacheInvalidationBatchDelay() {
+    return cacheInvalidationBatchDelay;
+  }
+
+  /**
+   * @param cacheInvalidationBatchDelay milliseconds during which the invalidations are coalesced before being broadcast,
+   *     <code>0</code> broadcasts them at the end of each commit
+   * @since 3.4.7
+   */
+  public void setCacheInvalidationBatchDelay(long cacheInvalidationBatchDelay) {
+    this.cacheInvalidationBatchDelay = cacheInvalidationBatchDelay;
+    if (cacheInvalidationBus != null) {
+      cacheInvalidationBus.setBatchDelay(cacheInvalidationBatchDelay);
+    }
+  }
+
+  /**
+   * Stops the background threads and listeners started by this configuration, and unregisters its MBeans. The cache snapshots are written
+   * now rather than at exit, and the shutdown hook is removed. The configuration should not be used afterwards.
+   *
+   * @since 3.4.7
+   */
+  public void close() {
+    if (jdbcEventBuffer != null) {
+      jdbcEventBuffer.stopLogging();
+    }
+    if (cacheInvalidationBus != null) {
+      cacheInvalidationBus.close();
+    }
+    if (cacheMemoryMonitor != null) {
+      cacheMemoryMonitor.close();
+    }
+    cacheStatisticsRegistry.unregisterMBeans();
+    if (cacheSnapshotManager != null) {
+      // 关闭钩子会一直引用此配置直到JVM退出
+      cacheSnapshotManager.saveAll();
+      cacheSnapshotManager.close();
+    }
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -544,6 +875,20 @@ public class Configuration {
     }
   }
 
+  public int getLobSpillThreshold() {
+    return typeHandlerRegistry.getLobSpillThreshold();
+  }
+
+  /**
+   * Sets the size in bytes above which the {@link java.nio.ByteBuffer} results are spilled to
+   * memory-mapped temporary files instead of being read on the heap.
+   *
+   * @since 3.4.7
+   */
+  public void setLobSpillThreshold(int lobSpillThreshold) {
+    typeHandlerRegistry.setLobSpillThreshold(lobSpillThreshold);
+  }
+
   public TypeAliasRegistry getTypeAliasRegistry() {
     return typeAliasRegistry;
   }
@@ -668,7 +1013,7 @@ public class Configuration {
     }
     // 缓存是否开启
     if (cacheEnabled) {
-      executor = new CachingExecutor(executor);
+      executor = new CachingExecutor(executor, tableLevelCacheInvalidation ? tableDependencyIndex : null, cacheInvalidationBus);
     }
     executor = (Executor) interceptorChain.pluginAll(executor);
     return executor;
@@ -710,6 +1055,20 @@ public class Configuration {
     return caches.get(id);
   }
 
+  /**
+   * Registers the decorator refreshing the entries of a cache, so that the executors give it the loaders of the entries they put.
+   */
+  public void addRefreshAheadCache(ExpiringCache cache) {
+    refreshAheadCaches.put(cache.getId(), cache);
+  }
+
+  /**
+   * @return <code>null</code> unless the cache refreshes its entries ahead of expiry
+   */
+  public ExpiringCache getRefreshAheadCache(String id) {
+    return refreshAheadCaches.isEmpty() ? null : refreshAheadCaches.get(id);
+  }
+
   public boolean hasCache(String id) {
     return caches.containsKey(id);
   }
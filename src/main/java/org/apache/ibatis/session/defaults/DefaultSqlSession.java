@@ -22,12 +22,16 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.binding.FixedParamMap;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
+import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ParameterChunks;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -45,6 +49,12 @@ import org.apache.ibatis.session.SqlSession;
  */
 public class DefaultSqlSession implements SqlSession {
 
+  private static final FixedParamMap.Names COLLECTION_NAMES = FixedParamMap.Names.of("collection");
+
+  private static final FixedParamMap.Names LIST_NAMES = FixedParamMap.Names.of("collection", "list");
+
+  private static final FixedParamMap.Names ARRAY_NAMES = FixedParamMap.Names.of("array");
+
   private final Configuration configuration;
 
   private final Executor executor;
@@ -55,6 +65,11 @@ public class DefaultSqlSession implements SqlSession {
 
   private List<Cursor<?>> cursorList;
 
+  /**
+   * The mappers already returned by {@link #getMapper(Class)}, which hold no state besides this session
+   */
+  private Map<Class<?>, Object> mappers;
+
   /**
    * 默认的 sql session
    *
@@ -138,7 +153,12 @@ public class DefaultSqlSession implements SqlSession {
   public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);
-      Cursor<T> cursor = executor.queryCursor(ms, wrapCollection(parameter), rowBounds);
+      Object parameterObject = wrapCollection(parameter);
+      if (ParameterChunks.split(ms, parameterObject) != null) {
+        throw new ExecutorException("Statement " + ms.getId() + " cannot be opened as a cursor: its chunk parameter '"
+            + ms.getChunkParameter() + "' holds more than " + ms.getChunkSize() + " elements.");
+      }
+      Cursor<T> cursor = executor.queryCursor(ms, parameterObject, rowBounds);
       registerCursor(cursor);
       return cursor;
     }
@@ -173,7 +193,26 @@ public class DefaultSqlSession implements SqlSession {
   public <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds) {
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);
-      return executor.query(ms, wrapCollection(parameter), rowBounds, Executor.NO_RESULT_HANDLER);
+      Object parameterObject = wrapCollection(parameter);
+      List<Object> chunks = ParameterChunks.split(ms, parameterObject);
+      if (chunks == null) {
+        return executor.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER);
+      }
+      // 分页作用于合并后的结果,而不是每一块
+      long end = (long) rowBounds.getOffset() + rowBounds.getLimit();
+      List<E> result = new ArrayList<E>();
+      for (Object chunk : chunks) {
+        List<E> list = executor.query(ms, chunk, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        result.addAll(list);
+        if (result.size() >= end) {
+          break;
+        }
+      }
+      if (rowBounds.getOffset() == RowBounds.NO_ROW_OFFSET && result.size() <= end) {
+        return result;
+      }
+      int from = Math.min(rowBounds.getOffset(), result.size());
+      return new ArrayList<E>(result.subList(from, (int) Math.min(end, result.size())));
     }
     catch (Exception e) {
       throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
@@ -197,7 +236,18 @@ public class DefaultSqlSession implements SqlSession {
   public void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler handler) {
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);
-      executor.query(ms, wrapCollection(parameter), rowBounds, handler);
+      Object parameterObject = wrapCollection(parameter);
+      List<Object> chunks = ParameterChunks.split(ms, parameterObject);
+      if (chunks == null) {
+        executor.query(ms, parameterObject, rowBounds, handler);
+        return;
+      }
+      if (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET || rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT) {
+        throw new ExecutorException("Statement " + ms.getId() + " is executed in chunks: RowBounds are not supported with a ResultHandler.");
+      }
+      for (Object chunk : chunks) {
+        executor.query(ms, chunk, rowBounds, handler);
+      }
     }
     catch (Exception e) {
       throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
@@ -227,7 +277,18 @@ public class DefaultSqlSession implements SqlSession {
     try {
       dirty = true;
       MappedStatement ms = configuration.getMappedStatement(statement);
-      return executor.update(ms, wrapCollection(parameter));
+      Object parameterObject = wrapCollection(parameter);
+      List<Object> chunks = ParameterChunks.split(ms, parameterObject);
+      if (chunks == null) {
+        return executor.update(ms, parameterObject);
+      }
+      int count = 0;
+      for (Object chunk : chunks) {
+        int chunkCount = executor.update(ms, chunk);
+        // a batch executor returns a placeholder until the statements are flushed
+        count = chunkCount == BatchExecutor.BATCH_UPDATE_RETURN_VALUE ? chunkCount : count + chunkCount;
+      }
+      return count;
     }
     catch (Exception e) {
       throw ExceptionFactory.wrapException("Error updating database.  Cause: " + e, e);
@@ -331,7 +392,15 @@ public class DefaultSqlSession implements SqlSession {
 
   @Override
   public <T> T getMapper(Class<T> type) {
-    return configuration.getMapper(type, this);
+    if (mappers == null) {
+      mappers = new HashMap<Class<?>, Object>();
+    }
+    Object mapper = mappers.get(type);
+    if (mapper == null) {
+      mapper = configuration.getMapper(type, this);
+      mappers.put(type, mapper);
+    }
+    return type.cast(mapper);
   }
 
   @Override
@@ -362,6 +431,9 @@ public class DefaultSqlSession implements SqlSession {
 
   private Object wrapCollection(final Object object) {
     if (object instanceof Collection) {
+      if (configuration.isUseFixedParamMap()) {
+        return new FixedParamMap(object instanceof List ? LIST_NAMES : COLLECTION_NAMES, new Object[] { object });
+      }
       StrictMap<Object> map = new StrictMap<Object>();
       map.put("collection", object);
       if (object instanceof List) {
@@ -370,6 +442,9 @@ public class DefaultSqlSession implements SqlSession {
       return map;
     }
     else if (object != null && object.getClass().isArray()) {
+      if (configuration.isUseFixedParamMap()) {
+        return new FixedParamMap(ARRAY_NAMES, new Object[] { object });
+      }
       StrictMap<Object> map = new StrictMap<Object>();
       map.put("array", object);
       return map;
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The elements of a SQL <code>ARRAY</code> parameter, turned into a {@link java.sql.Array} by
+ * {@link ArrayTypeHandler} with the connection of the statement.
+ *
+ * @since 3.4.7
+ */
+public final class ArrayParameter implements Serializable {
+
+  private static final long serialVersionUID = 2370216127545263217L;
+
+  private final String typeName;
+
+  private final Object[] elements;
+
+  /**
+   * @param typeName the SQL type name of the elements, as given to {@link java.sql.Connection#createArrayOf(String, Object[])}
+   * @param elements the elements
+   */
+  public ArrayParameter(String typeName, Object[] elements) {
+    this.typeName = typeName;
+    this.elements = elements;
+  }
+
+  public String getTypeName() {
+    return typeName;
+  }
+
+  public Object[] getElements() {
+    return elements;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ArrayParameter)) {
+      return false;
+    }
+    ArrayParameter that = (ArrayParameter) o;
+    return typeName.equals(that.typeName) && Arrays.equals(elements, that.elements);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * typeName.hashCode() + Arrays.hashCode(elements);
+  }
+
+  @Override
+  public String toString() {
+    return typeName + Arrays.toString(elements);
+  }
+
+}
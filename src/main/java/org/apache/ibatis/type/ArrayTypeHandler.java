@@ -12,6 +12,8 @@
  */
 package org.apache.ibatis.type;
 
+import java.sql.Array;
+import java.io.Closeable;
 import java.sql.Array;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
@@ -27,9 +29,21 @@ public class ArrayTypeHandler extends BaseTypeHandler<Object> {
     super();
   }
 
+  /**
+   * Binds a {@link Array}, or creates one from an {@link ArrayParameter} with the connection of the statement.
+   * A created array is registered with {@link ParameterResources}, so the executor frees it with the statement.
+   */
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Object parameter, JdbcType jdbcType) throws SQLException {
-    ps.setArray(i, (Array) parameter);
+    if (parameter instanceof ArrayParameter) {
+      ArrayParameter elements = (ArrayParameter) parameter;
+      Array array = ps.getConnection().createArrayOf(elements.getTypeName(), elements.getElements());
+      ParameterResources.register(new CreatedArray(array));
+      ps.setArray(i, array);
+    }
+    else {
+      ps.setArray(i, (Array) parameter);
+    }
   }
 
   @Override
@@ -50,4 +64,23 @@ public class ArrayTypeHandler extends BaseTypeHandler<Object> {
     return array == null ? null : array.getArray();
   }
 
+  private static final class CreatedArray implements Closeable {
+
+    private final Array array;
+
+    CreatedArray(Array array) {
+      this.array = array;
+    }
+
+    @Override
+    public void close() {
+      try {
+        array.free();
+      }
+      catch (SQLException e) {
+        // not supported by the driver
+      }
+    }
+  }
+
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.nio.ByteBuffer;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Binary values as {@link ByteBuffer}s.
+ * <p>
+ * A parameter is streamed to the driver from its position to its limit, without being copied to
+ * a <code>byte[]</code> first; its position is left unchanged. A result up to the spill threshold
+ * is read on the heap. A larger one is written to a temporary file and returned as a read-only
+ * memory-mapped buffer, so reading a large document does not allocate its size on the heap.
+ *
+ * @since 3.4.7
+ */
+public class ByteBufferTypeHandler extends BaseTypeHandler<ByteBuffer> {
+
+  public static final int DEFAULT_SPILL_THRESHOLD = 1024 * 1024;
+
+  private volatile int spillThreshold = DEFAULT_SPILL_THRESHOLD;
+
+  public int getSpillThreshold() {
+    return spillThreshold;
+  }
+
+  /**
+   * @param spillThreshold results larger than this many bytes are spilled to a temporary file
+   */
+  public void setSpillThreshold(int spillThreshold) {
+    this.spillThreshold = spillThreshold;
+  }
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, ByteBuffer parameter, JdbcType jdbcType)
+      throws SQLException {
+    ByteBuffer buffer = parameter.duplicate();
+    ps.setBinaryStream(i, new LobFiles.ByteBufferInputStream(buffer), buffer.remaining());
+  }
+
+  @Override
+  public ByteBuffer getNullableResult(ResultSet rs, String columnName)
+      throws SQLException {
+    return toByteBuffer(rs.getBlob(columnName));
+  }
+
+  @Override
+  public ByteBuffer getNullableResult(ResultSet rs, int columnIndex)
+      throws SQLException {
+    return toByteBuffer(rs.getBlob(columnIndex));
+  }
+
+  @Override
+  public ByteBuffer getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    return toByteBuffer(cs.getBlob(columnIndex));
+  }
+
+  private ByteBuffer toByteBuffer(Blob blob) throws SQLException {
+    if (blob == null) {
+      return null;
+    }
+    return LobFiles.read(blob.getBinaryStream(), blob.length(), spillThreshold);
+  }
+
+}
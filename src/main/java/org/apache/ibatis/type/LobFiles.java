@@ -0,0 +1,235 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Temporary files holding LOB values too large to be kept on the heap.
+ */
+final class LobFiles {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private static final ReferenceQueue<ByteBuffer> releasedMappings = new ReferenceQueue<ByteBuffer>();
+
+  /**
+   * 映射期间无法删除的文件, 在映射被回收后删除
+   */
+  private static final Set<MappedFile> mappedFiles = Collections.synchronizedSet(new HashSet<MappedFile>());
+
+  /**
+   * 映射已回收但仍未能删除的文件, 之后再重试
+   */
+  private static final Set<File> releasedFiles = Collections.synchronizedSet(new HashSet<File>());
+
+  private LobFiles() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Copies a stream to a new temporary file. The stream is closed.
+   */
+  static File spill(InputStream in) {
+    deleteReleasedFiles();
+    File file = null;
+    try {
+      file = File.createTempFile("mybatis-lob", ".tmp");
+      OutputStream out = new FileOutputStream(file);
+      try {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+          out.write(buffer, 0, n);
+        }
+      }
+      finally {
+        out.close();
+      }
+      return file;
+    }
+    catch (IOException e) {
+      if (file != null && !file.delete()) {
+        file.deleteOnExit();
+      }
+      throw new TypeException("Error writing LOB to a temporary file. Cause: " + e, e);
+    }
+    finally {
+      closeQuietly(in);
+    }
+  }
+
+  /**
+   * Maps a temporary file in memory and deletes it: the mapping stays readable until it is
+   * garbage collected. On platforms that cannot delete a mapped file, the file is deleted by a
+   * later call once its mapping has been collected.
+   */
+  static ByteBuffer mapAndDelete(File file) {
+    deleteReleasedFiles();
+    ByteBuffer buffer = null;
+    try {
+      RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try {
+        long size = raf.length();
+        if (size > Integer.MAX_VALUE) {
+          throw new TypeException("LOB of " + size + " bytes is too large to be mapped in a ByteBuffer");
+        }
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return buffer;
+      }
+      finally {
+        raf.close();
+      }
+    }
+    catch (IOException e) {
+      throw new TypeException("Error mapping LOB temporary file " + file + ". Cause: " + e, e);
+    }
+    finally {
+      if (!file.delete()) {
+        if (buffer != null) {
+          mappedFiles.add(new MappedFile(buffer, file));
+        }
+        else {
+          releasedFiles.add(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes the files whose mapping has been garbage collected since the last call.
+   */
+  static void deleteReleasedFiles() {
+    MappedFile released;
+    while ((released = (MappedFile) releasedMappings.poll()) != null) {
+      mappedFiles.remove(released);
+      if (!released.file.delete()) {
+        // 映射可能尚未真正解除
+        releasedFiles.add(released.file);
+      }
+    }
+    if (!releasedFiles.isEmpty()) {
+      synchronized (releasedFiles) {
+        for (Iterator<File> it = releasedFiles.iterator(); it.hasNext(); ) {
+          File file = it.next();
+          if (file.delete() || !file.exists()) {
+            it.remove();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads <code>length</code> bytes on the heap when they fit under <code>threshold</code>, or
+   * spills them to a mapped temporary file. The stream is closed.
+   */
+  static ByteBuffer read(InputStream in, long length, int threshold) {
+    if (length > threshold) {
+      return mapAndDelete(spill(in));
+    }
+    try {
+      byte[] bytes = new byte[(int) length];
+      int offset = 0;
+      while (offset < bytes.length) {
+        int n = in.read(bytes, offset, bytes.length - offset);
+        if (n == -1) {
+          break;
+        }
+        offset += n;
+      }
+      return ByteBuffer.wrap(bytes, 0, offset);
+    }
+    catch (IOException e) {
+      throw new TypeException("Error reading LOB. Cause: " + e, e);
+    }
+    finally {
+      closeQuietly(in);
+    }
+  }
+
+  static void closeQuietly(InputStream in) {
+    try {
+      in.close();
+    }
+    catch (IOException e) {
+      // ignore
+    }
+  }
+
+  private static final class MappedFile extends PhantomReference<ByteBuffer> {
+
+    private final File file;
+
+    MappedFile(ByteBuffer buffer, File file) {
+      super(buffer, releasedMappings);
+      this.file = file;
+    }
+  }
+
+  /**
+   * Reads a buffer without copying it, from its position to its limit.
+   */
+  static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) {
+      int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Resources a type handler creates while setting a parameter and that must outlive the call,
+ * such as a stream the driver reads on execute.
+ * <p>
+ * The executor collects them while it parameterizes a statement and closes them together with the
+ * statement. A type handler used outside an executor has nothing to register with, and keeps
+ * whatever fallback it had.
+ *
+ * @since 3.4.7
+ */
+public final class ParameterResources {
+
+  /**
+   * 当前线程正在设置参数的Statement对应的资源列表, 只在parameterize期间存在
+   */
+  private static final ThreadLocal<List<Closeable>> collector = new ThreadLocal<List<Closeable>>();
+
+  private ParameterResources() {
+  }
+
+  /**
+   * Hands a resource to the statement currently being parameterized.
+   *
+   * @return false if no statement is being parameterized on this thread, the caller still owns the resource
+   */
+  public static boolean register(Closeable resource) {
+    List<Closeable> resources = collector.get();
+    if (resources == null) {
+      return false;
+    }
+    resources.add(resource);
+    return true;
+  }
+
+  /**
+   * Collects the resources registered on this thread into the given list until {@link #endCollecting(List)}.
+   *
+   * @return the list that was collecting before, to be restored
+   */
+  public static List<Closeable> beginCollecting(List<Closeable> resources) {
+    List<Closeable> previous = collector.get();
+    collector.set(resources);
+    return previous;
+  }
+
+  public static void endCollecting(List<Closeable> previous) {
+    if (previous == null) {
+      collector.remove();
+    }
+    else {
+      collector.set(previous);
+    }
+  }
+
+  /**
+   * Closes and forgets every resource of the list, ignoring failures.
+   */
+  public static void closeAll(List<Closeable> resources) {
+    for (Closeable resource : resources) {
+      try {
+        resource.close();
+      }
+      catch (IOException e) {
+        // ignore
+      }
+      catch (RuntimeException e) {
+        // ignore
+      }
+    }
+    resources.clear();
+  }
+
+}
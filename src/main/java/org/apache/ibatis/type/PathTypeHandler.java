@@ -0,0 +1,158 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.lang.UsesJava7;
+
+/**
+ * Binary values stored in files.
+ * <p>
+ * A parameter file is streamed to the driver, which never holds the whole content on the heap;
+ * the file is closed once its size has been read, or with the statement if the driver stops
+ * before (see {@link ParameterResources}). A result is written to a new temporary
+ * file whose path is returned: the caller owns that file and is responsible for deleting it.
+ *
+ * @since 3.4.7
+ */
+@UsesJava7
+public class PathTypeHandler extends BaseTypeHandler<Path> {
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, Path parameter, JdbcType jdbcType)
+      throws SQLException {
+    try {
+      long size = Files.size(parameter);
+      ClosingInputStream in = new ClosingInputStream(Files.newInputStream(parameter), size);
+      ParameterResources.register(in);
+      ps.setBinaryStream(i, in, size);
+    }
+    catch (IOException e) {
+      throw new TypeException("Error reading file " + parameter + ". Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Path getNullableResult(ResultSet rs, String columnName)
+      throws SQLException {
+    return toPath(rs.getBlob(columnName));
+  }
+
+  @Override
+  public Path getNullableResult(ResultSet rs, int columnIndex)
+      throws SQLException {
+    return toPath(rs.getBlob(columnIndex));
+  }
+
+  @Override
+  public Path getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    return toPath(cs.getBlob(columnIndex));
+  }
+
+  private Path toPath(Blob blob) throws SQLException {
+    if (blob == null) {
+      return null;
+    }
+    return LobFiles.spill(blob.getBinaryStream()).toPath();
+  }
+
+  /**
+   * Closes the file as soon as the driver has read the announced length or reached its end,
+   * as a driver does not have to close a parameter stream.
+   */
+  static final class ClosingInputStream extends InputStream {
+
+    private final InputStream in;
+
+    private long remaining;
+
+    private boolean closed;
+
+    ClosingInputStream(InputStream in, long length) {
+      this.in = in;
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (closed) {
+        return -1;
+      }
+      if (remaining <= 0) {
+        close();
+        return -1;
+      }
+      int b = in.read();
+      if (b == -1) {
+        close();
+      }
+      else if (--remaining == 0) {
+        close();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (closed) {
+        return -1;
+      }
+      if (len == 0) {
+        return 0;
+      }
+      if (remaining <= 0) {
+        close();
+        return -1;
+      }
+      int n = in.read(b, off, (int) Math.min(len, remaining));
+      if (n == -1) {
+        close();
+      }
+      else {
+        remaining -= n;
+        if (remaining == 0) {
+          close();
+        }
+      }
+      return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return closed ? 0 : (int) Math.min(in.available(), remaining);
+    }
+
+    boolean isClosed() {
+      return closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        in.close();
+      }
+    }
+  }
+
+}
@@ -19,6 +19,8 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -40,6 +42,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.ibatis.binding.FixedParamMap;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.io.ResolverUtil;
 import org.apache.ibatis.io.Resources;
@@ -57,7 +60,9 @@ public final class TypeHandlerRegistry {
 
   private final Map<Type, Map<JdbcType, TypeHandler<?>>> TYPE_HANDLER_MAP = new ConcurrentHashMap<Type, Map<JdbcType, TypeHandler<?>>>();
 
-  private final TypeHandler<Object> UNKNOWN_TYPE_HANDLER = new UnknownTypeHandler(this);
+  private final UnknownTypeHandler UNKNOWN_TYPE_HANDLER = new UnknownTypeHandler(this);
+
+  private final ByteBufferTypeHandler BYTE_BUFFER_TYPE_HANDLER = new ByteBufferTypeHandler();
 
   private final Map<Class<?>, TypeHandler<?>> ALL_TYPE_HANDLERS_MAP = new HashMap<Class<?>, TypeHandler<?>>();
 
@@ -129,6 +134,10 @@ public final class TypeHandlerRegistry {
     register(byte[].class, JdbcType.LONGVARBINARY, new BlobTypeHandler());
     register(JdbcType.LONGVARBINARY, new BlobTypeHandler());
     register(JdbcType.BLOB, new BlobTypeHandler());
+    register(ByteBuffer.class, BYTE_BUFFER_TYPE_HANDLER);
+    if (Jdk.fileApiExists) {
+      this.register(Path.class, PathTypeHandler.class);
+    }
 
     register(Object.class, UNKNOWN_TYPE_HANDLER);
     register(Object.class, JdbcType.OTHER, UNKNOWN_TYPE_HANDLER);
@@ -175,6 +184,19 @@ public final class TypeHandlerRegistry {
     this.defaultEnumTypeHandler = typeHandler;
   }
 
+  public int getLobSpillThreshold() {
+    return BYTE_BUFFER_TYPE_HANDLER.getSpillThreshold();
+  }
+
+  /**
+   * Sets the size above which the {@link ByteBuffer} results are spilled to memory-mapped temporary files.
+   *
+   * @since 3.4.7
+   */
+  public void setLobSpillThreshold(int bytes) {
+    BYTE_BUFFER_TYPE_HANDLER.setSpillThreshold(bytes);
+  }
+
   public boolean hasTypeHandler(Class<?> javaType) {
     return hasTypeHandler(javaType, null);
   }
@@ -217,7 +239,7 @@ public final class TypeHandlerRegistry {
 
   @SuppressWarnings("unchecked")
   private <T> TypeHandler<T> getTypeHandler(Type type, JdbcType jdbcType) {
-    if (ParamMap.class.equals(type)) {
+    if (ParamMap.class.equals(type) || FixedParamMap.class.equals(type)) {
       return null;
     }
     Map<JdbcType, TypeHandler<?>> jdbcHandlerMap = getJdbcHandlerMap(type);
@@ -384,6 +406,7 @@ public final class TypeHandlerRegistry {
         TYPE_HANDLER_MAP.put(javaType, map);
       }
       map.put(jdbcType, handler);
+      UNKNOWN_TYPE_HANDLER.clearCache();
     }
     ALL_TYPE_HANDLERS_MAP.put(handler.getClass(), handler);
   }
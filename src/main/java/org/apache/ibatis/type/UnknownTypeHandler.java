@@ -12,6 +12,7 @@
  */
 package org.apache.ibatis.type;
 
+import java.lang.ref.WeakReference;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -19,6 +20,8 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ibatis.io.Resources;
 
@@ -31,6 +34,18 @@ public class UnknownTypeHandler extends BaseTypeHandler<Object> {
 
   private TypeHandlerRegistry typeHandlerRegistry;
 
+  /**
+   * Handlers of the parameters bound without jdbc type, by runtime class. Cleared when a handler is registered.
+   */
+  private final ConcurrentMap<Class<?>, TypeHandler<?>> parameterHandlers = new ConcurrentHashMap<Class<?>, TypeHandler<?>>();
+
+  /**
+   * Handlers resolved from the metadata of the last result set read by the current thread, so that the
+   * following rows of the same result set skip the metadata. The value does not reference this handler
+   * or its registry.
+   */
+  private final ThreadLocal<ColumnHandlers> columnHandlers = new ThreadLocal<ColumnHandlers>();
+
   public UnknownTypeHandler(TypeHandlerRegistry typeHandlerRegistry) {
     this.typeHandlerRegistry = typeHandlerRegistry;
   }
@@ -52,10 +67,7 @@ public class UnknownTypeHandler extends BaseTypeHandler<Object> {
   @Override
   public Object getNullableResult(ResultSet rs, int columnIndex)
       throws SQLException {
-    TypeHandler<?> handler = resolveTypeHandler(rs.getMetaData(), columnIndex);
-    if (handler == null || handler instanceof UnknownTypeHandler) {
-      handler = OBJECT_TYPE_HANDLER;
-    }
+    TypeHandler<?> handler = getColumnHandler(rs, getColumnHandlers(rs), columnIndex);
     return handler.getResult(rs, columnIndex);
   }
 
@@ -65,46 +77,79 @@ public class UnknownTypeHandler extends BaseTypeHandler<Object> {
     return cs.getObject(columnIndex);
   }
 
+  /**
+   * Forgets the handlers resolved for parameter classes, called when the registry changes.
+   */
+  void clearCache() {
+    parameterHandlers.clear();
+  }
+
   private TypeHandler<? extends Object> resolveTypeHandler(Object parameter, JdbcType jdbcType) {
-    TypeHandler<? extends Object> handler;
     if (parameter == null) {
-      handler = OBJECT_TYPE_HANDLER;
+      return OBJECT_TYPE_HANDLER;
     }
-    else {
-      handler = typeHandlerRegistry.getTypeHandler(parameter.getClass(), jdbcType);
-      // check if handler is null (issue #270)
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        handler = OBJECT_TYPE_HANDLER;
-      }
+    if (jdbcType != null) {
+      return resolveParameterTypeHandler(parameter.getClass(), jdbcType);
+    }
+    Class<?> type = parameter.getClass();
+    TypeHandler<?> handler = parameterHandlers.get(type);
+    if (handler == null) {
+      handler = resolveParameterTypeHandler(type, null);
+      parameterHandlers.put(type, handler);
+    }
+    return handler;
+  }
+
+  private TypeHandler<?> resolveParameterTypeHandler(Class<?> type, JdbcType jdbcType) {
+    TypeHandler<?> handler = typeHandlerRegistry.getTypeHandler(type, jdbcType);
+    // check if handler is null (issue #270)
+    if (handler == null || handler instanceof UnknownTypeHandler) {
+      handler = OBJECT_TYPE_HANDLER;
     }
     return handler;
   }
 
   private TypeHandler<?> resolveTypeHandler(ResultSet rs, String column) {
     try {
-      Map<String, Integer> columnIndexLookup;
-      columnIndexLookup = new HashMap<String, Integer>();
-      ResultSetMetaData rsmd = rs.getMetaData();
-      int count = rsmd.getColumnCount();
-      for (int i = 1; i <= count; i++) {
-        String name = rsmd.getColumnName(i);
-        columnIndexLookup.put(name, i);
-      }
-      Integer columnIndex = columnIndexLookup.get(column);
-      TypeHandler<?> handler = null;
-      if (columnIndex != null) {
-        handler = resolveTypeHandler(rsmd, columnIndex);
-      }
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        handler = OBJECT_TYPE_HANDLER;
-      }
-      return handler;
+      ColumnHandlers handlers = getColumnHandlers(rs);
+      Integer columnIndex = handlers.indexOf(rs, column);
+      return columnIndex == null ? OBJECT_TYPE_HANDLER : getColumnHandler(rs, handlers, columnIndex);
     }
     catch (SQLException e) {
       throw new TypeException("Error determining JDBC type for column " + column + ".  Cause: " + e, e);
     }
   }
 
+  private ColumnHandlers getColumnHandlers(ResultSet rs) {
+    ColumnHandlers handlers = columnHandlers.get();
+    if (handlers == null || handlers.resultSet.get() != rs) {
+      handlers = new ColumnHandlers(rs);
+      columnHandlers.set(handlers);
+    }
+    return handlers;
+  }
+
+  private TypeHandler<?> getColumnHandler(ResultSet rs, ColumnHandlers handlers, int columnIndex) throws SQLException {
+    if (columnIndex < 1) {
+      // not cached, the driver reports the invalid index
+      return resolveColumnHandler(rs, columnIndex);
+    }
+    TypeHandler<?> handler = handlers.get(columnIndex);
+    if (handler == null) {
+      handler = resolveColumnHandler(rs, columnIndex);
+      handlers.put(columnIndex, handler);
+    }
+    return handler;
+  }
+
+  private TypeHandler<?> resolveColumnHandler(ResultSet rs, int columnIndex) throws SQLException {
+    TypeHandler<?> handler = resolveTypeHandler(rs.getMetaData(), columnIndex);
+    if (handler == null || handler instanceof UnknownTypeHandler) {
+      handler = OBJECT_TYPE_HANDLER;
+    }
+    return handler;
+  }
+
   private TypeHandler<?> resolveTypeHandler(ResultSetMetaData rsmd, Integer columnIndex) throws SQLException {
     TypeHandler<?> handler = null;
     JdbcType jdbcType = safeGetJdbcTypeForColumn(rsmd, columnIndex);
@@ -138,4 +183,57 @@ public class UnknownTypeHandler extends BaseTypeHandler<Object> {
       return null;
     }
   }
+
+  /**
+   * The columns of one result set and the handlers resolved for them so far.
+   * <p>
+   * Only a weak reference to the result set is kept, and no metadata: a thread that stops reading
+   * does not retain its last result set. Handlers are resolved on first use, column by column, by
+   * the enclosing handler, which is not referenced from here.
+   */
+  private static final class ColumnHandlers {
+
+    private final WeakReference<ResultSet> resultSet;
+
+    /**
+     * Column indexes by name, built on the first lookup by name
+     */
+    private Map<String, Integer> columnIndexLookup;
+
+    /**
+     * handlers[i] is the handler of the column i + 1, <code>null</code> until resolved
+     */
+    private TypeHandler<?>[] handlers = new TypeHandler<?>[8];
+
+    ColumnHandlers(ResultSet rs) {
+      this.resultSet = new WeakReference<ResultSet>(rs);
+    }
+
+    Integer indexOf(ResultSet rs, String column) throws SQLException {
+      if (columnIndexLookup == null) {
+        columnIndexLookup = new HashMap<String, Integer>();
+        ResultSetMetaData rsmd = rs.getMetaData();
+        int count = rsmd.getColumnCount();
+        for (int i = 1; i <= count; i++) {
+          String name = rsmd.getColumnName(i);
+          columnIndexLookup.put(name, i);
+        }
+      }
+      return columnIndexLookup.get(column);
+    }
+
+    TypeHandler<?> get(int columnIndex) {
+      return columnIndex > handlers.length ? null : handlers[columnIndex - 1];
+    }
+
+    void put(int columnIndex, TypeHandler<?> handler) {
+      if (columnIndex > handlers.length) {
+        TypeHandler<?>[] grown = new TypeHandler<?>[Math.max(columnIndex, handlers.length * 2)];
+        System.arraycopy(handlers, 0, grown, 0, handlers.length);
+        handlers = grown;
+      }
+      handlers[columnIndex - 1] = handler;
+    }
+  }
+
 }
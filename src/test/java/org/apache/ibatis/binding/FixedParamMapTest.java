@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class FixedParamMapTest {
+
+  interface Methods {
+
+    void named(@Param("id") Integer id, RowBounds rowBounds, @Param("name") String name);
+
+    void generic(@Param("param2") Integer id, @Param("name") String name);
+
+    void single(Integer id);
+
+  }
+
+  @Test
+  public void shouldAddTheGenericNamesAfterEachName() throws Exception {
+    Map<String, Object> params = namedParams("named", 1, RowBounds.DEFAULT, "jim");
+    assertEquals(Arrays.asList("id", "param1", "name", "param2"), new ArrayList<String>(params.keySet()));
+    assertEquals(1, params.get("param1"));
+    assertEquals("jim", params.get("param2"));
+
+    params = namedParams("generic", 1, "jim");
+    assertEquals(Arrays.asList("param2", "param1", "name"), new ArrayList<String>(params.keySet()));
+    assertEquals(1, params.get("param2"));
+
+    Map<String, Object> expected = new HashMap<String, Object>();
+    expected.put("param2", 1);
+    expected.put("param1", 1);
+    expected.put("name", "jim");
+    assertEquals(expected, params);
+  }
+
+  @Test
+  public void shouldPassAParamMapUnlessEnabled() throws Exception {
+    Method method = Methods.class.getMethod("named", Integer.class, RowBounds.class, String.class);
+    Object params = new ParamNameResolver(new Configuration(), method).getNamedParams(new Object[] { 1, null, "jim" });
+    assertTrue(params instanceof MapperMethod.ParamMap);
+    assertEquals(namedParams("named", 1, null, "jim"), params);
+  }
+
+  @Test
+  public void shouldPassASingleArgumentAsIs() throws Exception {
+    Method method = Methods.class.getMethod("single", Integer.class);
+    assertEquals(1, new ParamNameResolver(new Configuration(), method).getNamedParams(new Object[] { 1 }));
+  }
+
+  @Test
+  public void shouldThrowOnMissingKeys() throws Exception {
+    Map<String, Object> params = namedParams("named", 1, null, "jim");
+    params.remove("name");
+    assertFalse(params.containsKey("name"));
+    assertEquals(3, params.size());
+    try {
+      params.get("name");
+      fail();
+    }
+    catch (BindingException e) {
+      assertEquals("Parameter 'name' not found. Available parameters are [id, param1, param2]", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldKeepPutValues() throws Exception {
+    Map<String, Object> params = namedParams("named", 1, null, "jim");
+    assertEquals(1, params.put("id", 2));
+    assertNull(params.put("key", "generated"));
+    assertEquals(2, params.get("id"));
+    assertEquals(1, params.get("param1"));
+    assertEquals("generated", params.get("key"));
+    assertEquals(5, params.size());
+
+    Iterator<Map.Entry<String, Object>> iterator = params.entrySet().iterator();
+    iterator.next().setValue(3);
+    iterator.next();
+    iterator.remove();
+    assertEquals(3, params.get("id"));
+    assertFalse(params.containsKey("param1"));
+    params.clear();
+    assertTrue(params.isEmpty());
+  }
+
+  @Test
+  public void shouldBeSerializable() throws Exception {
+    Map<String, Object> params = namedParams("named", 1, null, "jim");
+    params.remove("param1");
+    params.put("key", "generated");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(params);
+    out.close();
+    Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    assertEquals(params, copy);
+    assertFalse(((Map<?, ?>) copy).containsKey("param1"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> namedParams(String methodName, Object... args) {
+    for (Method method : Methods.class.getMethods()) {
+      if (method.getName().equals(methodName)) {
+        Configuration configuration = new Configuration();
+        configuration.setUseFixedParamMap(true);
+        Map<String, Object> params = (Map<String, Object>) new ParamNameResolver(configuration, method).getNamedParams(args);
+        assertTrue(params instanceof FixedParamMap);
+        return params;
+      }
+    }
+    throw new IllegalArgumentException(methodName);
+  }
+
+}
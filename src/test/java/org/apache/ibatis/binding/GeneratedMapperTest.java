@@ -0,0 +1,174 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.executor.result.DefaultResultHandler;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class GeneratedMapperTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  public interface DefaultMethodMapper {
+
+    @Select("select id, username from author where id = #{id}")
+    Author selectAuthor(int id);
+
+    default String selectUsername(int id) {
+      return selectAuthor(id).getUsername();
+    }
+
+    int notBound();
+
+  }
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    DataSource dataSource = BaseDataTest.createBlogDataSource();
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DDL);
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DATA);
+    Configuration configuration = new Configuration(new Environment("Production", new JdbcTransactionFactory(), dataSource));
+    configuration.setUseGeneratedMappers(true);
+    configuration.getTypeAliasRegistry().registerAlias(Blog.class);
+    configuration.getTypeAliasRegistry().registerAlias(Post.class);
+    configuration.getTypeAliasRegistry().registerAlias(Author.class);
+    configuration.addMapper(BoundBlogMapper.class);
+    configuration.addMapper(BoundAuthorMapper.class);
+    configuration.addMapper(DefaultMethodMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @Test
+  public void shouldImplementMappersWithGeneratedClasses() {
+    SqlSession session = sqlSessionFactory.openSession();
+    SqlSession other = sqlSessionFactory.openSession();
+    try {
+      BoundBlogMapper mapper = session.getMapper(BoundBlogMapper.class);
+      assertFalse(Proxy.isProxyClass(mapper.getClass()));
+      assertTrue(mapper instanceof GeneratedMapper);
+      assertEquals(BoundBlogMapper.class.getName() + MapperClassGenerator.CLASS_NAME_SUFFIX, mapper.getClass().getName());
+      assertSame(mapper, session.getMapper(BoundBlogMapper.class));
+      BoundBlogMapper otherMapper = other.getMapper(BoundBlogMapper.class);
+      assertNotSame(mapper, otherMapper);
+      assertSame(mapper.getClass(), otherMapper.getClass());
+    }
+    finally {
+      other.close();
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldExecuteEachKindOfMethod() {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      BoundBlogMapper mapper = session.getMapper(BoundBlogMapper.class);
+      assertEquals(1, mapper.selectBlog(1).getId());
+      assertEquals(2, mapper.selectBlogs().size());
+      Map<Integer, Blog> blogs = mapper.selectBlogsAsMapById();
+      assertEquals(2, blogs.size());
+      assertTrue(mapper.selectRandom() > 0);
+
+      DefaultResultHandler handler = new DefaultResultHandler();
+      mapper.collectRangeBlogs(handler, new RowBounds(1, 1));
+      assertEquals(1, handler.getResultList().size());
+
+      Cursor<Blog> cursor = mapper.openRangeBlogs(RowBounds.DEFAULT);
+      assertTrue(cursor.iterator().hasNext());
+
+      BoundAuthorMapper authorMapper = session.getMapper(BoundAuthorMapper.class);
+      List<Post> posts = authorMapper.findPostsInArray(new Integer[] { 1, 3, 5 });
+      assertEquals(3, posts.size());
+      Author author = new Author(99, "generated", "******", "generated@mybatis.org", "bio", null);
+      assertEquals(1, authorMapper.insertAuthor(author));
+      session.rollback();
+    }
+    finally {
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldInvokeDefaultMethodsAndReportUnboundMethods() {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      DefaultMethodMapper mapper = session.getMapper(DefaultMethodMapper.class);
+      assertEquals("jim", mapper.selectUsername(101));
+      try {
+        mapper.notBound();
+        fail();
+      }
+      catch (BindingException e) {
+        assertTrue(e.getMessage().startsWith("Invalid bound statement (not found)"));
+      }
+    }
+    finally {
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldShareMapperMethodsWithProxies() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      session.getMapper(BoundBlogMapper.class).selectBlog(1);
+      configuration.setUseGeneratedMappers(false);
+      SqlSession proxySession = sqlSessionFactory.openSession();
+      try {
+        BoundBlogMapper proxy = proxySession.getMapper(BoundBlogMapper.class);
+        assertTrue(Proxy.isProxyClass(proxy.getClass()));
+        assertEquals(1, proxy.selectBlog(1).getId());
+        assertNotSame(proxy, session.getMapper(BoundBlogMapper.class));
+      }
+      finally {
+        proxySession.close();
+      }
+    }
+    finally {
+      configuration.setUseGeneratedMappers(true);
+      session.close();
+    }
+  }
+
+}
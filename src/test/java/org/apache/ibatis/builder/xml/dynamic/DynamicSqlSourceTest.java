@@ -16,6 +16,7 @@
 package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -29,6 +30,7 @@ import java.util.Map;
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
@@ -36,11 +38,14 @@ import org.apache.ibatis.scripting.xmltags.IfSqlNode;
 import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
 import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.type.ArrayParameter;
+import org.apache.ibatis.type.ArrayTypeHandler;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -342,6 +347,106 @@ public class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals(0, boundSql.getParameterMappings().size());
   }
 
+  @Test
+  public void shouldPadForEachToBucketSize() throws Exception {
+    final HashMap<String, Integer[]> parameterObject = new HashMap<String, Integer[]>() {{
+      put("array", new Integer[] {1, 2, 3});
+    }};
+    final String expected = "SELECT * FROM BLOG WHERE id in (  ? , ? , ? , ? )";
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE id in"),
+        new ForEachSqlNode(new Configuration(), mixedContents(
+            new TextSqlNode("#{item}")), "array", null, "item", "(", ")", ",", new int[] {2, 4, 8}, null));
+    BoundSql boundSql = source.getBoundSql(parameterObject);
+    assertEquals(expected, boundSql.getSql());
+    assertEquals(4, boundSql.getParameterMappings().size());
+    assertEquals(3, boundSql.getAdditionalParameter("__frch_item_3"));
+  }
+
+  @Test
+  public void shouldPadForEachToMultipleOfLargestBucket() throws Exception {
+    final HashMap<String, Integer[]> parameterObject = new HashMap<String, Integer[]>() {{
+      put("array", new Integer[] {1, 2, 3, 4, 5});
+    }};
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE id in"),
+        new ForEachSqlNode(new Configuration(), mixedContents(
+            new TextSqlNode("#{item}")), "array", null, "item", "(", ")", ",", new int[] {1, 2}, null));
+    BoundSql boundSql = source.getBoundSql(parameterObject);
+    assertEquals(6, boundSql.getParameterMappings().size());
+    assertEquals(5, boundSql.getAdditionalParameter("__frch_item_5"));
+  }
+
+  @Test
+  public void shouldBindForEachAsSingleArray() throws Exception {
+    final HashMap<String, Object> parameterObject = new HashMap<String, Object>() {{
+      put("list", Arrays.asList(1, 2, 3));
+    }};
+    final String expected = "SELECT * FROM BLOG WHERE id = ANY ( ? )";
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE id = ANY"),
+        new ForEachSqlNode(new Configuration(), mixedContents(
+            new TextSqlNode("#{item}")), "list", null, "item", "(", ")", ",", null, "INTEGER"));
+    BoundSql boundSql = source.getBoundSql(parameterObject);
+    assertEquals(expected, boundSql.getSql());
+    assertEquals(1, boundSql.getParameterMappings().size());
+    ParameterMapping mapping = boundSql.getParameterMappings().get(0);
+    assertTrue(mapping.getTypeHandler() instanceof ArrayTypeHandler);
+    assertEquals(new ArrayParameter("INTEGER", new Object[] {1, 2, 3}), boundSql.getAdditionalParameter(mapping.getProperty()));
+  }
+
+  @Test
+  public void shouldMapStaticForEachItemsByPosition() throws Exception {
+    final HashMap<String, Object> parameterObject = new HashMap<String, Object>() {{
+      put("beans", Arrays.asList(new Bean("a"), null, new Bean("c")));
+      put("id", 5);
+    }};
+    final String expected = "INSERT INTO BLOG (ID, POS) VALUES  (?, ?) , (?, ?) , (?, ?) WHERE ? > 0";
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("INSERT INTO BLOG (ID, POS) VALUES"),
+        new ForEachSqlNode(new Configuration(), mixedContents(
+            new StaticTextSqlNode("(#{bean.id}, #{i})")), "beans", "i", "bean", null, null, ","),
+        new StaticTextSqlNode("WHERE #{id} > 0"));
+    BoundSql boundSql = source.getBoundSql(parameterObject);
+    assertEquals(expected, boundSql.getSql());
+    List<ParameterMapping> mappings = boundSql.getParameterMappings();
+    assertEquals(7, mappings.size());
+    assertEquals(2, mappings.get(4).getElementIndex());
+    assertEquals(-1, mappings.get(6).getElementIndex());
+    assertEquals("id", mappings.get(6).getProperty());
+    // still readable by name, like the items bound one by one
+    assertEquals("c", boundSql.getAdditionalParameter(mappings.get(4).getProperty()));
+    assertEquals(2, boundSql.getAdditionalParameter(mappings.get(5).getProperty()));
+    assertEquals(null, boundSql.getAdditionalParameter(mappings.get(2).getProperty()));
+    assertTrue(boundSql.hasAdditionalParameter(mappings.get(0).getProperty()));
+  }
+
+  @Test
+  public void shouldMapForEachItemsNamedWithRegexCharactersByPosition() throws Exception {
+    final HashMap<String, Object> parameterObject = new HashMap<String, Object>() {{
+      put("beans", Arrays.asList(new Bean("a"), new Bean("b")));
+    }};
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("INSERT INTO BLOG (ID) VALUES"),
+        new ForEachSqlNode(new Configuration(), mixedContents(
+            new StaticTextSqlNode("(#{bean$.id})")), "beans", null, "bean$", null, null, ","));
+    BoundSql boundSql = source.getBoundSql(parameterObject);
+    assertEquals("INSERT INTO BLOG (ID) VALUES  (?) , (?)", boundSql.getSql());
+    assertEquals(1, boundSql.getParameterMappings().get(1).getElementIndex());
+    assertEquals("b", boundSql.getAdditionalParameter(boundSql.getParameterMappings().get(1).getProperty()));
+  }
+
+  @Test
+  public void shouldNotMapForEachItemsByPositionWhenContentsUseOtherParameters() throws Exception {
+    final HashMap<String, Object> parameterObject = new HashMap<String, Object>() {{
+      put("list", Arrays.asList(1, 2));
+      put("id", 5);
+    }};
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE"),
+        new ForEachSqlNode(new Configuration(), mixedContents(
+            new StaticTextSqlNode("(ID = #{item} AND AUTHOR = #{id})")), "list", null, "item", null, null, "OR"));
+    BoundSql boundSql = source.getBoundSql(parameterObject);
+    assertEquals("SELECT * FROM BLOG WHERE  (ID = ? AND AUTHOR = ?) OR (ID = ? AND AUTHOR = ?)", boundSql.getSql());
+    assertEquals(4, boundSql.getParameterMappings().size());
+    assertEquals(-1, boundSql.getParameterMappings().get(0).getElementIndex());
+    assertEquals(2, boundSql.getAdditionalParameter(boundSql.getParameterMappings().get(2).getProperty()));
+  }
+
   @Test
   public void shouldPerformStrictMatchOnForEachVariableSubstitution() throws Exception {
     final Map<String, Object> param = new HashMap<String, Object>();
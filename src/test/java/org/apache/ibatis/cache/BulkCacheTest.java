@@ -0,0 +1,109 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class BulkCacheTest {
+
+  private static Map<Object, Object> entries(int count) {
+    Map<Object, Object> entries = new LinkedHashMap<Object, Object>();
+    for (int i = 0; i < count; i++) {
+      entries.put(i, "value" + i);
+    }
+    return entries;
+  }
+
+  @Test
+  public void shouldPassBatchesThroughTheStandardDecorators() {
+    Cache cache = new CacheBuilder("default").readWrite(true).blocking(true).build();
+    assertTrue(cache instanceof BulkCache);
+    BulkCacheUtil.putAll(cache, entries(5));
+    assertEquals(5, cache.getSize());
+    Map<Object, Object> values = BulkCacheUtil.getAll(cache, Arrays.asList(0, 4, 9));
+    assertEquals(2, values.size());
+    assertEquals("value4", values.get(4));
+    BulkCacheUtil.removeAll(cache, Arrays.asList(0, 1));
+    assertEquals(3, cache.getSize());
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  public void shouldEvictLikeSinglePutsWithLru() {
+    Cache cache = new CacheBuilder("default").size(3).build();
+    cache.putObject("old", "old");
+    BulkCacheUtil.putAll(cache, entries(4));
+    assertEquals(3, cache.getSize());
+    assertNull(cache.getObject("old"));
+    assertNull(cache.getObject(0));
+    assertEquals("value3", cache.getObject(3));
+  }
+
+  @Test
+  public void shouldEvictLikeSinglePutsWithFifo() {
+    FifoCache cache = new FifoCache(new PerpetualCache("default"));
+    cache.setSize(3);
+    cache.putAll(entries(4));
+    assertEquals(3, cache.getSize());
+    assertNull(cache.getObject(0));
+    assertEquals("value1", cache.getObject(1));
+  }
+
+  @Test
+  public void shouldFallBackToSingleCalls() {
+    Cache cache = new LoggingCache(new WeakCache(new PerpetualCache("default")));
+    BulkCacheUtil.putAll(cache, entries(3));
+    assertEquals(3, BulkCacheUtil.getAll(cache, Arrays.asList(0, 1, 2)).size());
+    BulkCacheUtil.removeAll(cache, Arrays.asList(0, 1, 2));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldCommitTransactionalEntriesInOneBatch() {
+    final int[] batches = new int[1];
+    PerpetualCache delegate = new PerpetualCache("default") {
+      @Override
+      public void putAll(Map<?, ?> entries) {
+        batches[0]++;
+        super.putAll(entries);
+      }
+    };
+    TransactionalCache txCache = new TransactionalCache(delegate);
+    assertNull(txCache.getObject("missed"));
+    for (Map.Entry<Object, Object> entry : entries(10).entrySet()) {
+      txCache.putObject(entry.getKey(), entry.getValue());
+    }
+    txCache.commit();
+    assertEquals(1, batches[0]);
+    assertEquals(11, delegate.getSize());
+    assertNull(delegate.getObject("missed"));
+  }
+
+}
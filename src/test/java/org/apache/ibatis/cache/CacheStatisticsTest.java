@@ -0,0 +1,193 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.statistics.CacheStatistics;
+import org.apache.ibatis.cache.statistics.CacheStatisticsListener;
+import org.apache.ibatis.cache.statistics.CacheStatisticsRegistry;
+import org.apache.ibatis.cache.statistics.EvictionCause;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheStatisticsTest {
+
+  private CacheStatisticsRegistry registry;
+
+  @Before
+  public void setUp() {
+    registry = new CacheStatisticsRegistry();
+    registry.setEnabled(true);
+  }
+
+  @After
+  public void tearDown() {
+    registry.unregisterMBeans();
+  }
+
+  @Test
+  public void shouldCountHitsMissesPutsAndClears() {
+    Cache cache = new CacheBuilder("counts").statisticsRegistry(registry).build();
+    CacheStatistics statistics = registry.getStatistics("counts");
+    cache.putObject("a", "A");
+    cache.getObject("a");
+    cache.getObject("a");
+    cache.getObject("b");
+    cache.clear();
+    assertEquals(2, statistics.getHitCount());
+    assertEquals(1, statistics.getMissCount());
+    assertEquals(2d / 3, statistics.getHitRatio(), 0.0001);
+    assertEquals(1, statistics.getPutCount());
+    assertEquals(1, statistics.getClearCount());
+    assertEquals(0, statistics.getEntryCount());
+  }
+
+  @Test
+  public void shouldCountEvictionsByCause() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("timeToLive", "20");
+    Cache cache = new CacheBuilder("evictions").addDecorator(FifoCache.class).size(2)
+        .properties(properties).statisticsRegistry(registry).build();
+    CacheStatistics statistics = registry.getStatistics("evictions");
+    for (int i = 0; i < 3; i++) {
+      cache.putObject(i, i);
+    }
+    cache.removeObject(2);
+    cache.removeObject("absent");
+    Thread.sleep(40);
+    assertNull(cache.getObject(1));
+    assertEquals(1, statistics.getSizeEvictionCount());
+    assertEquals(1, statistics.getInvalidationCount());
+    assertEquals(1, statistics.getExpiredEvictionCount());
+    assertEquals(2, statistics.getEvictionCount());
+    assertEquals(0, statistics.getEntryCount());
+  }
+
+  @Test
+  public void shouldEstimateTheSizeOfTheEntries() {
+    Cache cache = new CacheBuilder("bytes").statisticsRegistry(registry).build();
+    CacheStatistics statistics = registry.getStatistics("bytes");
+    assertEquals(-1, statistics.getEstimatedBytes());
+    List<String> rows = new ArrayList<String>();
+    for (int i = 0; i < 100; i++) {
+      rows.add("row " + i);
+    }
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, rows);
+    }
+    assertTrue(statistics.getEstimatedBytes() > 10 * 100 * 4);
+  }
+
+  @Test
+  public void shouldNotifyListenersAndExposeAnMBean() throws Exception {
+    final List<String> events = new ArrayList<String>();
+    registry.addListener(new CacheStatisticsListener() {
+      @Override
+      public void hit(String cacheId) {
+        events.add("hit " + cacheId);
+      }
+
+      @Override
+      public void miss(String cacheId) {
+        events.add("miss " + cacheId);
+      }
+
+      @Override
+      public void put(String cacheId) {
+        events.add("put " + cacheId);
+      }
+
+      @Override
+      public void evicted(String cacheId, EvictionCause cause, int count) {
+        events.add(cause + " " + count);
+      }
+
+      @Override
+      public void cleared(String cacheId) {
+        events.add("clear " + cacheId);
+      }
+
+      @Override
+      public void loaded(String cacheId, long nanos) {
+        events.add("load " + cacheId);
+      }
+    });
+    Cache cache = new CacheBuilder("jmx").size(1).statisticsRegistry(registry).build();
+    cache.getObject("a");
+    cache.putObject("a", "A");
+    cache.putObject("b", "B");
+    cache.getObject("b");
+    registry.getStatistics("jmx").recordLoad(1000);
+    assertEquals(Arrays.asList("miss jmx", "put jmx", "SIZE 1", "put jmx", "hit jmx", "load jmx"), events);
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = registry.getObjectName("jmx");
+    assertEquals(new ObjectName("org.apache.ibatis.cache:type=CacheStatistics,registry=" + registry.getRegistryId() + ",name=\"jmx\""), name);
+    assertEquals(2L, server.getAttribute(name, "PutCount"));
+    assertEquals(1L, server.getAttribute(name, "SizeEvictionCount"));
+    assertEquals(1, server.getAttribute(name, "EntryCount"));
+    assertEquals(1L, server.getAttribute(name, "LoadCount"));
+  }
+
+  @Test
+  public void shouldKeepTheMBeansOfOtherRegistries() {
+    new CacheBuilder("shared").statisticsRegistry(registry).build();
+    CacheStatisticsRegistry other = new CacheStatisticsRegistry();
+    other.setEnabled(true);
+    new CacheBuilder("shared").statisticsRegistry(other).build();
+    ObjectName otherName = other.getObjectName("shared");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    assertTrue(server.isRegistered(registry.getObjectName("shared")));
+    assertTrue(server.isRegistered(otherName));
+    other.unregisterMBeans();
+    assertFalse(server.isRegistered(otherName));
+    assertTrue(server.isRegistered(registry.getObjectName("shared")));
+  }
+
+  @Test
+  public void shouldCountOnlyTheKeysActuallyRemoved() {
+    Cache cache = new CacheBuilder("bulk").statisticsRegistry(registry).build();
+    cache.putObject("a", "A");
+    cache.putObject("b", "B");
+    BulkCacheUtil.removeAll(cache, Arrays.asList("a", "x", "y"));
+    assertEquals(1, registry.getStatistics("bulk").getInvalidationCount());
+    assertNull(cache.getObject("a"));
+  }
+
+  @Test
+  public void shouldNotInstrumentCachesWhenDisabled() {
+    registry.setEnabled(false);
+    new CacheBuilder("disabled").statisticsRegistry(registry).build();
+    assertNull(registry.getStatistics("disabled"));
+  }
+
+}
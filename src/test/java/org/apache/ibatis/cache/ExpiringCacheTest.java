@@ -0,0 +1,98 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+public class ExpiringCacheTest {
+
+  @Test
+  public void shouldExpireEachEntryOnItsOwn() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(200);
+    cache.putObject("old", "old");
+    Thread.sleep(120);
+    cache.putObject("new", "new");
+    Thread.sleep(120);
+    assertNull(cache.getObject("old"));
+    assertEquals("new", cache.getObject("new"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldRemoveEntries() {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.removeObject("key"));
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  public void shouldRefreshHotEntriesAhead() throws Exception {
+    final ExpiringCache expiringCache = new ExpiringCache(new PerpetualCache("default"));
+    expiringCache.setTimeToLive(60000);
+    expiringCache.setRefreshAhead(0.000001);
+    expiringCache.setRefreshHits(2);
+    final Cache cache = new SynchronizedCache(expiringCache);
+    final CountDownLatch reloaded = new CountDownLatch(1);
+    CacheEntryLoader loader = new CacheEntryLoader() {
+      @Override
+      public void reload(Object key) {
+        expiringCache.setLoader(key, this);
+        cache.putObject(key, "refreshed");
+        reloaded.countDown();
+      }
+    };
+    expiringCache.setLoader("key", loader);
+    cache.putObject("key", "value");
+    Thread.sleep(10);
+    assertEquals("value", cache.getObject("key"));
+    assertEquals(1, reloaded.getCount());
+    // second read: hot enough
+    assertEquals("value", cache.getObject("key"));
+    assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+    assertEquals("refreshed", cache.getObject("key"));
+  }
+
+  @Test
+  public void shouldNotRefreshEntriesWithoutLoader() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setRefreshAhead(0.000001);
+    cache.setLoader("key", new CacheEntryLoader() {
+      @Override
+      public void reload(Object key) {
+        throw new IllegalStateException();
+      }
+    });
+    // released by a rollback
+    cache.removeObject("key");
+    cache.putObject("key", "value");
+    Thread.sleep(10);
+    assertEquals("value", cache.getObject("key"));
+    assertEquals("value", cache.getObject("key"));
+  }
+
+}
@@ -0,0 +1,134 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.MemoryPressureCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MemoryPressureCacheTest {
+
+  private CacheMemoryMonitor monitor;
+
+  @Before
+  public void setUp() {
+    monitor = new CacheMemoryMonitor(new double[] { 0.999, 0.99 }, 0.25);
+  }
+
+  @After
+  public void tearDown() {
+    monitor.close();
+  }
+
+  @Test
+  public void shouldRemoveLeastRecentlyUsedEntries() {
+    MemoryPressureCache cache = new MemoryPressureCache(new PerpetualCache("default"), monitor);
+    for (int i = 0; i < 4; i++) {
+      cache.putObject(i, i);
+    }
+    cache.getObject(0);
+    assertEquals(2, cache.shrink(0.5));
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNull(cache.getObject(2));
+    assertNotNull(cache.getObject(3));
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  public void shouldShrinkAccordingToCrossedThresholds() {
+    MemoryPressureCache small = new MemoryPressureCache(new PerpetualCache("small"), monitor);
+    MemoryPressureCache big = new MemoryPressureCache(new PerpetualCache("big"), monitor);
+    for (int i = 0; i < 100; i++) {
+      big.putObject(i, i);
+      if (i < 20) {
+        small.putObject(i, i);
+      }
+    }
+    assertEquals(0, monitor.memoryUsed(0.5));
+    assertEquals(30, monitor.memoryUsed(0.995));
+    assertEquals(15, small.getSize());
+    assertEquals(75, big.getSize());
+    // both thresholds crossed: half of the remaining entries, rounded up
+    assertEquals(46, monitor.memoryUsed(1.0));
+    assertEquals(7, small.getSize());
+    assertEquals(37, big.getSize());
+    assertEquals(2, monitor.getShrinkCount());
+    assertEquals(76, monitor.getEvictedCount());
+  }
+
+  @Test
+  public void shouldTrackEntriesEvictedByTheEvictionPolicy() {
+    Cache cache = new CacheBuilder("default").size(10).memoryMonitor(monitor).build();
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(10, cache.getSize());
+    assertEquals(5, monitor.memoryUsed(1.0));
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  public void shouldRemoveShrunkEntriesFromTheEvictionPolicy() {
+    Cache cache = new CacheBuilder("default").addDecorator(FifoCache.class).size(10).memoryMonitor(monitor).build();
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    for (int i = 0; i < 5; i++) {
+      cache.getObject(i);
+    }
+    assertEquals(5, monitor.shrink(0.5));
+    for (int i = 10; i < 15; i++) {
+      cache.putObject(i, i);
+    }
+    // the shrunk keys no longer count against the size of the FIFO queue
+    assertEquals(10, cache.getSize());
+    assertNotNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldUpdateTheMonitorOfBuiltCaches() {
+    Configuration configuration = new Configuration();
+    try {
+      configuration.setCacheMemoryThresholds(new double[] { 0.999 });
+      CacheMemoryMonitor current = configuration.getCacheMemoryMonitor();
+      Cache cache = new CacheBuilder("default").memoryMonitor(current).build();
+      for (int i = 0; i < 8; i++) {
+        cache.putObject(i, i);
+      }
+      configuration.setCacheMemoryShrinkRatio(0.5);
+      configuration.setCacheMemoryThresholds(new double[] { 0.99, 0.995 });
+      assertSame(current, configuration.getCacheMemoryMonitor());
+      assertEquals(0.99, current.getThresholds()[0], 0);
+      assertEquals(4, current.memoryUsed(0.992));
+      assertEquals(4, cache.getSize());
+    }
+    finally {
+      configuration.close();
+    }
+  }
+
+}
@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.NegativeResultCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+public class NegativeResultCacheTest {
+
+  @Test
+  public void shouldKeepEmptyResultsOutOfTheEvictionPolicy() {
+    LruCache lru = new LruCache(new PerpetualCache("default"));
+    lru.setSize(2);
+    NegativeResultCache cache = new NegativeResultCache(lru);
+    NegativeResult negative = new NegativeResult("exists", 60000, 10);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject("absent" + i, negative);
+    }
+    cache.putObject("a", "A");
+    cache.putObject("b", "B");
+    assertEquals("A", cache.getObject("a"));
+    assertEquals("B", cache.getObject("b"));
+    assertSame(negative, cache.getObject("absent0"));
+    assertEquals(2, lru.getSize());
+    assertEquals(5, cache.getNegativeSize());
+    assertEquals(7, cache.getSize());
+  }
+
+  @Test
+  public void shouldBoundEachStatementSeparately() {
+    NegativeResultCache cache = new NegativeResultCache(new PerpetualCache("default"));
+    NegativeResult small = new NegativeResult("small", 60000, 2);
+    NegativeResult large = new NegativeResult("large", 60000, 10);
+    for (int i = 0; i < 4; i++) {
+      cache.putObject("small" + i, small);
+      cache.putObject("large" + i, large);
+    }
+    assertNull(cache.getObject("small0"));
+    assertNull(cache.getObject("small1"));
+    assertSame(small, cache.getObject("small3"));
+    assertSame(large, cache.getObject("large0"));
+    assertEquals(6, cache.getNegativeSize());
+  }
+
+  @Test
+  public void shouldExpireEmptyResults() throws Exception {
+    NegativeResultCache cache = new NegativeResultCache(new PerpetualCache("default"));
+    cache.putObject("absent", new NegativeResult("exists", 10, 10));
+    Thread.sleep(30);
+    assertNull(cache.getObject("absent"));
+    assertEquals(0, cache.getNegativeSize());
+  }
+
+  @Test
+  public void shouldReplaceEntriesBothWays() {
+    PerpetualCache delegate = new PerpetualCache("default");
+    NegativeResultCache cache = new NegativeResultCache(delegate);
+    NegativeResult negative = new NegativeResult("exists", 60000, 10);
+    cache.putObject("key", "value");
+    cache.putObject("key", negative);
+    assertNull(delegate.getObject("key"));
+    assertSame(negative, cache.getObject("key"));
+    // a released miss keeps the empty result
+    cache.putObject("key", null);
+    assertSame(negative, cache.getObject("key"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    assertEquals(0, cache.getNegativeSize());
+  }
+
+  @Test
+  public void shouldRemoveAndClearEmptyResults() {
+    NegativeResultCache cache = new NegativeResultCache(new PerpetualCache("default"));
+    NegativeResult negative = new NegativeResult("exists", 60000, 10);
+    cache.putAll(Collections.singletonMap("absent", negative));
+    cache.putObject("other", negative);
+    cache.putObject("key", "value");
+    Map<Object, Object> values = cache.getAll(Arrays.asList("absent", "key", "missing"));
+    assertSame(negative, values.get("absent"));
+    assertEquals("value", values.get("key"));
+    assertSame(negative, cache.removeObject("absent"));
+    assertNull(cache.getObject("absent"));
+    cache.clear();
+    assertNull(cache.getObject("other"));
+    assertEquals(0, cache.getSize());
+  }
+
+}
@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class SerializedCacheTest {
+
+  @Test
+  public void shouldCompressLargeValues() {
+    PerpetualCache delegate = new PerpetualCache("default");
+    SerializedCache cache = new SerializedCache(delegate);
+    cache.setCompressionThreshold(256);
+    List<String> rows = new ArrayList<String>();
+    for (int i = 0; i < 100; i++) {
+      rows.add("A text heavy row that repeats itself quite a lot #" + i);
+    }
+    cache.putObject("rows", rows);
+    assertEquals(rows, cache.getObject("rows"));
+    assertNotSame(rows, cache.getObject("rows"));
+    assertEquals(1, cache.getCompressedCount());
+    assertEquals(((byte[]) delegate.getObject("rows")).length, cache.getCompressedBytes());
+    assertTrue(cache.getCompressionRatio() < 0.3);
+    assertTrue(cache.getCompressionNanos() > 0);
+    assertTrue(cache.getDecompressionNanos() > 0);
+  }
+
+  @Test
+  public void shouldKeepSmallAndIncompressibleValuesUncompressed() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.setCompressionThreshold(256);
+    byte[] random = new byte[4096];
+    new Random(1).nextBytes(random);
+    cache.putObject("small", "small");
+    cache.putObject("random", random);
+    assertEquals("small", cache.getObject("small"));
+    assertArrayEquals(random, (byte[]) cache.getObject("random"));
+    assertEquals(0, cache.getCompressedCount());
+    assertEquals(2, cache.getUncompressedCount());
+    assertEquals(1d, cache.getCompressionRatio(), 0d);
+  }
+
+  @Test
+  public void shouldReadValuesWrittenBeforeTheCompressionWasEnabled() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"));
+    List<String> rows = Collections.nCopies(200, "row");
+    cache.putObject("rows", new ArrayList<String>(rows));
+    cache.setCompressionThreshold(16);
+    cache.putObject("compressed", new ArrayList<String>(rows));
+    assertEquals(rows, cache.getObject("rows"));
+    assertEquals(rows, cache.getObject("compressed"));
+    assertEquals(1, cache.getCompressedCount());
+  }
+
+  @Test
+  public void shouldCompressAgainAfterTheCacheWasCleared() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.setCompressionThreshold(16);
+    List<String> rows = Collections.nCopies(200, "row");
+    cache.putObject("rows", new ArrayList<String>(rows));
+    assertEquals(rows, cache.getObject("rows"));
+    cache.clear();
+    cache.putObject("rows", new ArrayList<String>(rows));
+    assertEquals(rows, cache.getObject("rows"));
+    // compressed values stay readable once the compression is disabled
+    cache.setCompressionThreshold(0);
+    assertEquals(rows, cache.getObject("rows"));
+    assertEquals(2, cache.getCompressedCount());
+  }
+
+  @Test
+  public void shouldSetTheThresholdFromTheCacheProperties() {
+    Properties properties = new Properties();
+    properties.setProperty("compressionThreshold", "1024");
+    Cache cache = new CacheBuilder("default").readWrite(true).properties(properties).build();
+    List<String> rows = Collections.nCopies(1000, "row");
+    cache.putObject("rows", new ArrayList<String>(rows));
+    assertEquals(rows, cache.getObject("rows"));
+  }
+
+}
@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.SingleFlightCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.After;
+import org.junit.Test;
+
+public class SingleFlightCacheTest {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private Future<Object> getInOtherThread(final Cache cache, final Object key) {
+    return executor.submit(new Callable<Object>() {
+      @Override
+      public Object call() {
+        return cache.getObject(key);
+      }
+    });
+  }
+
+  @Test
+  public void shouldLetWaitersGetTheLoadedValue() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    assertEquals(1, cache.getInFlightCount());
+    Future<Object> waiter = getInOtherThread(cache, "key");
+    Thread.sleep(100);
+    assertTrue(!waiter.isDone());
+    cache.putObject("key", "value");
+    assertEquals("value", waiter.get(5, TimeUnit.SECONDS));
+    assertEquals(0, cache.getInFlightCount());
+  }
+
+  @Test
+  public void shouldHandOverTheLoadWhenReleased() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    Future<Object> waiter = getInOtherThread(cache, "key");
+    Thread.sleep(100);
+    cache.removeObject("key");
+    assertNull(waiter.get(5, TimeUnit.SECONDS));
+    // the waiter now owns the load
+    assertEquals(1, cache.getInFlightCount());
+  }
+
+  @Test
+  public void shouldReleaseTheLoadOfASessionCommittingOnAnotherThread() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    TransactionalCache session = new TransactionalCache(cache);
+    assertNull(getInOtherThread(session, "key").get(5, TimeUnit.SECONDS));
+    assertEquals(1, cache.getInFlightCount());
+
+    Future<Object> waiter = getInOtherThread(cache, "key");
+    Thread.sleep(100);
+    assertTrue(!waiter.isDone());
+    session.putObject("key", "value");
+    session.commit();
+    assertEquals("value", waiter.get(5, TimeUnit.SECONDS));
+    assertEquals(0, cache.getInFlightCount());
+  }
+
+  @Test
+  public void shouldReleaseTheLoadOfASessionRollingBackOnAnotherThread() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    TransactionalCache session = new TransactionalCache(cache);
+    assertNull(getInOtherThread(session, "key").get(5, TimeUnit.SECONDS));
+
+    session.rollback();
+    assertEquals(0, cache.getInFlightCount());
+    assertNull(getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldStopWaitingAtTheDeadline() throws Exception {
+    SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    cache.setTimeout(100);
+    assertNull(cache.getObject("key"));
+    long start = System.currentTimeMillis();
+    assertNull(getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+    assertTrue(System.currentTimeMillis() - start >= 100);
+    // still owned by this thread
+    cache.putObject("key", "value");
+    assertEquals("value", getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldNotWaitForItself() {
+    SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    assertNull(cache.getObject("key"));
+    assertEquals(1, cache.getInFlightCount());
+  }
+
+  @Test
+  public void shouldAbandonTheLoadOfADeadThread() throws Exception {
+    final SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    Thread loader = new Thread() {
+      @Override
+      public void run() {
+        cache.getObject("key");
+      }
+    };
+    loader.start();
+    loader.join();
+    assertEquals(1, cache.getInFlightCount());
+    assertNull(cache.getObject("key"));
+    assertEquals(1, cache.getInFlightCount());
+    cache.putObject("key", "value");
+    assertEquals(0, cache.getInFlightCount());
+  }
+
+  @Test
+  public void shouldRemoveEntries() {
+    SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    assertEquals("value", cache.removeObject("key"));
+    assertNull(cache.getObject("key"));
+  }
+
+}
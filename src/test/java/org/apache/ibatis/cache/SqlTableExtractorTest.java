@@ -0,0 +1,82 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SqlTableExtractorTest {
+
+  private static Set<String> tables(String... names) {
+    return new HashSet<String>(Arrays.asList(names));
+  }
+
+  private static Set<String> extract(String sql) {
+    return new HashSet<String>(SqlTableExtractor.extractTables(sql));
+  }
+
+  @Test
+  public void shouldExtractSelectTables() {
+    assertEquals(tables("users"), extract("select * from users where id = ?"));
+    assertEquals(tables("users", "orders"), extract("SELECT u.id FROM Users u, orders o WHERE u.id = o.user_id"));
+    assertEquals(tables("users", "orders", "items"),
+        extract("select * from users u join orders o on u.id = o.user_id left outer join items i on i.id = o.item_id"));
+    assertEquals(tables("users", "orders"), extract("select * from users where id in (select user_id from orders)"));
+    assertEquals(tables("users", "orders"), extract("select * from (select * from users) u, orders o"));
+  }
+
+  @Test
+  public void shouldExtractWrittenTables() {
+    assertEquals(tables("users"), extract("insert into users (id, name) values (?, ?)"));
+    assertEquals(tables("users"), extract("update users set name = ?, age = ? where id = ?"));
+    assertEquals(tables("users"), extract("delete from users where id = ?"));
+    assertEquals(tables("users", "archive"), extract("insert into archive select * from users"));
+    assertEquals(tables("users"), extract("truncate table users"));
+  }
+
+  @Test
+  public void shouldNormalizeNames() {
+    assertEquals(tables("users"), extract("select * from \"PUBLIC\".\"USERS\""));
+    assertEquals(tables("users"), extract("select * from `app`.`users`"));
+    assertEquals(tables("users"), extract("select * from [dbo].[Users]"));
+  }
+
+  @Test
+  public void shouldIgnoreStringsAndComments() {
+    assertEquals(tables("users"), extract("select 'from orders' from users -- from items\n where 1 = 1 /* join stock */"));
+  }
+
+  @Test
+  public void shouldReturnEmptySetWhenUnknown() {
+    assertTrue(extract("{call do_something(?)}").isEmpty());
+  }
+
+  @Test
+  public void shouldNormalizeDeclaredTables() {
+    assertEquals(tables("users", "orders"), SqlTableExtractor.normalizeAll(" Users , dbo.ORDERS"));
+    assertNull(SqlTableExtractor.normalizeAll(" "));
+    assertEquals(Collections.singleton("users"), new SqlTableExtractor().getTables("select * from users"));
+  }
+
+}
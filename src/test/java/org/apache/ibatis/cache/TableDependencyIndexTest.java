@@ -0,0 +1,75 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class TableDependencyIndexTest {
+
+  private final TableDependencyIndex index = new TableDependencyIndex();
+
+  @Test
+  public void shouldForgetEntriesEvictedBySize() {
+    Cache cache = new CacheBuilder("users").size(2).tableDependencyIndex(index).build();
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+      index.register(cache, i, Collections.singleton("users"));
+    }
+    assertEquals(2, index.getEntryCount(cache));
+
+    index.invalidate(Collections.singleton("users"));
+    assertEquals(0, index.getEntryCount(cache));
+    assertNull(cache.getObject(3));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  public void shouldNotClearCacheWhenEvictionsKeepItUnderTheLimit() {
+    index.setMaxEntriesPerCache(3);
+    Cache cache = new CacheBuilder("users").size(3).tableDependencyIndex(index).build();
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+      index.register(cache, i, Collections.singleton("users"));
+    }
+    assertNotNull(cache.getObject(9));
+    assertEquals(3, cache.getSize());
+  }
+
+  @Test
+  public void shouldInvalidateEntryReadFromSeveralTablesOnce() {
+    Cache cache = new CacheBuilder("users").tableDependencyIndex(index).build();
+    cache.putObject("join", "value");
+    index.register(cache, "join", new HashSet<String>(Arrays.asList("users", "roles")));
+    cache.putObject("roles", "value");
+    index.register(cache, "roles", Collections.singleton("roles"));
+    assertEquals(2, index.getEntryCount(cache));
+
+    index.invalidate(Collections.singleton("users"));
+    assertNull(cache.getObject("join"));
+    assertNotNull(cache.getObject("roles"));
+    assertEquals(1, index.getEntryCount(cache));
+  }
+
+}
@@ -0,0 +1,162 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.parameter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.junit.Test;
+
+public class ParameterBinderTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  public void shouldBindBeanPropertiesAndPaths() throws Exception {
+    MappedStatement ms = staticStatement(mapping("id"), mapping("author.username"), mapping("title"));
+    Blog blog = new Blog(1, "Title", new Author(2, "jim", null, null, null, null), new ArrayList<Post>());
+    PreparedStatement ps = bind(ms, blog);
+    verify(ps).setInt(1, 1);
+    verify(ps).setString(2, "jim");
+    verify(ps).setString(3, "Title");
+    verifyNoMoreInteractions(ps);
+  }
+
+  @Test
+  public void shouldBindMapEntriesTheParameterItselfAndNulls() throws Exception {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("name", "jim");
+    PreparedStatement ps = bind(staticStatement(mapping("name"), mapping("missing")), map);
+    verify(ps).setString(1, "jim");
+    verify(ps).setNull(2, Types.OTHER);
+
+    ps = bind(staticStatement(mapping("anything")), "value");
+    verify(ps).setString(1, "value");
+
+    ps = bind(staticStatement(mapping("id")), null);
+    verify(ps).setNull(1, Types.OTHER);
+  }
+
+  @Test
+  public void shouldSkipOutParametersKeepingTheirPositions() throws Exception {
+    ParameterMapping out = new ParameterMapping.Builder(configuration, "username", String.class)
+        .mode(ParameterMode.OUT).jdbcType(JdbcType.VARCHAR).build();
+    MappedStatement ms = staticStatement(out, mapping("id"));
+    Author author = new Author(3);
+    BoundSql boundSql = ms.getBoundSql(author);
+    PreparedStatement ps = mock(PreparedStatement.class);
+    Object[] values = new Object[2];
+    ParameterBinder.forBoundSql(ms, boundSql, author).bind(ps, boundSql, author, values);
+    verify(ps).setInt(2, 3);
+    verifyNoMoreInteractions(ps);
+    assertEquals(Arrays.<Object>asList(null, 3), Arrays.asList(values));
+  }
+
+  @Test
+  public void shouldReadAdditionalParametersFirst() throws Exception {
+    MappedStatement ms = staticStatement(mapping("id"));
+    Author author = new Author(3);
+    BoundSql boundSql = ms.getBoundSql(author);
+    boundSql.setAdditionalParameter("id", 4);
+    PreparedStatement ps = mock(PreparedStatement.class);
+    ParameterBinder.forBoundSql(ms, boundSql, author).bind(ps, boundSql, author, null);
+    verify(ps).setInt(1, 4);
+  }
+
+  @Test
+  public void shouldReportMissingGettersWhenBinding() throws Exception {
+    MappedStatement ms = staticStatement(mapping("missing"));
+    try {
+      bind(ms, new Author(3));
+      fail();
+    }
+    catch (ReflectionException e) {
+      assertEquals("There is no getter for property named 'missing' in 'class org.apache.ibatis.domain.blog.Author'", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldCacheBindersOfStaticSqlByParameterClass() {
+    MappedStatement ms = staticStatement(mapping("id"));
+    Author author = new Author(3);
+    ParameterBinder binder = ParameterBinder.forBoundSql(ms, ms.getBoundSql(author), author);
+    assertSame(binder, ParameterBinder.forBoundSql(ms, ms.getBoundSql(author), new Author(4)));
+    assertNotSame(binder, ParameterBinder.forBoundSql(ms, ms.getBoundSql(null), null));
+    assertSame(binder, ms.getParameterBinder(binder.getParameterMappings(), Author.class));
+  }
+
+  @Test
+  public void shouldNotCacheBindersOfChangingParameterMappings() {
+    SqlSource sqlSource = new SqlSource() {
+      @Override
+      public BoundSql getBoundSql(Object parameterObject) {
+        List<ParameterMapping> mappings = new ArrayList<ParameterMapping>();
+        mappings.add(mapping("id"));
+        return new BoundSql(configuration, "select ?", mappings, parameterObject);
+      }
+    };
+    MappedStatement ms = new MappedStatement.Builder(configuration, "dynamic", sqlSource, SqlCommandType.SELECT).build();
+    Author author = new Author(3);
+    BoundSql boundSql = ms.getBoundSql(author);
+    ParameterBinder.forBoundSql(ms, boundSql, author);
+    assertNull(ms.getParameterBinder(boundSql.getParameterMappings(), Author.class));
+  }
+
+  private PreparedStatement bind(MappedStatement ms, Object parameterObject) {
+    BoundSql boundSql = ms.getBoundSql(parameterObject);
+    PreparedStatement ps = mock(PreparedStatement.class);
+    ParameterBinder.forBoundSql(ms, boundSql, parameterObject).bind(ps, boundSql, parameterObject, null);
+    return ps;
+  }
+
+  private ParameterMapping mapping(String property) {
+    Class<?> javaType = "id".equals(property) ? Integer.class : "missing".equals(property) ? Object.class : String.class;
+    return new ParameterMapping.Builder(configuration, property, javaType).build();
+  }
+
+  private MappedStatement staticStatement(ParameterMapping... mappings) {
+    SqlSource sqlSource = new StaticSqlSource(configuration, "select ?", Arrays.asList(mappings));
+    return new MappedStatement.Builder(configuration, "static", sqlSource, SqlCommandType.SELECT).build();
+  }
+
+}
@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2016 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResultSetWrapperTest {
+
+  @Mock
+  private ResultSet rs;
+
+  @Mock
+  private ResultSetMetaData rsmd;
+
+  private final Configuration configuration = new Configuration();
+
+  private ResultSetWrapper rsw;
+
+  @Before
+  public void setUp() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(3);
+    when(rsmd.getColumnLabel(1)).thenReturn("Id");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getName());
+    when(rsmd.getColumnLabel(2)).thenReturn("user_name");
+    when(rsmd.getColumnType(2)).thenReturn(Types.VARCHAR);
+    when(rsmd.getColumnClassName(2)).thenReturn(String.class.getName());
+    when(rsmd.getColumnLabel(3)).thenReturn("a_ID");
+    when(rsmd.getColumnType(3)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(3)).thenReturn(Integer.class.getName());
+    rsw = new ResultSetWrapper(rs, configuration);
+  }
+
+  @Test
+  public void shouldLookupColumnsIgnoringCase() {
+    assertEquals(Arrays.asList("Id", "user_name", "a_ID"), rsw.getColumnNames());
+    assertEquals(0, rsw.getColumnIndex("ID"));
+    assertEquals(1, rsw.getColumnIndex("User_Name"));
+    assertEquals(-1, rsw.getColumnIndex("missing"));
+    assertEquals(JdbcType.VARCHAR, rsw.getJdbcType("USER_NAME"));
+  }
+
+  @Test
+  public void shouldCacheTypeHandlersByColumn() {
+    TypeHandler<?> handler = rsw.getTypeHandler(Integer.class, "id");
+    assertTrue(handler instanceof IntegerTypeHandler);
+    assertSame(handler, rsw.getTypeHandler(Integer.class, "ID"));
+    assertTrue(rsw.getTypeHandler(String.class, "id") instanceof StringTypeHandler);
+    assertSame(handler, rsw.getTypeHandler(Integer.class, "Id"));
+  }
+
+  @Test
+  public void shouldSplitMappedAndUnmappedColumns() throws Exception {
+    ResultMap resultMap = new ResultMap.Builder(configuration, "map", Object.class, new ArrayList<ResultMapping>() {
+      {
+        add(new ResultMapping.Builder(configuration, "id", "id", new IntegerTypeHandler()).build());
+        add(new ResultMapping.Builder(configuration, "other", "other", new IntegerTypeHandler()).build());
+      }
+    }).build();
+    assertEquals(Collections.singletonList("ID"), rsw.getMappedColumnNames(resultMap, null));
+    assertEquals(Arrays.asList("user_name", "a_ID"), rsw.getUnmappedColumnNames(resultMap, null));
+    assertArrayEquals(new boolean[] { true, false }, rsw.getMappedPropertyMappings(resultMap, null));
+    assertTrue(rsw.isMappedColumn(resultMap, null, "Id"));
+
+    assertEquals(Collections.singletonList("A_ID"), rsw.getMappedColumnNames(resultMap, "a_"));
+    assertArrayEquals(new boolean[] { true, false }, rsw.getMappedPropertyMappings(resultMap, "a_"));
+    assertFalse(rsw.isMappedColumn(resultMap, "a_", "id"));
+  }
+
+}
@@ -17,6 +17,7 @@ package org.apache.ibatis.jdbc;
 
 import static org.junit.Assert.*;
 
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -26,7 +27,11 @@ import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PoolMetrics;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.Ignore;
@@ -91,6 +96,54 @@ public class PooledDataSourceTest extends BaseDataTest {
     c.close();
   }
 
+  @Test
+  public void shouldPublishPoolMetrics() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(2);
+      ds.setPoolMaximumIdleConnections(1);
+      List<Connection> connections = new ArrayList<Connection>();
+      for (int i = 0; i < 2; i++) {
+        connections.add(ds.getConnection());
+      }
+      PoolMetrics metrics = ds.getPoolMetrics();
+      assertEquals(2, metrics.getActiveConnections());
+      assertEquals(0, metrics.getIdleConnections());
+      assertEquals(2, metrics.getCheckoutCount());
+      assertEquals(2, metrics.getCreatedConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, metrics.getActiveConnections());
+      assertEquals(1, metrics.getIdleConnections());
+      assertEquals(2, metrics.getCheckoutTimeHistogram().getCount());
+      assertEquals(1, metrics.getClosedConnectionCount());
+      assertEquals(0, metrics.getTimeoutCount());
+      assertEquals(0d, metrics.getBadConnectionRate(), 0d);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldRegisterPoolMetricsInJmx() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ds.setJmxName("jpetstore");
+      ObjectName name = ds.getPoolMetrics().getObjectName();
+      assertTrue(server.isRegistered(name));
+      ds.getConnection().close();
+      assertEquals(1L, server.getAttribute(name, "CheckoutCount"));
+      assertEquals(1, server.getAttribute(name, "IdleConnections"));
+      ds.setJmxName(null);
+      assertFalse(server.isRegistered(name));
+    } finally {
+      ds.setJmxName(null);
+      ds.forceCloseAll();
+    }
+  }
+
   @Ignore("See the comments")
   @Test
   public void shouldReconnectWhenServerKilledLeakedConnection() throws Exception {
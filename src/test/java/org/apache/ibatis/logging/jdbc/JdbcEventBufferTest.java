@@ -0,0 +1,123 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.logging.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class JdbcEventBufferTest {
+
+  private final Configuration configuration = new Configuration();
+
+  private final MappedStatement ms = new MappedStatement.Builder(configuration, "ns.update",
+      new StaticSqlSource(configuration, "update users\n  set name = ?\n  where id = ?"), SqlCommandType.UPDATE).build();
+
+  @Test
+  public void shouldRoundCapacityToPowerOfTwo() {
+    assertEquals(1, new JdbcEventBuffer(1).getCapacity());
+    assertEquals(8, new JdbcEventBuffer(5).getCapacity());
+    assertEquals(16, new JdbcEventBuffer(16).getCapacity());
+  }
+
+  @Test
+  public void shouldFormatRecordedEvents() {
+    JdbcEventBuffer buffer = new JdbcEventBuffer(4);
+    buffer.record(ms, ms.getBoundSql(null).getSql(), new Object[] { "John", 1 }, TimeUnit.MICROSECONDS.toNanos(42), 1);
+    buffer.record(ms, "select 1", null, 0, JdbcEventBuffer.QUERY);
+    buffer.record(ms, "insert into users values (?)", new Object[] { null }, 0, JdbcEventBuffer.BATCHED);
+
+    List<String> lines = buffer.format(10);
+    assertEquals(3, lines.size());
+    assertTrue(lines.get(0), lines.get(0).endsWith(
+        " ns.update ==> update users set name = ? where id = ? | Parameters: John(String), 1(Integer) | 42 us | Updates: 1"));
+    assertTrue(lines.get(1), lines.get(1).endsWith(" ns.update ==> select 1 | Parameters:  | 0 us"));
+    assertTrue(lines.get(2), lines.get(2).endsWith(" | Parameters: null | 0 us | batched"));
+    assertEquals(1, buffer.format(1).size());
+  }
+
+  @Test
+  public void shouldKeepOnlyTheMostRecentEvents() {
+    JdbcEventBuffer buffer = new JdbcEventBuffer(4);
+    for (int i = 0; i < 10; i++) {
+      buffer.record(ms, "select " + i, null, 0, JdbcEventBuffer.QUERY);
+    }
+    List<String> lines = buffer.format(10);
+    assertEquals(4, lines.size());
+    assertTrue(lines.get(0).contains("select 6"));
+    assertTrue(lines.get(3).contains("select 9"));
+    assertEquals(10, buffer.getRecordedCount());
+
+    buffer.flushToLog();
+    assertEquals(6, buffer.getDroppedCount());
+  }
+
+  @Test
+  public void shouldNotRelogFlushedEvents() {
+    JdbcEventBuffer buffer = new JdbcEventBuffer(4);
+    buffer.record(ms, "select 1", null, 0, JdbcEventBuffer.QUERY);
+    buffer.flushToLog();
+    buffer.record(ms, "select 2", null, 0, JdbcEventBuffer.QUERY);
+    buffer.flushToLog();
+    assertEquals(0, buffer.getDroppedCount());
+  }
+
+  @Test
+  public void shouldCaptureMutableParametersWhenRecorded() {
+    JdbcEventBuffer buffer = new JdbcEventBuffer(4);
+    StringBuilder name = new StringBuilder("John");
+    Date date = new Date(0);
+    buffer.record(ms, "update users set name = ?", new Object[] { name, date }, 0, 1);
+    name.append(" Doe");
+    date.setTime(TimeUnit.DAYS.toMillis(365));
+
+    String line = buffer.format(1).get(0);
+    assertTrue(line, line.contains("Parameters: John(StringBuilder), " + new Date(0) + "(Date) |"));
+  }
+
+  @Test
+  public void shouldStopLoggingOnClose() {
+    Configuration configuration = new Configuration();
+    configuration.setJdbcEventLogInterval(10);
+    configuration.setJdbcEventBufferSize(4);
+    JdbcEventBuffer buffer = configuration.getJdbcEventBuffer();
+    assertTrue(buffer.isLogging());
+    configuration.close();
+    assertFalse(buffer.isLogging());
+  }
+
+  @Test
+  public void shouldBeConfigurable() {
+    Configuration configuration = new Configuration();
+    assertNull(configuration.getJdbcEventBuffer());
+    configuration.setJdbcEventBufferSize(100);
+    assertEquals(128, configuration.getJdbcEventBuffer().getCapacity());
+    configuration.setJdbcEventBufferSize(0);
+    assertNull(configuration.getJdbcEventBuffer());
+  }
+
+}
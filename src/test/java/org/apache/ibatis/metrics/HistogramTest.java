@@ -0,0 +1,56 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+  @Test
+  public void shouldComputeSummaryValues() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(5050, histogram.getSum());
+    assertEquals(50, histogram.getMean());
+    assertEquals(100, histogram.getMax());
+    assertEquals(63, histogram.getPercentile(50));
+    assertEquals(100, histogram.getPercentile(99));
+  }
+
+  @Test
+  public void shouldNeverReportMoreThanTheMaximum() {
+    Histogram histogram = new Histogram();
+    histogram.record(0);
+    histogram.record(1000);
+    assertEquals(0, histogram.getPercentile(50));
+    assertEquals(1000, histogram.getPercentile(100));
+    assertTrue(histogram.getBucketCounts()[0] == 1);
+  }
+
+  @Test
+  public void shouldReset() {
+    Histogram histogram = new Histogram();
+    histogram.record(5);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(99));
+  }
+
+}
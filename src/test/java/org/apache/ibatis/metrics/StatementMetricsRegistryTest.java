@@ -0,0 +1,103 @@
+/**
+ * Copyright 2009-2018 the original author or authors.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class StatementMetricsRegistryTest {
+
+  private final Configuration configuration = new Configuration();
+
+  private final MappedStatement ms = new MappedStatement.Builder(configuration, "ns.select",
+      new StaticSqlSource(configuration, "select 1"), SqlCommandType.SELECT).build();
+
+  @Test
+  public void shouldReturnNullWhenDisabled() {
+    StatementMetricsRegistry registry = new StatementMetricsRegistry();
+    assertNull(registry.forStatement(ms));
+    registry.setEnabled(true);
+    assertNotNull(registry.forStatement(ms));
+  }
+
+  @Test
+  public void shouldReportSlowQueries() {
+    StatementMetricsRegistry registry = new StatementMetricsRegistry();
+    registry.setEnabled(true);
+    registry.setSlowQueryThreshold(100);
+    RecordingExporter exporter = new RecordingExporter();
+    registry.addExporter(exporter);
+
+    StatementMetrics metrics = registry.forStatement(ms);
+    registry.recordExecution(metrics, ms, null, null, TimeUnit.MILLISECONDS.toNanos(10), false);
+    registry.recordExecution(metrics, ms, null, null, TimeUnit.MILLISECONDS.toNanos(150), true);
+
+    assertEquals(2, metrics.getExecutions());
+    assertEquals(1, metrics.getErrors());
+    assertEquals(1, metrics.getSlowQueries());
+    assertEquals(1, exporter.slowQueries.size());
+    SlowQuery slowQuery = exporter.slowQueries.get(0);
+    assertEquals("ns.select", slowQuery.getStatementId());
+    assertEquals("select 1", slowQuery.getSql());
+    assertEquals(150, slowQuery.getElapsedMillis());
+    assertEquals(1, registry.getRecentSlowQueries().size());
+
+    registry.export();
+    assertEquals(1, exporter.exported.size());
+  }
+
+  @Test
+  public void shouldKeepOnlyTheMostRecentSlowQueries() {
+    StatementMetricsRegistry registry = new StatementMetricsRegistry();
+    registry.setEnabled(true);
+    registry.setSlowQueryThreshold(1);
+    StatementMetrics metrics = registry.forStatement(ms);
+    for (int i = 1; i <= 200; i++) {
+      registry.recordExecution(metrics, ms, null, null, TimeUnit.MILLISECONDS.toNanos(i), false);
+    }
+    List<SlowQuery> recent = registry.getRecentSlowQueries();
+    assertEquals(128, recent.size());
+    assertEquals(73, recent.get(0).getElapsedMillis());
+    assertEquals(200, recent.get(127).getElapsedMillis());
+  }
+
+  private static class RecordingExporter implements MetricsExporter {
+
+    private final List<SlowQuery> slowQueries = new ArrayList<SlowQuery>();
+
+    private final List<StatementMetrics> exported = new ArrayList<StatementMetrics>();
+
+    @Override
+    public void slowQuery(SlowQuery slowQuery) {
+      slowQueries.add(slowQuery);
+    }
+
+    @Override
+    public void export(Collection<StatementMetrics> statements) {
+      exported.addAll(statements);
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.junit.Test;
+
+public class PropertyPathTest {
+
+  @Test
+  public void shouldSplitExpressionIntoSegments() {
+    PropertyPath path = PropertyPath.compile("order.items[0].sku");
+    assertEquals(3, path.size());
+    assertEquals("order", path.getSegment(0).getName());
+    assertEquals("items", path.getSegment(1).getName());
+    assertEquals("0", path.getSegment(1).getIndex());
+    assertEquals("items[0]", path.getSegment(1).getIndexedName());
+    assertEquals("items[0].sku", path.getSuffix(1));
+    assertEquals("sku", path.getSegment(2).getName());
+    assertFalse(path.getSegment(2).hasNext());
+  }
+
+  @Test
+  public void shouldCacheCompiledPaths() {
+    assertSame(PropertyPath.compile("richType.richField"), PropertyPath.compile("richType.richField"));
+  }
+
+  @Test
+  public void shouldNotCacheForEachItemNames() {
+    PropertyPath path = PropertyPath.compile("__frch_item_0.name");
+    assertEquals("name", path.getSegment(1).getName());
+    assertFalse(PropertyPath.isCached("__frch_item_0.name"));
+  }
+
+  @Test
+  public void shouldEvictPathsPastTheMaximumSize() {
+    for (int i = 0; i < 5000; i++) {
+      PropertyPath.compile("generated" + i + ".name");
+    }
+    assertTrue(PropertyPath.getCachedCount() <= 4096);
+    assertTrue(PropertyPath.isCached("generated4999.name"));
+  }
+
+  @Test
+  public void shouldWalkBeansMapsAndLists() {
+    RichType rich = new RichType();
+    RichType child = new RichType();
+    child.setRichProperty("foo");
+    rich.getRichMap().put("child", child);
+    rich.getRichList().add(child);
+    MetaObject meta = SystemMetaObject.forObject(rich);
+    assertEquals("foo", meta.getValue(PropertyPath.compile("richMap.child.richProperty")));
+    assertEquals("foo", meta.getValue(PropertyPath.compile("richList[1].richProperty")));
+    assertNull(meta.getValue(PropertyPath.compile("richType.richProperty")));
+  }
+
+  @Test
+  public void shouldResolveAccessorsForEachRuntimeType() {
+    PropertyPath path = PropertyPath.compile("richMap.value.id");
+    RichType rich = new RichType();
+    rich.getRichMap().put("value", new Author(1));
+    assertEquals(1, SystemMetaObject.forObject(rich).getValue(path));
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("id", "map");
+    rich.getRichMap().put("value", map);
+    assertEquals("map", SystemMetaObject.forObject(rich).getValue(path));
+    rich.getRichMap().put("value", new Author(2));
+    assertEquals(2, SystemMetaObject.forObject(rich).getValue(path));
+  }
+
+  @Test
+  public void shouldInstantiateMissingIntermediateValues() {
+    RichType rich = new RichType();
+    MetaObject meta = SystemMetaObject.forObject(rich);
+    meta.setValue(PropertyPath.compile("richType.richType.richProperty"), "foo");
+    assertEquals("foo", rich.getRichType().getRichType().getRichProperty());
+    meta.setValue(PropertyPath.compile("richType.richType.richProperty"), "bar");
+    assertEquals("bar", rich.getRichType().getRichType().getRichProperty());
+    meta.setValue(PropertyPath.compile("richMap.author.favouriteSection"), Section.NEWS);
+    assertTrue(rich.getRichMap().get("author") instanceof Map);
+  }
+
+  @Test(expected = ReflectionException.class)
+  public void shouldFailOnUnknownNestedProperty() {
+    RichType rich = new RichType();
+    rich.setRichType(new RichType());
+    SystemMetaObject.forObject(rich).setValue(PropertyPath.compile("richType.unknown"), "foo");
+  }
+
+}
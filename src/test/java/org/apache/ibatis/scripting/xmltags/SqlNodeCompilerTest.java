@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2015 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class SqlNodeCompilerTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  public void shouldCompileConditionsIntoGeneratedClass() {
+    SqlNode root = new MixedSqlNode(Arrays.<SqlNode>asList(
+        new StaticTextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, new MixedSqlNode(Arrays.<SqlNode>asList(
+            new IfSqlNode(new StaticTextSqlNode("AND ID = #{id}"), "id != null"),
+            new ChooseSqlNode(Arrays.<SqlNode>asList(
+                new IfSqlNode(new StaticTextSqlNode("AND TITLE = #{title}"), "title != null")),
+                new StaticTextSqlNode("AND TITLE IS NULL")))))));
+    SqlNode compiled = SqlNodeCompiler.compile(root);
+    assertTrue(compiled instanceof CompiledSqlNode);
+
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("id", 1);
+    parameter.put("title", null);
+    assertSameSql(root, compiled, parameter);
+    parameter.put("id", null);
+    parameter.put("title", "Title");
+    assertSameSql(root, compiled, parameter);
+  }
+
+  @Test
+  public void shouldNotCompileStaticText() {
+    SqlNode text = new StaticTextSqlNode("SELECT * FROM BLOG");
+    assertSame(text, SqlNodeCompiler.compile(text));
+  }
+
+  private void assertSameSql(SqlNode interpreted, SqlNode compiled, Object parameter) {
+    BoundSql expected = new DynamicSqlSource(configuration, interpreted).getBoundSql(parameter);
+    BoundSql actual = new DynamicSqlSource(configuration, compiled).getBoundSql(parameter);
+    assertEquals(expected.getSql(), actual.getSql());
+    assertEquals(expected.getParameterMappings().size(), actual.getParameterMappings().size());
+  }
+
+}
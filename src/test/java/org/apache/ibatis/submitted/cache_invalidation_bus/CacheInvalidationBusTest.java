@@ -0,0 +1,165 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_invalidation_bus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.Reader;
+import java.sql.Connection;
+
+import org.apache.ibatis.cache.invalidation.LocalInvalidationTransport;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheInvalidationBusTest {
+
+  private SqlSessionFactory nodeA;
+
+  private SqlSessionFactory nodeB;
+
+  @Before
+  public void setUp() throws Exception {
+    nodeA = newNode();
+    nodeB = newNode();
+
+    // populate in-memory database
+    SqlSession session = nodeA.openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_invalidation_bus/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @After
+  public void tearDown() {
+    nodeA.getConfiguration().close();
+    nodeB.getConfiguration().close();
+  }
+
+  private SqlSessionFactory newNode() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_invalidation_bus/mybatis-config.xml");
+    SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    return sqlSessionFactory;
+  }
+
+  @Test
+  public void shouldLeaveChannelOnClose() {
+    assertEquals(2, LocalInvalidationTransport.getMemberCount(LocalInvalidationTransport.DEFAULT_CHANNEL));
+    nodeA.getConfiguration().close();
+    assertEquals(1, LocalInvalidationTransport.getMemberCount(LocalInvalidationTransport.DEFAULT_CHANNEL));
+    nodeB.getConfiguration().close();
+    assertEquals(0, LocalInvalidationTransport.getMemberCount(LocalInvalidationTransport.DEFAULT_CHANNEL));
+  }
+
+  @Test
+  public void shouldClearNamespaceOnOtherNodes() {
+    User user = getUser(nodeA);
+    assertSame(user, getUser(nodeA));
+    getUser(nodeB);
+
+    SqlSession sqlSession = nodeB.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).renameUser(1, "Renamed");
+      sqlSession.commit();
+    }
+    finally {
+      sqlSession.close();
+    }
+
+    User reloaded = getUser(nodeA);
+    assertNotSame(user, reloaded);
+    assertEquals("Renamed", reloaded.getName());
+    assertEquals(1, nodeB.getConfiguration().getCacheInvalidationBus().getPublishedCount());
+    assertEquals(1, nodeA.getConfiguration().getCacheInvalidationBus().getReceivedCount());
+    assertEquals(0, nodeA.getConfiguration().getCacheInvalidationBus().getPublishedCount());
+  }
+
+  @Test
+  public void shouldInvalidateTablesOnOtherNodes() {
+    nodeA.getConfiguration().setTableLevelCacheInvalidation(true);
+    nodeB.getConfiguration().setTableLevelCacheInvalidation(true);
+    User user = getUser(nodeA);
+    User item = getItem(nodeA);
+
+    SqlSession sqlSession = nodeB.openSession();
+    try {
+      sqlSession.getMapper(WriteMapper.class).touchItems();
+      sqlSession.commit();
+    }
+    finally {
+      sqlSession.close();
+    }
+
+    assertSame(user, getUser(nodeA));
+    assertNotSame(item, getItem(nodeA));
+  }
+
+  @Test
+  public void shouldCoalesceInvalidationsUntilFlushed() {
+    nodeB.getConfiguration().setCacheInvalidationBatchDelay(60000);
+    User user = getUser(nodeA);
+
+    for (int i = 0; i < 2; i++) {
+      SqlSession sqlSession = nodeB.openSession();
+      try {
+        sqlSession.getMapper(Mapper.class).renameUser(1, "Renamed" + i);
+        sqlSession.commit();
+      }
+      finally {
+        sqlSession.close();
+      }
+    }
+    assertSame(user, getUser(nodeA));
+
+    nodeB.getConfiguration().getCacheInvalidationBus().flush();
+    assertEquals("Renamed1", getUser(nodeA).getName());
+    assertEquals(1, nodeB.getConfiguration().getCacheInvalidationBus().getPublishedCount());
+  }
+
+  private static User getUser(SqlSessionFactory node) {
+    SqlSession sqlSession = node.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getUser(1);
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  private static User getItem(SqlSessionFactory node) {
+    SqlSession sqlSession = node.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getItem(1);
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_refresh_ahead;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheRefreshAheadTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_refresh_ahead/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_refresh_ahead/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldReadCacheProperties() {
+    ExpiringCache cache = sqlSessionFactory.getConfiguration().getRefreshAheadCache("org.apache.ibatis.submitted.cache_refresh_ahead.Mapper");
+    assertEquals(5000, cache.getTimeToLive());
+    assertEquals(0.1, cache.getRefreshAhead(), 0);
+  }
+
+  @Test
+  public void shouldRefreshHotEntriesBeforeExpiry() throws Exception {
+    long start = System.currentTimeMillis();
+    User user = getUser();
+    assertSame(user, getUser());
+
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      // not in the cached namespace: the cache is not flushed
+      sqlSession.getMapper(WriteMapper.class).renameUser(1, "Renamed");
+      sqlSession.commit();
+    }
+    finally {
+      sqlSession.close();
+    }
+    assertSame(user, getUser());
+
+    Thread.sleep(600);
+    // old enough to be refreshed in the background
+    assertEquals("User1", getUser().getName());
+    User refreshed = getUser();
+    while (refreshed == user && System.currentTimeMillis() - start < 4000) {
+      Thread.sleep(50);
+      refreshed = getUser();
+    }
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    assertEquals("Renamed", refreshed.getName());
+  }
+
+  private User getUser() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getUser(1);
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+}
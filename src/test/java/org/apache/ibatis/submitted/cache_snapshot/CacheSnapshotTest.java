@@ -0,0 +1,267 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSnapshotManager;
+import org.apache.ibatis.cache.decorators.SnapshotCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheSnapshotTest {
+
+  private static final String MAPPER = "org/apache/ibatis/submitted/cache_snapshot/Mapper.xml";
+
+  private final List<SqlSessionFactory> factories = new ArrayList<SqlSessionFactory>();
+
+  private File directory;
+
+  @Before
+  public void setUp() throws Exception {
+    directory = File.createTempFile("cache_snapshot", "");
+    directory.delete();
+    directory.mkdir();
+    runScript(build(MAPPER), "org/apache/ibatis/submitted/cache_snapshot/CreateDB.sql");
+  }
+
+  @After
+  public void tearDown() {
+    for (SqlSessionFactory factory : factories) {
+      factory.getConfiguration().getCacheSnapshotManager().close();
+    }
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  @Test
+  public void shouldRestoreEntriesLazilyAfterRestart() throws Exception {
+    SqlSessionFactory first = build(MAPPER);
+    assertEquals("User1", getUser(first, 1).getName());
+    assertEquals("User2", getUser(first, 2).getName());
+    assertEquals(2, first.getConfiguration().getCacheSnapshotManager().saveAll());
+
+    SqlSessionFactory second = build(MAPPER);
+    rename(1, "Changed");
+    assertEquals("User1", getUser(second, 1).getName());
+    CacheSnapshotManager manager = second.getConfiguration().getCacheSnapshotManager();
+    assertEquals(1, manager.getRestoredCount());
+    assertEquals(1, findSnapshotCache(second).getSnapshotSize());
+
+    // the entry never read is carried over
+    assertEquals(2, manager.saveAll());
+  }
+
+  @Test
+  public void shouldWriteTheSnapshotsWhenTheConfigurationIsClosed() throws Exception {
+    SqlSessionFactory first = build(MAPPER);
+    getUser(first, 1);
+    first.getConfiguration().close();
+    assertTrue(first.getConfiguration().getCacheSnapshotManager().getSnapshotFile(Mapper.class.getName()).isFile());
+
+    SqlSessionFactory second = build(MAPPER);
+    rename(1, "Changed");
+    assertEquals("User1", getUser(second, 1).getName());
+    assertEquals(1, second.getConfiguration().getCacheSnapshotManager().getRestoredCount());
+  }
+
+  @Test
+  public void shouldDiscardTheSnapshotWhenTheMappingChanged() throws Exception {
+    SqlSessionFactory first = build(MAPPER);
+    getUser(first, 1);
+    first.getConfiguration().getCacheSnapshotManager().saveAll();
+
+    SqlSessionFactory second = build("org/apache/ibatis/submitted/cache_snapshot/ChangedMapper.xml");
+    assertEquals("USER1", getUser(second, 1).getName());
+    CacheSnapshotManager manager = second.getConfiguration().getCacheSnapshotManager();
+    assertEquals(1, manager.getDiscardedCount());
+    assertEquals(0, manager.getRestoredCount());
+  }
+
+  @Test
+  public void shouldDiscardOldSnapshots() throws Exception {
+    SqlSessionFactory first = build(MAPPER);
+    getUser(first, 1);
+    first.getConfiguration().getCacheSnapshotManager().saveAll();
+
+    SqlSessionFactory second = build(MAPPER);
+    second.getConfiguration().setCacheSnapshotMaxAge(1);
+    Thread.sleep(20);
+    rename(1, "Fresh");
+    assertEquals("Fresh", getUser(second, 1).getName());
+    assertEquals(1, second.getConfiguration().getCacheSnapshotManager().getDiscardedCount());
+  }
+
+  @Test
+  public void shouldDropTheSnapshotWhenTheCacheIsFlushed() throws Exception {
+    SqlSessionFactory first = build(MAPPER);
+    getUser(first, 1);
+    getUser(first, 2);
+    first.getConfiguration().getCacheSnapshotManager().saveAll();
+
+    SqlSessionFactory second = build(MAPPER);
+    getUser(second, 1);
+    SqlSession sqlSession = second.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).renameUser(2, "Renamed");
+      sqlSession.commit();
+    }
+    finally {
+      sqlSession.close();
+    }
+    assertEquals(0, findSnapshotCache(second).getSnapshotSize());
+    assertEquals("Renamed", getUser(second, 2).getName());
+  }
+
+  @Test
+  public void shouldDeleteTheSnapshotOnceMapped() throws Exception {
+    SqlSessionFactory first = build(MAPPER);
+    getUser(first, 1);
+    CacheSnapshotManager manager = first.getConfiguration().getCacheSnapshotManager();
+    manager.saveAll();
+    File file = manager.getSnapshotFile(Mapper.class.getName());
+    assertTrue(file.isFile());
+
+    SqlSessionFactory second = build(MAPPER);
+    assertEquals("User1", getUser(second, 1).getName());
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void shouldDeleteTheSnapshotWhenTheCacheIsFlushedUnread() throws Exception {
+    SqlSessionFactory first = build(MAPPER);
+    getUser(first, 1);
+    CacheSnapshotManager manager = first.getConfiguration().getCacheSnapshotManager();
+    manager.saveAll();
+
+    SqlSessionFactory second = build(MAPPER);
+    SqlSession sqlSession = second.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).renameUser(1, "Renamed");
+      sqlSession.commit();
+    }
+    finally {
+      sqlSession.close();
+    }
+    assertFalse(manager.getSnapshotFile(Mapper.class.getName()).exists());
+  }
+
+  @Test
+  public void shouldRestoreEntriesThroughTheEvictionPolicy() throws Exception {
+    Configuration configuration = new Configuration();
+    CacheSnapshotManager manager = new CacheSnapshotManager(configuration, directory);
+    Cache cache = new CacheBuilder("restored").size(2).snapshotManager(manager).build();
+    for (int i = 0; i < 3; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(2, manager.saveAll());
+
+    manager = new CacheSnapshotManager(configuration, directory);
+    cache = new CacheBuilder("restored").size(2).snapshotManager(manager).build();
+    cache.putObject(10, 10);
+    cache.putObject(11, 11);
+    assertEquals(2, cache.getObject(2));
+    assertEquals(2, cache.getSize());
+    // the entry evicted by the LRU policy is not written again
+    assertEquals(3, manager.saveAll());
+  }
+
+  @Test
+  public void shouldDefaultToAFiniteMaxAge() throws Exception {
+    assertEquals(86400000L, build(MAPPER).getConfiguration().getCacheSnapshotMaxAge());
+  }
+
+  @Test
+  public void shouldReadTheSettings() throws Exception {
+    SqlSessionFactory factory = build(MAPPER);
+    CacheSnapshotManager manager = factory.getConfiguration().getCacheSnapshotManager();
+    assertEquals(directory.getPath(), manager.getDirectory().getPath());
+    assertTrue(manager.getSnapshotFile(Mapper.class.getName()).getName().endsWith("cache_snapshot.Mapper.cache"));
+  }
+
+  private SqlSessionFactory build(String mapperResource) throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("snapshotDirectory", directory.getPath());
+    properties.setProperty("mapperResource", mapperResource);
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_snapshot/mybatis-config.xml");
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(reader, properties);
+    reader.close();
+    factories.add(factory);
+    return factory;
+  }
+
+  private void runScript(SqlSessionFactory factory, String resource) throws Exception {
+    SqlSession session = factory.openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader(resource);
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  private void rename(int id, String name) throws Exception {
+    SqlSession session = factories.get(0).openSession();
+    try {
+      Connection conn = session.getConnection();
+      conn.createStatement().executeUpdate("update users set name = '" + name + "' where id = " + id);
+      conn.commit();
+    }
+    finally {
+      session.close();
+    }
+  }
+
+  private User getUser(SqlSessionFactory factory, int id) {
+    SqlSession sqlSession = factory.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getUser(id);
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  private SnapshotCache findSnapshotCache(SqlSessionFactory factory) {
+    return factory.getConfiguration().getCacheSnapshotManager().getCaches().get(0);
+  }
+
+}
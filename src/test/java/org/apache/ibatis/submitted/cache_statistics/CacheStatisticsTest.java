@@ -0,0 +1,115 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.statistics.CacheStatistics;
+import org.apache.ibatis.cache.statistics.CacheStatisticsRegistry;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheStatisticsTest {
+
+  private static final String NAMESPACE = "org.apache.ibatis.submitted.cache_statistics.Mapper";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_statistics/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_statistics/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @After
+  public void tearDown() {
+    sqlSessionFactory.getConfiguration().close();
+  }
+
+  @Test
+  public void shouldRecordHitsMissesAndLoads() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      assertNotNull(getUser(1));
+    }
+    assertNotNull(getUser(2));
+
+    CacheStatisticsRegistry registry = sqlSessionFactory.getConfiguration().getCacheStatisticsRegistry();
+    CacheStatistics statistics = registry.getStatistics(NAMESPACE);
+    assertEquals(2, statistics.getHitCount());
+    assertEquals(2, statistics.getMissCount());
+    assertEquals(2, statistics.getPutCount());
+    assertEquals(2, statistics.getLoadCount());
+    assertEquals(2, statistics.getEntryCount());
+    assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(
+        new ObjectName("org.apache.ibatis.cache:type=CacheStatistics,registry=" + registry.getRegistryId()
+            + ",name=\"" + NAMESPACE + "\""), "HitCount"));
+  }
+
+  @Test
+  public void shouldCountFlushesAsClears() {
+    assertNotNull(getUser(1));
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).renameUser(1, "Renamed");
+      sqlSession.commit();
+    }
+    finally {
+      sqlSession.close();
+    }
+    assertEquals("Renamed", getUser(1).getName());
+
+    CacheStatistics statistics = sqlSessionFactory.getConfiguration().getCacheStatisticsRegistry().getStatistics(NAMESPACE);
+    assertEquals(1, statistics.getClearCount());
+    assertEquals(2, statistics.getLoadCount());
+  }
+
+  private User getUser(int id) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getUser(id);
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.scripting.xmltags.CompiledXMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledXmlTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compiled_xml/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compiled_xml/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldBuildSameSqlAsInterpretedScript() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    MappedStatement interpreted = configuration.getMappedStatement("org.apache.ibatis.submitted.compiled_xml.Mapper.findUsers");
+    MappedStatement compiled = configuration.getMappedStatement("org.apache.ibatis.submitted.compiled_xml.Mapper.findUsersCompiled");
+    assertTrue(compiled.getLang() instanceof CompiledXMLLanguageDriver);
+    for (Map<String, Object> criteria : criteria()) {
+      BoundSql expected = interpreted.getBoundSql(criteria);
+      BoundSql actual = compiled.getBoundSql(criteria);
+      assertEquals(expected.getSql(), actual.getSql());
+      assertEquals(properties(expected), properties(actual));
+    }
+  }
+
+  @Test
+  public void shouldReturnSameResultsAsInterpretedScript() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (Map<String, Object> criteria : criteria()) {
+        assertEquals(names(mapper.findUsers(criteria)), names(mapper.findUsersCompiled(criteria)));
+      }
+      assertEquals(Arrays.asList("User4", "User5"), names(mapper.findUsersCompiled(criteria(null, 4, null, null))));
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldApplyCompiledSet() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = new User();
+      user.setId(2);
+      user.setName("Renamed");
+      assertEquals(1, mapper.updateUser(user));
+      assertEquals(Arrays.asList("Renamed"), names(mapper.findUsersCompiled(criteria(null, null, Arrays.asList(2), null))));
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  private static List<Map<String, Object>> criteria() {
+    return Arrays.asList(
+        criteria(null, null, null, null),
+        criteria("User%", null, null, null),
+        criteria(null, 3, null, null),
+        criteria("User%", null, Arrays.asList(1, 3, 5), null),
+        criteria(null, null, Arrays.asList(1, 2, 3), Arrays.asList("2", null, "3")));
+  }
+
+  private static Map<String, Object> criteria(String name, Integer minId, List<Integer> ids, List<String> excluded) {
+    Map<String, Object> criteria = new HashMap<String, Object>();
+    criteria.put("name", name);
+    criteria.put("minId", minId);
+    criteria.put("ids", ids);
+    criteria.put("excluded", excluded);
+    criteria.put("orderBy", "id");
+    return criteria;
+  }
+
+  private static List<String> properties(BoundSql boundSql) {
+    List<String> properties = new ArrayList<String>();
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      properties.add(parameterMapping.getProperty());
+    }
+    return properties;
+  }
+
+  private static List<String> names(List<User> users) {
+    List<String> names = new ArrayList<String>();
+    for (User user : users) {
+      names.add(user.getName());
+    }
+    return names;
+  }
+
+}
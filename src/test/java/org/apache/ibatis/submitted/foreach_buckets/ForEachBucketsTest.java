@@ -0,0 +1,107 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.foreach_buckets;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.parsing.XPathParser;
+import org.apache.ibatis.scripting.xmltags.XMLScriptBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ForEachBucketsTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/foreach_buckets/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/foreach_buckets/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldShareSqlAcrossSizesOfTheSameBucket() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.submitted.foreach_buckets.Mapper.getUsersPadded");
+    BoundSql two = ms.getBoundSql(Collections.singletonMap("list", Arrays.asList(1, 2)));
+    BoundSql three = ms.getBoundSql(Collections.singletonMap("list", Arrays.asList(1, 2, 3)));
+    assertEquals(two.getSql(), three.getSql());
+    assertEquals(4, three.getParameterMappings().size());
+
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersPadded(Arrays.asList(1, 3));
+      assertEquals(2, users.size());
+      assertEquals("User1", users.get(0).getName());
+      assertEquals("User3", users.get(1).getName());
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test(expected = BuilderException.class)
+  public void shouldRejectBucketSizesInInsertStatements() {
+    XPathParser parser = new XPathParser("<insert id=\"insertUsers\">insert into users values"
+        + "<foreach collection=\"list\" item=\"user\" separator=\",\" bucketSizes=\"4\">(#{user.id}, #{user.name})</foreach></insert>");
+    new XMLScriptBuilder(new Configuration(), parser.evalNode("/insert")).parseScriptNode();
+  }
+
+  @Test
+  public void shouldBindCollectionAsArray() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersByArray(Arrays.asList(2, 3));
+      assertEquals(2, users.size());
+      assertEquals("User2", users.get(0).getName());
+      assertEquals("User3", users.get(1).getName());
+      assertEquals(0, mapper.getUsersByArray(Collections.<Integer>emptyList()).size());
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+}
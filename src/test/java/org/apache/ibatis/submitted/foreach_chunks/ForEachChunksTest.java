@@ -0,0 +1,238 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.foreach_chunks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ForEachChunksTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/foreach_chunks/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/foreach_chunks/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldExecuteOncePerChunk() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(Arrays.asList(2, 2, 1), mapper.countUsers(Arrays.asList(1, 2, 3, 4, 5)));
+      assertEquals(Arrays.asList(2), mapper.countUsers(Arrays.asList(1, 2)));
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldConcatenateResultsOfArrayChunks() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsers(new int[] { 1, 2, 4, 5, 6 });
+      assertEquals(4, users.size());
+      assertEquals("User1", users.get(0).getName());
+      assertEquals("User5", users.get(3).getName());
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldApplyRowBoundsOnceToTheConcatenatedResults() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<User> users = sqlSession.selectList("org.apache.ibatis.submitted.foreach_chunks.Mapper.getUsers",
+          new int[] { 1, 2, 4, 5, 6 }, new RowBounds(1, 2));
+      assertEquals(2, users.size());
+      assertEquals("User2", users.get(0).getName());
+      assertEquals("User4", users.get(1).getName());
+      assertEquals(0, sqlSession.selectList("org.apache.ibatis.submitted.foreach_chunks.Mapper.getUsers",
+          new int[] { 1, 2, 4 }, new RowBounds(5, 2)).size());
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldRejectNestedChunkParameters() throws Exception {
+    String resource = "org/apache/ibatis/submitted/foreach_chunks/NestedChunkMapper.xml";
+    InputStream inputStream = Resources.getResourceAsStream(resource);
+    try {
+      Configuration configuration = new Configuration();
+      new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+      fail();
+    }
+    catch (BuilderException e) {
+      assertTrue(e.getMessage().contains("cannot be chunked on 'query.ids'"));
+    }
+    finally {
+      inputStream.close();
+    }
+  }
+
+  @Test
+  public void shouldRejectRowBoundsWithAResultHandler() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.select("org.apache.ibatis.submitted.foreach_chunks.Mapper.getUsers", new int[] { 1, 2, 4 },
+          new RowBounds(1, 1), new ResultHandler<Object>() {
+            @Override
+            public void handleResult(ResultContext<? extends Object> resultContext) {
+              // ignored
+            }
+          });
+      fail();
+    }
+    catch (PersistenceException e) {
+      assertTrue(e.getCause() instanceof ExecutorException);
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldRejectCursorsExceedingTheChunkSize() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      assertEquals(2, count(sqlSession.<User>selectCursor("org.apache.ibatis.submitted.foreach_chunks.Mapper.getUsers", new int[] { 1, 2 })));
+      sqlSession.selectCursor("org.apache.ibatis.submitted.foreach_chunks.Mapper.getUsers", new int[] { 1, 2, 4 });
+      fail();
+    }
+    catch (PersistenceException e) {
+      assertTrue(e.getCause() instanceof ExecutorException);
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldCopyBeanParameterForEachChunk() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      UserQuery query = new UserQuery();
+      query.setIds(Arrays.asList(5, 4, 3));
+      query.setName("User%");
+      List<User> users = mapper.findUsers(query);
+      assertEquals(3, users.size());
+      assertEquals("User4", users.get(0).getName());
+      assertEquals("User5", users.get(1).getName());
+      assertEquals("User3", users.get(2).getName());
+      assertEquals(Arrays.asList(5, 4, 3), query.getIds());
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldSumUpdateCounts() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(4, mapper.renameUsers(Arrays.asList(1, 2, 3, 5, 7), "Renamed"));
+      List<User> newUsers = new ArrayList<User>();
+      for (int id = 10; id < 15; id++) {
+        User user = new User();
+        user.setId(id);
+        user.setName("User" + id);
+        newUsers.add(user);
+      }
+      assertEquals(5, mapper.insertUsers(newUsers));
+      assertEquals(Arrays.asList(2, 1, 2), mapper.countUsers(Arrays.asList(10, 11, 12, 20, 13, 14)));
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldBatchChunksInBatchSession() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(BatchExecutor.BATCH_UPDATE_RETURN_VALUE, mapper.renameUsers(Arrays.asList(1, 2, 3, 4, 5), "Renamed"));
+      int count = 0;
+      for (BatchResult batchResult : sqlSession.flushStatements()) {
+        for (int updateCount : batchResult.getUpdateCounts()) {
+          count += updateCount;
+        }
+      }
+      assertEquals(5, count);
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  private static int count(Iterable<?> cursor) {
+    int count = 0;
+    for (Object ignored : cursor) {
+      count++;
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.negative_result_cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+
+import org.apache.ibatis.cache.NegativeResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NegativeResultCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/negative_result_cache/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/negative_result_cache/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldReadTheStatementAttributes() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    NegativeResult negative = configuration.getMappedStatement("org.apache.ibatis.submitted.negative_result_cache.Mapper.getUser").getNegativeResult();
+    assertEquals(60000, negative.getTimeToLive());
+    assertEquals(100, negative.getMaxEntries());
+    assertNull(configuration.getMappedStatement("org.apache.ibatis.submitted.negative_result_cache.Mapper.findUsers").getNegativeResult());
+  }
+
+  @Test
+  public void shouldNotQueryAbsentIdsAgain() throws Exception {
+    assertNull(getUser(9));
+    insertUser(9, "User9");
+    assertNull(getUser(9));
+
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).renameUser(1, "Renamed");
+      sqlSession.commit();
+    }
+    finally {
+      sqlSession.close();
+    }
+    assertNotNull(getUser(9));
+  }
+
+  @Test
+  public void shouldNotEvictResultsToStoreEmptyResults() throws Exception {
+    assertEquals("User1", getUser(1).getName());
+    for (int i = 100; i < 120; i++) {
+      assertNull(getUser(i));
+    }
+    insertUser(1, "Duplicate");
+    assertEquals("User1", getUser(1).getName());
+  }
+
+  @Test
+  public void shouldReturnAnEmptyListFromTheCache() throws Exception {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      assertTrue(sqlSession.getMapper(Mapper.class).findUsers("Nobody").isEmpty());
+    }
+    finally {
+      sqlSession.close();
+    }
+    insertUser(5, "Nobody");
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      assertTrue(sqlSession.getMapper(Mapper.class).findUsers("Nobody").isEmpty());
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  private User getUser(int id) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getUser(id);
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  private void insertUser(int id, String name) throws Exception {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      Connection conn = session.getConnection();
+      conn.createStatement().executeUpdate("insert into users (id, name) values (" + id + ", '" + name + "')");
+      conn.commit();
+    }
+    finally {
+      session.close();
+    }
+  }
+
+}
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.statement_metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.metrics.StatementMetrics;
+import org.apache.ibatis.metrics.StatementMetricsRegistry;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StatementMetricsTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/statement_metrics/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/statement_metrics/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldReadSettings() {
+    assertTrue(sqlSessionFactory.getConfiguration().isStatementMetricsEnabled());
+    assertEquals(60000L, sqlSessionFactory.getConfiguration().getSlowQueryThreshold());
+  }
+
+  @Test
+  public void shouldRecordPhasesAndRows() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(2, mapper.getUsers().size());
+      mapper.getUsers();
+    } finally {
+      sqlSession.close();
+    }
+    StatementMetrics metrics = registry().getStatementMetrics("org.apache.ibatis.submitted.statement_metrics.Mapper.getUsers");
+    assertEquals(1, metrics.getExecutions());
+    assertEquals(1, metrics.getLocalCacheHits());
+    assertEquals(1, metrics.getPrepare().getCount());
+    assertEquals(1, metrics.getExecute().getCount());
+    assertEquals(1, metrics.getFetch().getCount());
+    assertEquals(1, metrics.getMapping().getCount());
+    assertEquals(2, metrics.getRows());
+    assertEquals(0, metrics.getErrors());
+    assertEquals(0, metrics.getSlowQueries());
+  }
+
+  @Test
+  public void shouldRecordSecondLevelCacheHitsAndMisses() {
+    for (int i = 0; i < 2; i++) {
+      SqlSession sqlSession = sqlSessionFactory.openSession();
+      try {
+        sqlSession.getMapper(Mapper.class).getUser(1);
+      } finally {
+        sqlSession.close();
+      }
+    }
+    StatementMetrics metrics = registry().getStatementMetrics("org.apache.ibatis.submitted.statement_metrics.Mapper.getUser");
+    assertEquals(1, metrics.getCacheMisses());
+    assertEquals(1, metrics.getCacheHits());
+    assertEquals(1, metrics.getExecutions());
+  }
+
+  @Test
+  public void shouldRecordUpdates() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      User user = new User();
+      user.setId(3);
+      user.setName("User3");
+      sqlSession.getMapper(Mapper.class).insertUser(user);
+    } finally {
+      sqlSession.close();
+    }
+    StatementMetrics metrics = registry().getStatementMetrics("org.apache.ibatis.submitted.statement_metrics.Mapper.insertUser");
+    assertEquals(1, metrics.getExecutions());
+    assertEquals(1, metrics.getRows());
+  }
+
+  private StatementMetricsRegistry registry() {
+    return sqlSessionFactory.getConfiguration().getStatementMetricsRegistry();
+  }
+
+}
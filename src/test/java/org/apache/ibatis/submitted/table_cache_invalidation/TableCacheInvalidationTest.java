@@ -0,0 +1,163 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_cache_invalidation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableCacheInvalidationTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_cache_invalidation/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_cache_invalidation/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldReadSettingsAndTables() {
+    assertTrue(sqlSessionFactory.getConfiguration().isTableLevelCacheInvalidation());
+    assertEquals("[items]", sqlSessionFactory.getConfiguration()
+        .getMappedStatement("org.apache.ibatis.submitted.table_cache_invalidation.WriteMapper.touchItems").getTables().toString());
+  }
+
+  @Test
+  public void shouldInvalidateOnlyEntriesReadFromWrittenTables() {
+    User user;
+    User item;
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      user = mapper.getUser(1);
+      item = mapper.getItem(1);
+    }
+    finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(WriteMapper.class).renameUser(1, "Renamed");
+      sqlSession.commit();
+    }
+    finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User reloaded = mapper.getUser(1);
+      assertNotSame(user, reloaded);
+      assertEquals("Renamed", reloaded.getName());
+      assertSame(item, mapper.getItem(1));
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldUseDeclaredTables() {
+    User user;
+    User item;
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      user = mapper.getUser(1);
+      item = mapper.getItem(1);
+    }
+    finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(WriteMapper.class).touchItems();
+      sqlSession.commit();
+    }
+    finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertSame(user, mapper.getUser(1));
+      assertNotSame(item, mapper.getItem(1));
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotReadInvalidatedEntriesInTheWritingTransaction() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).getUser(1);
+    }
+    finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(WriteMapper.class).renameUser(1, "Renamed");
+      assertEquals("Renamed", sqlSession.getMapper(Mapper.class).getUser(1).getName());
+      sqlSession.rollback();
+    }
+    finally {
+      sqlSession.close();
+    }
+
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      assertEquals("User1", sqlSession.getMapper(Mapper.class).getUser(1).getName());
+    }
+    finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -18,10 +18,18 @@ package org.apache.ibatis.type;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import java.io.Closeable;
 import java.sql.Array;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -39,6 +47,48 @@ public class ArrayTypeHandlerTest extends BaseTypeHandlerTest {
     verify(ps).setArray(1, mockArray);
   }
 
+  @Test
+  public void shouldCreateArrayFromElements() throws Exception {
+    Connection connection = mock(Connection.class);
+    Object[] elements = new Object[] {1, 2};
+    when(ps.getConnection()).thenReturn(connection);
+    when(connection.createArrayOf("INTEGER", elements)).thenReturn(mockArray);
+    TYPE_HANDLER.setParameter(ps, 1, new ArrayParameter("INTEGER", elements), null);
+    verify(ps).setArray(1, mockArray);
+  }
+
+  @Test
+  public void shouldFreeCreatedArraysOnce() throws Exception {
+    Connection connection = mock(Connection.class);
+    Object[] elements = new Object[] {1, 2};
+    when(ps.getConnection()).thenReturn(connection);
+    when(connection.createArrayOf("INTEGER", elements)).thenReturn(mockArray);
+    List<Closeable> resources = setParameterCollecting(new ArrayParameter("INTEGER", elements));
+    verify(mockArray, never()).free();
+    ParameterResources.closeAll(resources);
+    ParameterResources.closeAll(resources);
+    verify(mockArray, times(1)).free();
+  }
+
+  @Test
+  public void shouldNotFreeArraysGivenByTheCaller() throws Exception {
+    List<Closeable> resources = setParameterCollecting(mockArray);
+    assertTrue(resources.isEmpty());
+    verify(mockArray, never()).free();
+  }
+
+  private List<Closeable> setParameterCollecting(Object parameter) throws Exception {
+    List<Closeable> resources = new ArrayList<Closeable>();
+    List<Closeable> previous = ParameterResources.beginCollecting(resources);
+    try {
+      TYPE_HANDLER.setParameter(ps, 1, parameter, null);
+    }
+    finally {
+      ParameterResources.endCollecting(previous);
+    }
+    return resources;
+  }
+
   @Override
   @Test
   public void shouldGetResultFromResultSetByName() throws Exception {
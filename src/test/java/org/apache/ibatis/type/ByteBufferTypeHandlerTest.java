@@ -0,0 +1,179 @@
+/**
+ *    Copyright 2009-2016 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.sql.Blob;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+public class ByteBufferTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<ByteBuffer> TYPE_HANDLER = new ByteBufferTypeHandler();
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @Mock
+  protected Blob blob;
+
+  @BeforeClass
+  public static void setupSqlSessionFactory() throws Exception {
+    DataSource dataSource = BaseDataTest.createUnpooledDataSource("org/apache/ibatis/type/jdbc.properties");
+    BaseDataTest.runScript(dataSource, "org/apache/ibatis/type/ByteBufferTypeHandlerTest.sql");
+    Environment environment = new Environment("Production", new JdbcTransactionFactory(), dataSource);
+    Configuration configuration = new Configuration(environment);
+    configuration.addMapper(Mapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @Override
+  @Test
+  public void shouldSetParameter() throws Exception {
+    ByteBuffer buffer = ByteBuffer.wrap("Hello World".getBytes());
+    buffer.position(6);
+    TYPE_HANDLER.setParameter(ps, 1, buffer, null);
+    ArgumentCaptor<InputStream> stream = ArgumentCaptor.forClass(InputStream.class);
+    verify(ps).setBinaryStream(eq(1), stream.capture(), eq(5));
+    byte[] bytes = new byte[5];
+    assertThat(stream.getValue().read(bytes)).isEqualTo(5);
+    assertThat(new String(bytes)).isEqualTo("World");
+    assertThat(stream.getValue().read()).isEqualTo(-1);
+    assertThat(buffer.position()).isEqualTo(6);
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByName() throws Exception {
+    when(rs.getBlob("column")).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.length()).thenReturn(5L);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    assertThat(TYPE_HANDLER.getResult(rs, "column")).isEqualTo(ByteBuffer.wrap("Hello".getBytes()));
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByName() throws Exception {
+    when(rs.getBlob("column")).thenReturn(null);
+    when(rs.wasNull()).thenReturn(true);
+    assertThat(TYPE_HANDLER.getResult(rs, "column")).isNull();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByPosition() throws Exception {
+    when(rs.getBlob(1)).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.length()).thenReturn(5L);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    assertThat(TYPE_HANDLER.getResult(rs, 1)).isEqualTo(ByteBuffer.wrap("Hello".getBytes()));
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByPosition() throws Exception {
+    when(rs.getBlob(1)).thenReturn(null);
+    when(rs.wasNull()).thenReturn(true);
+    assertThat(TYPE_HANDLER.getResult(rs, 1)).isNull();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    when(cs.getBlob(1)).thenReturn(blob);
+    when(cs.wasNull()).thenReturn(false);
+    when(blob.length()).thenReturn(5L);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    assertThat(TYPE_HANDLER.getResult(cs, 1)).isEqualTo(ByteBuffer.wrap("Hello".getBytes()));
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromCallableStatement() throws Exception {
+    when(cs.getBlob(1)).thenReturn(null);
+    when(cs.wasNull()).thenReturn(true);
+    assertThat(TYPE_HANDLER.getResult(cs, 1)).isNull();
+  }
+
+  @Test
+  public void shouldSpillLargeResultsToMappedFiles() throws Exception {
+    ByteBufferTypeHandler handler = new ByteBufferTypeHandler();
+    handler.setSpillThreshold(4);
+    when(rs.getBlob(1)).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.length()).thenReturn(5L);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    ByteBuffer result = handler.getResult(rs, 1);
+    assertThat(result.isDirect()).isTrue();
+    assertThat(result.isReadOnly()).isTrue();
+    assertThat(result).isEqualTo(ByteBuffer.wrap("Hello".getBytes()));
+  }
+
+  @Test
+  public void integrationTest() throws Exception {
+    byte[] content = new byte[64 * 1024];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setLobSpillThreshold(1024);
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = session.getMapper(Mapper.class);
+      mapper.insert(1, ByteBuffer.wrap(content));
+      session.commit();
+      ByteBuffer result = mapper.findContent(1);
+      assertThat(result.isDirect()).isTrue();
+      assertThat(result).isEqualTo(ByteBuffer.wrap(content));
+    }
+    finally {
+      session.close();
+      configuration.setLobSpillThreshold(ByteBufferTypeHandler.DEFAULT_SPILL_THRESHOLD);
+    }
+  }
+
+  interface Mapper {
+    @Select("SELECT CONTENT FROM TEST_BYTE_BUFFER WHERE ID = #{id}")
+    ByteBuffer findContent(int id);
+
+    @Insert("INSERT INTO TEST_BYTE_BUFFER (ID, CONTENT) VALUES(#{id}, #{content})")
+    void insert(@Param("id") int id, @Param("content") ByteBuffer content);
+  }
+
+}
@@ -0,0 +1,151 @@
+/**
+ *    Copyright 2009-2016 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Blob;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+public class PathTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<Path> TYPE_HANDLER = new PathTypeHandler();
+
+  @Mock
+  protected Blob blob;
+
+  @Override
+  @Test
+  public void shouldSetParameter() throws Exception {
+    Path file = Files.createTempFile("mybatis-test", ".tmp");
+    try {
+      Files.write(file, "Hello".getBytes());
+      TYPE_HANDLER.setParameter(ps, 1, file, null);
+      ArgumentCaptor<InputStream> stream = ArgumentCaptor.forClass(InputStream.class);
+      verify(ps).setBinaryStream(eq(1), stream.capture(), eq(5L));
+      byte[] bytes = new byte[8];
+      assertThat(stream.getValue().read(bytes)).isEqualTo(5);
+      assertThat(new String(bytes, 0, 5)).isEqualTo("Hello");
+      // closed as soon as the announced size has been read
+      assertThat(((PathTypeHandler.ClosingInputStream) stream.getValue()).isClosed()).isTrue();
+      assertThat(stream.getValue().read(bytes)).isEqualTo(-1);
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void shouldCloseUnreadFileWithTheStatement() throws Exception {
+    Path file = Files.createTempFile("mybatis-test", ".tmp");
+    try {
+      Files.write(file, "Hello".getBytes());
+      List<Closeable> resources = new ArrayList<Closeable>();
+      List<Closeable> previous = ParameterResources.beginCollecting(resources);
+      try {
+        TYPE_HANDLER.setParameter(ps, 1, file, null);
+      }
+      finally {
+        ParameterResources.endCollecting(previous);
+      }
+      ArgumentCaptor<InputStream> stream = ArgumentCaptor.forClass(InputStream.class);
+      verify(ps).setBinaryStream(eq(1), stream.capture(), eq(5L));
+      assertThat(resources).containsExactly((Closeable) stream.getValue());
+      // the driver failed before reading the file
+      ParameterResources.closeAll(resources);
+      assertThat(((PathTypeHandler.ClosingInputStream) stream.getValue()).isClosed()).isTrue();
+      assertThat(resources).isEmpty();
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByName() throws Exception {
+    when(rs.getBlob("column")).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    assertContent(TYPE_HANDLER.getResult(rs, "column"), "Hello");
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByName() throws Exception {
+    when(rs.getBlob("column")).thenReturn(null);
+    when(rs.wasNull()).thenReturn(true);
+    assertNull(TYPE_HANDLER.getResult(rs, "column"));
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByPosition() throws Exception {
+    when(rs.getBlob(1)).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    assertContent(TYPE_HANDLER.getResult(rs, 1), "Hello");
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByPosition() throws Exception {
+    when(rs.getBlob(1)).thenReturn(null);
+    when(rs.wasNull()).thenReturn(true);
+    assertNull(TYPE_HANDLER.getResult(rs, 1));
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    when(cs.getBlob(1)).thenReturn(blob);
+    when(cs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello".getBytes()));
+    assertContent(TYPE_HANDLER.getResult(cs, 1), "Hello");
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromCallableStatement() throws Exception {
+    when(cs.getBlob(1)).thenReturn(null);
+    when(cs.wasNull()).thenReturn(true);
+    assertNull(TYPE_HANDLER.getResult(cs, 1));
+  }
+
+  private void assertContent(Path file, String expected) throws Exception {
+    try {
+      assertThat(new String(Files.readAllBytes(file))).isEqualTo(expected);
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+}
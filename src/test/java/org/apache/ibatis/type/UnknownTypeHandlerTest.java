@@ -15,10 +15,14 @@
  */
 package org.apache.ibatis.type;
 
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.spy;
@@ -151,4 +155,53 @@ public class UnknownTypeHandlerTest extends BaseTypeHandlerTest {
     }
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldResolveColumnHandlersOncePerResultSet() throws Exception {
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnName(1)).thenReturn("column");
+    when(rsmd.getColumnClassName(1)).thenReturn(String.class.getName());
+    when(rsmd.getColumnType(1)).thenReturn(JdbcType.VARCHAR.TYPE_CODE);
+    when(rs.getString("column")).thenReturn("Hello", "World");
+    when(rs.getString(1)).thenReturn("Again");
+    TypeHandler<Object> handler = new UnknownTypeHandler(new TypeHandlerRegistry());
+    assertEquals("Hello", handler.getResult(rs, "column"));
+    assertEquals("World", handler.getResult(rs, "column"));
+    assertEquals("Again", handler.getResult(rs, 1));
+    verify(rsmd, times(1)).getColumnCount();
+    verify(rsmd, times(1)).getColumnClassName(1);
+  }
+
+  @Test
+  public void shouldResolveParameterHandlersAgainAfterRegistration() throws Exception {
+    TypeHandlerRegistry registry = new TypeHandlerRegistry();
+    TypeHandler<Object> handler = registry.getUnknownTypeHandler();
+    StringBuilder parameter = new StringBuilder("Hello");
+    handler.setParameter(ps, 1, parameter, null);
+    verify(ps).setObject(1, parameter);
+    registry.register(StringBuilder.class, new BaseTypeHandler<StringBuilder>() {
+      @Override
+      public void setNonNullParameter(PreparedStatement ps, int i, StringBuilder parameter, JdbcType jdbcType) throws SQLException {
+        ps.setString(i, parameter.toString());
+      }
+
+      @Override
+      public StringBuilder getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return new StringBuilder(rs.getString(columnName));
+      }
+
+      @Override
+      public StringBuilder getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return new StringBuilder(rs.getString(columnIndex));
+      }
+
+      @Override
+      public StringBuilder getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return new StringBuilder(cs.getString(columnIndex));
+      }
+    });
+    handler.setParameter(ps, 2, parameter, null);
+    verify(ps).setString(2, "Hello");
+  }
+
+}